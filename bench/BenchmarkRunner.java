@@ -0,0 +1,162 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+// Minimal JMH-style harness: timed warmup and measurement iterations on the calling thread,
+// results consumed through a sink so the JIT can't drop the work, plus allocation per operation
+// (thread allocated bytes) and GC activity, similar to JMH's -prof gc.
+// Like JMH, every benchmark is measured in a fresh child JVM: the benchmark class's main is run
+// again there with only that benchmark enabled. In one shared JVM the Body.run() call site in
+// iteration() sees every benchmark's lambda and goes megamorphic, so later benchmarks would be
+// measured through a polluted profile. bench.forks=0 runs everything in this JVM instead, which
+// is faster but only good for a quick look. No error bounds are reported; with several forks,
+// compare the spread of their rows.
+//
+// Tuning via system properties (passed on to the forks with the rest of the JVM options):
+//   -Dbench.warmup=3 -Dbench.iterations=5 -Dbench.time=500 (ms per iteration) -Dbench.filter=<regex>
+//   -Dbench.forks=1 (child JVMs per benchmark, one result row each; 0 = no forking)
+public final class BenchmarkRunner {
+
+    // One benchmark invocation; performs opsPerCall operations and returns a value to consume
+    public interface Body {
+        double run();
+    }
+
+    private static final int WARMUP = Integer.getInteger("bench.warmup", 3);
+    private static final int ITERATIONS = Integer.getInteger("bench.iterations", 5);
+    private static final long ITERATION_NANOS = Long.getLong("bench.time", 500) * 1_000_000L;
+    private static final Pattern FILTER = Pattern.compile(System.getProperty("bench.filter", ".*"));
+    private static final int FORKS = Integer.getInteger("bench.forks", 1);
+    // Set only in a child JVM: the name of the one benchmark it measures
+    private static final String FORK_TARGET = System.getProperty("bench.forkTarget");
+    // Marks the child's result row on its stdout, so other output of the benchmark's main is dropped
+    private static final String RESULT_PREFIX = "#bench-result ";
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static volatile double sink;
+    private static boolean headerPrinted;
+
+    private BenchmarkRunner() {
+    }
+
+    public static void run(String name, long opsPerCall, Body body) {
+        if (FORK_TARGET != null) {
+            if (FORK_TARGET.equals(name)) {
+                System.out.println(RESULT_PREFIX + measure(name, opsPerCall, body));
+            }
+            return;
+        }
+        if (!FILTER.matcher(name).find()) {
+            return;
+        }
+        if (!headerPrinted) {
+            System.out.printf("%-52s %14s %14s %12s %10s%n", "Benchmark", "ns/op", "ops/s", "B/op", "GC ms");
+            headerPrinted = true;
+        }
+        if (FORKS <= 0) {
+            System.out.println(measure(name, opsPerCall, body));
+            return;
+        }
+        for (int fork = 0; fork < FORKS; fork++) {
+            String row = runFork(name);
+            System.out.println(row != null ? row : String.format("%-52s %14s", name, "fork failed"));
+        }
+    }
+
+    // Returns the result row of one benchmark
+    private static String measure(String name, long opsPerCall, Body body) {
+        for (int i = 0; i < WARMUP; i++) {
+            iteration(opsPerCall, body);
+        }
+
+        long ops = 0;
+        long nanos = 0;
+        long threadId = Thread.currentThread().getId();
+        long allocatedBefore = THREADS.getThreadAllocatedBytes(threadId);
+        long gcBefore = gcMillis();
+        for (int i = 0; i < ITERATIONS; i++) {
+            long[] result = iteration(opsPerCall, body);
+            ops += result[0];
+            nanos += result[1];
+        }
+        long allocated = THREADS.getThreadAllocatedBytes(threadId) - allocatedBefore;
+        long gc = gcMillis() - gcBefore;
+
+        return String.format("%-52s %14.3f %14.0f %12.2f %10d",
+                name, (double) nanos / ops, ops * 1e9 / nanos, (double) allocated / ops, gc);
+    }
+
+    // Measures one benchmark in a child JVM started with this JVM's options and class path;
+    // returns its result row, or null if the child failed (its stderr is passed through)
+    private static String runFork(String name) {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        // Keeps --add-modules, heap and GC flags and the bench.* properties of this run
+        command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+        command.add("-Dbench.forkTarget=" + name);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(mainClass());
+        try {
+            Process process = new ProcessBuilder(command)
+                    .redirectError(ProcessBuilder.Redirect.INHERIT)
+                    .start();
+            String row = null;
+            try (BufferedReader out = new BufferedReader(
+                    new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = out.readLine()) != null) {
+                    if (line.startsWith(RESULT_PREFIX)) {
+                        row = line.substring(RESULT_PREFIX.length());
+                    }
+                }
+            }
+            return process.waitFor() == 0 ? row : null;
+        } catch (IOException ex) {
+            System.err.println("Could not fork a JVM for " + name + ": " + ex.getMessage());
+            return null;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    // The benchmark class whose main is running: the outermost frame of the calling thread
+    private static String mainClass() {
+        StackTraceElement[] stack = Thread.currentThread().getStackTrace();
+        return stack[stack.length - 1].getClassName();
+    }
+
+    // Returns {operations, elapsed nanos} for one timed iteration
+    private static long[] iteration(long opsPerCall, Body body) {
+        long calls = 0;
+        double acc = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            acc += body.run();
+            calls++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < ITERATION_NANOS);
+        sink = acc;
+        return new long[]{calls * opsPerCall, elapsed};
+    }
+
+    private static long gcMillis() {
+        long total = 0;
+        List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+        for (GarbageCollectorMXBean collector : collectors) {
+            total += Math.max(0, collector.getCollectionTime());
+        }
+        return total;
+    }
+}
@@ -0,0 +1,157 @@
+// Throughput of the exact-money (fixed-point cents) path against the double path, for single
+// cells and for row sweeps, plus the BigDecimal audit path for scale.
+// Run with: java -cp <out> ExactMoneyBenchmark  (see BenchmarkRunner for options)
+public class ExactMoneyBenchmark {
+
+    private static final int BATCH = 1024;
+
+    public static void main(String[] args) {
+        benchmarkKernels();
+        benchmarkRowSweeps();
+    }
+
+    private static void benchmarkKernels() {
+        double[] volumes = new double[BATCH];
+        double[] costs = new double[BATCH];
+        double[] prices = new double[BATCH];
+        double[] weeks = new double[BATCH];
+        int[] demands = new int[BATCH];
+        long[] volumesLong = new long[BATCH];
+        long[] costsCents = new long[BATCH];
+        long[] pricesCents = new long[BATCH];
+        long[] weeksLong = new long[BATCH];
+        for (int i = 0; i < BATCH; i++) {
+            volumes[i] = 100 + i % 400;
+            costs[i] = (10 + i % 36) / 100.0;
+            prices[i] = 30 + (i % 41);
+            weeks[i] = 40 + i % 160;
+            demands[i] = 500 + 3 * i;
+            volumesLong[i] = (long) volumes[i];
+            costsCents[i] = Money.toCents(costs[i]);
+            pricesCents[i] = Money.toCents(prices[i]);
+            weeksLong[i] = (long) weeks[i];
+        }
+
+        BenchmarkRunner.run("money.lemonade.double", BATCH, () -> {
+            double sum = 0;
+            for (int i = 0; i < BATCH; i++) {
+                sum += LemonadeStandModel.profit(volumes[i], costs[i]);
+            }
+            return sum;
+        });
+        BenchmarkRunner.run("money.lemonade.cents", BATCH, () -> {
+            long sum = 0;
+            for (int i = 0; i < BATCH; i++) {
+                sum += LemonadeStandModel.profitCents(volumesLong[i], costsCents[i]);
+            }
+            return sum;
+        });
+        BenchmarkRunner.run("money.lemonade.bigDecimal", BATCH, () -> {
+            double sum = 0;
+            for (int i = 0; i < BATCH; i++) {
+                sum += LemonadeStandModel.profitAudit(volumesLong[i], costsCents[i]).doubleValue();
+            }
+            return sum;
+        });
+
+        BenchmarkRunner.run("money.broadway.double", BATCH, () -> {
+            double sum = 0;
+            for (int i = 0; i < BATCH; i++) {
+                sum += BroadwayPlayModel.profitForPriceAndWeeks(prices[i], weeks[i]);
+            }
+            return sum;
+        });
+        BenchmarkRunner.run("money.broadway.cents", BATCH, () -> {
+            long sum = 0;
+            for (int i = 0; i < BATCH; i++) {
+                sum += BroadwayPlayModel.profitCents(weeksLong[i], pricesCents[i],
+                        BroadwayPlayModel.EXPECTED_OCCUPANCY_BASIS_POINTS);
+            }
+            return sum;
+        });
+        BenchmarkRunner.run("money.broadway.bigDecimal", BATCH, () -> {
+            double sum = 0;
+            for (int i = 0; i < BATCH; i++) {
+                sum += BroadwayPlayModel.profitAudit(weeksLong[i], pricesCents[i],
+                        BroadwayPlayModel.EXPECTED_OCCUPANCY_BASIS_POINTS).doubleValue();
+            }
+            return sum;
+        });
+
+        BenchmarkRunner.run("money.copyShop.double", BATCH, () -> {
+            double sum = 0;
+            for (int i = 0; i < BATCH; i++) {
+                sum += CopyShopModel.profitForCopiers(1 + (i & 3), demands[i]);
+            }
+            return sum;
+        });
+        BenchmarkRunner.run("money.copyShop.cents", BATCH, () -> {
+            long sum = 0;
+            for (int i = 0; i < BATCH; i++) {
+                sum += CopyShopModel.profitForCopiersCents(1 + (i & 3), demands[i]);
+            }
+            return sum;
+        });
+        BenchmarkRunner.run("money.copyShop.bigDecimal", BATCH, () -> {
+            double sum = 0;
+            for (int i = 0; i < BATCH; i++) {
+                sum += CopyShopModel.profitForCopiersAudit(1 + (i & 3), demands[i]).doubleValue();
+            }
+            return sum;
+        });
+    }
+
+    // 1000 x 1000 grids through the row kernels
+    private static void benchmarkRowSweeps() {
+        int side = 1000;
+        long cells = (long) side * side;
+        double[] columns = new double[side];
+        double[] costs = new double[side];
+        long[] columnsLong = new long[side];
+        long[] costsCents = new long[side];
+        for (int i = 0; i < side; i++) {
+            columns[i] = 1 + i;
+            columnsLong[i] = 1 + i;
+            costsCents[i] = 10 + i % 36;
+            costs[i] = costsCents[i] / 100.0;
+        }
+        double[] buffer = new double[side];
+        long[] centsBuffer = new long[side];
+        // Found once per matrix, as a sweep would, so each row checks overflow once
+        long maxCostCents = Money.maxAbs(costsCents);
+        long maxWeeks = Money.maxAbs(columnsLong);
+
+        BenchmarkRunner.run("money.sweep.lemonade.double", cells, () -> {
+            double sum = 0;
+            for (double volume : columns) {
+                LemonadeStandModel.profitRow(volume, costs, buffer);
+                sum += buffer[side - 1];
+            }
+            return sum;
+        });
+        BenchmarkRunner.run("money.sweep.lemonade.cents", cells, () -> {
+            long sum = 0;
+            for (long volume : columnsLong) {
+                LemonadeStandModel.profitCentsRow(volume, costsCents, maxCostCents, centsBuffer);
+                sum += centsBuffer[side - 1];
+            }
+            return sum;
+        });
+        BenchmarkRunner.run("money.sweep.broadway.double", cells, () -> {
+            double sum = 0;
+            for (int i = 0; i < side; i++) {
+                BroadwayPlayModel.profitRow(30 + i * 0.04, columns, buffer);
+                sum += buffer[side - 1];
+            }
+            return sum;
+        });
+        BenchmarkRunner.run("money.sweep.broadway.cents", cells, () -> {
+            long sum = 0;
+            for (int i = 0; i < side; i++) {
+                BroadwayPlayModel.profitCentsRow(3000 + i * 4L, columnsLong, maxWeeks, centsBuffer);
+                sum += centsBuffer[side - 1];
+            }
+            return sum;
+        });
+    }
+}
@@ -0,0 +1,81 @@
+import java.util.Map;
+import java.util.function.DoubleBinaryOperator;
+
+// User formulas vs the hand-written models: native Java, the bytecode-compiled formula and the
+// tree-walking interpreter, filling 1000x1000 profit matrices one cell at a time and row by row.
+//   java -cp <out> FormulaBenchmark  (see BenchmarkRunner for options)
+public class FormulaBenchmark {
+
+    private static final int SIDE = 1000;
+
+    public static void main(String[] args) {
+        double[] volumes = axis(100, 400.0 / SIDE, SIDE);
+        double[] costs = axis(0.10, 0.35 / SIDE, SIDE);
+        double[] prices = axis(30, 40.0 / SIDE, SIDE);
+        double[] weeks = axis(1, 1, SIDE);
+        double[] matrix = new double[SIDE * SIDE];
+
+        ProfitFormula lemonade = ProfitFormula.parse(
+                "salesVolume * pricePerCup - (fixedCost + salesVolume * variableCost)");
+        double[] lemonadeSlots = lemonade.bind(Map.of(
+                "pricePerCup", LemonadeStandModel.PRICE_PER_CUP,
+                "fixedCost", LemonadeStandModel.FIXED_COST), "salesVolume", "variableCost");
+        compare("formula.lemonade", lemonade, lemonadeSlots, "salesVolume", "variableCost",
+                volumes, costs, matrix, LemonadeStandModel::profit);
+
+        ProfitFormula broadway = ProfitFormula.parse(
+                "weeks * (shows * capacity * occupancy * (price + dealer) - openingCost * 7) - developmentCost");
+        double[] broadwaySlots = broadway.bind(Map.of(
+                "shows", (double) BroadwayPlayModel.SHOWS_PER_WEEK,
+                "capacity", (double) BroadwayPlayModel.THEATER_CAPACITY,
+                "occupancy", BroadwayPlayModel.EXPECTED_OCCUPANCY,
+                "dealer", BroadwayPlayModel.DEALER_PROFIT_PER_TICKET,
+                "openingCost", BroadwayPlayModel.THEATER_OPENING_COST_PER_NIGHT,
+                "developmentCost", BroadwayPlayModel.DEVELOPMENT_COST), "price", "weeks");
+        compare("formula.broadway", broadway, broadwaySlots, "price", "weeks",
+                prices, weeks, matrix, BroadwayPlayModel::profitForPriceAndWeeks);
+    }
+
+    private static void compare(String prefix, ProfitFormula formula, double[] slots, String rowName,
+                                String columnName, double[] rows, double[] columns, double[] matrix,
+                                DoubleBinaryOperator nativeCell) {
+        int rowSlot = formula.slotOf(rowName);
+        int columnSlot = formula.slotOf(columnName);
+        long cells = (long) rows.length * columns.length;
+        String size = "." + rows.length + "x" + columns.length;
+
+        BenchmarkRunner.run(prefix + ".native.cell" + size, cells, () -> fillCells(nativeCell, rows, columns, matrix));
+        for (ProfitFormula.Engine engine : ProfitFormula.Engine.values()) {
+            ProfitFormula.Evaluator evaluator = formula.evaluator(engine);
+            String name = prefix + "." + engine.name().toLowerCase();
+            DoubleBinaryOperator cell = ProfitFormula.cell(evaluator, slots, rowSlot, columnSlot);
+            BenchmarkRunner.run(name + ".cell" + size, cells, () -> fillCells(cell, rows, columns, matrix));
+            GridKernels.RowKernel kernel = ProfitFormula.rowKernel(evaluator, slots, rowSlot, columnSlot);
+            BenchmarkRunner.run(name + ".row" + size, cells, () -> {
+                for (int i = 0; i < rows.length; i++) {
+                    kernel.fillRow(rows[i], columns, matrix, i * columns.length);
+                }
+                return matrix[matrix.length - 1];
+            });
+        }
+    }
+
+    private static double fillCells(DoubleBinaryOperator cell, double[] rows, double[] columns, double[] matrix) {
+        int width = columns.length;
+        for (int i = 0; i < rows.length; i++) {
+            int offset = i * width;
+            for (int j = 0; j < width; j++) {
+                matrix[offset + j] = cell.applyAsDouble(rows[i], columns[j]);
+            }
+        }
+        return matrix[matrix.length - 1];
+    }
+
+    private static double[] axis(double start, double step, int count) {
+        double[] values = new double[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = start + i * step;
+        }
+        return values;
+    }
+}
@@ -0,0 +1,42 @@
+// Heatmap costs: filling the grid buffer (per cell) and rendering pixels into an int[] raster,
+// as one 256x256 tile and as a whole 1920x1080 frame, with the grid fitted and zoomed in.
+//   java -cp <out> HeatmapBenchmark  (see BenchmarkRunner for options)
+public class HeatmapBenchmark {
+
+    public static void main(String[] args) {
+        grid("1000x1000", GridAxis.parse("price", "30:70:0.04"), GridAxis.parse("weeks", "1:1000:1"));
+        grid("4000x2000", GridAxis.parse("price", "30:70:0.01"), GridAxis.parse("weeks", "1:2000:1"));
+    }
+
+    private static ProfitHeatmapPanel.Grid compute(GridAxis prices, GridAxis weeks) {
+        return ProfitHeatmapPanel.Grid.compute(prices, weeks, BroadwayPlayModel::profitForPriceAndWeeks,
+                BroadwayPlayModel::profitRow, ComputeExecutor.Progress.NONE);
+    }
+
+    private static void grid(String size, GridAxis prices, GridAxis weeks) {
+        long cells = prices.getCount() * weeks.getCount();
+        BenchmarkRunner.run("heatmap.grid." + size, cells, () -> compute(prices, weeks).getMax());
+        ProfitHeatmapPanel.Grid grid = compute(prices, weeks);
+
+        int tile = ProfitHeatmapPanel.TILE;
+        int[] tilePixels = new int[tile * tile];
+        int frameWidth = 1920;
+        int frameHeight = 1080;
+        int[] framePixels = new int[frameWidth * frameHeight];
+        double fit = Math.max((double) weeks.getCount() / frameWidth, (double) prices.getCount() / frameHeight);
+        // Fitted (several cells per pixel for the larger grid) and zoomed in to 8 pixels per cell
+        double[] scales = {fit, 1.0 / 8};
+        String[] names = {"fit", "zoom8"};
+        for (int k = 0; k < scales.length; k++) {
+            double s = scales[k];
+            BenchmarkRunner.run("heatmap.tile." + names[k] + "." + size, (long) tile * tile, () -> {
+                ProfitHeatmapPanel.render(grid, 0, 0, s, tilePixels, tile, tile);
+                return tilePixels[tilePixels.length / 2];
+            });
+            BenchmarkRunner.run("heatmap.frame." + names[k] + "." + size, (long) frameWidth * frameHeight, () -> {
+                ProfitHeatmapPanel.render(grid, 0, 0, s, framePixels, frameWidth, frameHeight);
+                return framePixels[framePixels.length / 2];
+            });
+        }
+    }
+}
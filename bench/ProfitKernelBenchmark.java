@@ -0,0 +1,180 @@
+import javax.swing.table.DefaultTableModel;
+
+// Benchmarks for the profit kernels, grid sweeps and table population paths.
+// Run with: java -cp <out> ProfitKernelBenchmark  (see BenchmarkRunner for options)
+public class ProfitKernelBenchmark {
+
+    private static final int BATCH = 1024;
+
+    public static void main(String[] args) {
+        benchmarkKernels();
+        benchmarkGridSweeps();
+        benchmarkTableFill();
+    }
+
+    // Single-cell formulas, called over a batch of varying inputs so nothing is constant-folded
+    private static void benchmarkKernels() {
+        double[] volumes = new double[BATCH];
+        double[] costs = new double[BATCH];
+        double[] prices = new double[BATCH];
+        double[] weeks = new double[BATCH];
+        int[] demands = new int[BATCH];
+        for (int i = 0; i < BATCH; i++) {
+            volumes[i] = 100 + i % 400;
+            costs[i] = 0.10 + (i % 36) * 0.01;
+            prices[i] = 30 + (i % 41);
+            weeks[i] = 40 + i % 160;
+            demands[i] = 500 + 3 * i;
+        }
+
+        BenchmarkRunner.run("kernel.lemonade.profit", BATCH, () -> {
+            double sum = 0;
+            for (int i = 0; i < BATCH; i++) {
+                sum += LemonadeStandModel.profit(volumes[i], costs[i]);
+            }
+            return sum;
+        });
+        BenchmarkRunner.run("kernel.broadway.profitForPriceAndWeeks", BATCH, () -> {
+            double sum = 0;
+            for (int i = 0; i < BATCH; i++) {
+                sum += BroadwayPlayModel.profitForPriceAndWeeks(prices[i], weeks[i]);
+            }
+            return sum;
+        });
+        BenchmarkRunner.run("kernel.copyShop.profitForCopiers", BATCH, () -> {
+            double sum = 0;
+            for (int i = 0; i < BATCH; i++) {
+                sum += CopyShopModel.profitForCopiers(1 + (i & 3), demands[i]);
+            }
+            return sum;
+        });
+        BenchmarkRunner.run("kernel.copyShop.annualProfit", BATCH, () -> {
+            double sum = 0;
+            for (int i = 0; i < BATCH; i++) {
+                sum += CopyShopModel.annualProfit(1 + (i & 3), demands[i]);
+            }
+            return sum;
+        });
+    }
+
+    // Square grids of increasing size: cell-by-cell scalar loop vs the row kernels
+    private static void benchmarkGridSweeps() {
+        for (int side : new int[]{10, 100, 1000}) {
+            double[] rows = axis(30, 40.0 / side, side);
+            double[] columns = axis(1, 1, side);
+            double[] costs = axis(0.10, 0.35 / side, side);
+            double[] buffer = new double[side];
+            long cells = (long) side * side;
+            String size = side + "x" + side;
+
+            BenchmarkRunner.run("sweep.broadway.scalar." + size, cells, () -> {
+                double sum = 0;
+                for (double price : rows) {
+                    for (double week : columns) {
+                        sum += BroadwayPlayModel.profitForPriceAndWeeks(price, week);
+                    }
+                }
+                return sum;
+            });
+            BenchmarkRunner.run("sweep.broadway.row." + size, cells, () -> {
+                double sum = 0;
+                for (double price : rows) {
+                    BroadwayPlayModel.profitRow(price, columns, buffer);
+                    sum += buffer[side - 1];
+                }
+                return sum;
+            });
+            BenchmarkRunner.run("sweep.lemonade.scalar." + size, cells, () -> {
+                double sum = 0;
+                for (double volume : columns) {
+                    for (double cost : costs) {
+                        sum += LemonadeStandModel.profit(volume, cost);
+                    }
+                }
+                return sum;
+            });
+            BenchmarkRunner.run("sweep.lemonade.row." + size, cells, () -> {
+                double sum = 0;
+                for (double volume : columns) {
+                    LemonadeStandModel.profitRow(volume, costs, buffer);
+                    sum += buffer[side - 1];
+                }
+                return sum;
+            });
+        }
+    }
+
+    // Populating a price x weeks matrix for display: the original eager DefaultTableModel with
+    // formatted strings, the same with boxed doubles, the lazy model (visible window only) and a
+    // plain primitive buffer
+    private static void benchmarkTableFill() {
+        for (int side : new int[]{9, 100, 300}) {
+            double[] prices = axis(30, 40.0 / side, side);
+            double[] weeks = axis(40, 20, side);
+            long cells = (long) side * side;
+            String size = side + "x" + side;
+
+            BenchmarkRunner.run("table.defaultModel.formatted." + size, cells, () -> {
+                DefaultTableModel model = new DefaultTableModel(0, side + 1);
+                double[] row = new double[side];
+                for (double price : prices) {
+                    BroadwayPlayModel.profitRow(price, weeks, row);
+                    Object[] cellsOfRow = new Object[side + 1];
+                    cellsOfRow[0] = String.format("$%.2f", price);
+                    for (int j = 0; j < side; j++) {
+                        cellsOfRow[j + 1] = String.format("$%.2f", row[j]);
+                    }
+                    model.addRow(cellsOfRow);
+                }
+                return model.getRowCount();
+            });
+            BenchmarkRunner.run("table.defaultModel.boxed." + size, cells, () -> {
+                DefaultTableModel model = new DefaultTableModel(0, side + 1);
+                double[] row = new double[side];
+                for (double price : prices) {
+                    BroadwayPlayModel.profitRow(price, weeks, row);
+                    Object[] cellsOfRow = new Object[side + 1];
+                    cellsOfRow[0] = price;
+                    for (int j = 0; j < side; j++) {
+                        cellsOfRow[j + 1] = row[j];
+                    }
+                    model.addRow(cellsOfRow);
+                }
+                return model.getRowCount();
+            });
+            // A typical viewport shows about 30 rows x 10 columns
+            BenchmarkRunner.run("table.lazyModel.visibleWindow." + size, cells, () -> {
+                LazyProfitTableModel model = new LazyProfitTableModel("Ticket Price",
+                        new GridAxis("price", 30, 40.0 / side, side), "$%.2f",
+                        new GridAxis("weeks", 40, 20, side), "%.0f Weeks",
+                        "$%.2f", BroadwayPlayModel::profitForPriceAndWeeks);
+                int visibleRows = Math.min(30, side);
+                int visibleColumns = Math.min(10, side);
+                int length = 0;
+                for (int i = 0; i < visibleRows; i++) {
+                    for (int j = 0; j <= visibleColumns; j++) {
+                        length += ((String) model.getValueAt(i, j)).length();
+                    }
+                }
+                return length;
+            });
+            BenchmarkRunner.run("table.primitiveBuffer." + size, cells, () -> {
+                double[] buffer = new double[side * side];
+                double[] row = new double[side];
+                for (int i = 0; i < side; i++) {
+                    BroadwayPlayModel.profitRow(prices[i], weeks, row);
+                    System.arraycopy(row, 0, buffer, i * side, side);
+                }
+                return buffer[buffer.length - 1];
+            });
+        }
+    }
+
+    private static double[] axis(double start, double step, int count) {
+        double[] values = new double[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = start + i * step;
+        }
+        return values;
+    }
+}
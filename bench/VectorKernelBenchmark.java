@@ -0,0 +1,69 @@
+import java.util.function.DoubleBinaryOperator;
+
+// Profit matrix fills: one call per cell vs the row kernels, scalar loop vs Vector API.
+// The vector rows only run when the Vector API is available:
+//   java --add-modules jdk.incubator.vector -cp <out> VectorKernelBenchmark  (see BenchmarkRunner for options)
+public class VectorKernelBenchmark {
+
+    public static void main(String[] args) {
+        System.out.println("Active grid kernel: " + GridKernels.describe());
+        for (int side : new int[]{64, 1000}) {
+            double[] volumes = axis(100, 400.0 / side, side);
+            double[] costs = axis(0.10, 0.35 / side, side);
+            double[] prices = axis(30, 40.0 / side, side);
+            double[] weeks = axis(1, 1, side);
+            double[] matrix = new double[side * side];
+            long cells = (long) side * side;
+            String size = side + "x" + side;
+
+            fill("vector.lemonade", size, cells, volumes, costs, matrix, LemonadeStandModel::profit,
+                    (volume, unused) -> volume * LemonadeStandModel.PRICE_PER_CUP - LemonadeStandModel.FIXED_COST,
+                    (volume, unused) -> -volume);
+            fill("vector.broadway", size, cells, prices, weeks, matrix, BroadwayPlayModel::profitForPriceAndWeeks,
+                    (price, unused) -> -BroadwayPlayModel.DEVELOPMENT_COST,
+                    (price, unused) -> BroadwayPlayModel.weeklyProfit(price, BroadwayPlayModel.EXPECTED_OCCUPANCY,
+                            BroadwayPlayModel.SHOWS_PER_WEEK, BroadwayPlayModel.THEATER_CAPACITY,
+                            BroadwayPlayModel.THEATER_OPENING_COST_PER_NIGHT, BroadwayPlayModel.DEALER_PROFIT_PER_TICKET));
+        }
+    }
+
+    // Fills the whole matrix with each strategy; intercept and slope give the row's affine form
+    private static void fill(String prefix, String size, long cells, double[] rows, double[] columns, double[] matrix,
+                             DoubleBinaryOperator cell, DoubleBinaryOperator intercept, DoubleBinaryOperator slope) {
+        int width = columns.length;
+        BenchmarkRunner.run(prefix + ".cell." + size, cells, () -> {
+            for (int i = 0; i < rows.length; i++) {
+                int offset = i * width;
+                for (int j = 0; j < width; j++) {
+                    matrix[offset + j] = cell.applyAsDouble(rows[i], columns[j]);
+                }
+            }
+            return matrix[matrix.length - 1];
+        });
+        BenchmarkRunner.run(prefix + ".scalarRow." + size, cells, () -> {
+            for (int i = 0; i < rows.length; i++) {
+                GridKernels.SCALAR.apply(intercept.applyAsDouble(rows[i], 0), slope.applyAsDouble(rows[i], 0),
+                        columns, matrix, i * width);
+            }
+            return matrix[matrix.length - 1];
+        });
+        GridKernels.AffineKernel vector = GridKernels.vectorKernel();
+        if (vector != null) {
+            BenchmarkRunner.run(prefix + ".vectorRow." + size, cells, () -> {
+                for (int i = 0; i < rows.length; i++) {
+                    vector.apply(intercept.applyAsDouble(rows[i], 0), slope.applyAsDouble(rows[i], 0),
+                            columns, matrix, i * width);
+                }
+                return matrix[matrix.length - 1];
+            });
+        }
+    }
+
+    private static double[] axis(double start, double step, int count) {
+        double[] values = new double[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = start + i * step;
+        }
+        return values;
+    }
+}
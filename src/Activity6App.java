@@ -1,8 +1,16 @@
 import javax.swing.*;
 import java.awt.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.ServiceLoader;
 
 public class Activity6App extends JFrame {
 
+    private final List<SimulationModule> modules = new ArrayList<>();
+    private final List<JPanel> tabs = new ArrayList<>();
+
     public Activity6App() {
         setTitle("Activity 6 - System Simulation");
         setSize(600, 500);
@@ -11,29 +19,56 @@ public class Activity6App extends JFrame {
         // Create a JTabbedPane
         JTabbedPane tabbedPane = new JTabbedPane();
 
-        // First tab with LemonadeStandSimulation
-        JPanel simulationPanel = new JPanel(new BorderLayout());
-        LemonadeStandSimulation simulation = new LemonadeStandSimulation();
-        simulationPanel.add(simulation, BorderLayout.CENTER);
-        tabbedPane.addTab("Lemonade Stand Simulation", simulationPanel);
-
-        // Second tab (can add content here)
-        JPanel secondTab = new JPanel(new BorderLayout());
-        BroadwayPlaySimulation broadwayPlaySimulation = new BroadwayPlaySimulation();
-        secondTab.add(broadwayPlaySimulation, BorderLayout.CENTER);
-        tabbedPane.addTab("Broadway Play Profit Simulation", secondTab);
-
-        // Third tab (can add content here)
-        JPanel thirdTab = new JPanel(new BorderLayout());
-        CopyShopSimulation copyShopSimulation = new CopyShopSimulation();
-        thirdTab.add(copyShopSimulation, BorderLayout.CENTER);
-        tabbedPane.addTab("Copy Shop Profit Simulation", thirdTab);
-
-        // Add tabbed pane to the main frame
-        add(tabbedPane);
+        // One tab per registered module (lemonade stand, Broadway play, copy shop, diagnostics, ...).
+        // Each tab starts as an empty holder; the module's panel is built on first selection.
+        for (SimulationModule module : loadModules()) {
+            JPanel tab = new JPanel(new BorderLayout());
+            modules.add(module);
+            tabs.add(tab);
+            tabbedPane.addTab(module.getTitle(), tab);
+        }
+        tabbedPane.addChangeListener(e -> showTab(tabbedPane.getSelectedIndex()));
+        showTab(tabbedPane.getSelectedIndex());
+
+        // Add tabbed pane to the main frame, with the shared compute status below it
+        add(tabbedPane, BorderLayout.CENTER);
+        add(new ComputeStatusBar(ComputeExecutor.getShared()), BorderLayout.SOUTH);
+    }
+
+    private static List<SimulationModule> loadModules() {
+        List<SimulationModule> found = new ArrayList<>();
+        for (SimulationModule module : ServiceLoader.load(SimulationModule.class)) {
+            found.add(module);
+        }
+        found.sort(Comparator.comparingInt(SimulationModule::getOrder));
+        return found;
+    }
+
+    // Method to build a module's panel the first time its tab is shown
+    private void showTab(int index) {
+        if (index < 0) {
+            return;
+        }
+        JPanel tab = tabs.get(index);
+        if (tab.getComponentCount() == 0) {
+            tab.add(modules.get(index).createPanel(), BorderLayout.CENTER);
+            tab.revalidate();
+        }
     }
 
     public static void main(String[] args) {
+        // Batch mode for servers and nightly jobs: no Swing at all
+        if (Arrays.asList(args).contains("--headless")) {
+            System.exit(HeadlessBatchRunner.run(args));
+        }
+        // Scenario API for other tools, and a load generator to check its throughput
+        if (Arrays.asList(args).contains("--serve")) {
+            System.exit(ScenarioServer.run(args));
+        }
+        if (Arrays.asList(args).contains("--load-test")) {
+            System.exit(ScenarioLoadTest.run(args));
+        }
+
         SwingUtilities.invokeLater(() -> {
             Activity6App app = new Activity6App();
             app.setVisible(true);
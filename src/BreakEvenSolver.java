@@ -0,0 +1,34 @@
+import java.util.function.LongToDoubleFunction;
+
+// Generic solvers for break-even and target-profit questions: "which input value makes profit
+// reach this target?". The models are (piecewise) linear, so they use the analytic form, or a
+// binary search where the model works in whole units.
+public final class BreakEvenSolver {
+
+    private BreakEvenSolver() {
+    }
+
+    // Input x with slope * x + intercept = target, or NaN when the line never reaches the target
+    public static double linear(double slope, double intercept, double target) {
+        if (slope == 0) {
+            return intercept == target ? 0.0 : Double.NaN;
+        }
+        return (target - intercept) / slope;
+    }
+
+    // Smallest integer x in [lo, hi] with f(x) >= target for a non-decreasing f, found by binary
+    // search. Returns hi + 1 when even f(hi) stays below the target.
+    public static long smallestReaching(LongToDoubleFunction f, double target, long lo, long hi) {
+        long low = lo;
+        long high = hi + 1;
+        while (low < high) {
+            long mid = low + (high - low) / 2;
+            if (f.applyAsDouble(mid) >= target) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+}
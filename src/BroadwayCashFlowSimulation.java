@@ -0,0 +1,238 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+// Week-by-week cash flow of a Broadway run over many stochastic paths.
+// Expected occupancy starts at the opening level, decays geometrically and follows a yearly
+// seasonal cycle; each path scales it by (1 + shock) with a persistent AR(1) Gaussian demand shock,
+// clamped to an empty or full house. (A linear factor rather than exp(shock) keeps Math.exp out
+// of the inner loop, which would otherwise dominate the run time.) Every
+// week the theater opening costs are paid and ticket plus dealer income is earned. A path closes
+// after its weekly profit has stayed below the closing threshold for a number of consecutive weeks.
+// Cash flows are discounted to an NPV and the week in which cumulative cash first covers the
+// development cost (payback) is recorded.
+// Paths are simulated in blocks in struct-of-arrays form: the week loop is outside and the inner
+// loop walks primitive arrays over the paths of the block. Blocks run in parallel, each with its
+// own random stream, so results depend only on the seed.
+public class BroadwayCashFlowSimulation {
+
+    private static final int BLOCK_PATHS = 4096;
+    private static final int WEEKS_PER_YEAR = 52;
+
+    private final int maxWeeks;
+    private final double shockVolatility;
+    private final double shockPersistence;
+    private final double closingThreshold;
+    private final int closingWeeks;
+
+    // Per-week inputs shared by all paths
+    private final double[] expectedOccupancy;
+    private final double[] discountFactors;
+    private final double seatValue;
+    private final double weeklyCost;
+
+    public BroadwayCashFlowSimulation(int maxWeeks, double openingOccupancy, double weeklyDecay,
+                                      double seasonalAmplitude, double shockVolatility, double shockPersistence,
+                                      double closingThreshold, int closingWeeks, double annualDiscountRate) {
+        if (maxWeeks <= 0 || openingOccupancy <= 0 || weeklyDecay < 0 || weeklyDecay >= 1
+                || seasonalAmplitude < 0 || shockVolatility < 0 || shockPersistence < 0 || shockPersistence >= 1
+                || closingWeeks <= 0 || annualDiscountRate <= -1) {
+            throw new IllegalArgumentException("Invalid cash flow parameters");
+        }
+        this.maxWeeks = maxWeeks;
+        this.shockVolatility = shockVolatility;
+        this.shockPersistence = shockPersistence;
+        this.closingThreshold = closingThreshold;
+        this.closingWeeks = closingWeeks;
+
+        expectedOccupancy = new double[maxWeeks];
+        discountFactors = new double[maxWeeks];
+        double weeklyRate = Math.pow(1 + annualDiscountRate, 1.0 / WEEKS_PER_YEAR) - 1;
+        for (int week = 0; week < maxWeeks; week++) {
+            double season = 1 + seasonalAmplitude * Math.sin(2 * Math.PI * week / WEEKS_PER_YEAR);
+            expectedOccupancy[week] = openingOccupancy * Math.pow(1 - weeklyDecay, week) * season;
+            // Cash of week w arrives at its end
+            discountFactors[week] = Math.pow(1 + weeklyRate, -(week + 1));
+        }
+        seatValue = BroadwayPlayModel.SHOWS_PER_WEEK * BroadwayPlayModel.THEATER_CAPACITY
+                * (BroadwayPlayModel.TICKET_PRICE + BroadwayPlayModel.DEALER_PROFIT_PER_TICKET);
+        weeklyCost = BroadwayPlayModel.THEATER_OPENING_COST_PER_NIGHT * 7;
+    }
+
+    // Simulates the paths in parallel; returns null if cancelled
+    public Result run(int paths, long seed, ComputeExecutor.Progress progress) {
+        int blocks = (paths + BLOCK_PATHS - 1) / BLOCK_PATHS;
+        SplittableRandom root = new SplittableRandom(seed);
+        SplittableRandom[] streams = new SplittableRandom[blocks];
+        for (int b = 0; b < blocks; b++) {
+            streams[b] = root.split();
+        }
+        AtomicInteger completed = new AtomicInteger();
+        long start = System.nanoTime();
+        Accumulator total = IntStream.range(0, blocks).parallel().mapToObj(b -> {
+            Accumulator acc = new Accumulator(maxWeeks);
+            if (!progress.isCancelled()) {
+                int count = Math.min(BLOCK_PATHS, paths - b * BLOCK_PATHS);
+                simulateBlock(streams[b], count, (long) b * BLOCK_PATHS, acc);
+                progress.update((double) completed.incrementAndGet() / blocks);
+            }
+            return acc;
+        }).reduce(Accumulator::merge).orElseGet(() -> new Accumulator(maxWeeks));
+        if (progress.isCancelled()) {
+            return null;
+        }
+        return new Result(total, System.nanoTime() - start);
+    }
+
+    private void simulateBlock(SplittableRandom random, int count, long firstPath, Accumulator acc) {
+        double[] shock = new double[count];
+        double[] cash = new double[count];
+        double[] npv = new double[count];
+        int[] weeksBelow = new int[count];
+        int[] weeksOpen = new int[count];
+        int[] paybackWeek = new int[count];
+        boolean[] open = new boolean[count];
+        Arrays.fill(cash, -BroadwayPlayModel.DEVELOPMENT_COST);
+        Arrays.fill(npv, -BroadwayPlayModel.DEVELOPMENT_COST);
+        Arrays.fill(paybackWeek, -1);
+        Arrays.fill(open, true);
+        Arrays.fill(weeksOpen, maxWeeks);
+
+        // Stationary start for the shock, so the first weeks are as uncertain as later ones
+        double innovation = shockVolatility * Math.sqrt(1 - shockPersistence * shockPersistence);
+        for (int p = 0; p < count; p++) {
+            shock[p] = shockVolatility * random.nextGaussian();
+        }
+        int openCount = count;
+        for (int week = 0; week < maxWeeks && openCount > 0; week++) {
+            double expected = expectedOccupancy[week];
+            double discount = discountFactors[week];
+            for (int p = 0; p < count; p++) {
+                if (!open[p]) {
+                    continue;
+                }
+                double s = shockPersistence * shock[p] + innovation * random.nextGaussian();
+                shock[p] = s;
+                double occupancy = Math.max(0.0, Math.min(1.0, expected * (1 + s)));
+                double weekly = seatValue * occupancy - weeklyCost;
+                double c = cash[p] + weekly;
+                cash[p] = c;
+                npv[p] += weekly * discount;
+                if (paybackWeek[p] < 0 && c >= 0) {
+                    paybackWeek[p] = week + 1;
+                }
+                if (weekly < closingThreshold) {
+                    if (++weeksBelow[p] >= closingWeeks) {
+                        open[p] = false;
+                        weeksOpen[p] = week + 1;
+                        openCount--;
+                    }
+                } else {
+                    weeksBelow[p] = 0;
+                }
+            }
+        }
+        for (int p = 0; p < count; p++) {
+            acc.add(firstPath + p, cash[p], npv[p], weeksOpen[p], paybackWeek[p]);
+        }
+    }
+
+    public int getMaxWeeks() {
+        return maxWeeks;
+    }
+
+    // Per-path outcomes reduced across a block or the whole run
+    private static final class Accumulator {
+        final SweepSummary profit = new SweepSummary();
+        final SweepSummary npv = new SweepSummary();
+        // paybackCounts[w] = paths that paid back in week w (1..maxWeeks); index 0 = never
+        final long[] paybackCounts;
+        long totalWeeksOpen;
+
+        Accumulator(int maxWeeks) {
+            paybackCounts = new long[maxWeeks + 1];
+        }
+
+        void add(long path, double finalCash, double presentValue, int weeksOpen, int paybackWeek) {
+            profit.add(finalCash, path);
+            npv.add(presentValue, path);
+            paybackCounts[Math.max(0, paybackWeek)]++;
+            totalWeeksOpen += weeksOpen;
+        }
+
+        // Merges into this accumulator and returns it
+        Accumulator merge(Accumulator other) {
+            profit.merge(other.profit);
+            npv.merge(other.npv);
+            for (int w = 0; w < paybackCounts.length; w++) {
+                paybackCounts[w] += other.paybackCounts[w];
+            }
+            totalWeeksOpen += other.totalWeeksOpen;
+            return this;
+        }
+    }
+
+    public static class Result {
+        private final SweepSummary profit;
+        private final SweepSummary npv;
+        private final long[] paybackCounts;
+        private final double meanWeeksOpen;
+        private final long elapsedNanos;
+
+        Result(Accumulator acc, long elapsedNanos) {
+            this.profit = acc.profit;
+            this.npv = acc.npv;
+            this.paybackCounts = acc.paybackCounts;
+            this.meanWeeksOpen = profit.getCount() == 0 ? 0.0 : (double) acc.totalWeeksOpen / profit.getCount();
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public long getPaths() {
+            return profit.getCount();
+        }
+
+        // Cumulative cash at closing (or at the horizon), i.e. the undiscounted profit of the run
+        public SweepSummary getProfit() {
+            return profit;
+        }
+
+        public SweepSummary getNpv() {
+            return npv;
+        }
+
+        public double getMeanWeeksOpen() {
+            return meanWeeksOpen;
+        }
+
+        // Fraction of paths that paid back the development cost in week w (1-based)
+        public double getPaybackProbability(int week) {
+            return (double) paybackCounts[week] / getPaths();
+        }
+
+        public double getNeverPaybackProbability() {
+            return (double) paybackCounts[0] / getPaths();
+        }
+
+        // Payback week reached by p percent of all paths, or -1 if fewer paths ever pay back
+        public int getPaybackPercentile(double p) {
+            long rank = (long) Math.ceil(p / 100.0 * getPaths());
+            long seen = 0;
+            for (int w = 1; w < paybackCounts.length; w++) {
+                seen += paybackCounts[w];
+                if (seen >= rank && rank > 0) {
+                    return w;
+                }
+            }
+            return -1;
+        }
+
+        public int getMaxWeeks() {
+            return paybackCounts.length - 1;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+// Inputs of the Broadway profit model that a sensitivity sweep can vary
+public enum BroadwayParameter {
+    DEVELOPMENT_COST("Development Cost", BroadwayPlayModel.DEVELOPMENT_COST),
+    SHOWS_PER_WEEK("Shows per Week", BroadwayPlayModel.SHOWS_PER_WEEK),
+    THEATER_CAPACITY("Theater Capacity", BroadwayPlayModel.THEATER_CAPACITY),
+    OPENING_COST_PER_NIGHT("Opening Cost per Night", BroadwayPlayModel.THEATER_OPENING_COST_PER_NIGHT),
+    DEALER_PROFIT_PER_TICKET("Dealer Profit per Ticket", BroadwayPlayModel.DEALER_PROFIT_PER_TICKET),
+    TICKET_PRICE("Ticket Price", BroadwayPlayModel.TICKET_PRICE),
+    OCCUPANCY("Occupancy", BroadwayPlayModel.EXPECTED_OCCUPANCY),
+    WEEKS("Weeks", BroadwayPlayModel.DEFAULT_WEEKS);
+
+    private final String label;
+    private final double baseValue;
+
+    BroadwayParameter(String label, double baseValue) {
+        this.label = label;
+        this.baseValue = baseValue;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public double getBaseValue() {
+        return baseValue;
+    }
+
+    // Profit for a full parameter vector indexed by ordinal
+    public static double profit(double[] values) {
+        return BroadwayPlayModel.profit(values[WEEKS.ordinal()], values[TICKET_PRICE.ordinal()],
+                values[OCCUPANCY.ordinal()], values[SHOWS_PER_WEEK.ordinal()], values[THEATER_CAPACITY.ordinal()],
+                values[OPENING_COST_PER_NIGHT.ordinal()], values[DEALER_PROFIT_PER_TICKET.ordinal()],
+                values[DEVELOPMENT_COST.ordinal()]);
+    }
+}
@@ -0,0 +1,172 @@
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+// Profit model of the Broadway play, free of any UI code.
+// All functions are pure and work on primitives; the array overloads evaluate whole
+// batches in tight loops that the JIT can unroll and vectorize.
+public final class BroadwayPlayModel {
+
+    public static final double DEVELOPMENT_COST = 5_000_000;
+    public static final int SHOWS_PER_WEEK = 8;
+    public static final double THEATER_OPENING_COST_PER_NIGHT = 1_000;
+    public static final double TICKET_PRICE = 50.00;
+    public static final double DEALER_PROFIT_PER_TICKET = 1.50;
+    public static final int THEATER_CAPACITY = 800;
+    public static final double EXPECTED_OCCUPANCY = 0.80; // 80%
+    public static final int DEFAULT_WEEKS = 100;
+
+    // The same constants in whole cents and basis points, for the exact-money functions
+    public static final long DEVELOPMENT_COST_CENTS = 500_000_000;
+    public static final long THEATER_OPENING_COST_PER_NIGHT_CENTS = 100_000;
+    public static final long TICKET_PRICE_CENTS = 5_000;
+    public static final long DEALER_PROFIT_PER_TICKET_CENTS = 150;
+    public static final long EXPECTED_OCCUPANCY_BASIS_POINTS = 8_000;
+
+    private BroadwayPlayModel() {
+    }
+
+    // Weekly operating profit with every parameter explicit
+    public static double weeklyProfit(double price, double occupancy, double showsPerWeek, double theaterCapacity,
+                                      double openingCostPerNight, double dealerProfitPerTicket) {
+        return showsPerWeek * theaterCapacity * occupancy * (price + dealerProfitPerTicket) - openingCostPerNight * 7;
+    }
+
+    // Profit over a run with every parameter explicit
+    public static double profit(double weeks, double price, double occupancy, double showsPerWeek,
+                                double theaterCapacity, double openingCostPerNight,
+                                double dealerProfitPerTicket, double developmentCost) {
+        return weeks * weeklyProfit(price, occupancy, showsPerWeek, theaterCapacity,
+                openingCostPerNight, dealerProfitPerTicket) - developmentCost;
+    }
+
+    // Profit of a 100-week run at the given occupancy (0..1)
+    public static double profitForOccupancy(double occupancy) {
+        return profit(DEFAULT_WEEKS, TICKET_PRICE, occupancy);
+    }
+
+    // Profit for a ticket price and run length at the expected occupancy
+    public static double profitForPriceAndWeeks(double price, double weeks) {
+        return profit(weeks, price, EXPECTED_OCCUPANCY);
+    }
+
+    public static double profit(double weeks, double price, double occupancy) {
+        return profit(weeks, price, occupancy, SHOWS_PER_WEEK, THEATER_CAPACITY,
+                THEATER_OPENING_COST_PER_NIGHT, DEALER_PROFIT_PER_TICKET, DEVELOPMENT_COST);
+    }
+
+    // Weeks of ticket revenue needed to earn back twice the development cost (100% return)
+    public static double weeksFor100PercentReturn() {
+        // Total Revenue Needed = Development Cost x 2 = 5,000,000 x 2 = 10,000,000
+        double totalRevenueNeeded = DEVELOPMENT_COST * 2;
+        // Tickets Sold = Theater Capacity x Occupancy Rate = 800 x 0.80 = 640
+        double ticketsSold = THEATER_CAPACITY * EXPECTED_OCCUPANCY;
+        // Revenue per Show = Tickets Sold x Ticket Price = 640 x 50 = 32,000
+        double revenuePerShow = ticketsSold * TICKET_PRICE;
+        // Total Revenue per Week = Revenue per Show x Shows per Week = 32,000 x 8 = 256,000
+        double revenuePerWeek = revenuePerShow * SHOWS_PER_WEEK;
+        return totalRevenueNeeded / revenuePerWeek;
+    }
+
+    // Profit is linear in weeks, occupancy and price, so each target-profit question has a closed form.
+    // All three return NaN when the target can't be reached by changing that input.
+
+    // Run length (weeks) at which profit reaches the target
+    public static double weeksForProfit(double targetProfit, double price, double occupancy) {
+        double weekly = weeklyProfit(price, occupancy, SHOWS_PER_WEEK, THEATER_CAPACITY,
+                THEATER_OPENING_COST_PER_NIGHT, DEALER_PROFIT_PER_TICKET);
+        return weekly > 0 ? BreakEvenSolver.linear(weekly, -DEVELOPMENT_COST, targetProfit) : Double.NaN;
+    }
+
+    // Occupancy (0..1, may exceed 1 if unreachable in practice) needed over a run of the given length
+    public static double occupancyForProfit(double targetProfit, double weeks, double price) {
+        double slope = weeks * SHOWS_PER_WEEK * THEATER_CAPACITY * (price + DEALER_PROFIT_PER_TICKET);
+        double intercept = -weeks * THEATER_OPENING_COST_PER_NIGHT * 7 - DEVELOPMENT_COST;
+        return BreakEvenSolver.linear(slope, intercept, targetProfit);
+    }
+
+    // Ticket price needed over a run of the given length at the given occupancy
+    public static double priceForProfit(double targetProfit, double weeks, double occupancy) {
+        double seats = weeks * SHOWS_PER_WEEK * THEATER_CAPACITY * occupancy;
+        double intercept = seats * DEALER_PROFIT_PER_TICKET - weeks * THEATER_OPENING_COST_PER_NIGHT * 7 - DEVELOPMENT_COST;
+        return BreakEvenSolver.linear(seats, intercept, targetProfit);
+    }
+
+    // Exact profit in cents for whole weeks, a ticket price in cents and occupancy in basis points.
+    // Ticket income is summed in 1/10000 cent, so fractional seats (e.g. 83.33% of 800) stay exact
+    // until the single half-even rounding to cents at the end.
+    public static long profitCents(long weeks, long priceCents, long occupancyBasisPoints) {
+        return Money.divideHalfEven(Math.multiplyExact(weeks, weeklyProfitScaled(priceCents, occupancyBasisPoints))
+                - DEVELOPMENT_COST_CENTS * Money.BASIS_POINTS, Money.BASIS_POINTS);
+    }
+
+    // Weekly operating profit in 1/10000 cent
+    private static long weeklyProfitScaled(long priceCents, long occupancyBasisPoints) {
+        long seatBasisPoints = (long) SHOWS_PER_WEEK * THEATER_CAPACITY * occupancyBasisPoints;
+        return Math.multiplyExact(seatBasisPoints, priceCents + DEALER_PROFIT_PER_TICKET_CENTS)
+                - THEATER_OPENING_COST_PER_NIGHT_CENTS * 7 * Money.BASIS_POINTS;
+    }
+
+    // BigDecimal reference for profitCents, used to audit the fixed-point path
+    public static BigDecimal profitAudit(long weeks, long priceCents, long occupancyBasisPoints) {
+        BigDecimal seats = BigDecimal.valueOf((long) SHOWS_PER_WEEK * THEATER_CAPACITY)
+                .multiply(BigDecimal.valueOf(occupancyBasisPoints, 4));
+        BigDecimal weekly = seats.multiply(Money.toBigDecimal(priceCents + DEALER_PROFIT_PER_TICKET_CENTS))
+                .subtract(Money.toBigDecimal(THEATER_OPENING_COST_PER_NIGHT_CENTS * 7));
+        return BigDecimal.valueOf(weeks).multiply(weekly).subtract(Money.toBigDecimal(DEVELOPMENT_COST_CENTS))
+                .setScale(2, RoundingMode.HALF_EVEN);
+    }
+
+    // out[j] = profitCents(weeks[j], priceCents, EXPECTED_OCCUPANCY_BASIS_POINTS), one row of the price x weeks matrix
+    public static void profitCentsRow(long priceCents, long[] weeks, long[] out) {
+        profitCentsRow(priceCents, weeks, Money.maxAbs(weeks), out);
+    }
+
+    // Same row with the largest |weeks| given, so a matrix finds it once. Overflow is then ruled
+    // out once for the row; only a row that may overflow is checked per cell.
+    public static void profitCentsRow(long priceCents, long[] weeks, long maxAbsWeeks, long[] out) {
+        long weekly = weeklyProfitScaled(priceCents, EXPECTED_OCCUPANCY_BASIS_POINTS);
+        long development = DEVELOPMENT_COST_CENTS * Money.BASIS_POINTS;
+        if (Money.fitsAffine(development, weekly, maxAbsWeeks)) {
+            for (int j = 0; j < weeks.length; j++) {
+                out[j] = Money.divideHalfEven(weeks[j] * weekly - development, Money.BASIS_POINTS);
+            }
+            return;
+        }
+        for (int j = 0; j < weeks.length; j++) {
+            out[j] = Money.divideHalfEven(Math.subtractExact(Math.multiplyExact(weeks[j], weekly), development),
+                    Money.BASIS_POINTS);
+        }
+    }
+
+    // out[i] = profitForOccupancy(occupancies[i])
+    public static void profitForOccupancy(double[] occupancies, double[] out) {
+        // Same multiplication order as weeklyProfit, so every element matches the scalar bit for bit
+        double seats = SHOWS_PER_WEEK * THEATER_CAPACITY;
+        double ticketValue = TICKET_PRICE + DEALER_PROFIT_PER_TICKET;
+        double weeklyCost = THEATER_OPENING_COST_PER_NIGHT * 7;
+        for (int i = 0; i < occupancies.length; i++) {
+            out[i] = DEFAULT_WEEKS * (seats * occupancies[i] * ticketValue - weeklyCost) - DEVELOPMENT_COST;
+        }
+    }
+
+    // out[j] = profitForPriceAndWeeks(price, weeks[j]), one row of the price x weeks matrix
+    public static void profitRow(double price, double[] weeks, double[] out) {
+        profitRow(price, weeks, out, 0);
+    }
+
+    // Same row written to out[offset + j], e.g. straight into a row-major matrix buffer
+    public static void profitRow(double price, double[] weeks, double[] out, int offset) {
+        double weekly = weeklyProfit(price, EXPECTED_OCCUPANCY, SHOWS_PER_WEEK, THEATER_CAPACITY,
+                THEATER_OPENING_COST_PER_NIGHT, DEALER_PROFIT_PER_TICKET);
+        GridKernels.affineRow(-DEVELOPMENT_COST, weekly, weeks, out, offset);
+    }
+
+    // out[i] = profitForPriceAndWeeks(prices[i], weeks[i]), element-wise over paired inputs
+    public static void profitForPriceAndWeeks(double[] prices, double[] weeks, double[] out) {
+        double seats = SHOWS_PER_WEEK * THEATER_CAPACITY * EXPECTED_OCCUPANCY;
+        double weeklyCost = THEATER_OPENING_COST_PER_NIGHT * 7;
+        for (int i = 0; i < prices.length; i++) {
+            out[i] = weeks[i] * (seats * (prices[i] + DEALER_PROFIT_PER_TICKET) - weeklyCost) - DEVELOPMENT_COST;
+        }
+    }
+}
@@ -3,22 +3,26 @@ import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.io.IOException;
 
 public class BroadwayPlaySimulation extends JPanel {
     // UI Components
     private JTextArea resultArea;
     private JTable occupancyTable;
     private JTable priceWeeksMatrix;
+    private ProfitHeatmapPanel priceWeeksHeatmap;
+    private JTextField priceRangeField, weeksRangeField;
+    private JTable sweepRangesTable;
+    private JTextArea sweepResultArea;
+    private JTextArea cashFlowResultArea;
+    private LiveChartPanel paybackChart;
 
-    // Constants
-    private final double developmentCost = 5_000_000;
-    private final int showsPerWeek = 8;
-    private final double theaterOpeningCostPerNight = 1_000;
-    private final double ticketPrice = 50.00;
-    private final double dealerProfitPerTicket = 1.50;
-    private final int theaterCapacity = 800;
-    private final double expectedOccupancy = 0.80; // 80%
-    private double exectedProfitFor80Percet = 0.0;
+    // Timings shown in the diagnostics tab
+    private static final Metrics.Timer SOLUTION_A_TIMER = Metrics.timer("broadway.solutionA");
+    private static final Metrics.Timer SOLUTION_B_TIMER = Metrics.timer("broadway.solutionB");
+    private static final Metrics.Timer SOLUTION_C_TIMER = Metrics.timer("broadway.solutionC");
+    private static final Metrics.Timer SWEEP_TIMER = Metrics.timer("broadway.sweep");
+    private static final Metrics.Timer CASH_FLOW_TIMER = Metrics.timer("broadway.cashFlow");
 
     public BroadwayPlaySimulation() {
         setSize(900, 600);
@@ -28,6 +32,8 @@ public class BroadwayPlaySimulation extends JPanel {
         tabbedPane.addTab("Solution A ", createSolutionAPanel());
         tabbedPane.addTab("Solution B", createSolutionBPanel());
         tabbedPane.addTab("Solution C", createSolutionCPanel());
+        tabbedPane.addTab("Sensitivity Sweep", createSweepPanel());
+        tabbedPane.addTab("Cash Flow", createCashFlowPanel());
 
         add(tabbedPane, BorderLayout.CENTER);
     }
@@ -51,23 +57,18 @@ public class BroadwayPlaySimulation extends JPanel {
     }
 
     private void calculateSolutionA() {
-        double weeks = calculateWeeksFor100PercentReturn();
+        long start = SOLUTION_A_TIMER.start();
+        double weeks = BroadwayPlayModel.weeksFor100PercentReturn();
         resultArea.setText("Weeks needed for 100% return: " + String.format("%.2f", weeks));
-    }
 
-    private double calculateWeeksFor100PercentReturn() {
-        //Total Revenue Needed=Development Cost×2=5,000,000×2=10,000,000
-        double totalRevenueNeeded = developmentCost * 2; // 100% return
-       //  Tickets Sold=Theater Capacity×Occupancy Rate=800×0.80=640
-        double ticketsSold = theaterCapacity * expectedOccupancy;
-        // Revenue per Show=Tickets Sold×Ticket Price=640×50=32,000// 80% occupancy
-        double revenuePerShow = ticketsSold * ticketPrice;
-        // Total Revenue per Week=Revenue per Show × Shows per Week=32,000×8=256,000
-        double revenuePerWeek = revenuePerShow * showsPerWeek;
-        /*
-        Total Revenue Needed =  totalRevenueNeeded / revenuePerWeek;
-         */
-        return totalRevenueNeeded / revenuePerWeek;
+        // Same question on a profit basis (operating costs and dealer income included)
+        double breakEvenWeeks = BroadwayPlayModel.weeksForProfit(0,
+                BroadwayPlayModel.TICKET_PRICE, BroadwayPlayModel.EXPECTED_OCCUPANCY);
+        double doubleWeeks = BroadwayPlayModel.weeksForProfit(BroadwayPlayModel.DEVELOPMENT_COST,
+                BroadwayPlayModel.TICKET_PRICE, BroadwayPlayModel.EXPECTED_OCCUPANCY);
+        resultArea.append("\nWeeks to break even on profit: " + String.format("%.2f", breakEvenWeeks));
+        resultArea.append("\nWeeks for profit equal to the development cost: " + String.format("%.2f", doubleWeeks));
+        SOLUTION_A_TIMER.stop(start, 3);
     }
 
     private JPanel createSolutionBPanel() {
@@ -86,61 +87,367 @@ public class BroadwayPlaySimulation extends JPanel {
     }
 
     private void calculateSolutionB() {
-        DefaultTableModel model = (DefaultTableModel) occupancyTable.getModel();
-        model.setRowCount(0); // Clear previous data
-
-        for (int i = 60; i <= 100; i += 5) {
-            double profit = calculateProfitForOccupancy(i / 100.0);
-            model.addRow(new Object[]{i + "%", String.format("$%.2f", profit)});
-        }
-    }
+        ScenarioCache.Key key = scenarioKey("broadway.profitForOccupancy").add(60, 100, 5).build();
+        ComputeExecutor.getShared().submitCached("broadway.solutionB", "Broadway profit by occupancy", key, progress -> {
+            double[] occupancies = new double[9];
+            for (int k = 0; k < occupancies.length; k++) {
+                occupancies[k] = (60 + 5 * k) / 100.0;
+            }
+            double[] profits = new double[occupancies.length];
+            long start = SOLUTION_B_TIMER.start();
+            BroadwayPlayModel.profitForOccupancy(occupancies, profits);
+            SOLUTION_B_TIMER.stop(start, profits.length);
+            return profits;
+        }, profits -> profits.length, profits -> {
+            DefaultTableModel model = (DefaultTableModel) occupancyTable.getModel();
+            model.setRowCount(0); // Clear previous data
 
-    private double calculateProfitForOccupancy(double occupancy) {
-        double numberWeeks = 100;
-        double result = numberWeeks *
-                (showsPerWeek * theaterCapacity * occupancy* (ticketPrice + dealerProfitPerTicket)
-                        - theaterOpeningCostPerNight * 7) - developmentCost;
-        if (occupancy == 0.80) {
-            exectedProfitFor80Percet = result;
-        }
-        return result;
+            for (int k = 0; k < profits.length; k++) {
+                model.addRow(new Object[]{(60 + 5 * k) + "%", String.format("$%.2f", profits[k])});
+            }
+        });
     }
 
     private JPanel createSolutionCPanel() {
         JPanel panel = new JPanel(new BorderLayout());
         panel.setBorder(BorderFactory.createTitledBorder("Solution C: Profit by Price & Weeks"));
 
+        // Grid ranges as start:end:step, e.g. 30:70:0.01 and 1:1000:1 for a fine sweep
+        JPanel controlsPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        controlsPanel.add(new JLabel("Ticket Prices:"));
+        priceRangeField = new JTextField("30:70:5", 10);
+        controlsPanel.add(priceRangeField);
+        controlsPanel.add(new JLabel("Weeks:"));
+        weeksRangeField = new JTextField("40:200:20", 10);
+        controlsPanel.add(weeksRangeField);
+
         JButton calculateCButton = new JButton("Calculate Profit Matrix");
         calculateCButton.addActionListener(e -> calculateSolutionC());
+        controlsPanel.add(calculateCButton);
 
         priceWeeksMatrix = new JTable(new DefaultTableModel(new Object[]{"Ticket Price", "40 Weeks", "60 Weeks", "80 Weeks", "100 Weeks", "120 Weeks", "140 Weeks", "160 Weeks", "180 Weeks", "200 Weeks"}, 0));
         JScrollPane scrollPane = new JScrollPane(priceWeeksMatrix);
 
-        panel.add(calculateCButton, BorderLayout.NORTH);
-        panel.add(scrollPane, BorderLayout.CENTER);
+        // The heatmap is the readable view of fine grids such as 30:70:0.04 x 1:1000:1
+        priceWeeksHeatmap = new ProfitHeatmapPanel("Price", "$%.2f", "Weeks", "%.0f", "$%,.0f");
+        JTabbedPane views = new JTabbedPane();
+        views.addTab("Table", scrollPane);
+        views.addTab("Heatmap", priceWeeksHeatmap);
+
+        panel.add(controlsPanel, BorderLayout.NORTH);
+        panel.add(views, BorderLayout.CENTER);
         return panel;
     }
 
+    // Cells are computed lazily by the table model, so even very fine grids are instant;
+    // the heatmap's buffer is filled off the EDT
     private void calculateSolutionC() {
-        DefaultTableModel model = (DefaultTableModel) priceWeeksMatrix.getModel();
-        model.setRowCount(0); // Clear previous data
-
-        double[] ticketPrices = {30, 35, 40, 45, 50, 55, 60, 65, 70};
-        int[] weeks = {40, 60, 80, 100, 120, 140, 160, 180, 200};
-
-        for (double price : ticketPrices) {
-            Object[] row = new Object[weeks.length + 1];
-            row[0] = String.format("$%.2f", price);
-            for (int j = 0; j < weeks.length; j++) {
-                double profit = calculateProfitForPriceAndWeeks(price, weeks[j]);
-                row[j + 1] = String.format("$%.2f", profit);
+        long start = SOLUTION_C_TIMER.start();
+        LazyProfitTableModel model;
+        GridAxis prices;
+        GridAxis weeks;
+        try {
+            prices = GridAxis.parse("price", priceRangeField.getText().trim());
+            weeks = GridAxis.parse("weeks", weeksRangeField.getText().trim());
+            // Reuse the model (and its formatted cells) when the same grid is requested again
+            ScenarioCache.Key key = scenarioKey("broadway.priceWeeks").add(prices).add(weeks).build();
+            model = ScenarioCache.getShared().computeIfAbsent(key, LazyProfitTableModel.cacheWeight(weeks),
+                    () -> new LazyProfitTableModel("Ticket Price", prices, "$%.2f", weeks, "%.0f Weeks",
+                            "$%.2f", BroadwayPlayModel::profitForPriceAndWeeks, BroadwayPlayModel::profitRow));
+        } catch (IllegalArgumentException ex) {
+            JOptionPane.showMessageDialog(this, ex.getMessage() + "\nUse start:end:step, e.g. 30:70:0.01.",
+                    "Input Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        // Wide sweeps need horizontal scrolling instead of squeezing every column into view
+        priceWeeksMatrix.setAutoResizeMode(model.getColumnCount() > 12 ? JTable.AUTO_RESIZE_OFF : JTable.AUTO_RESIZE_SUBSEQUENT_COLUMNS);
+        if (priceWeeksMatrix.getModel() != model) {
+            priceWeeksMatrix.setModel(model);
+        }
+        ComputeExecutor.getShared().submit("broadway.solutionC.heatmap", "Broadway profit heatmap",
+                progress -> ProfitHeatmapPanel.Grid.compute(prices, weeks, BroadwayPlayModel::profitForPriceAndWeeks,
+                        BroadwayPlayModel::profitRow, progress),
+                grid -> {
+                    if (grid != null) {
+                        priceWeeksHeatmap.setGrid(grid);
+                    }
+                });
+        SOLUTION_C_TIMER.stop(start);
+    }
+
+    private JPanel createSweepPanel() {
+        JPanel panel = new JPanel(new BorderLayout());
+        panel.setBorder(BorderFactory.createTitledBorder("Sensitivity Sweep over All Parameters"));
+
+        // One row per parameter; a single value keeps it fixed, start:end:step sweeps it
+        DefaultTableModel rangesModel = new DefaultTableModel(new Object[]{"Parameter", "Range (start:end:step)"}, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return column == 1;
+            }
+        };
+        for (BroadwayParameter parameter : BroadwayParameter.values()) {
+            rangesModel.addRow(new Object[]{parameter.getLabel(), defaultSweepRange(parameter)});
+        }
+        sweepRangesTable = new JTable(rangesModel);
+        JScrollPane rangesScroll = new JScrollPane(sweepRangesTable);
+        rangesScroll.setPreferredSize(new Dimension(400, 170));
+
+        JButton runSweepButton = new JButton("Run Sweep");
+        runSweepButton.addActionListener(e -> runSweep());
+
+        JPanel topPanel = new JPanel(new BorderLayout());
+        topPanel.add(rangesScroll, BorderLayout.CENTER);
+        topPanel.add(runSweepButton, BorderLayout.SOUTH);
+
+        sweepResultArea = new JTextArea();
+        sweepResultArea.setEditable(false);
+        sweepResultArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+
+        panel.add(topPanel, BorderLayout.NORTH);
+        panel.add(new JScrollPane(sweepResultArea), BorderLayout.CENTER);
+        return panel;
+    }
+
+    private static String defaultSweepRange(BroadwayParameter parameter) {
+        switch (parameter) {
+            case TICKET_PRICE:
+                return "30:70:1";
+            case WEEKS:
+                return "40:200:5";
+            case OCCUPANCY:
+                return "0.6:1:0.05";
+            case OPENING_COST_PER_NIGHT:
+                return "800:1200:50";
+            default:
+                return String.valueOf(parameter.getBaseValue());
+        }
+    }
+
+    private void runSweep() {
+        if (sweepRangesTable.isEditing()) {
+            sweepRangesTable.getCellEditor().stopCellEditing();
+        }
+        BroadwaySweepEngine engine = new BroadwaySweepEngine();
+        try {
+            for (BroadwayParameter parameter : BroadwayParameter.values()) {
+                String range = String.valueOf(sweepRangesTable.getValueAt(parameter.ordinal(), 1)).trim();
+                engine = engine.withAxis(parameter, GridAxis.parse(parameter.getLabel(), range));
+            }
+        } catch (IllegalArgumentException ex) {
+            JOptionPane.showMessageDialog(this, ex.getMessage() + "\nUse a single value or start:end:step.",
+                    "Input Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        BroadwaySweepEngine sweep = engine;
+        sweepResultArea.setText("Sweeping " + sweep.getCellCount() + " scenarios...");
+        // Finished chunks go to a result log, so a sweep that is cancelled or cut short by closing
+        // the app picks up where it stopped the next time the same ranges are swept
+        ComputeExecutor.getShared().submit("broadway.sweep", "Broadway sensitivity sweep",
+                progress -> runLogged(sweep, progress), result -> {
+            if (result == null) {
+                sweepResultArea.setText("Sweep cancelled.");
+            } else {
+                showSweepResult(result);
+            }
+        });
+    }
+
+    private static BroadwaySweepEngine.Result runLogged(BroadwaySweepEngine sweep, ComputeExecutor.Progress progress)
+            throws IOException {
+        String runKey = sweep.getRunKey();
+        ResultLog log;
+        try {
+            log = ResultLog.open(ResultLog.panelLogFile("broadway-sweep", runKey), runKey);
+        } catch (IOException ex) {
+            // No writable home directory, or the log is still held by another run: run without resuming
+            return sweep.run(progress);
+        }
+        try {
+            BroadwaySweepEngine.Result result = sweep.run(progress, log);
+            if (result != null) {
+                log.delete();
             }
-            model.addRow(row);
+            return result;
+        } finally {
+            log.close();
         }
     }
 
-    private double calculateProfitForPriceAndWeeks(double price, int weeks) {
-        return weeks * ( showsPerWeek * theaterCapacity * expectedOccupancy * ( price + dealerProfitPerTicket) - theaterOpeningCostPerNight * 7) - developmentCost;
+    private void showSweepResult(BroadwaySweepEngine.Result result) {
+        SweepSummary summary = result.getSummary();
+        SWEEP_TIMER.record(result.getElapsedNanos(), summary.getCount() - result.getResumedCells());
+        double seconds = result.getElapsedNanos() / 1e9;
+        sweepResultArea.setText("Scenarios: " + summary.getCount() + "\n");
+        if (result.getResumedCells() > 0) {
+            sweepResultArea.append("Resumed a saved sweep: " + result.getResumedCells() + " scenarios were already done\n");
+        }
+        sweepResultArea.append(String.format("Mean Profit: $%.2f (std. deviation $%.2f)%n",
+                summary.getMean(), summary.getStandardDeviation()));
+        sweepResultArea.append(String.format("Profitable Scenarios: %.1f%%%n", 100 * summary.getProfitableFraction()));
+        sweepResultArea.append(String.format("%nBest Profit: $%.2f at%n", summary.getMax()));
+        appendParameterValues(result.getBestValues());
+        sweepResultArea.append(String.format("Worst Profit: $%.2f at%n", summary.getMin()));
+        appendParameterValues(result.getWorstValues());
+
+        // Text tornado chart: swing of each swept parameter with the others at their base values
+        java.util.List<BroadwaySweepEngine.Sensitivity> sensitivities = result.getSensitivities();
+        if (!sensitivities.isEmpty()) {
+            double widest = sensitivities.get(0).getSwing();
+            sweepResultArea.append(String.format("%nSensitivity (base profit $%.2f):%n",
+                    sensitivities.get(0).getBaseProfit()));
+            for (BroadwaySweepEngine.Sensitivity s : sensitivities) {
+                int bar = widest > 0 ? (int) Math.round(30 * s.getSwing() / widest) : 0;
+                sweepResultArea.append(String.format("  %-25s %-30s $%,.0f .. $%,.0f%n",
+                        s.getParameter().getLabel(), "#".repeat(bar), s.getLowProfit(), s.getHighProfit()));
+            }
+        }
+        sweepResultArea.append(String.format("%nElapsed: %.2f s (%.1f M scenarios/s)%n",
+                seconds, summary.getCount() / seconds / 1e6));
     }
 
+    private void appendParameterValues(double[] values) {
+        for (BroadwayParameter parameter : BroadwayParameter.values()) {
+            sweepResultArea.append(String.format("  %-25s %.2f%n", parameter.getLabel(), values[parameter.ordinal()]));
+        }
+    }
+
+    private JPanel createCashFlowPanel() {
+        JPanel panel = new JPanel(new BorderLayout());
+        panel.setBorder(BorderFactory.createTitledBorder("Week-by-Week Cash Flow over Stochastic Paths"));
+
+        JPanel inputPanel = new JPanel(new GridLayout(6, 4));
+        JTextField pathsField = new JTextField("100000");
+        JTextField maxWeeksField = new JTextField("500");
+        JTextField occupancyField = new JTextField("0.85");
+        JTextField decayField = new JTextField("0.2");
+        JTextField seasonField = new JTextField("10");
+        JTextField volatilityField = new JTextField("0.15");
+        JTextField persistenceField = new JTextField("0.8");
+        JTextField thresholdField = new JTextField("0");
+        JTextField closingWeeksField = new JTextField("4");
+        JTextField discountField = new JTextField("8");
+        inputPanel.add(new JLabel("Paths:"));
+        inputPanel.add(pathsField);
+        inputPanel.add(new JLabel("Max Weeks:"));
+        inputPanel.add(maxWeeksField);
+        inputPanel.add(new JLabel("Opening Occupancy (0-1):"));
+        inputPanel.add(occupancyField);
+        inputPanel.add(new JLabel("Weekly Decay (%):"));
+        inputPanel.add(decayField);
+        inputPanel.add(new JLabel("Seasonal Amplitude (%):"));
+        inputPanel.add(seasonField);
+        inputPanel.add(new JLabel("Demand Volatility (sd):"));
+        inputPanel.add(volatilityField);
+        inputPanel.add(new JLabel("Shock Persistence (0-1):"));
+        inputPanel.add(persistenceField);
+        inputPanel.add(new JLabel("Close Below Weekly Profit ($):"));
+        inputPanel.add(thresholdField);
+        inputPanel.add(new JLabel("Weeks Below Before Closing:"));
+        inputPanel.add(closingWeeksField);
+        inputPanel.add(new JLabel("Annual Discount Rate (%):"));
+        inputPanel.add(discountField);
+        JButton runButton = new JButton("Simulate Cash Flow");
+        inputPanel.add(runButton);
+
+        cashFlowResultArea = new JTextArea(8, 40);
+        cashFlowResultArea.setEditable(false);
+        paybackChart = new LiveChartPanel("Payback Probability by Week", "Week", "P(Paid Back)", 1000);
+        paybackChart.setPreferredSize(new Dimension(500, 250));
+
+        JPanel resultPanel = new JPanel(new BorderLayout());
+        resultPanel.add(new JScrollPane(cashFlowResultArea), BorderLayout.NORTH);
+        resultPanel.add(paybackChart, BorderLayout.CENTER);
+
+        panel.add(inputPanel, BorderLayout.NORTH);
+        panel.add(resultPanel, BorderLayout.CENTER);
+
+        runButton.addActionListener(e -> {
+            BroadwayCashFlowSimulation simulation;
+            int paths;
+            try {
+                paths = Integer.parseInt(pathsField.getText().trim());
+                if (paths <= 0) {
+                    throw new IllegalArgumentException("The number of paths must be positive");
+                }
+                simulation = new BroadwayCashFlowSimulation(Integer.parseInt(maxWeeksField.getText().trim()),
+                        Double.parseDouble(occupancyField.getText()), Double.parseDouble(decayField.getText()) / 100,
+                        Double.parseDouble(seasonField.getText()) / 100, Double.parseDouble(volatilityField.getText()),
+                        Double.parseDouble(persistenceField.getText()), Double.parseDouble(thresholdField.getText()),
+                        Integer.parseInt(closingWeeksField.getText().trim()),
+                        Double.parseDouble(discountField.getText()) / 100);
+            } catch (IllegalArgumentException ex) {
+                JOptionPane.showMessageDialog(panel, "Please enter valid cash flow inputs.\n" + ex.getMessage(),
+                        "Input Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            cashFlowResultArea.setText("Simulating " + paths + " paths...");
+            long seed = System.nanoTime();
+            ComputeExecutor.getShared().submit("broadway.cashFlow", "Broadway cash flow simulation",
+                    progress -> simulation.run(paths, seed, progress), result -> {
+                        if (result == null) {
+                            cashFlowResultArea.setText("Simulation cancelled.");
+                        } else {
+                            showCashFlowResult(result);
+                        }
+                    });
+        });
+        return panel;
+    }
+
+    private void showCashFlowResult(BroadwayCashFlowSimulation.Result result) {
+        CASH_FLOW_TIMER.record(result.getElapsedNanos(), result.getPaths() * result.getMaxWeeks());
+        SweepSummary npv = result.getNpv();
+        SweepSummary profit = result.getProfit();
+        cashFlowResultArea.setText("Paths: " + result.getPaths() + "\n");
+        cashFlowResultArea.append(String.format("Mean NPV: $%,.0f (std. deviation $%,.0f), P(NPV > 0): %.1f%%%n",
+                npv.getMean(), npv.getStandardDeviation(), 100 * npv.getProfitableFraction()));
+        cashFlowResultArea.append(String.format("Mean Profit: $%,.0f, range $%,.0f .. $%,.0f%n",
+                profit.getMean(), profit.getMin(), profit.getMax()));
+        cashFlowResultArea.append(String.format("Mean Weeks Open: %.1f%n", result.getMeanWeeksOpen()));
+        StringBuilder payback = new StringBuilder("Payback Week P10 / P50 / P90:");
+        for (double p : new double[]{10, 50, 90}) {
+            int week = result.getPaybackPercentile(p);
+            payback.append(week < 0 ? " never" : " " + week);
+        }
+        cashFlowResultArea.append(payback + "\n");
+        cashFlowResultArea.append(String.format("Never Paid Back: %.1f%%%n", 100 * result.getNeverPaybackProbability()));
+        cashFlowResultArea.append(String.format("Elapsed: %.2f s%n", result.getElapsedNanos() / 1e9));
+
+        paybackChart.clear();
+        double cumulative = 0;
+        for (int week = 1; week <= result.getMaxWeeks(); week++) {
+            cumulative += result.getPaybackProbability(week);
+            paybackChart.offer("Cumulative", week, cumulative);
+        }
+        paybackChart.flush();
+    }
+
+    // Cache key prefix holding every Broadway constant the results depend on
+    private static ScenarioCache.KeyBuilder scenarioKey(String scenario) {
+        return ScenarioCache.keyBuilder(scenario)
+                .add(BroadwayPlayModel.DEVELOPMENT_COST, BroadwayPlayModel.THEATER_OPENING_COST_PER_NIGHT,
+                        BroadwayPlayModel.TICKET_PRICE, BroadwayPlayModel.DEALER_PROFIT_PER_TICKET,
+                        BroadwayPlayModel.EXPECTED_OCCUPANCY)
+                .add(BroadwayPlayModel.SHOWS_PER_WEEK, BroadwayPlayModel.THEATER_CAPACITY, BroadwayPlayModel.DEFAULT_WEEKS);
+    }
+
+    // Registers this panel as a tab of Activity6App
+    public static class Module implements SimulationModule {
+        @Override
+        public String getTitle() {
+            return "Broadway Play Profit Simulation";
+        }
+
+        @Override
+        public int getOrder() {
+            return 20;
+        }
+
+        @Override
+        public JComponent createPanel() {
+            return new BroadwayPlaySimulation();
+        }
+    }
 }
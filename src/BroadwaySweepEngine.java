@@ -0,0 +1,455 @@
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+// N-dimensional sensitivity sweep over the Broadway profit model.
+// Every parameter has an axis; parameters that are not swept get a single value (their base value
+// by default). The Cartesian product is addressed by a linear index in row-major order (the last
+// parameter varies fastest) and split by index range into fork/join tasks. Each leaf decodes its
+// first index once and then steps through the grid like an odometer, reducing profits straight into
+// a SweepSummary, so the grid is never materialized no matter how many cells it has.
+// A run with a ResultLog is cut into fixed chunks instead, each logged when it finishes, so a
+// sweep that is cancelled or cut short resumes from the chunks it already has.
+public class BroadwaySweepEngine {
+
+    // Cells per fork/join leaf and per cancellation check
+    private static final long LEAF_CELLS = 1 << 18;
+    private static final int BLOCK_CELLS = 1 << 14;
+    // A logged run is cut into at most about this many chunks, of at least LEAF_CELLS each
+    private static final long TARGET_CHUNKS = 4096;
+
+    private final GridAxis[] axes;
+    private final long[] strides;
+    private final long cellCount;
+
+    // State of the current run
+    private final AtomicLong completedCells = new AtomicLong();
+    private ComputeExecutor.Progress progress = ComputeExecutor.Progress.NONE;
+    private volatile boolean cancelled;
+
+    // Engine with every parameter fixed at its base value; sweep axes are added with withAxis
+    public BroadwaySweepEngine() {
+        this(baseAxes());
+    }
+
+    private BroadwaySweepEngine(GridAxis[] axes) {
+        this.axes = axes;
+        this.strides = new long[axes.length];
+        long cells = 1;
+        for (int d = axes.length - 1; d >= 0; d--) {
+            strides[d] = cells;
+            try {
+                cells = Math.multiplyExact(cells, axes[d].getCount());
+            } catch (ArithmeticException ex) {
+                throw new IllegalArgumentException("Sweep has too many cells to index");
+            }
+        }
+        this.cellCount = cells;
+    }
+
+    private static GridAxis[] baseAxes() {
+        BroadwayParameter[] parameters = BroadwayParameter.values();
+        GridAxis[] axes = new GridAxis[parameters.length];
+        for (BroadwayParameter parameter : parameters) {
+            axes[parameter.ordinal()] = new GridAxis(parameter.name(), parameter.getBaseValue(), 1, 1);
+        }
+        return axes;
+    }
+
+    // Copy of this engine with one parameter swept along the given axis
+    public BroadwaySweepEngine withAxis(BroadwayParameter parameter, GridAxis axis) {
+        GridAxis[] copy = axes.clone();
+        copy[parameter.ordinal()] = axis;
+        return new BroadwaySweepEngine(copy);
+    }
+
+    public GridAxis getAxis(BroadwayParameter parameter) {
+        return axes[parameter.ordinal()];
+    }
+
+    public long getCellCount() {
+        return cellCount;
+    }
+
+    // Parameter values of the cell at a linear index, indexed by BroadwayParameter ordinal
+    public double[] valuesAt(long index) {
+        double[] values = new double[axes.length];
+        for (int d = 0; d < axes.length; d++) {
+            values[d] = axes[d].valueAt(index / strides[d]);
+            index %= strides[d];
+        }
+        return values;
+    }
+
+    // Runs the sweep on the common fork/join pool.
+    // Returns null if the run was cancelled before it finished.
+    public Result run(ComputeExecutor.Progress progress) {
+        this.progress = progress;
+        cancelled = false;
+        completedCells.set(0);
+        long start = System.nanoTime();
+        SweepSummary summary = ForkJoinPool.commonPool().invoke(new SweepTask(0, cellCount));
+        if (cancelled) {
+            return null;
+        }
+        return new Result(summary, tornado(), System.nanoTime() - start, 0);
+    }
+
+    // Everything that determines the result; a log only resumes a sweep with the same key
+    public String getRunKey() {
+        StringBuilder key = new StringBuilder("broadway-sweep");
+        for (GridAxis axis : axes) {
+            key.append(' ').append(axis.getName()).append('=').append(axis.getStart()).append(':')
+                    .append(axis.getStep()).append('x').append(axis.getCount());
+        }
+        return key.append(" chunk=").append(chunkCells()).toString();
+    }
+
+    // As run, recording every finished chunk in the log (opened with getRunKey) and resuming from
+    // what it already holds. Returns null if cancelled.
+    public Result run(ComputeExecutor.Progress progress, ResultLog log) throws IOException {
+        if (log == null) {
+            return run(progress);
+        }
+        this.progress = progress;
+        cancelled = false;
+        long start = System.nanoTime();
+        LoggedSweep sweep = new LoggedSweep(log);
+        if (!sweep.restore()) {
+            completedCells.set(sweep.resumedCells);
+            IntStream.of(sweep.pendingChunks()).parallel().forEach(sweep::runChunk);
+            if (sweep.logFailure != null) {
+                throw sweep.logFailure;
+            }
+            if (cancelled) {
+                return null;
+            }
+            log.append(ResultLog.COMPLETE, sweep.chunkCount, sweep.merged::writeTo);
+        }
+        return new Result(sweep.merged, tornado(), System.nanoTime() - start, sweep.resumedCells);
+    }
+
+    // Fixed for a given grid, so the chunking and with it the merge order depend only on the axes
+    private long chunkCells() {
+        return Math.max(LEAF_CELLS, cellCount / TARGET_CHUNKS + 1);
+    }
+
+    // Evaluates the cells [from, to) on the calling thread
+    public SweepSummary sweepRange(long from, long to) {
+        SweepSummary summary = new SweepSummary();
+        if (from >= to) {
+            return summary;
+        }
+        int dimensions = axes.length;
+        long[] digits = new long[dimensions];
+        double[] values = new double[dimensions];
+        long rest = from;
+        for (int d = 0; d < dimensions; d++) {
+            digits[d] = rest / strides[d];
+            rest %= strides[d];
+            values[d] = axes[d].valueAt(digits[d]);
+        }
+        int last = dimensions - 1;
+        for (long index = from; index < to; index++) {
+            summary.add(BroadwayParameter.profit(values), index);
+            // Advance the odometer; only the dimensions that roll over are recomputed
+            int d = last;
+            while (d >= 0 && ++digits[d] == axes[d].getCount()) {
+                digits[d] = 0;
+                values[d] = axes[d].getStart();
+                d--;
+            }
+            if (d >= 0) {
+                values[d] = axes[d].valueAt(digits[d]);
+            }
+        }
+        return summary;
+    }
+
+    // One-at-a-time swings for a tornado chart: each swept parameter is moved to the ends of its
+    // axis while every other parameter stays at its base point. Sorted by swing, largest first.
+    public List<Sensitivity> tornado() {
+        double[] base = basePoint();
+        double baseProfit = BroadwayParameter.profit(base);
+        List<Sensitivity> sensitivities = new ArrayList<>();
+        for (BroadwayParameter parameter : BroadwayParameter.values()) {
+            GridAxis axis = axes[parameter.ordinal()];
+            if (axis.getCount() < 2) {
+                continue;
+            }
+            double[] values = base.clone();
+            double low = axis.getStart();
+            double high = axis.valueAt(axis.getCount() - 1);
+            values[parameter.ordinal()] = low;
+            double lowProfit = BroadwayParameter.profit(values);
+            values[parameter.ordinal()] = high;
+            double highProfit = BroadwayParameter.profit(values);
+            sensitivities.add(new Sensitivity(parameter, low, high, lowProfit, highProfit, baseProfit));
+        }
+        sensitivities.sort(Comparator.comparingDouble(Sensitivity::getSwing).reversed());
+        return sensitivities;
+    }
+
+    // The point the tornado swings around, taken from this engine's axes: the value of a fixed
+    // parameter, and for a swept one its base value when that lies on the axis, else the midpoint
+    private double[] basePoint() {
+        double[] base = new double[axes.length];
+        for (BroadwayParameter parameter : BroadwayParameter.values()) {
+            GridAxis axis = axes[parameter.ordinal()];
+            double low = axis.getStart();
+            double high = axis.valueAt(axis.getCount() - 1);
+            double value = parameter.getBaseValue();
+            if (axis.getCount() == 1) {
+                value = low;
+            } else if (value < Math.min(low, high) || value > Math.max(low, high)) {
+                value = low + (high - low) / 2;
+            }
+            base[parameter.ordinal()] = value;
+        }
+        return base;
+    }
+
+    private boolean checkCancelled() {
+        if (!cancelled && progress.isCancelled()) {
+            cancelled = true;
+        }
+        return cancelled;
+    }
+
+    // A logged sweep cut into chunks of chunkCells() consecutive cells. Finished chunks are merged
+    // in chunk order, so a resumed sweep gives the same summary as an uninterrupted logged one.
+    private class LoggedSweep {
+        final long chunkCells = chunkCells();
+        final int chunkCount = (int) ((cellCount - 1) / chunkCells + 1);
+        final ResultLog log;
+        final SweepSummary merged = new SweepSummary();
+        final SweepSummary[] partials = new SweepSummary[chunkCount];
+        int nextToMerge;
+        long resumedCells;
+        IOException logFailure;
+
+        LoggedSweep(ResultLog log) {
+            this.log = log;
+        }
+
+        // Loads the log's checkpoint and chunks; true when the logged sweep had already finished
+        boolean restore() throws IOException {
+            ResultLog.Record done = log.findLast(ResultLog.COMPLETE);
+            if (done != null) {
+                merged.merge(SweepSummary.readFrom(done.open()));
+                resumedCells = cellCount;
+                return true;
+            }
+            if (log.findLast(ResultLog.START) == null) {
+                log.append(ResultLog.START, 0, out -> out.writeLong(cellCount));
+            }
+            for (ResultLog.Record record : log.getReplayedRecords()) {
+                if (record.getType() == ResultLog.CHECKPOINT) {
+                    DataInputStream in = record.open();
+                    nextToMerge = in.readInt();
+                    merged.merge(SweepSummary.readFrom(in));
+                    int pending = in.readInt();
+                    for (int i = 0; i < pending; i++) {
+                        int chunk = in.readInt();
+                        partials[chunk] = SweepSummary.readFrom(in);
+                    }
+                } else if (record.getType() == ResultLog.CHUNK && record.getIndex() >= nextToMerge
+                        && record.getIndex() < chunkCount) {
+                    partials[(int) record.getIndex()] = SweepSummary.readFrom(record.open());
+                }
+            }
+            mergePrefix();
+            resumedCells = merged.getCount();
+            for (SweepSummary partial : partials) {
+                resumedCells += partial == null ? 0 : partial.getCount();
+            }
+            return false;
+        }
+
+        int[] pendingChunks() {
+            return IntStream.range(nextToMerge, chunkCount).filter(c -> partials[c] == null).toArray();
+        }
+
+        void runChunk(int chunk) {
+            long from = chunk * chunkCells;
+            long to = Math.min(cellCount, from + chunkCells);
+            SweepSummary summary = new SweepSummary();
+            for (long block = from; block < to; block += BLOCK_CELLS) {
+                if (checkCancelled()) {
+                    return;
+                }
+                long end = Math.min(to, block + BLOCK_CELLS);
+                summary.merge(sweepRange(block, end));
+                progress.update((double) completedCells.addAndGet(end - block) / cellCount);
+            }
+            complete(chunk, summary);
+        }
+
+        synchronized void complete(int chunk, SweepSummary summary) {
+            partials[chunk] = summary;
+            mergePrefix();
+            if (logFailure != null) {
+                return;
+            }
+            try {
+                log.append(ResultLog.CHUNK, chunk, summary::writeTo);
+                if (log.isCheckpointDue()) {
+                    log.append(ResultLog.CHECKPOINT, nextToMerge, this::writeCheckpoint);
+                }
+            } catch (IOException ex) {
+                // Stop the sweep rather than compute chunks that could not be saved
+                logFailure = ex;
+                cancelled = true;
+            }
+        }
+
+        // The merged prefix plus the finished chunks beyond it, which the checkpoint replaces
+        private void writeCheckpoint(DataOutput out) throws IOException {
+            out.writeInt(nextToMerge);
+            merged.writeTo(out);
+            int pending = 0;
+            for (int c = nextToMerge; c < chunkCount; c++) {
+                pending += partials[c] != null ? 1 : 0;
+            }
+            out.writeInt(pending);
+            for (int c = nextToMerge; c < chunkCount; c++) {
+                if (partials[c] != null) {
+                    out.writeInt(c);
+                    partials[c].writeTo(out);
+                }
+            }
+        }
+
+        private void mergePrefix() {
+            while (nextToMerge < chunkCount && partials[nextToMerge] != null) {
+                merged.merge(partials[nextToMerge]);
+                partials[nextToMerge++] = null;
+            }
+        }
+    }
+
+    // Recursively halves the index range down to leaves of LEAF_CELLS
+    private class SweepTask extends RecursiveTask<SweepSummary> {
+        private final long from;
+        private final long to;
+
+        SweepTask(long from, long to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected SweepSummary compute() {
+            if (to - from <= LEAF_CELLS) {
+                SweepSummary summary = new SweepSummary();
+                for (long block = from; block < to && !checkCancelled(); block += BLOCK_CELLS) {
+                    long end = Math.min(to, block + BLOCK_CELLS);
+                    summary.merge(sweepRange(block, end));
+                    progress.update((double) completedCells.addAndGet(end - block) / cellCount);
+                }
+                return summary;
+            }
+            long middle = from + (to - from) / 2;
+            SweepTask left = new SweepTask(from, middle);
+            SweepTask right = new SweepTask(middle, to);
+            left.fork();
+            SweepSummary result = right.compute();
+            SweepSummary leftResult = left.join();
+            leftResult.merge(result);
+            return leftResult;
+        }
+    }
+
+    // Profit swing of one parameter between the ends of its axis
+    public static class Sensitivity {
+        private final BroadwayParameter parameter;
+        private final double lowValue, highValue;
+        private final double lowProfit, highProfit;
+        private final double baseProfit;
+
+        Sensitivity(BroadwayParameter parameter, double lowValue, double highValue,
+                    double lowProfit, double highProfit, double baseProfit) {
+            this.parameter = parameter;
+            this.lowValue = lowValue;
+            this.highValue = highValue;
+            this.lowProfit = lowProfit;
+            this.highProfit = highProfit;
+            this.baseProfit = baseProfit;
+        }
+
+        public BroadwayParameter getParameter() {
+            return parameter;
+        }
+
+        public double getLowValue() {
+            return lowValue;
+        }
+
+        public double getHighValue() {
+            return highValue;
+        }
+
+        public double getLowProfit() {
+            return lowProfit;
+        }
+
+        public double getHighProfit() {
+            return highProfit;
+        }
+
+        public double getBaseProfit() {
+            return baseProfit;
+        }
+
+        public double getSwing() {
+            return Math.abs(highProfit - lowProfit);
+        }
+    }
+
+    public class Result {
+        private final SweepSummary summary;
+        private final List<Sensitivity> sensitivities;
+        private final long elapsedNanos;
+        private final long resumedCells;
+
+        Result(SweepSummary summary, List<Sensitivity> sensitivities, long elapsedNanos, long resumedCells) {
+            this.summary = summary;
+            this.sensitivities = sensitivities;
+            this.elapsedNanos = elapsedNanos;
+            this.resumedCells = resumedCells;
+        }
+
+        public SweepSummary getSummary() {
+            return summary;
+        }
+
+        public List<Sensitivity> getSensitivities() {
+            return sensitivities;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        // Cells taken from a result log instead of computed in this run
+        public long getResumedCells() {
+            return resumedCells;
+        }
+
+        // Parameter values of the most and least profitable cells
+        public double[] getBestValues() {
+            return valuesAt(summary.getArgMax());
+        }
+
+        public double[] getWorstValues() {
+            return valuesAt(summary.getArgMin());
+        }
+    }
+}
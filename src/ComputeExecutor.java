@@ -0,0 +1,202 @@
+import javax.swing.*;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+
+// Shared background executor for all simulation panels.
+// Jobs are submitted from the EDT under a key; submitting again with the same key cancels the
+// older job, so repeated clicks only compute the latest request. Results are delivered on the EDT.
+public class ComputeExecutor {
+
+    // Work that runs off the EDT. Long jobs should report progress and poll for cancellation.
+    public interface Job<T> {
+        T compute(Progress progress) throws Exception;
+    }
+
+    // Progress sink handed to a running job; safe to call from any thread
+    public interface Progress {
+        Progress NONE = new Progress() {
+            @Override
+            public void update(double fraction) {
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return false;
+            }
+        };
+
+        void update(double fraction);
+
+        boolean isCancelled();
+    }
+
+    private static final ComputeExecutor SHARED = new ComputeExecutor();
+
+    private final ExecutorService executor;
+    // Active jobs by key, in submission order (EDT only)
+    private final Map<String, Worker<?>> active = new LinkedHashMap<>();
+    private final List<ChangeListener> listeners = new ArrayList<>();
+
+    private ComputeExecutor() {
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), r -> {
+            Thread thread = new Thread(r, "compute-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static ComputeExecutor getShared() {
+        return SHARED;
+    }
+
+    // Submits a job (EDT only). Any job still pending or running under the same key is cancelled.
+    public <T> void submit(String key, String label, Job<T> job, Consumer<T> onSuccess) {
+        Worker<?> previous = active.remove(key);
+        if (previous != null) {
+            previous.cancel(false);
+        }
+        Worker<T> worker = new Worker<>(key, label, job, onSuccess);
+        active.put(key, worker);
+        worker.addPropertyChangeListener(e -> {
+            if ("progress".equals(e.getPropertyName())) {
+                fireStateChanged();
+            }
+        });
+        fireStateChanged();
+        executor.execute(worker);
+    }
+
+    // Like submit, but answers from the shared scenario cache when the same scenario was already
+    // evaluated; otherwise the result is stored in the cache with the given weight (in cells)
+    public <T> void submitCached(String key, String label, ScenarioCache.Key scenario, Job<T> job,
+                                 ToLongFunction<T> weigher, Consumer<T> onSuccess) {
+        ScenarioCache cache = ScenarioCache.getShared();
+        T cached = cache.get(scenario);
+        if (cached != null) {
+            Metrics.counter("cache.answered." + key).increment();
+            Worker<?> previous = active.remove(key);
+            if (previous != null) {
+                previous.cancel(false);
+                fireStateChanged();
+            }
+            onSuccess.accept(cached);
+            return;
+        }
+        submit(key, label, progress -> {
+            T result = job.compute(progress);
+            if (result != null && !progress.isCancelled()) {
+                cache.put(scenario, result, weigher.applyAsLong(result));
+            }
+            return result;
+        }, onSuccess);
+    }
+
+    // Cancels every active job (EDT only)
+    public void cancelAll() {
+        for (Worker<?> worker : new ArrayList<>(active.values())) {
+            worker.cancel(false);
+        }
+    }
+
+    public int getActiveCount() {
+        return active.size();
+    }
+
+    // Label and progress (0..100) of the most recently submitted active job
+    public String getCurrentLabel() {
+        Worker<?> current = getCurrent();
+        return current == null ? "" : current.label;
+    }
+
+    public int getCurrentProgress() {
+        Worker<?> current = getCurrent();
+        return current == null ? 0 : current.getProgress();
+    }
+
+    public void addChangeListener(ChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeChangeListener(ChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    private Worker<?> getCurrent() {
+        Worker<?> current = null;
+        for (Worker<?> worker : active.values()) {
+            current = worker;
+        }
+        return current;
+    }
+
+    private void fireStateChanged() {
+        ChangeEvent event = new ChangeEvent(this);
+        for (ChangeListener listener : new ArrayList<>(listeners)) {
+            listener.stateChanged(event);
+        }
+    }
+
+    private class Worker<T> extends SwingWorker<T, Void> implements Progress {
+        private final String key;
+        private final String label;
+        private final Job<T> job;
+        private final Consumer<T> onSuccess;
+
+        Worker(String key, String label, Job<T> job, Consumer<T> onSuccess) {
+            this.key = key;
+            this.label = label;
+            this.job = job;
+            this.onSuccess = onSuccess;
+        }
+
+        @Override
+        protected T doInBackground() throws Exception {
+            if (isCancelled()) {
+                return null;
+            }
+            Metrics.Timer timer = Metrics.timer("job." + key);
+            long start = timer.start();
+            T result = job.compute(this);
+            timer.stop(start);
+            return result;
+        }
+
+        @Override
+        public void update(double fraction) {
+            setProgress((int) Math.max(0, Math.min(100, fraction * 100)));
+        }
+
+        @Override
+        protected void done() {
+            if (active.get(key) == this) {
+                active.remove(key);
+            }
+            fireStateChanged();
+            if (isCancelled()) {
+                Metrics.counter("job.cancelled." + key).increment();
+                return;
+            }
+            try {
+                onSuccess.accept(get());
+            } catch (CancellationException | InterruptedException ex) {
+                // Superseded or cancelled; nothing to deliver
+            } catch (ExecutionException ex) {
+                Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                JOptionPane.showMessageDialog(null, label + " failed: " + cause.getMessage(),
+                        "Computation Error", JOptionPane.ERROR_MESSAGE);
+            }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+import javax.swing.*;
+import java.awt.*;
+
+// Status strip showing the progress of the shared compute executor, with a cancel button
+public class ComputeStatusBar extends JPanel {
+
+    private final ComputeExecutor executor;
+    private final JLabel statusLabel;
+    private final JProgressBar progressBar;
+    private final JButton cancelButton;
+
+    public ComputeStatusBar(ComputeExecutor executor) {
+        this.executor = executor;
+        setLayout(new BorderLayout(5, 0));
+        setBorder(BorderFactory.createEmptyBorder(2, 5, 2, 5));
+
+        statusLabel = new JLabel("Ready");
+        progressBar = new JProgressBar(0, 100);
+        progressBar.setStringPainted(true);
+        cancelButton = new JButton("Cancel");
+        cancelButton.addActionListener(e -> executor.cancelAll());
+
+        add(statusLabel, BorderLayout.WEST);
+        add(progressBar, BorderLayout.CENTER);
+        add(cancelButton, BorderLayout.EAST);
+
+        executor.addChangeListener(e -> refresh());
+        refresh();
+    }
+
+    // Method to mirror the executor state
+    private void refresh() {
+        int activeCount = executor.getActiveCount();
+        if (activeCount == 0) {
+            statusLabel.setText("Ready");
+            progressBar.setValue(0);
+            cancelButton.setEnabled(false);
+            return;
+        }
+        String label = executor.getCurrentLabel();
+        statusLabel.setText(activeCount > 1 ? label + " (+" + (activeCount - 1) + " more)" : label);
+        progressBar.setValue(executor.getCurrentProgress());
+        cancelButton.setEnabled(true);
+    }
+}
@@ -0,0 +1,330 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+// Discrete-event simulation of one year of copy shop operation for a given number of copiers.
+// Print jobs arrive as a Poisson process during opening hours with geometrically distributed
+// sizes. Each copier serves one job at a time at a speed that matches its yearly capacity in
+// CopyShopModel. Jobs wait in a FIFO queue, and a job arriving to a full queue is a lost sale.
+// Replications run in parallel, each with its own random stream; the event calendar and the
+// queue are primitive arrays, so a replication allocates only a few small arrays.
+public class CopyShopEventSimulation {
+
+    // Event code for an arrival; departures use the index of the copier that finishes (>= 0)
+    private static final int ARRIVAL = -1;
+
+    private final int numCopiers;
+    private final double dailyDemand;
+    private final double meanJobSize;
+    private final double hoursPerDay;
+    private final int queueLimit;
+
+    public CopyShopEventSimulation(int numCopiers, double dailyDemand, double meanJobSize,
+                                   double hoursPerDay, int queueLimit) {
+        if (numCopiers <= 0 || dailyDemand <= 0 || meanJobSize < 1 || hoursPerDay <= 0 || queueLimit < 0) {
+            throw new IllegalArgumentException("Copiers, demand and hours must be positive, job size >= 1, queue limit >= 0");
+        }
+        this.numCopiers = numCopiers;
+        this.dailyDemand = dailyDemand;
+        this.meanJobSize = meanJobSize;
+        this.hoursPerDay = hoursPerDay;
+        this.queueLimit = queueLimit;
+    }
+
+    // Receives each finished replication with its index, on worker threads and in any order
+    public interface ReplicationListener {
+        void finished(int index, Replication replication);
+    }
+
+    // Runs independent replications of a year in parallel
+    public Summary run(int replications, long seed, ComputeExecutor.Progress progress) {
+        return run(replications, seed, progress, (index, replication) -> {
+        });
+    }
+
+    // Same as run, also handing each finished replication to the listener
+    public Summary run(int replications, long seed, ComputeExecutor.Progress progress,
+                       ReplicationListener listener) {
+        SplittableRandom root = new SplittableRandom(seed);
+        SplittableRandom[] streams = new SplittableRandom[replications];
+        for (int r = 0; r < replications; r++) {
+            streams[r] = root.split();
+        }
+        Replication[] results = new Replication[replications];
+        AtomicInteger completed = new AtomicInteger();
+        long start = System.nanoTime();
+        IntStream.range(0, replications).parallel().forEach(r -> {
+            if (progress.isCancelled()) {
+                return;
+            }
+            results[r] = simulateYear(streams[r]);
+            listener.finished(r, results[r]);
+            progress.update((double) completed.incrementAndGet() / replications);
+        });
+        if (progress.isCancelled()) {
+            return null;
+        }
+        return new Summary(results, System.nanoTime() - start);
+    }
+
+    // Simulates one year of opening hours (time is measured in open hours)
+    public Replication simulateYear(SplittableRandom random) {
+        double horizon = CopyShopModel.DAYS_PER_YEAR * hoursPerDay;
+        double arrivalRate = dailyDemand / meanJobSize / hoursPerDay;  // Jobs per hour
+        double speed = CopyShopModel.COPIER_CAPACITY / horizon;  // Copies per hour per copier
+        double continueProbability = 1.0 - 1.0 / meanJobSize;  // Geometric job size, mean meanJobSize
+
+        EventHeap events = new EventHeap(numCopiers + 1);
+        int[] idleCopiers = new int[numCopiers];
+        int idleCount = numCopiers;
+        for (int c = 0; c < numCopiers; c++) {
+            idleCopiers[c] = numCopiers - 1 - c;
+        }
+        int[] jobOnCopier = new int[numCopiers];
+        int[] queueCopies = new int[queueLimit];
+        double[] queueArrivals = new double[queueLimit];
+        int queueHead = 0;
+        int queueSize = 0;
+
+        Replication result = new Replication();
+        events.push(exponential(random, arrivalRate), ARRIVAL);
+        while (!events.isEmpty()) {
+            double now = events.peekTime();
+            if (now > horizon) {
+                break;
+            }
+            int code = events.pop();
+            result.events++;
+            if (code == ARRIVAL) {
+                int copies = geometric(random, continueProbability);
+                result.demandedCopies += copies;
+                if (idleCount > 0) {
+                    int copier = idleCopiers[--idleCount];
+                    jobOnCopier[copier] = copies;
+                    double service = copies / speed;
+                    result.busyHours += service;
+                    events.push(now + service, copier);
+                } else if (queueSize < queueLimit) {
+                    int tail = (queueHead + queueSize) % queueLimit;
+                    queueCopies[tail] = copies;
+                    queueArrivals[tail] = now;
+                    queueSize++;
+                } else {
+                    result.lostCopies += copies;
+                }
+                events.push(now + exponential(random, arrivalRate), ARRIVAL);
+            } else {
+                int copier = code;
+                result.servedCopies += jobOnCopier[copier];
+                result.servedJobs++;
+                if (queueSize > 0) {
+                    int copies = queueCopies[queueHead];
+                    result.waitHours += now - queueArrivals[queueHead];
+                    queueHead = (queueHead + 1) % queueLimit;
+                    queueSize--;
+                    jobOnCopier[copier] = copies;
+                    double service = copies / speed;
+                    result.busyHours += service;
+                    events.push(now + service, copier);
+                } else {
+                    idleCopiers[idleCount++] = copier;
+                }
+            }
+        }
+        result.profit = CopyShopModel.profitForCopiesMade(numCopiers, result.servedCopies);
+        result.utilization = Math.min(1.0, result.busyHours / (numCopiers * horizon));
+        return result;
+    }
+
+    public int getNumCopiers() {
+        return numCopiers;
+    }
+
+    private static double exponential(SplittableRandom random, double rate) {
+        return -Math.log(1.0 - random.nextDouble()) / rate;
+    }
+
+    private static int geometric(SplittableRandom random, double continueProbability) {
+        if (continueProbability <= 0) {
+            return 1;
+        }
+        return 1 + (int) (Math.log(1.0 - random.nextDouble()) / Math.log(continueProbability));
+    }
+
+    // Binary min-heap of (time, code) pairs stored in parallel primitive arrays
+    static final class EventHeap {
+        private double[] times;
+        private int[] codes;
+        private int size;
+
+        EventHeap(int capacity) {
+            times = new double[Math.max(2, capacity)];
+            codes = new int[times.length];
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        double peekTime() {
+            return times[0];
+        }
+
+        void push(double time, int code) {
+            if (size == times.length) {
+                times = Arrays.copyOf(times, size * 2);
+                codes = Arrays.copyOf(codes, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (times[parent] <= time) {
+                    break;
+                }
+                times[i] = times[parent];
+                codes[i] = codes[parent];
+                i = parent;
+            }
+            times[i] = time;
+            codes[i] = code;
+        }
+
+        // Removes the earliest event and returns its code
+        int pop() {
+            int code = codes[0];
+            double lastTime = times[--size];
+            int lastCode = codes[size];
+            int i = 0;
+            int half = size >>> 1;
+            while (i < half) {
+                int child = 2 * i + 1;
+                if (child + 1 < size && times[child + 1] < times[child]) {
+                    child++;
+                }
+                if (lastTime <= times[child]) {
+                    break;
+                }
+                times[i] = times[child];
+                codes[i] = codes[child];
+                i = child;
+            }
+            times[i] = lastTime;
+            codes[i] = lastCode;
+            return code;
+        }
+    }
+
+    // Outcome of one simulated year
+    public static class Replication {
+        long events;
+        long demandedCopies;
+        long servedCopies;
+        long lostCopies;
+        long servedJobs;
+        double busyHours;
+        double waitHours;
+        double utilization;
+        double profit;
+
+        public double getProfit() {
+            return profit;
+        }
+    }
+
+    // Statistics across replications
+    public static class Summary {
+        private final int replications;
+        private final double meanProfit;
+        private final double profitStdDev;
+        private final double meanServedCopies;
+        private final double lostFraction;
+        private final double meanUtilization;
+        private final double meanWaitHours;
+        private final long totalEvents;
+        private final long elapsedNanos;
+
+        Summary(Replication[] results, long elapsedNanos) {
+            this.replications = results.length;
+            this.elapsedNanos = elapsedNanos;
+            // Welford's update: profits are large and close together, so sumSquares - sum^2/n would
+            // cancel most of its digits
+            double mean = 0;
+            double m2 = 0;
+            int count = 0;
+            double served = 0;
+            double utilization = 0;
+            long demanded = 0;
+            long lost = 0;
+            long jobs = 0;
+            double wait = 0;
+            long events = 0;
+            for (Replication r : results) {
+                count++;
+                double delta = r.profit - mean;
+                mean += delta / count;
+                m2 += delta * (r.profit - mean);
+                served += r.servedCopies;
+                utilization += r.utilization;
+                demanded += r.demandedCopies;
+                lost += r.lostCopies;
+                jobs += r.servedJobs;
+                wait += r.waitHours;
+                events += r.events;
+            }
+            int n = results.length;
+            meanProfit = mean;
+            profitStdDev = n > 1 ? Math.sqrt(m2 / (n - 1)) : 0.0;
+            meanServedCopies = served / n;
+            lostFraction = demanded == 0 ? 0.0 : (double) lost / demanded;
+            meanUtilization = utilization / n;
+            meanWaitHours = jobs == 0 ? 0.0 : wait / jobs;
+            totalEvents = events;
+        }
+
+        public int getReplications() {
+            return replications;
+        }
+
+        public double getMeanProfit() {
+            return meanProfit;
+        }
+
+        public double getProfitStdDev() {
+            return profitStdDev;
+        }
+
+        // Half-width of the 95% confidence interval of the mean profit
+        public double getConfidenceHalfWidth() {
+            return 1.96 * profitStdDev / Math.sqrt(replications);
+        }
+
+        public double getMeanServedCopies() {
+            return meanServedCopies;
+        }
+
+        public double getLostFraction() {
+            return lostFraction;
+        }
+
+        public double getMeanUtilization() {
+            return meanUtilization;
+        }
+
+        public double getMeanWaitHours() {
+            return meanWaitHours;
+        }
+
+        public long getTotalEvents() {
+            return totalEvents;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public double getEventsPerSecond() {
+            return totalEvents / (elapsedNanos / 1e9);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+import java.math.BigDecimal;
+
+// Profit model of the copy shop, free of any UI code.
+// All functions are pure and work on primitives; the array overloads evaluate whole
+// batches in tight loops that the JIT can unroll and vectorize.
+public final class CopyShopModel {
+
+    public static final int COPIER_CAPACITY = 100_000;  // Copies per copier per year
+    public static final double ANNUAL_RENTAL_COST = 5000.0;  // Per copier
+    public static final double OTHER_MONTHLY_FIXED_COSTS = 400.0;
+    public static final double PRICE_PER_COPY = 0.10;
+    public static final double COST_PER_COPY = 0.03;
+    public static final int DAYS_PER_YEAR = 365;
+
+    private static final double OTHER_ANNUAL_FIXED_COSTS = OTHER_MONTHLY_FIXED_COSTS * 12;
+
+    // The same constants in whole cents, for the exact-money functions
+    public static final long ANNUAL_RENTAL_COST_CENTS = 500_000;
+    public static final long OTHER_MONTHLY_FIXED_COSTS_CENTS = 40_000;
+    public static final long PRICE_PER_COPY_CENTS = 10;
+    public static final long COST_PER_COPY_CENTS = 3;
+
+    private CopyShopModel() {
+    }
+
+    // Annual profit with whole copies: demand is split evenly between the copiers
+    // (integer division) and each copier is capped at its yearly capacity.
+    // Copy counts are longs: dailyDemand * 365 overflows an int above about 5.9M copies a day.
+    public static double profitForCopiers(int numCopiers, int dailyDemand) {
+        return profitForCopiers(numCopiers, (long) dailyDemand);
+    }
+
+    // Same profit for demands beyond the int range, e.g. when many copiers saturate above 2^31
+    public static double profitForCopiers(int numCopiers, long dailyDemand) {
+        long annualDemand = Math.multiplyExact(dailyDemand, DAYS_PER_YEAR);
+        long copiesPerCopier = Math.min(COPIER_CAPACITY, annualDemand / numCopiers);
+        long totalCopies = copiesPerCopier * numCopiers;
+
+        double totalRevenue = totalCopies * PRICE_PER_COPY;
+        double totalCost = (numCopiers * ANNUAL_RENTAL_COST) + OTHER_ANNUAL_FIXED_COSTS + (totalCopies * COST_PER_COPY);
+        return totalRevenue - totalCost;
+    }
+
+    // Exact version of profitForCopiers in cents
+    public static long profitForCopiersCents(int numCopiers, long dailyDemand) {
+        long annualDemand = Math.multiplyExact(dailyDemand, DAYS_PER_YEAR);
+        long totalCopies = Math.min(COPIER_CAPACITY, annualDemand / numCopiers) * numCopiers;
+        return totalCopies * (PRICE_PER_COPY_CENTS - COST_PER_COPY_CENTS)
+                - numCopiers * ANNUAL_RENTAL_COST_CENTS - OTHER_MONTHLY_FIXED_COSTS_CENTS * 12;
+    }
+
+    // BigDecimal reference for profitForCopiersCents, used to audit the fixed-point path
+    public static BigDecimal profitForCopiersAudit(int numCopiers, long dailyDemand) {
+        long annualDemand = Math.multiplyExact(dailyDemand, DAYS_PER_YEAR);
+        BigDecimal copies = BigDecimal.valueOf(Math.min(COPIER_CAPACITY, annualDemand / numCopiers) * numCopiers);
+        BigDecimal revenue = copies.multiply(Money.toBigDecimal(PRICE_PER_COPY_CENTS));
+        BigDecimal cost = BigDecimal.valueOf(numCopiers).multiply(Money.toBigDecimal(ANNUAL_RENTAL_COST_CENTS))
+                .add(Money.toBigDecimal(OTHER_MONTHLY_FIXED_COSTS_CENTS).multiply(BigDecimal.valueOf(12)))
+                .add(copies.multiply(Money.toBigDecimal(COST_PER_COPY_CENTS)));
+        return revenue.subtract(cost);
+    }
+
+    // Annual profit with continuous demand, capped at the total copier capacity
+    public static double annualProfit(double rentedCopiers, double dailyDemand) {
+        double annualDemand = dailyDemand * DAYS_PER_YEAR;
+        double copiesMade = Math.min(annualDemand, rentedCopiers * COPIER_CAPACITY);
+        return profitForCopiesMade(rentedCopiers, copiesMade);
+    }
+
+    // Annual profit for the number of copies actually made in the year
+    public static double profitForCopiesMade(double rentedCopiers, double copiesMade) {
+        double totalRevenue = copiesMade * PRICE_PER_COPY;
+        double totalCost = (rentedCopiers * ANNUAL_RENTAL_COST) + OTHER_ANNUAL_FIXED_COSTS + (copiesMade * COST_PER_COPY);
+        return totalRevenue - totalCost;
+    }
+
+    // Copies per year needed to cover the fixed costs of the given number of copiers
+    public static double breakEvenCopies(double rentedCopiers) {
+        return (rentedCopiers * ANNUAL_RENTAL_COST + OTHER_ANNUAL_FIXED_COSTS) / (PRICE_PER_COPY - COST_PER_COPY);
+    }
+
+    // Daily demand at which the continuous annual profit reaches the target. Profit is linear in
+    // demand until the copiers are saturated and flat afterwards, so this is NaN when even full
+    // capacity can't reach the target.
+    public static double dailyDemandForProfit(double targetProfit, double rentedCopiers) {
+        double margin = PRICE_PER_COPY - COST_PER_COPY;
+        double fixedCosts = rentedCopiers * ANNUAL_RENTAL_COST + OTHER_ANNUAL_FIXED_COSTS;
+        if (targetProfit > rentedCopiers * COPIER_CAPACITY * margin - fixedCosts) {
+            return Double.NaN;
+        }
+        return Math.max(0, BreakEvenSolver.linear(margin * DAYS_PER_YEAR, -fixedCosts, targetProfit));
+    }
+
+    // Smallest whole daily demand with profitForCopiers(numCopiers, demand) >= targetProfit, or -1 if
+    // unreachable. The whole-copy model is a non-decreasing step function, so a binary search over
+    // the demands below saturation is exact. The search runs over longs, since with millions of
+    // copiers the saturation demand is above Integer.MAX_VALUE.
+    public static long minDailyDemandForCopiers(int numCopiers, double targetProfit) {
+        if (numCopiers < 1) {
+            throw new IllegalArgumentException("At least one copier is needed, got " + numCopiers);
+        }
+        long saturation = ((long) numCopiers * COPIER_CAPACITY + DAYS_PER_YEAR - 1) / DAYS_PER_YEAR;
+        long demand = BreakEvenSolver.smallestReaching(
+                d -> profitForCopiers(numCopiers, d), targetProfit, 0, saturation);
+        return demand > saturation ? -1 : demand;
+    }
+
+    // out[i] = profitForCopiers(numCopiers, dailyDemands[i])
+    public static void profitForCopiers(int numCopiers, int[] dailyDemands, double[] out) {
+        for (int i = 0; i < dailyDemands.length; i++) {
+            out[i] = profitForCopiers(numCopiers, dailyDemands[i]);
+        }
+    }
+
+    // out[i] = annualProfit(rentedCopiers, dailyDemands[i])
+    public static void annualProfit(double rentedCopiers, double[] dailyDemands, double[] out) {
+        // Same terms in the same order as profitForCopiesMade, so every element matches the scalar
+        double capacity = rentedCopiers * COPIER_CAPACITY;
+        double fixedCosts = (rentedCopiers * ANNUAL_RENTAL_COST) + OTHER_ANNUAL_FIXED_COSTS;
+        for (int i = 0; i < dailyDemands.length; i++) {
+            double copiesMade = Math.min(dailyDemands[i] * DAYS_PER_YEAR, capacity);
+            out[i] = copiesMade * PRICE_PER_COPY - (fixedCosts + copiesMade * COST_PER_COPY);
+        }
+    }
+}
@@ -0,0 +1,329 @@
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+// Chooses the number of copiers (and optionally the price per copy) that maximizes expected or
+// risk-adjusted annual profit when the daily demand is uncertain.
+// Sample-average approximation: one set of demand scenarios is drawn and every candidate is scored
+// on the same scenarios (common random numbers), so differences between candidates are not drowned
+// in sampling noise. A higher price scales demand down by a constant-elasticity curve.
+// For a candidate the copies made are min(scaled demand, capacity), which is monotone in demand.
+// After sorting the scenarios once and building prefix sums, each candidate's sample mean, variance,
+// loss probability and percentiles come from a binary search instead of a pass over all scenarios,
+// so hundreds of candidates over millions of scenarios take well under a second.
+public class CopyShopOptimizer {
+
+    public enum Objective {
+        EXPECTED_PROFIT("Expected Profit"),
+        RISK_ADJUSTED("Mean - Lambda x Std. Dev."),
+        FIFTH_PERCENTILE("5th Percentile Profit");
+
+        private final String label;
+
+        Objective(String label) {
+            this.label = label;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    // Scenarios sampled per parallel chunk
+    private static final int CHUNK_SCENARIOS = 1 << 16;
+
+    private final LemonadeMonteCarlo.Distribution demandDistribution;
+    private final double demandCenter;
+    private final double demandSpread;
+    private final double priceElasticity;
+
+    public CopyShopOptimizer(LemonadeMonteCarlo.Distribution demandDistribution, double demandCenter,
+                             double demandSpread, double priceElasticity) {
+        if (demandCenter <= 0 || demandSpread < 0 || priceElasticity < 0) {
+            throw new IllegalArgumentException("Demand must be positive, spread and elasticity non-negative");
+        }
+        this.demandDistribution = demandDistribution;
+        this.demandCenter = demandCenter;
+        this.demandSpread = demandSpread;
+        this.priceElasticity = priceElasticity;
+    }
+
+    // Scores every copier count in 1..maxCopiers against every price on the axis.
+    // Returns null if the run was cancelled.
+    public Result optimize(int scenarioCount, long seed, int maxCopiers, GridAxis prices,
+                           Objective objective, double riskAversion, ComputeExecutor.Progress progress) {
+        if (scenarioCount <= 0 || maxCopiers <= 0) {
+            throw new IllegalArgumentException("Scenarios and copiers must be positive");
+        }
+        if (prices.getCount() > Integer.MAX_VALUE / maxCopiers) {
+            throw new IllegalArgumentException("Too many candidates: " + maxCopiers + " copier counts x "
+                    + prices.getCount() + " prices");
+        }
+        long start = System.nanoTime();
+        Scenarios scenarios = sampleScenarios(scenarioCount, seed, progress);
+        if (scenarios == null) {
+            return null;
+        }
+        int priceCount = (int) prices.getCount();
+        Candidate[] candidates = new Candidate[maxCopiers * priceCount];
+        AtomicInteger completed = new AtomicInteger();
+        IntStream.range(0, candidates.length).parallel().forEach(k -> {
+            if (progress.isCancelled()) {
+                return;
+            }
+            int copiers = k / priceCount + 1;
+            double price = prices.valueAt(k % priceCount);
+            candidates[k] = scenarios.evaluate(copiers, price, demandScale(price), objective, riskAversion);
+            progress.update(0.5 + 0.5 * completed.incrementAndGet() / candidates.length);
+        });
+        if (progress.isCancelled()) {
+            return null;
+        }
+        Arrays.sort(candidates, Comparator.comparingDouble(Candidate::getScore).reversed());
+        return new Result(candidates, scenarioCount, objective, System.nanoTime() - start);
+    }
+
+    // Annual profit of one copier count and price for the variance-reduced estimators; u[0] drives
+    // the daily demand. The control is the profit without the capacity cap and without clipping the
+    // demand at zero, whose mean is the deterministic profit at the mean demand.
+    public VarianceReduction.Problem profitProblem(int copiers, double price) {
+        double scale = demandScale(price) * CopyShopModel.DAYS_PER_YEAR;
+        double capacity = (double) copiers * CopyShopModel.COPIER_CAPACITY;
+        double margin = price - CopyShopModel.COST_PER_COPY;
+        double fixedCosts = copiers * CopyShopModel.ANNUAL_RENTAL_COST + CopyShopModel.OTHER_MONTHLY_FIXED_COSTS * 12;
+        return new VarianceReduction.Problem() {
+            @Override
+            public int getDimension() {
+                return 1;
+            }
+
+            @Override
+            public double profit(double[] u) {
+                double demand = Math.max(0, demandDistribution.quantile(u[0], demandCenter, demandSpread));
+                return margin * Math.min(demand * scale, capacity) - fixedCosts;
+            }
+
+            @Override
+            public double control(double[] u) {
+                return margin * demandDistribution.quantile(u[0], demandCenter, demandSpread) * scale - fixedCosts;
+            }
+
+            @Override
+            public double getControlMean() {
+                return margin * demandCenter * scale - fixedCosts;
+            }
+        };
+    }
+
+    // Demand multiplier at the given price relative to the model price
+    double demandScale(double price) {
+        return Math.pow(price / CopyShopModel.PRICE_PER_COPY, -priceElasticity);
+    }
+
+    // Draws the daily demand scenarios in parallel, one split random stream per chunk so the
+    // sample only depends on the seed, then sorts them and builds prefix sums
+    private Scenarios sampleScenarios(int count, long seed, ComputeExecutor.Progress progress) {
+        double[] demands = new double[count];
+        int chunks = (count + CHUNK_SCENARIOS - 1) / CHUNK_SCENARIOS;
+        SplittableRandom root = new SplittableRandom(seed);
+        SplittableRandom[] streams = new SplittableRandom[chunks];
+        for (int c = 0; c < chunks; c++) {
+            streams[c] = root.split();
+        }
+        AtomicInteger completed = new AtomicInteger();
+        IntStream.range(0, chunks).parallel().forEach(c -> {
+            if (progress.isCancelled()) {
+                return;
+            }
+            SplittableRandom random = streams[c];
+            int end = Math.min(count, (c + 1) * CHUNK_SCENARIOS);
+            for (int i = c * CHUNK_SCENARIOS; i < end; i++) {
+                demands[i] = Math.max(0, demandDistribution.sample(random, demandCenter, demandSpread));
+            }
+            progress.update(0.4 * completed.incrementAndGet() / chunks);
+        });
+        if (progress.isCancelled()) {
+            return null;
+        }
+        Arrays.parallelSort(demands);
+        return new Scenarios(demands);
+    }
+
+    // Sorted annual demands with prefix sums of the demand and its square
+    static final class Scenarios {
+        private final double[] annualDemands;
+        private final double[] prefixSum;
+        private final double[] prefixSumSquares;
+
+        Scenarios(double[] sortedDailyDemands) {
+            int n = sortedDailyDemands.length;
+            annualDemands = new double[n];
+            prefixSum = new double[n + 1];
+            prefixSumSquares = new double[n + 1];
+            for (int i = 0; i < n; i++) {
+                double annual = sortedDailyDemands[i] * CopyShopModel.DAYS_PER_YEAR;
+                annualDemands[i] = annual;
+                prefixSum[i + 1] = prefixSum[i] + annual;
+                prefixSumSquares[i + 1] = prefixSumSquares[i] + annual * annual;
+            }
+        }
+
+        Candidate evaluate(int copiers, double price, double demandScale, Objective objective, double riskAversion) {
+            int n = annualDemands.length;
+            double capacity = (double) copiers * CopyShopModel.COPIER_CAPACITY;
+            double margin = price - CopyShopModel.COST_PER_COPY;
+            double fixedCosts = copiers * CopyShopModel.ANNUAL_RENTAL_COST + CopyShopModel.OTHER_MONTHLY_FIXED_COSTS * 12;
+
+            // Scenarios below the saturation demand make scaled demand copies, the rest run at capacity
+            int saturated = n - countBelow(capacity / demandScale);
+            int unsaturated = n - saturated;
+            double copies = demandScale * prefixSum[unsaturated] + capacity * saturated;
+            double copiesSquared = demandScale * demandScale * prefixSumSquares[unsaturated]
+                    + capacity * capacity * saturated;
+            double meanCopies = copies / n;
+            double varianceCopies = n > 1 ? Math.max(0, (copiesSquared - copies * meanCopies) / (n - 1)) : 0.0;
+
+            double meanProfit = margin * meanCopies - fixedCosts;
+            double stdDev = Math.abs(margin) * Math.sqrt(varianceCopies);
+
+            // Profit is monotone in demand, so its percentiles are the profits at demand percentiles
+            double fifthPercentile = profitAt(margin >= 0 ? 0.05 : 0.95, demandScale, capacity, margin, fixedCosts);
+            double lossProbability;
+            if (margin <= 0) {
+                lossProbability = fixedCosts > 0 || margin < 0 ? 1.0 : 0.0;
+            } else {
+                double breakEvenCopies = fixedCosts / margin;
+                lossProbability = breakEvenCopies >= capacity ? 1.0
+                        : (double) countBelow(breakEvenCopies / demandScale) / n;
+            }
+
+            double score;
+            switch (objective) {
+                case RISK_ADJUSTED:
+                    score = meanProfit - riskAversion * stdDev;
+                    break;
+                case FIFTH_PERCENTILE:
+                    score = fifthPercentile;
+                    break;
+                default:
+                    score = meanProfit;
+            }
+            return new Candidate(copiers, price, meanProfit, stdDev, fifthPercentile, lossProbability,
+                    meanCopies / capacity, score);
+        }
+
+        private double profitAt(double quantile, double demandScale, double capacity, double margin, double fixedCosts) {
+            int index = (int) Math.min(annualDemands.length - 1, Math.floor(quantile * annualDemands.length));
+            return margin * Math.min(annualDemands[index] * demandScale, capacity) - fixedCosts;
+        }
+
+        // Number of scenarios with an annual demand strictly below the threshold
+        private int countBelow(double threshold) {
+            int low = 0;
+            int high = annualDemands.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (annualDemands[middle] < threshold) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+
+    // Sample statistics of one copier count and price
+    public static class Candidate {
+        private final int copiers;
+        private final double price;
+        private final double meanProfit;
+        private final double profitStdDev;
+        private final double fifthPercentile;
+        private final double lossProbability;
+        private final double utilization;
+        private final double score;
+
+        Candidate(int copiers, double price, double meanProfit, double profitStdDev, double fifthPercentile,
+                  double lossProbability, double utilization, double score) {
+            this.copiers = copiers;
+            this.price = price;
+            this.meanProfit = meanProfit;
+            this.profitStdDev = profitStdDev;
+            this.fifthPercentile = fifthPercentile;
+            this.lossProbability = lossProbability;
+            this.utilization = utilization;
+            this.score = score;
+        }
+
+        public int getCopiers() {
+            return copiers;
+        }
+
+        public double getPrice() {
+            return price;
+        }
+
+        public double getMeanProfit() {
+            return meanProfit;
+        }
+
+        public double getProfitStdDev() {
+            return profitStdDev;
+        }
+
+        public double getFifthPercentile() {
+            return fifthPercentile;
+        }
+
+        public double getLossProbability() {
+            return lossProbability;
+        }
+
+        public double getUtilization() {
+            return utilization;
+        }
+
+        public double getScore() {
+            return score;
+        }
+    }
+
+    public static class Result {
+        private final Candidate[] ranked;
+        private final int scenarios;
+        private final Objective objective;
+        private final long elapsedNanos;
+
+        Result(Candidate[] ranked, int scenarios, Objective objective, long elapsedNanos) {
+            this.ranked = ranked;
+            this.scenarios = scenarios;
+            this.objective = objective;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public Candidate getBest() {
+            return ranked[0];
+        }
+
+        // Candidates from best to worst score
+        public Candidate[] getRanked() {
+            return ranked;
+        }
+
+        public int getScenarios() {
+            return scenarios;
+        }
+
+        public Objective getObjective() {
+            return objective;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+    }
+}
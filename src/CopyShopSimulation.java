@@ -4,6 +4,7 @@ import org.jfree.chart.JFreeChart;
 import org.jfree.data.category.DefaultCategoryDataset;
 
 import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 
 public class CopyShopSimulation extends JPanel {
@@ -12,14 +13,15 @@ public class CopyShopSimulation extends JPanel {
     private JTextArea resultArea;
     private JTable profitTable;
     private JPanel chartPanel;
+    private DefaultCategoryDataset profitDataset;
     private JPanel solutionPanel;
 
-    private final double copyMachineRented = 3.0;
-    private final double annualRentalCost = 5000.0;
-    private final double otherMonthlyFixedCosts = 400.0;
-    private final double yearInMonths = 12.0;
-    private final double copyCharges = 0.10;
-    private final double costPerCopy = 0.03;
+    // Timings shown in the diagnostics tab
+    private static final Metrics.Timer SOLUTION_A_TIMER = Metrics.timer("copyShop.solutionA");
+    private static final Metrics.Timer SOLUTION_B_TIMER = Metrics.timer("copyShop.solutionB");
+    private static final Metrics.Timer CHART_FILL_TIMER = Metrics.timer("copyShop.chart.fill");
+    private static final Metrics.Timer EVENT_SIMULATION_TIMER = Metrics.timer("copyShop.eventSimulation");
+    private static final Metrics.Timer OPTIMIZER_TIMER = Metrics.timer("copyShop.optimizer");
 
     public CopyShopSimulation() {
 //        setTitle("Copy Shop Profit Simulation");
@@ -46,6 +48,14 @@ public class CopyShopSimulation extends JPanel {
         buttonPanel.add(solutionBButton);
         buttonPanel.add(solutionCButton);
 
+        JButton eventSimulationButton = new JButton("Event Simulation");
+        eventSimulationButton.addActionListener(e -> switchToSolution("EventSimulation"));
+        buttonPanel.add(eventSimulationButton);
+
+        JButton optimizerButton = new JButton("Optimizer");
+        optimizerButton.addActionListener(e -> switchToSolution("Optimizer"));
+        buttonPanel.add(optimizerButton);
+
         add(buttonPanel, BorderLayout.NORTH);
         add(solutionPanel, BorderLayout.CENTER);
 
@@ -53,6 +63,8 @@ public class CopyShopSimulation extends JPanel {
         solutionPanel.add(createSolutionAPanel(), "SolutionA");
         solutionPanel.add(createSolutionBPanel(), "SolutionB");
         solutionPanel.add(createSolutionCPanel(), "SolutionC");
+        solutionPanel.add(createEventSimulationPanel(), "EventSimulation");
+        solutionPanel.add(createOptimizerPanel(), "Optimizer");
 
         setVisible(true);
     }
@@ -67,15 +79,7 @@ public class CopyShopSimulation extends JPanel {
         // Initialize the row headers with daily demands
         int[] dailyDemands = {500, 1000, 1500, 2000};
 
-        // Fill the table with recalculated data
-        for (int i = 0; i < dailyDemands.length; i++) {
-            int dailyDemand = dailyDemands[i];
-            for (int numCopiers = 1; numCopiers <= 5; numCopiers++) {
-                data[i][numCopiers - 1] = calculateProfitForCopiers(numCopiers, dailyDemand);
-            }
-        }
-
-        // Create a JTable with the data
+        // Create a JTable; the profits are filled in off the EDT, so building the panel stays cheap
         JTable profitTable = new JTable(data, columnNames);
         JScrollPane scrollPane = new JScrollPane(profitTable);
 
@@ -87,32 +91,45 @@ public class CopyShopSimulation extends JPanel {
         panelA.add(refreshButton, BorderLayout.SOUTH);
 
         // Add action listener for the refresh button
-        refreshButton.addActionListener(e -> {
-            // Recalculate the profits and update the table
-            for (int i = 0; i < dailyDemands.length; i++) {
-                int dailyDemand = dailyDemands[i];
+        refreshButton.addActionListener(e -> recalculateSolutionA(profitTable, dailyDemands));
+        recalculateSolutionA(profitTable, dailyDemands);
+
+        return panelA;
+    }
+
+    // Recalculates the demand x copier profit table off the EDT (or from the scenario cache)
+    private void recalculateSolutionA(JTable profitTable, int[] dailyDemands) {
+        ComputeExecutor.getShared().submitCached("copyShop.solutionA", "Copy shop profit table",
+                scenarioKey(dailyDemands, 5), progress -> {
+            double[][] profits = new double[dailyDemands.length][5];
+            long start = SOLUTION_A_TIMER.start();
+            for (int i = 0; i < dailyDemands.length && !progress.isCancelled(); i++) {
                 for (int numCopiers = 1; numCopiers <= 5; numCopiers++) {
-                    profitTable.setValueAt(calculateProfitForCopiers(numCopiers, dailyDemand), i, numCopiers - 1);
+                    profits[i][numCopiers - 1] = CopyShopModel.profitForCopiers(numCopiers, dailyDemands[i]);
+                }
+                progress.update((i + 1) / (double) dailyDemands.length);
+            }
+            SOLUTION_A_TIMER.stop(start, (long) dailyDemands.length * 5);
+            return profits;
+        }, profits -> (long) profits.length * 5, profits -> {
+            for (int i = 0; i < profits.length; i++) {
+                for (int j = 0; j < profits[i].length; j++) {
+                    profitTable.setValueAt(profits[i][j], i, j);
                 }
             }
         });
-
-        return panelA;
     }
 
-    private double calculateProfitForCopiers(int numCopiers, int dailyDemand) {
-        int annualDemand = dailyDemand * 365;
-        int copiesPerCopier = Math.min(100000, annualDemand / numCopiers);
-        int totalCopies = copiesPerCopier * numCopiers;
-
-        double totalRevenue = totalCopies * 0.10; // Revenue per copy
-        double totalCost = (numCopiers * 5000) + 4800 + (totalCopies * 0.03); // Costs
-        return totalRevenue - totalCost;
+    // Cache key for a demand x copier-count profit grid, including every model constant
+    private static ScenarioCache.Key scenarioKey(int[] dailyDemands, int maxCopiers) {
+        return ScenarioCache.keyBuilder("copyShop.profitForCopiers")
+                .add(CopyShopModel.PRICE_PER_COPY, CopyShopModel.COST_PER_COPY,
+                        CopyShopModel.ANNUAL_RENTAL_COST, CopyShopModel.OTHER_MONTHLY_FIXED_COSTS)
+                .add(CopyShopModel.COPIER_CAPACITY, CopyShopModel.DAYS_PER_YEAR, maxCopiers)
+                .add(dailyDemands)
+                .build();
     }
 
-    private double getCopyMade() {
-        return (copyMachineRented * annualRentalCost + yearInMonths * otherMonthlyFixedCosts)/(copyCharges-costPerCopy);
-    }
     private JPanel createSolutionBPanel() {
         JPanel panelB = new JPanel(new BorderLayout());
 
@@ -140,12 +157,23 @@ public class CopyShopSimulation extends JPanel {
 
         // Action listener for the calculate button
         calculateButton.addActionListener(e -> {
+            long start = SOLUTION_B_TIMER.start();
             try {
-                int rentedCopiers = Integer.parseInt(rentedCopiersField.getText());
-                double copiesMade = getCopyMade();
-
-                double dailyDemand = copiesMade / 365;
-                double annualProfit = calculateAnnualProfit(rentedCopiers, dailyDemand);
+                int rentedCopiers = Integer.parseInt(rentedCopiersField.getText().trim());
+                if (rentedCopiers < 1) {
+                    throw new NumberFormatException("At least one copier");
+                }
+                // Smallest whole daily demand that breaks even with the copiers the user entered
+                long breakEvenDemand = CopyShopModel.minDailyDemandForCopiers(rentedCopiers, 0);
+                if (breakEvenDemand < 0) {
+                    JOptionPane.showMessageDialog(panelB, "Break-even is not reachable with " + rentedCopiers
+                            + " copiers, even at full capacity.", "Break-even", JOptionPane.INFORMATION_MESSAGE);
+                    return;
+                }
+                double dailyDemand = breakEvenDemand;
+                double copiesMade = Math.min(breakEvenDemand * CopyShopModel.DAYS_PER_YEAR / rentedCopiers,
+                        CopyShopModel.COPIER_CAPACITY) * (long) rentedCopiers;
+                double annualProfit = CopyShopModel.profitForCopiers(rentedCopiers, breakEvenDemand);
 
                 // Update the table with results
                 data[0][0] = rentedCopiers;
@@ -156,22 +184,15 @@ public class CopyShopSimulation extends JPanel {
                 resultTable.setValueAt(data[0][1], 0, 1);
                 resultTable.setValueAt(data[0][2], 0, 2);
                 resultTable.setValueAt(data[0][3], 0, 3);
+                SOLUTION_B_TIMER.stop(start, 1);
             } catch (NumberFormatException ex) {
-                JOptionPane.showMessageDialog(panelB, "Please enter valid numbers for rented copiers and daily demand.", "Input Error", JOptionPane.ERROR_MESSAGE);
+                JOptionPane.showMessageDialog(panelB, "Please enter a whole number of rented copiers (at least 1).", "Input Error", JOptionPane.ERROR_MESSAGE);
             }
         });
 
         return panelB;
     }
 
-    private double calculateAnnualProfit(double rentedCopiers, double dailyDemand) {
-        double annualDemand = dailyDemand * 365;
-        double copiesMade = Math.min(annualDemand, rentedCopiers * 100000);
-        double totalRevenue = copiesMade * 0.10;
-        double totalCost = (rentedCopiers * 5000) + (400 * 12) + (copiesMade * 0.03);
-        return totalRevenue - totalCost;
-    }
-
     private JPanel createSolutionCPanel() {
         JPanel panelC = new JPanel(new BorderLayout());
 
@@ -195,6 +216,256 @@ public class CopyShopSimulation extends JPanel {
         return panelC;
     }
 
+    // Discrete-event simulation with random arrivals, queueing and lost sales per copier count
+    private JPanel createEventSimulationPanel() {
+        JPanel panel = new JPanel(new BorderLayout());
+
+        JPanel inputPanel = new JPanel(new GridLayout(4, 4));
+        JTextField demandInput = new JTextField("1000");
+        JTextField jobSizeInput = new JTextField("5");
+        JTextField hoursInput = new JTextField("10");
+        JTextField queueLimitInput = new JTextField("10");
+        JTextField maxCopiersInput = new JTextField("5");
+        JTextField replicationsInput = new JTextField("200");
+        inputPanel.add(new JLabel("Mean Daily Demand:"));
+        inputPanel.add(demandInput);
+        inputPanel.add(new JLabel("Mean Job Size (copies):"));
+        inputPanel.add(jobSizeInput);
+        inputPanel.add(new JLabel("Opening Hours per Day:"));
+        inputPanel.add(hoursInput);
+        inputPanel.add(new JLabel("Queue Limit (jobs):"));
+        inputPanel.add(queueLimitInput);
+        inputPanel.add(new JLabel("Max Copiers:"));
+        inputPanel.add(maxCopiersInput);
+        inputPanel.add(new JLabel("Replications:"));
+        inputPanel.add(replicationsInput);
+        JButton simulateButton = new JButton("Simulate Year");
+        inputPanel.add(simulateButton);
+        JLabel statusLabel = new JLabel();
+        inputPanel.add(statusLabel);
+        panel.add(inputPanel, BorderLayout.NORTH);
+
+        DefaultTableModel resultModel = new DefaultTableModel(new Object[]{"Copiers", "Mean Profit",
+                "95% CI (+/-)", "Lost Sales %", "Utilization %", "Avg Wait (min)", "Model Profit"}, 0);
+        panel.add(new JScrollPane(new JTable(resultModel)), BorderLayout.CENTER);
+
+        // Running mean profit per copier count while the replications come in
+        LiveChartPanel convergenceChart = new LiveChartPanel("Mean Profit Convergence", "Replications",
+                "Mean Profit ($)", 2000);
+        convergenceChart.setPreferredSize(new Dimension(600, 250));
+        panel.add(convergenceChart, BorderLayout.SOUTH);
+
+        simulateButton.addActionListener(e -> {
+            CopyShopEventSimulation[] simulations;
+            double demand;
+            int replications;
+            try {
+                demand = Double.parseDouble(demandInput.getText());
+                double jobSize = Double.parseDouble(jobSizeInput.getText());
+                double hours = Double.parseDouble(hoursInput.getText());
+                int queueLimit = Integer.parseInt(queueLimitInput.getText());
+                int maxCopiers = Integer.parseInt(maxCopiersInput.getText());
+                replications = Integer.parseInt(replicationsInput.getText());
+                if (maxCopiers <= 0 || replications <= 0) {
+                    throw new IllegalArgumentException("Max copiers and replications must be positive");
+                }
+                simulations = new CopyShopEventSimulation[maxCopiers];
+                for (int n = 1; n <= maxCopiers; n++) {
+                    simulations[n - 1] = new CopyShopEventSimulation(n, demand, jobSize, hours, queueLimit);
+                }
+            } catch (IllegalArgumentException ex) {
+                JOptionPane.showMessageDialog(panel, "Please enter valid simulation inputs.\n" + ex.getMessage(),
+                        "Input Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            long seed = System.nanoTime();
+            convergenceChart.clear();
+            int generation = convergenceChart.getGeneration();
+            ComputeExecutor.getShared().submit("copyShop.eventSimulation", "Copy shop event simulation", progress -> {
+                CopyShopEventSimulation.Summary[] summaries = new CopyShopEventSimulation.Summary[simulations.length];
+                for (int k = 0; k < simulations.length; k++) {
+                    int done = k;
+                    String seriesName = (k + 1) + (k == 0 ? " Copier" : " Copiers");
+                    RunningMean mean = new RunningMean(replications, convergenceChart, generation, seriesName);
+                    summaries[k] = simulations[k].run(replications, seed, new ComputeExecutor.Progress() {
+                        @Override
+                        public void update(double fraction) {
+                            progress.update((done + fraction) / simulations.length);
+                        }
+
+                        @Override
+                        public boolean isCancelled() {
+                            return progress.isCancelled();
+                        }
+                    }, (index, replication) -> mean.add(index, replication.getProfit()));
+                    if (summaries[k] == null) {
+                        return null;
+                    }
+                }
+                return summaries;
+            }, summaries -> {
+                if (summaries == null) {
+                    return;
+                }
+                convergenceChart.flush();
+                resultModel.setRowCount(0);
+                long events = 0;
+                long nanos = 0;
+                for (int k = 0; k < summaries.length; k++) {
+                    CopyShopEventSimulation.Summary summary = summaries[k];
+                    resultModel.addRow(new Object[]{k + 1,
+                            String.format("$%.2f", summary.getMeanProfit()),
+                            String.format("$%.2f", summary.getConfidenceHalfWidth()),
+                            String.format("%.2f", 100 * summary.getLostFraction()),
+                            String.format("%.1f", 100 * summary.getMeanUtilization()),
+                            String.format("%.1f", 60 * summary.getMeanWaitHours()),
+                            String.format("$%.2f", CopyShopModel.annualProfit(k + 1, demand))});
+                    events += summary.getTotalEvents();
+                    nanos += summary.getElapsedNanos();
+                    EVENT_SIMULATION_TIMER.record(summary.getElapsedNanos(), summary.getTotalEvents());
+                }
+                statusLabel.setText(String.format("%.1f M events/s", events / (nanos / 1e9) / 1e6));
+            });
+        });
+
+        return panel;
+    }
+
+    // Copier count and price that maximize expected or risk-adjusted profit over uncertain demand
+    private JPanel createOptimizerPanel() {
+        JPanel panel = new JPanel(new BorderLayout());
+
+        JPanel inputPanel = new JPanel(new GridLayout(5, 4));
+        JComboBox<LemonadeMonteCarlo.Distribution> distributionBox = new JComboBox<>(LemonadeMonteCarlo.Distribution.values());
+        JTextField demandInput = new JTextField("1000");
+        JTextField spreadInput = new JTextField("400");
+        JTextField elasticityInput = new JTextField("0");
+        JTextField maxCopiersInput = new JTextField("10");
+        JTextField pricesInput = new JTextField(String.valueOf(CopyShopModel.PRICE_PER_COPY));
+        JComboBox<CopyShopOptimizer.Objective> objectiveBox = new JComboBox<>(CopyShopOptimizer.Objective.values());
+        JTextField lambdaInput = new JTextField("1.0");
+        JTextField scenariosInput = new JTextField("1000000");
+        inputPanel.add(new JLabel("Demand Distribution:"));
+        inputPanel.add(distributionBox);
+        inputPanel.add(new JLabel("Mean Daily Demand:"));
+        inputPanel.add(demandInput);
+        inputPanel.add(new JLabel("Demand Spread (sd / half-width):"));
+        inputPanel.add(spreadInput);
+        inputPanel.add(new JLabel("Price Elasticity:"));
+        inputPanel.add(elasticityInput);
+        inputPanel.add(new JLabel("Max Copiers:"));
+        inputPanel.add(maxCopiersInput);
+        inputPanel.add(new JLabel("Prices (start:end:step):"));
+        inputPanel.add(pricesInput);
+        inputPanel.add(new JLabel("Objective:"));
+        inputPanel.add(objectiveBox);
+        inputPanel.add(new JLabel("Lambda (risk aversion):"));
+        inputPanel.add(lambdaInput);
+        inputPanel.add(new JLabel("Demand Scenarios:"));
+        inputPanel.add(scenariosInput);
+        JButton optimizeButton = new JButton("Optimize");
+        inputPanel.add(optimizeButton);
+        JLabel bestLabel = new JLabel();
+        inputPanel.add(bestLabel);
+        JButton convergenceButton = new JButton("Convergence Report");
+        convergenceButton.setEnabled(false);
+        inputPanel.add(convergenceButton);
+        panel.add(inputPanel, BorderLayout.NORTH);
+
+        // Optimizer and best candidate of the last finished run, for the convergence report
+        Object[] lastRun = new Object[2];
+
+        DefaultTableModel resultModel = new DefaultTableModel(new Object[]{"Rank", "Copiers", "Price",
+                "Mean Profit", "Std. Dev.", "5th Percentile", "P(Loss) %", "Utilization %"}, 0);
+        panel.add(new JScrollPane(new JTable(resultModel)), BorderLayout.CENTER);
+
+        optimizeButton.addActionListener(e -> {
+            CopyShopOptimizer optimizer;
+            GridAxis prices;
+            int maxCopiers;
+            int scenarios;
+            double lambda;
+            try {
+                optimizer = new CopyShopOptimizer((LemonadeMonteCarlo.Distribution) distributionBox.getSelectedItem(),
+                        Double.parseDouble(demandInput.getText()), Double.parseDouble(spreadInput.getText()),
+                        Double.parseDouble(elasticityInput.getText()));
+                prices = GridAxis.parse("price", pricesInput.getText().trim());
+                maxCopiers = Integer.parseInt(maxCopiersInput.getText());
+                scenarios = Integer.parseInt(scenariosInput.getText());
+                lambda = Double.parseDouble(lambdaInput.getText());
+                if (maxCopiers <= 0 || scenarios <= 0 || prices.getStart() <= 0) {
+                    throw new IllegalArgumentException("Copiers, scenarios and prices must be positive");
+                }
+            } catch (IllegalArgumentException ex) {
+                JOptionPane.showMessageDialog(panel, "Please enter valid optimizer inputs.\n" + ex.getMessage(),
+                        "Input Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            CopyShopOptimizer.Objective objective = (CopyShopOptimizer.Objective) objectiveBox.getSelectedItem();
+            long seed = System.nanoTime();
+            bestLabel.setText("Optimizing...");
+            ComputeExecutor.getShared().submit("copyShop.optimizer", "Copy shop optimizer",
+                    progress -> optimizer.optimize(scenarios, seed, maxCopiers, prices, objective, lambda, progress),
+                    result -> {
+                        if (result == null) {
+                            bestLabel.setText("Optimization cancelled.");
+                            return;
+                        }
+                        resultModel.setRowCount(0);
+                        CopyShopOptimizer.Candidate[] ranked = result.getRanked();
+                        OPTIMIZER_TIMER.record(result.getElapsedNanos(), (long) ranked.length * result.getScenarios());
+                        // Only the leading candidates are interesting; the full ranking can be thousands long
+                        for (int k = 0; k < Math.min(100, ranked.length); k++) {
+                            CopyShopOptimizer.Candidate c = ranked[k];
+                            resultModel.addRow(new Object[]{k + 1, c.getCopiers(),
+                                    String.format("$%.3f", c.getPrice()),
+                                    String.format("$%.2f", c.getMeanProfit()),
+                                    String.format("$%.2f", c.getProfitStdDev()),
+                                    String.format("$%.2f", c.getFifthPercentile()),
+                                    String.format("%.2f", 100 * c.getLossProbability()),
+                                    String.format("%.1f", 100 * c.getUtilization())});
+                        }
+                        CopyShopOptimizer.Candidate best = result.getBest();
+                        lastRun[0] = optimizer;
+                        lastRun[1] = best;
+                        convergenceButton.setEnabled(true);
+                        bestLabel.setText(String.format("Best: %d copiers at $%.3f (%d candidates, %.2f s)",
+                                best.getCopiers(), best.getPrice(), ranked.length, result.getElapsedNanos() / 1e9));
+                    });
+        });
+
+        // Compares the variance reduction methods on the profit of the best candidate, using the
+        // scenario count as the largest trial count
+        convergenceButton.addActionListener(e -> {
+            CopyShopOptimizer optimizer = (CopyShopOptimizer) lastRun[0];
+            CopyShopOptimizer.Candidate best = (CopyShopOptimizer.Candidate) lastRun[1];
+            long trials;
+            try {
+                trials = Math.max(2, Math.min(10_000_000, Long.parseLong(scenariosInput.getText().trim())));
+            } catch (NumberFormatException ex) {
+                JOptionPane.showMessageDialog(panel, "Please enter a valid number of demand scenarios.",
+                        "Input Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            VarianceReduction.Problem problem = optimizer.profitProblem(best.getCopiers(), best.getPrice());
+            String title = String.format("Copy shop annual profit, %d copiers at $%.3f", best.getCopiers(), best.getPrice());
+            ComputeExecutor.getShared().submit("copyShop.convergence", "Copy shop convergence report",
+                    progress -> VarianceReduction.convergenceReport(title, problem, trials, System.nanoTime(), progress),
+                    report -> {
+                        if (report == null) {
+                            return;
+                        }
+                        JTextArea reportArea = new JTextArea(report, 30, 110);
+                        reportArea.setEditable(false);
+                        reportArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+                        JOptionPane.showMessageDialog(panel, new JScrollPane(reportArea), "Convergence Report",
+                                JOptionPane.INFORMATION_MESSAGE);
+                    });
+        });
+
+        return panel;
+    }
+
     // Method to switch between solutions
     private void switchToSolution(String solution) {
         CardLayout cl = (CardLayout) (solutionPanel.getLayout());
@@ -215,13 +486,7 @@ public class CopyShopSimulation extends JPanel {
         StringBuilder result = new StringBuilder("Annual Profits for Various Copiers:\n\n");
 
         for (int numCopiers = 1; numCopiers <= 5; numCopiers++) {
-            int annualDemand = dailyDemand * 365;
-            int copiesPerCopier = Math.min(100000, annualDemand / numCopiers);
-            int totalCopies = copiesPerCopier * numCopiers;
-
-            double totalRevenue = totalCopies * 0.10; // Revenue per copy
-            double totalCost = (numCopiers * 5000) + 4800 + (totalCopies * 0.03); // Costs
-            double profit = totalRevenue - totalCost;
+            double profit = CopyShopModel.profitForCopiers(numCopiers, dailyDemand);
 
             result.append("Number of Copiers: ").append(numCopiers)
                     .append(" | Daily Demand: ").append(dailyDemand)
@@ -231,65 +496,94 @@ public class CopyShopSimulation extends JPanel {
         return result.toString();
     }
 
-    // Method to calculate break-even point (Solution B)
-    private void calculateSolutionB() {
-        // Implement the logic to calculate break-even point for 3 copiers
-        int dailyDemand = 0;
-        for (dailyDemand = 500; dailyDemand <= 2000; dailyDemand += 500) {
-            int annualDemand = dailyDemand * 365;
-            int copiesPerCopier = Math.min(100000, annualDemand / 3);
-            int totalCopies = copiesPerCopier * 3;
-
-            double totalRevenue = totalCopies * 0.10;
-            double totalCost = (3 * 5000) + 4800 + (totalCopies * 0.03);
-
-            if (totalRevenue >= totalCost) {
-                resultArea.setText("Break-even achieved at daily demand of: " + dailyDemand + " copies/day.");
-                break;
-            }
-        }
-    }
-
     // Method to create and display the profit chart (Solution C)
     private void displayProfitChart() {
-        DefaultCategoryDataset dataset = new DefaultCategoryDataset();
-        dataset.addValue(calculateProfit(1, 500), "500 copies/day", "1 Copier");
-        dataset.addValue(calculateProfit(2, 500), "500 copies/day", "2 Copiers");
-        dataset.addValue(calculateProfit(3, 500), "500 copies/day", "3 Copiers");
-        dataset.addValue(calculateProfit(4, 500), "500 copies/day", "4 Copiers");
-        dataset.addValue(calculateProfit(5, 500), "500 copies/day", "5 Copiers");
-
-        dataset.addValue(calculateProfit(1, 2000), "2000 copies/day", "1 Copier");
-        dataset.addValue(calculateProfit(2, 2000), "2000 copies/day", "2 Copiers");
-        dataset.addValue(calculateProfit(3, 2000), "2000 copies/day", "3 Copiers");
-        dataset.addValue(calculateProfit(4, 2000), "2000 copies/day", "4 Copiers");
-        dataset.addValue(calculateProfit(5, 2000), "2000 copies/day", "5 Copiers");
-
-        JFreeChart chart = ChartFactory.createLineChart(
-                "Profit vs Number of Copiers",
-                "Number of Copiers",
-                "Profit ($)",
-                dataset
-        );
-
-        ChartPanel chartPanelComponent = new ChartPanel(chart);
-        chartPanel.removeAll();
-        chartPanel.add(chartPanelComponent, BorderLayout.CENTER);
-        chartPanel.validate();
+        int[] demands = {500, 2000};
+        ComputeExecutor.getShared().submitCached("copyShop.solutionC", "Copy shop profit chart",
+                scenarioKey(demands, 5), progress -> {
+            double[][] profits = new double[demands.length][5];
+            for (int i = 0; i < demands.length; i++) {
+                for (int numCopiers = 1; numCopiers <= 5; numCopiers++) {
+                    profits[i][numCopiers - 1] = CopyShopModel.profitForCopiers(numCopiers, demands[i]);
+                }
+            }
+            return profits;
+        }, profits -> (long) profits.length * 5, profits -> {
+            // The chart is built once; later clicks only update the values with a single redraw
+            if (profitDataset == null) {
+                profitDataset = new DefaultCategoryDataset();
+                JFreeChart chart = ChartFactory.createLineChart(
+                        "Profit vs Number of Copiers",
+                        "Number of Copiers",
+                        "Profit ($)",
+                        profitDataset
+                );
+                chartPanel.add(new ChartPanel(chart), BorderLayout.CENTER);
+                chartPanel.validate();
+            }
+            long start = CHART_FILL_TIMER.start();
+            profitDataset.setNotify(false);
+            for (int i = 0; i < demands.length; i++) {
+                for (int numCopiers = 1; numCopiers <= 5; numCopiers++) {
+                    profitDataset.setValue(profits[i][numCopiers - 1], demands[i] + " copies/day",
+                            numCopiers + (numCopiers == 1 ? " Copier" : " Copiers"));
+                }
+            }
+            profitDataset.setNotify(true);
+            CHART_FILL_TIMER.stop(start, (long) demands.length * 5);
+        });
     }
 
-    // Helper function to calculate profit for Solution C
-    private double calculateProfit(int numCopiers, int dailyDemand) {
-        int annualDemand = dailyDemand * 365;
-        int copiesPerCopier = Math.min(100000, annualDemand / numCopiers);
-        int totalCopies = copiesPerCopier * numCopiers;
+    // Running mean of one series in replication order, whatever order the replications finish in:
+    // a result is buffered until every earlier one is in, so a seed always draws the same curve
+    private static final class RunningMean {
+        private final double[] values;
+        private final boolean[] arrived;
+        private final LiveChartPanel chart;
+        private final int generation;
+        private final String seriesName;
+        private int next;
+        private double sum;
+
+        RunningMean(int count, LiveChartPanel chart, int generation, String seriesName) {
+            this.values = new double[count];
+            this.arrived = new boolean[count];
+            this.chart = chart;
+            this.generation = generation;
+            this.seriesName = seriesName;
+        }
 
-        double totalRevenue = totalCopies * 0.10; // Revenue per copy
-        double totalCost = (numCopiers * 5000) + 4800 + (totalCopies * 0.03); // Costs
-        return totalRevenue - totalCost;
+        // Records one replication and charts the mean after each newly contiguous one
+        synchronized void add(int index, double value) {
+            values[index] = value;
+            arrived[index] = true;
+            while (next < values.length && arrived[next]) {
+                sum += values[next];
+                next++;
+                chart.offer(generation, seriesName, next, sum / next);
+            }
+        }
     }
 
 //    public static void main(String[] args) {
 //        SwingUtilities.invokeLater(CopyShopSimulation::new);
 //    }
+
+    // Registers this panel as a tab of Activity6App
+    public static class Module implements SimulationModule {
+        @Override
+        public String getTitle() {
+            return "Copy Shop Profit Simulation";
+        }
+
+        @Override
+        public int getOrder() {
+            return 30;
+        }
+
+        @Override
+        public JComponent createPanel() {
+            return new CopyShopSimulation();
+        }
+    }
 }
@@ -0,0 +1,198 @@
+import javax.swing.*;
+import java.awt.*;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Profit matrix and full-grid sweep for a user-written formula, e.g. a variant of one of the
+// built-in models. The formula is parsed once and compiled to bytecode (or interpreted, to
+// compare), two of its variables become the table axes and the rest are fixed parameters.
+public class CustomFormulaSimulation extends JPanel {
+
+    private static final Metrics.Timer SWEEP_TIMER = Metrics.timer("customFormula.sweep");
+
+    private final JTextField formulaInput = new JTextField(
+            "salesVolume * pricePerCup - (fixedCost + salesVolume * variableCost)");
+    private final JTextField parametersInput = new JTextField("pricePerCup=0.50, fixedCost=50");
+    private final JTextField rowAxisInput = new JTextField("salesVolume=100:500:50");
+    private final JTextField columnAxisInput = new JTextField("variableCost=0.10:0.45:0.05");
+    private final JComboBox<ProfitFormula.Engine> engineBox = new JComboBox<>(ProfitFormula.Engine.values());
+    private final JTable profitTable = new JTable();
+    private final JTextArea summaryArea = new JTextArea(6, 60);
+
+    public CustomFormulaSimulation() {
+        setLayout(new BorderLayout());
+
+        JPanel inputPanel = new JPanel(new GridLayout(6, 2));
+        inputPanel.add(new JLabel("Profit Formula:"));
+        inputPanel.add(formulaInput);
+        inputPanel.add(new JLabel("Parameters (name=value, ...):"));
+        inputPanel.add(parametersInput);
+        inputPanel.add(new JLabel("Rows (name=start:end:step):"));
+        inputPanel.add(rowAxisInput);
+        inputPanel.add(new JLabel("Columns (name=start:end:step):"));
+        inputPanel.add(columnAxisInput);
+        inputPanel.add(new JLabel("Engine:"));
+        inputPanel.add(engineBox);
+        JButton evaluateButton = new JButton("Evaluate");
+        evaluateButton.addActionListener(e -> evaluate());
+        inputPanel.add(evaluateButton);
+        inputPanel.add(new JLabel("Functions: abs, sqrt, exp, log, floor, ceil, pow, min, max, if(c, a, b)"));
+        add(inputPanel, BorderLayout.NORTH);
+
+        add(new JScrollPane(profitTable), BorderLayout.CENTER);
+
+        summaryArea.setEditable(false);
+        summaryArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        add(new JScrollPane(summaryArea), BorderLayout.SOUTH);
+
+        evaluate();
+    }
+
+    private void evaluate() {
+        ProfitFormula formula;
+        GridAxis rowAxis;
+        GridAxis columnAxis;
+        double[] slots;
+        int rowSlot;
+        int columnSlot;
+        ProfitFormula.Evaluator evaluator;
+        ProfitFormula.Engine engine = (ProfitFormula.Engine) engineBox.getSelectedItem();
+        long compileNanos;
+        try {
+            formula = ProfitFormula.parse(formulaInput.getText().trim());
+            rowAxis = parseAxis(rowAxisInput.getText());
+            columnAxis = parseAxis(columnAxisInput.getText());
+            if (rowAxis.getName().equals(columnAxis.getName())) {
+                throw new IllegalArgumentException("Rows and columns must sweep different variables");
+            }
+            rowSlot = formula.slotOf(rowAxis.getName());
+            columnSlot = formula.slotOf(columnAxis.getName());
+            slots = formula.bind(parseParameters(parametersInput.getText()), rowAxis.getName(), columnAxis.getName());
+            long start = System.nanoTime();
+            evaluator = formula.evaluator(engine);
+            compileNanos = System.nanoTime() - start;
+        } catch (IllegalArgumentException ex) {
+            JOptionPane.showMessageDialog(this, ex.getMessage(), "Formula Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        LazyProfitTableModel model;
+        try {
+            model = new LazyProfitTableModel(rowAxis.getName(), rowAxis, "%.4g", columnAxis, "%.4g", "$%.2f",
+                    ProfitFormula.cell(evaluator, slots, rowSlot, columnSlot),
+                    ProfitFormula.rowKernel(evaluator, slots, rowSlot, columnSlot));
+        } catch (IllegalArgumentException ex) {
+            JOptionPane.showMessageDialog(this, ex.getMessage(), "Input Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        profitTable.setAutoResizeMode(model.getColumnCount() > 12 ? JTable.AUTO_RESIZE_OFF : JTable.AUTO_RESIZE_SUBSEQUENT_COLUMNS);
+        profitTable.setModel(model);
+
+        String header = String.format("%s, %d x %d cells, %s in %.2f ms%n", engine,
+                rowAxis.getCount(), columnAxis.getCount(),
+                engine == ProfitFormula.Engine.COMPILED ? "compiled" : "parsed", compileNanos / 1e6);
+        summaryArea.setText(header + "Sweeping the full grid...");
+        GridKernels.RowKernel kernel = ProfitFormula.rowKernel(evaluator, slots, rowSlot, columnSlot);
+        ComputeExecutor.getShared().submit("customFormula.sweep", "Custom formula sweep",
+                progress -> sweep(kernel, rowAxis, columnAxis, progress),
+                summary -> {
+                    if (summary == null) {
+                        summaryArea.setText(header + "Sweep cancelled.");
+                        return;
+                    }
+                    summaryArea.setText(header + describe(summary, rowAxis, columnAxis));
+                });
+    }
+
+    // Summary over every cell, a row at a time, indexed row-major like the headless sweep
+    private static SweepSummary sweep(GridKernels.RowKernel kernel, GridAxis rowAxis, GridAxis columnAxis,
+                                      ComputeExecutor.Progress progress) {
+        if (columnAxis.getCount() > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Too many columns to sweep by rows");
+        }
+        long start = SWEEP_TIMER.start();
+        int width = (int) columnAxis.getCount();
+        double[] columns = new double[width];
+        for (int j = 0; j < width; j++) {
+            columns[j] = columnAxis.valueAt(j);
+        }
+        double[] row = new double[width];
+        SweepSummary summary = new SweepSummary();
+        long rows = rowAxis.getCount();
+        for (long i = 0; i < rows; i++) {
+            if (progress.isCancelled()) {
+                return null;
+            }
+            kernel.fillRow(rowAxis.valueAt(i), columns, row, 0);
+            long index = i * width;
+            for (int j = 0; j < width; j++) {
+                summary.add(row[j], index + j);
+            }
+            progress.update((double) (i + 1) / rows);
+        }
+        SWEEP_TIMER.stop(start, rows * width);
+        return summary;
+    }
+
+    private static String describe(SweepSummary summary, GridAxis rowAxis, GridAxis columnAxis) {
+        long width = columnAxis.getCount();
+        long best = summary.getArgMax();
+        long worst = summary.getArgMin();
+        return String.format("Mean profit $%.2f, std. dev. $%.2f, profitable %.1f%% of cells%n"
+                        + "Best  $%.2f at %s=%.4g, %s=%.4g%n"
+                        + "Worst $%.2f at %s=%.4g, %s=%.4g",
+                summary.getMean(), summary.getStandardDeviation(), 100 * summary.getProfitableFraction(),
+                summary.getMax(), rowAxis.getName(), rowAxis.valueAt(best / width),
+                columnAxis.getName(), columnAxis.valueAt(best % width),
+                summary.getMin(), rowAxis.getName(), rowAxis.valueAt(worst / width),
+                columnAxis.getName(), columnAxis.valueAt(worst % width));
+    }
+
+    // "name=start:end:step"
+    private static GridAxis parseAxis(String text) {
+        int equals = text.indexOf('=');
+        if (equals <= 0) {
+            throw new IllegalArgumentException("Axis must be name=start:end:step, got " + text.trim());
+        }
+        return GridAxis.parse(text.substring(0, equals).trim(), text.substring(equals + 1).trim());
+    }
+
+    // "name=value, name=value"
+    private static Map<String, Double> parseParameters(String text) {
+        Map<String, Double> parameters = new LinkedHashMap<>();
+        for (String part : text.split(",")) {
+            if (part.isBlank()) {
+                continue;
+            }
+            int equals = part.indexOf('=');
+            if (equals <= 0) {
+                throw new IllegalArgumentException("Parameter must be name=value, got " + part.trim());
+            }
+            String name = part.substring(0, equals).trim();
+            try {
+                parameters.put(name, Double.parseDouble(part.substring(equals + 1).trim()));
+            } catch (NumberFormatException ex) {
+                throw new IllegalArgumentException("Parameter " + name + " has an invalid value");
+            }
+        }
+        return parameters;
+    }
+
+    // Registers this panel as a tab of Activity6App
+    public static class Module implements SimulationModule {
+        @Override
+        public String getTitle() {
+            return "Custom Formula";
+        }
+
+        @Override
+        public int getOrder() {
+            return 40;
+        }
+
+        @Override
+        public JComponent createPanel() {
+            return new CustomFormulaSimulation();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+import javax.swing.*;
+import java.awt.*;
+import java.io.File;
+import java.io.IOException;
+
+// Diagnostics tab: live view of the metrics registry, with reset, on/off and dump to file
+public class DiagnosticsPanel extends JPanel {
+
+    private static final int REFRESH_MILLIS = 1000;
+
+    private final JTextArea reportArea;
+    private final Timer refreshTimer;
+
+    public DiagnosticsPanel() {
+        setLayout(new BorderLayout());
+
+        JPanel controlsPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        JCheckBox enabledBox = new JCheckBox("Collect Metrics", Metrics.isEnabled());
+        enabledBox.addActionListener(e -> {
+            Metrics.setEnabled(enabledBox.isSelected());
+            refresh();
+        });
+        JButton resetButton = new JButton("Reset");
+        resetButton.addActionListener(e -> {
+            Metrics.reset();
+            refresh();
+        });
+        JButton dumpButton = new JButton("Dump to File...");
+        dumpButton.addActionListener(e -> dumpToFile());
+        controlsPanel.add(enabledBox);
+        controlsPanel.add(resetButton);
+        controlsPanel.add(dumpButton);
+
+        reportArea = new JTextArea();
+        reportArea.setEditable(false);
+        reportArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+
+        add(controlsPanel, BorderLayout.NORTH);
+        add(new JScrollPane(reportArea), BorderLayout.CENTER);
+
+        refreshTimer = new Timer(REFRESH_MILLIS, e -> refresh());
+    }
+
+    // Method to redraw the report, only while the tab is on screen
+    private void refresh() {
+        if (isShowing()) {
+            reportArea.setText(Metrics.report());
+        }
+    }
+
+    private void dumpToFile() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setSelectedFile(new File("activity6-metrics.txt"));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        try {
+            Metrics.dump(chooser.getSelectedFile().toPath());
+        } catch (IOException ex) {
+            JOptionPane.showMessageDialog(this, "Could not write metrics: " + ex.getMessage(),
+                    "Dump Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        refreshTimer.start();
+    }
+
+    @Override
+    public void removeNotify() {
+        refreshTimer.stop();
+        super.removeNotify();
+    }
+
+    // Registers this panel as a tab of Activity6App
+    public static class Module implements SimulationModule {
+        @Override
+        public String getTitle() {
+            return "Diagnostics";
+        }
+
+        @Override
+        public int getOrder() {
+            return 1000;
+        }
+
+        @Override
+        public JComponent createPanel() {
+            return new DiagnosticsPanel();
+        }
+    }
+}
@@ -0,0 +1,394 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.HashMap;
+import java.util.Map;
+
+// Compiles a ProfitFormula tree into a class implementing ProfitFormula.Evaluator:
+//   public double evaluate(double[] v) { return <the formula with v[slot] for each variable>; }
+// The class file is written by hand (no bytecode library) and defined as a hidden class, so it
+// can be unloaded with its formula. It uses class file version 49, which still verifies without
+// StackMapTable frames; that keeps the branches for comparisons and if() simple to emit.
+// Arithmetic maps to the double opcodes and functions to java.lang.Math, exactly as the
+// interpreter evaluates them, so both engines give bit-identical results.
+final class FormulaCompiler {
+
+    private static final Metrics.Timer COMPILE_TIMER = Metrics.timer("formula.compile");
+
+    private static final int CLASS_VERSION = 49;
+    private static final String CLASS_NAME = "CompiledProfitFormula";
+    private static final String EVALUATOR = "ProfitFormula$Evaluator";
+
+    // Opcodes
+    private static final int ICONST_0 = 0x03;
+    private static final int DCONST_0 = 0x0e;
+    private static final int DCONST_1 = 0x0f;
+    private static final int BIPUSH = 0x10;
+    private static final int SIPUSH = 0x11;
+    private static final int LDC2_W = 0x14;
+    private static final int ALOAD_0 = 0x2a;
+    private static final int ALOAD_1 = 0x2b;
+    private static final int DALOAD = 0x31;
+    private static final int DADD = 0x63;
+    private static final int DSUB = 0x67;
+    private static final int DMUL = 0x6b;
+    private static final int DDIV = 0x6f;
+    private static final int DREM = 0x73;
+    private static final int DNEG = 0x77;
+    private static final int DCMPL = 0x97;
+    private static final int DCMPG = 0x98;
+    private static final int IFEQ = 0x99;
+    private static final int IFNE = 0x9a;
+    private static final int IFLT = 0x9b;
+    private static final int IFGE = 0x9c;
+    private static final int IFGT = 0x9d;
+    private static final int IFLE = 0x9e;
+    private static final int GOTO = 0xa7;
+    private static final int DRETURN = 0xaf;
+    private static final int RETURN = 0xb1;
+    private static final int INVOKESPECIAL = 0xb7;
+    private static final int INVOKESTATIC = 0xb8;
+
+    private final ConstantPool pool = new ConstantPool();
+    private final CodeBuffer code = new CodeBuffer();
+    private int depth;
+    private int maxDepth;
+
+    private FormulaCompiler() {
+    }
+
+    static ProfitFormula.Evaluator compile(ProfitFormula formula) {
+        long start = COMPILE_TIMER.start();
+        FormulaCompiler compiler = new FormulaCompiler();
+        byte[] bytes = compiler.classFile(formula.getRoot());
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(bytes, true);
+            ProfitFormula.Evaluator evaluator = (ProfitFormula.Evaluator) lookup
+                    .findConstructor(lookup.lookupClass(), MethodType.methodType(void.class))
+                    .invoke();
+            COMPILE_TIMER.stop(start);
+            return evaluator;
+        } catch (Throwable ex) {
+            throw new IllegalStateException("Could not load the compiled formula: " + ex, ex);
+        }
+    }
+
+    // Method body
+
+    private void emit(ProfitFormula.Node node) {
+        if (node instanceof ProfitFormula.Constant) {
+            emitConstant(((ProfitFormula.Constant) node).value);
+        } else if (node instanceof ProfitFormula.Variable) {
+            op(ALOAD_1, 1);
+            emitInt(((ProfitFormula.Variable) node).slot);
+            op(DALOAD, 0);
+        } else if (node instanceof ProfitFormula.Negate) {
+            emit(((ProfitFormula.Negate) node).operand);
+            op(DNEG, 0);
+        } else if (node instanceof ProfitFormula.Binary) {
+            ProfitFormula.Binary binary = (ProfitFormula.Binary) node;
+            emit(binary.left);
+            emit(binary.right);
+            if (binary.operator.isComparison()) {
+                emitComparison(binary.operator);
+            } else {
+                emitArithmetic(binary.operator);
+            }
+        } else if (node instanceof ProfitFormula.Call) {
+            ProfitFormula.Call call = (ProfitFormula.Call) node;
+            String method = call.function.methodName();
+            emit(call.arguments[0]);
+            if (call.function.maxArgs == 1) {
+                invokeMath(method, "(D)D", 0);
+            } else {
+                for (int i = 1; i < call.arguments.length; i++) {
+                    emit(call.arguments[i]);
+                    invokeMath(method, "(DD)D", -2);
+                }
+            }
+        } else {
+            ProfitFormula.Conditional conditional = (ProfitFormula.Conditional) node;
+            emit(conditional.condition);
+            op(DCONST_0, 2);
+            op(DCMPL, -3);
+            // NaN compares as -1, so a NaN condition picks the then branch, as != 0 does
+            int toElse = jump(IFEQ, -1);
+            emit(conditional.whenTrue);
+            int toEnd = jump(GOTO, 0);
+            depth -= 2;
+            patch(toElse);
+            emit(conditional.whenFalse);
+            patch(toEnd);
+        }
+    }
+
+    private void emitConstant(double value) {
+        if (Double.doubleToRawLongBits(value) == 0) {
+            op(DCONST_0, 2);
+        } else if (value == 1.0) {
+            op(DCONST_1, 2);
+        } else {
+            op(LDC2_W, 2);
+            u2(pool.doubleConstant(value));
+        }
+    }
+
+    private void emitInt(int value) {
+        if (value <= 5) {
+            op(ICONST_0 + value, 1);
+        } else if (value <= Byte.MAX_VALUE) {
+            op(BIPUSH, 1);
+            code.write(value);
+        } else {
+            op(SIPUSH, 1);
+            u2(value);
+        }
+    }
+
+    private void emitArithmetic(ProfitFormula.Operator operator) {
+        switch (operator) {
+            case ADD:
+                op(DADD, -2);
+                break;
+            case SUBTRACT:
+                op(DSUB, -2);
+                break;
+            case MULTIPLY:
+                op(DMUL, -2);
+                break;
+            case DIVIDE:
+                op(DDIV, -2);
+                break;
+            case REMAINDER:
+                op(DREM, -2);
+                break;
+            default:
+                invokeMath("pow", "(DD)D", -2);
+        }
+    }
+
+    // Leaves 1.0 or 0.0. dcmpg turns NaN into 1 and dcmpl into -1; each comparison uses the one
+    // that makes NaN false, as in Java, except != which is true for NaN.
+    private void emitComparison(ProfitFormula.Operator operator) {
+        int branch;
+        switch (operator) {
+            case LESS:
+                op(DCMPG, -3);
+                branch = IFLT;
+                break;
+            case LESS_EQUAL:
+                op(DCMPG, -3);
+                branch = IFLE;
+                break;
+            case GREATER:
+                op(DCMPL, -3);
+                branch = IFGT;
+                break;
+            case GREATER_EQUAL:
+                op(DCMPL, -3);
+                branch = IFGE;
+                break;
+            case EQUAL:
+                op(DCMPL, -3);
+                branch = IFEQ;
+                break;
+            default:
+                op(DCMPL, -3);
+                branch = IFNE;
+        }
+        int toTrue = jump(branch, -1);
+        op(DCONST_0, 2);
+        int toEnd = jump(GOTO, 0);
+        depth -= 2;
+        patch(toTrue);
+        op(DCONST_1, 2);
+        patch(toEnd);
+    }
+
+    private void invokeMath(String name, String descriptor, int stackChange) {
+        op(INVOKESTATIC, stackChange);
+        u2(pool.methodRef("java/lang/Math", name, descriptor));
+    }
+
+    // Writes an opcode and tracks the operand stack depth in slots (a double takes two)
+    private void op(int opcode, int stackChange) {
+        code.write(opcode);
+        depth += stackChange;
+        maxDepth = Math.max(maxDepth, depth);
+    }
+
+    // Branch with a placeholder offset; returns the opcode position for patch
+    private int jump(int opcode, int stackChange) {
+        int at = code.size();
+        op(opcode, stackChange);
+        u2(0);
+        return at;
+    }
+
+    private void patch(int jumpAt) {
+        int offset = code.size() - jumpAt;
+        if (offset > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Formula is too large to compile");
+        }
+        code.set(jumpAt + 1, offset >> 8);
+        code.set(jumpAt + 2, offset);
+    }
+
+    private void u2(int value) {
+        code.write(value >> 8);
+        code.write(value);
+    }
+
+    // Class file
+
+    private byte[] classFile(ProfitFormula.Node root) {
+        emit(root);
+        op(DRETURN, -2);
+        if (code.size() > 65535) {
+            throw new IllegalArgumentException("Formula is too large to compile");
+        }
+        byte[] body = code.toByteArray();
+
+        int thisClass = pool.classRef(CLASS_NAME);
+        int superClass = pool.classRef("java/lang/Object");
+        int evaluator = pool.classRef(EVALUATOR);
+        int objectInit = pool.methodRef("java/lang/Object", "<init>", "()V");
+        int init = pool.utf8("<init>");
+        int voidDescriptor = pool.utf8("()V");
+        int evaluate = pool.utf8("evaluate");
+        int evaluateDescriptor = pool.utf8("([D)D");
+        int codeAttribute = pool.utf8("Code");
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256 + body.length);
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(CLASS_VERSION);
+            pool.writeTo(out);
+            out.writeShort(0x0001 | 0x0010 | 0x0020); // public final super
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(1);
+            out.writeShort(evaluator);
+            out.writeShort(0); // fields
+            out.writeShort(2); // methods
+
+            // public <init>() { super(); }
+            out.writeShort(0x0001);
+            out.writeShort(init);
+            out.writeShort(voidDescriptor);
+            writeCode(out, codeAttribute, 1, 1,
+                    new byte[]{(byte) ALOAD_0, (byte) INVOKESPECIAL, (byte) (objectInit >> 8), (byte) objectInit,
+                            (byte) RETURN});
+
+            // public double evaluate(double[] v)
+            out.writeShort(0x0001);
+            out.writeShort(evaluate);
+            out.writeShort(evaluateDescriptor);
+            writeCode(out, codeAttribute, maxDepth, 2, body);
+
+            out.writeShort(0); // class attributes
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeCode(DataOutputStream out, int codeAttribute, int maxStack, int maxLocals, byte[] body)
+            throws IOException {
+        out.writeShort(1);
+        out.writeShort(codeAttribute);
+        out.writeInt(2 + 2 + 4 + body.length + 2 + 2);
+        out.writeShort(maxStack);
+        out.writeShort(maxLocals);
+        out.writeInt(body.length);
+        out.write(body);
+        out.writeShort(0); // exception table
+        out.writeShort(0); // code attributes
+    }
+
+    // Method body that can patch branch offsets in place
+    private static final class CodeBuffer extends ByteArrayOutputStream {
+        void set(int at, int value) {
+            buf[at] = (byte) value;
+        }
+    }
+
+    // Constant pool with de-duplicated entries; doubles take two slots
+    private static final class ConstantPool {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+        private final Map<String, Integer> entries = new HashMap<>();
+        private int count = 1;
+
+        int utf8(String value) {
+            return entry("U" + value, 1, () -> {
+                out.writeByte(1);
+                out.writeUTF(value);
+            });
+        }
+
+        int classRef(String internalName) {
+            int name = utf8(internalName);
+            return entry("C" + internalName, 1, () -> {
+                out.writeByte(7);
+                out.writeShort(name);
+            });
+        }
+
+        int methodRef(String owner, String name, String descriptor) {
+            int ownerIndex = classRef(owner);
+            int nameIndex = utf8(name);
+            int descriptorIndex = utf8(descriptor);
+            int nameAndType = entry("N" + name + descriptor, 1, () -> {
+                out.writeByte(12);
+                out.writeShort(nameIndex);
+                out.writeShort(descriptorIndex);
+            });
+            return entry("M" + owner + "." + name + descriptor, 1, () -> {
+                out.writeByte(10);
+                out.writeShort(ownerIndex);
+                out.writeShort(nameAndType);
+            });
+        }
+
+        int doubleConstant(double value) {
+            long bits = Double.doubleToRawLongBits(value);
+            return entry("D" + bits, 2, () -> {
+                out.writeByte(6);
+                out.writeLong(bits);
+            });
+        }
+
+        private int entry(String key, int slots, Writer writer) {
+            Integer index = entries.get(key);
+            if (index != null) {
+                return index;
+            }
+            if (count + slots > 65535) {
+                throw new IllegalArgumentException("Formula is too large to compile");
+            }
+            try {
+                writer.write();
+            } catch (IOException ex) {
+                throw new IllegalStateException(ex);
+            }
+            index = count;
+            count += slots;
+            entries.put(key, index);
+            return index;
+        }
+
+        void writeTo(DataOutputStream target) throws IOException {
+            target.writeShort(count);
+            bytes.writeTo(target);
+        }
+
+        private interface Writer {
+            void write() throws IOException;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+// One evenly spaced axis of a parameter grid: start, start + step, ..., up to end (inclusive)
+public class GridAxis {
+    private final String name;
+    private final double start;
+    private final double step;
+    private final long count;
+
+    public GridAxis(String name, double start, double step, long count) {
+        if (step <= 0 || count <= 0) {
+            throw new IllegalArgumentException("Axis " + name + " needs a positive step and at least one value");
+        }
+        this.name = name;
+        this.start = start;
+        this.step = step;
+        this.count = count;
+    }
+
+    // Parses "start:end:step" (or a single value) for the named axis
+    public static GridAxis parse(String name, String range) {
+        String[] parts = range.split(":");
+        try {
+            if (parts.length == 1) {
+                return new GridAxis(name, Double.parseDouble(parts[0]), 1, 1);
+            }
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Axis " + name + " must be start:end:step, got " + range);
+            }
+            double start = Double.parseDouble(parts[0]);
+            double end = Double.parseDouble(parts[1]);
+            double step = Double.parseDouble(parts[2]);
+            if (end < start || step <= 0) {
+                throw new IllegalArgumentException("Axis " + name + " must have end >= start and step > 0");
+            }
+            // Small tolerance so that e.g. 30:70:0.01 includes 70
+            long count = (long) Math.floor((end - start) / step + 1e-9) + 1;
+            return new GridAxis(name, start, step, count);
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Axis " + name + " has an invalid number in " + range);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public double getStart() {
+        return start;
+    }
+
+    public double getStep() {
+        return step;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    // Computed from the index rather than accumulated, so long axes don't drift
+    public double valueAt(long index) {
+        return start + index * step;
+    }
+}
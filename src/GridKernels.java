@@ -0,0 +1,77 @@
+// Row kernels for the profit matrices. Along a matrix row both models are affine in the column
+// input (lemonade profit in the variable cost, Broadway profit in the weeks), so a whole row is
+// out[j] = intercept + slope * x[j], filled straight into a primitive buffer.
+// Rows written at offset 0 always use the plain loop, which C2 auto-vectorizes. Rows written into
+// a flat matrix at a row offset are not auto-vectorized (C2 cannot rule out that the offset store
+// overlaps the input). Those rows run on the incubating Vector API when VectorGridKernels (under
+// vector/, built separately) is on the class path, the JVM was started with --add-modules
+// jdk.incubator.vector and the CPU offers at least two double lanes. Otherwise, or with
+// -Dactivity6.vector=false, they fall back to the plain loop.
+// Both paths multiply then add, without fused multiply-add, so they give bit-identical results.
+public final class GridKernels {
+
+    // out[offset + j] = profit(rowValue, columnValues[j])
+    public interface RowKernel {
+        void fillRow(double rowValue, double[] columnValues, double[] out, int offset);
+    }
+
+    // out[offset + j] = intercept + slope * x[j]
+    interface AffineKernel {
+        void apply(double intercept, double slope, double[] x, double[] out, int offset);
+
+        String describe();
+    }
+
+    static final AffineKernel SCALAR = new AffineKernel() {
+        @Override
+        public void apply(double intercept, double slope, double[] x, double[] out, int offset) {
+            for (int j = 0; j < x.length; j++) {
+                out[offset + j] = intercept + slope * x[j];
+            }
+        }
+
+        @Override
+        public String describe() {
+            return "scalar loop";
+        }
+    };
+
+    private static final AffineKernel VECTOR = loadVectorKernel();
+    private static final AffineKernel ACTIVE =
+            VECTOR != null && !"false".equalsIgnoreCase(System.getProperty("activity6.vector")) ? VECTOR : SCALAR;
+
+    private GridKernels() {
+    }
+
+    public static void affineRow(double intercept, double slope, double[] x, double[] out, int offset) {
+        (offset == 0 ? SCALAR : ACTIVE).apply(intercept, slope, x, out, offset);
+    }
+
+    public static boolean isVectorized() {
+        return ACTIVE != SCALAR;
+    }
+
+    // Implementation in use, for the diagnostics report
+    public static String describe() {
+        return ACTIVE.describe();
+    }
+
+    // The Vector API kernel, or null when the module is missing or the CPU has no wide lanes
+    static AffineKernel vectorKernel() {
+        return VECTOR;
+    }
+
+    // The vector class links against jdk.incubator.vector, so it is only loaded once the module is
+    // known to be in the boot layer, and it may be missing altogether from a build without vector/
+    private static AffineKernel loadVectorKernel() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return null;
+        }
+        try {
+            AffineKernel kernel = (AffineKernel) Class.forName("VectorGridKernels").getDeclaredConstructor().newInstance();
+            return kernel.describe().isEmpty() ? null : kernel;
+        } catch (ReflectiveOperationException | LinkageError ex) {
+            return null;
+        }
+    }
+}
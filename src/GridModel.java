@@ -0,0 +1,147 @@
+import java.math.BigDecimal;
+import java.util.Locale;
+
+// The profit models that can be swept over a two-axis parameter grid outside the GUI
+public enum GridModel {
+    LEMONADE("salesVolume", "variableCost", "100:500:50", "0.10:0.45:0.05") {
+        @Override
+        public double evaluate(double salesVolume, double variableCost) {
+            return LemonadeStandModel.profit((int) salesVolume, variableCost);
+        }
+
+        @Override
+        public long evaluateCents(double salesVolume, double variableCost) {
+            return LemonadeStandModel.profitCents((long) salesVolume, Money.toCents(variableCost));
+        }
+
+        @Override
+        public BigDecimal evaluateAudit(double salesVolume, double variableCost) {
+            return LemonadeStandModel.profitAudit((long) salesVolume, Money.toCents(variableCost));
+        }
+    },
+    BROADWAY("price", "weeks", "30:70:5", "40:200:20") {
+        @Override
+        public double evaluate(double price, double weeks) {
+            return BroadwayPlayModel.profitForPriceAndWeeks(price, (int) weeks);
+        }
+
+        @Override
+        public long evaluateCents(double price, double weeks) {
+            return BroadwayPlayModel.profitCents((long) weeks, Money.toCents(price),
+                    BroadwayPlayModel.EXPECTED_OCCUPANCY_BASIS_POINTS);
+        }
+
+        @Override
+        public BigDecimal evaluateAudit(double price, double weeks) {
+            return BroadwayPlayModel.profitAudit((long) weeks, Money.toCents(price),
+                    BroadwayPlayModel.EXPECTED_OCCUPANCY_BASIS_POINTS);
+        }
+    },
+    COPYSHOP("copiers", "dailyDemand", "1:5:1", "500:2000:500") {
+        @Override
+        public double evaluate(double copiers, double dailyDemand) {
+            checkX(copiers);
+            return CopyShopModel.profitForCopiers((int) copiers, (int) dailyDemand);
+        }
+
+        @Override
+        public long evaluateCents(double copiers, double dailyDemand) {
+            checkX(copiers);
+            return CopyShopModel.profitForCopiersCents((int) copiers, (long) dailyDemand);
+        }
+
+        @Override
+        public BigDecimal evaluateAudit(double copiers, double dailyDemand) {
+            checkX(copiers);
+            return CopyShopModel.profitForCopiersAudit((int) copiers, (long) dailyDemand);
+        }
+
+        // Demand is split between the copiers, so there must be at least one
+        @Override
+        public void checkX(double copiers) {
+            if (!(copiers >= 1 && copiers <= Integer.MAX_VALUE)) {
+                throw new IllegalArgumentException("copiers must be from 1 to " + Integer.MAX_VALUE + ", got " + copiers);
+            }
+        }
+    };
+
+    private final String xName;
+    private final String yName;
+    private final String defaultXRange;
+    private final String defaultYRange;
+
+    GridModel(String xName, String yName, String defaultXRange, String defaultYRange) {
+        this.xName = xName;
+        this.yName = yName;
+        this.defaultXRange = defaultXRange;
+        this.defaultYRange = defaultYRange;
+    }
+
+    // Profit for one grid cell; integer axes are truncated the same way the panels do
+    public abstract double evaluate(double x, double y);
+
+    // Exact profit in cents; money inputs are rounded to whole cents first
+    public abstract long evaluateCents(double x, double y);
+
+    // BigDecimal reference for evaluateCents, used by the audit mode
+    public abstract BigDecimal evaluateAudit(double x, double y);
+
+    // Throws IllegalArgumentException for an x value the model cannot evaluate
+    public void checkX(double x) {
+    }
+
+    public String getXName() {
+        return xName;
+    }
+
+    public String getYName() {
+        return yName;
+    }
+
+    public String getDefaultXRange() {
+        return defaultXRange;
+    }
+
+    public String getDefaultYRange() {
+        return defaultYRange;
+    }
+
+    // Builds the two axes from a spec like "price=30:70:0.01,weeks=1:1000:1", falling back to the
+    // default range for omitted axes
+    public GridAxis[] parseGrid(String spec) {
+        String xRange = defaultXRange;
+        String yRange = defaultYRange;
+        for (String entry : spec.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            int eq = entry.indexOf('=');
+            if (eq < 0) {
+                throw new IllegalArgumentException("Grid entry must be axis=start:end:step, got " + entry);
+            }
+            String name = entry.substring(0, eq).trim();
+            String range = entry.substring(eq + 1).trim();
+            if (name.equalsIgnoreCase(xName)) {
+                xRange = range;
+            } else if (name.equalsIgnoreCase(yName)) {
+                yRange = range;
+            } else {
+                throw new IllegalArgumentException("Unknown axis " + name + " for model " + name().toLowerCase(Locale.ROOT));
+            }
+        }
+        GridAxis xAxis = GridAxis.parse(xName, xRange);
+        // Axes ascend, so checking both ends covers every value
+        checkX(xAxis.getStart());
+        checkX(xAxis.valueAt(xAxis.getCount() - 1));
+        return new GridAxis[]{xAxis, GridAxis.parse(yName, yRange)};
+    }
+
+    public static GridModel fromName(String name) {
+        for (GridModel model : values()) {
+            if (model.name().equalsIgnoreCase(name)) {
+                return model;
+            }
+        }
+        throw new IllegalArgumentException("Unknown model: " + name + " (expected lemonade, broadway or copyshop)");
+    }
+}
@@ -0,0 +1,202 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Streams grid sweep results to disk through a fixed-size NIO buffer, so memory stays constant
+// no matter how many cells are written. Rows arrive in batches of parallel column arrays.
+public abstract class GridResultWriter implements AutoCloseable {
+
+    private static final int BUFFER_BYTES = 1 << 20;
+
+    protected final WritableByteChannel channel;
+    protected final ByteBuffer buffer;
+
+    protected GridResultWriter(WritableByteChannel channel) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    // Opens a writer for the given format ("csv" or "bin"); "-" writes to standard output
+    public static GridResultWriter open(String output, String format, String[] columnNames) throws IOException {
+        WritableByteChannel channel = "-".equals(output)
+                ? Channels.newChannel(System.out)
+                : FileChannel.open(Path.of(output), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        GridResultWriter writer;
+        if ("csv".equalsIgnoreCase(format)) {
+            writer = new CsvWriter(channel);
+        } else if ("bin".equalsIgnoreCase(format)) {
+            writer = new BinaryWriter(channel);
+        } else {
+            channel.close();
+            throw new IllegalArgumentException("Unknown format: " + format + " (expected csv or bin)");
+        }
+        writer.writeHeader(columnNames);
+        return writer;
+    }
+
+    protected abstract void writeHeader(String[] columnNames) throws IOException;
+
+    // Writes rows 0..rowCount-1 of the given columns
+    public abstract void writeRows(double[][] columns, int rowCount) throws IOException;
+
+    protected abstract void writeFooter() throws IOException;
+
+    protected void ensureSpace(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    protected void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            writeFooter();
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    // Plain CSV with a header line. Numbers are formatted by hand into the byte buffer because
+    // String.format would dominate the run time at this volume.
+    private static class CsvWriter extends GridResultWriter {
+        // Longest formatted row value: sign, 19 digits, point, 4 decimals, separator
+        private static final int MAX_NUMBER_BYTES = 32;
+        private final byte[] digits = new byte[20];
+
+        CsvWriter(WritableByteChannel channel) {
+            super(channel);
+        }
+
+        @Override
+        protected void writeHeader(String[] columnNames) throws IOException {
+            byte[] header = (String.join(",", columnNames) + "\n").getBytes(StandardCharsets.UTF_8);
+            ensureSpace(header.length);
+            buffer.put(header);
+        }
+
+        @Override
+        public void writeRows(double[][] columns, int rowCount) throws IOException {
+            int last = columns.length - 1;
+            for (int row = 0; row < rowCount; row++) {
+                ensureSpace(MAX_NUMBER_BYTES * columns.length);
+                for (int c = 0; c < last; c++) {
+                    // Parameter columns keep up to 4 decimals, trailing zeros trimmed
+                    putDecimal(columns[c][row], 4, true);
+                    buffer.put((byte) ',');
+                }
+                // Profit column is always shown to the cent, as in the panels
+                putDecimal(columns[last][row], 2, false);
+                buffer.put((byte) '\n');
+            }
+        }
+
+        @Override
+        protected void writeFooter() {
+        }
+
+        private void putDecimal(double value, int decimals, boolean trimZeros) {
+            long scale = decimals == 4 ? 10_000 : 100;
+            if (Double.isNaN(value) || Math.abs(value) >= 1e14) {
+                buffer.put(Double.toString(value).getBytes(StandardCharsets.US_ASCII));
+                return;
+            }
+            long scaled = Math.round(value * scale);
+            if (scaled < 0) {
+                buffer.put((byte) '-');
+                scaled = -scaled;
+            }
+            putLong(scaled / scale);
+            long fraction = scaled % scale;
+            if (trimZeros) {
+                if (fraction == 0) {
+                    return;
+                }
+                while (fraction % 10 == 0) {
+                    fraction /= 10;
+                    decimals--;
+                }
+            }
+            buffer.put((byte) '.');
+            for (int i = decimals - 1; i >= 0; i--) {
+                digits[i] = (byte) ('0' + fraction % 10);
+                fraction /= 10;
+            }
+            buffer.put(digits, 0, decimals);
+        }
+
+        private void putLong(long value) {
+            int pos = digits.length;
+            do {
+                digits[--pos] = (byte) ('0' + value % 10);
+                value /= 10;
+            } while (value > 0);
+            buffer.put(digits, pos, digits.length - pos);
+        }
+    }
+
+    // Columnar binary format, organised in row groups like Parquet:
+    //   magic "A6GRID01", int columnCount, then per column: short nameLength + UTF-8 name
+    //   each row group: int rowCount, then columnCount blocks of rowCount little-endian doubles
+    //   a row group with rowCount 0 terminates the file
+    private static class BinaryWriter extends GridResultWriter {
+        static final byte[] MAGIC = "A6GRID01".getBytes(StandardCharsets.US_ASCII);
+
+        BinaryWriter(WritableByteChannel channel) {
+            super(channel);
+        }
+
+        @Override
+        protected void writeHeader(String[] columnNames) throws IOException {
+            ensureSpace(MAGIC.length + 4);
+            buffer.put(MAGIC);
+            buffer.putInt(columnNames.length);
+            for (String name : columnNames) {
+                byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+                ensureSpace(2 + bytes.length);
+                buffer.putShort((short) bytes.length);
+                buffer.put(bytes);
+            }
+        }
+
+        @Override
+        public void writeRows(double[][] columns, int rowCount) throws IOException {
+            if (rowCount == 0) {
+                return;
+            }
+            ensureSpace(4);
+            buffer.putInt(rowCount);
+            for (double[] column : columns) {
+                int row = 0;
+                while (row < rowCount) {
+                    ensureSpace(Double.BYTES);
+                    int n = Math.min(rowCount - row, buffer.remaining() / Double.BYTES);
+                    buffer.asDoubleBuffer().put(column, row, n);
+                    buffer.position(buffer.position() + n * Double.BYTES);
+                    row += n;
+                }
+            }
+        }
+
+        @Override
+        protected void writeFooter() throws IOException {
+            ensureSpace(4);
+            buffer.putInt(0);
+        }
+    }
+}
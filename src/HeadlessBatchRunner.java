@@ -0,0 +1,377 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+
+// Command line entry point for running the profit models without Swing, e.g.
+//   java Activity6App --headless --model broadway --grid price=30:70:0.01,weeks=1:1000:1 --out sweep.csv
+// Cells are evaluated in row groups and streamed to the writer, so memory use does not grow with the grid.
+// With --scenarios the rows of a memory-mapped scenario file are evaluated instead of a grid, e.g.
+//   java Activity6App --headless --import-csv history.csv --out history.a6s
+//   java Activity6App --headless --model lemonade --scenarios history.a6s --out profits.a6s
+// With --distributed the grid is summarized by worker JVMs instead of written out (SweepCoordinator);
+// adding --log run.a6log makes that sweep resumable: rerunning the same command skips finished chunks.
+public class HeadlessBatchRunner {
+
+    private static final int ROW_GROUP = 1 << 16;
+
+    private static final String USAGE = String.join("\n",
+            "Usage: Activity6App --headless --model <lemonade|broadway|copyshop> [options]",
+            "  --grid <axis=start:end:step,...>  parameter ranges (defaults match the panels)",
+            "                                    lemonade: salesVolume, variableCost",
+            "                                    broadway: price, weeks",
+            "                                    copyshop: copiers, dailyDemand",
+            "  --out <file|->                    output file, '-' for standard output (default -)",
+            "  --scenarios <file.a6s>            evaluate every row of a scenario file instead of a grid",
+            "                                    (columns named after the model axes)",
+            "  --import-csv <file>               convert a CSV with a header line into the --out scenario file",
+            "  --format <csv|bin|a6s>            output format (default from extension, else csv)",
+            "  --exact                           exact money: profits computed in fixed-point cents",
+            "  --audit                           with --exact, re-check every cell against BigDecimal",
+            "  --distributed                     summarize the grid on worker JVMs instead of writing cells",
+            "  --workers <n>                     worker processes (default: available processors, 0 = in-process)",
+            "  --chunk-cells <n>                 cells per chunk handed to a worker (default: automatic)",
+            "  --fail-worker <id>:<chunks>       testing: halt that worker after it finishes that many chunks",
+            "  --log <file.a6log>                with --distributed, log finished chunks and resume from the log",
+            "  --log-sync-ms <n>                 fsync the log at most every n ms (default 1000)");
+
+    private GridModel model;
+    private String gridSpec = "";
+    private String output = "-";
+    private String format;
+    private String scenarios;
+    private String importCsv;
+    private boolean exact;
+    private boolean audit;
+    private long auditMismatches;
+    private boolean distributed;
+    private int workers = Runtime.getRuntime().availableProcessors();
+    private long chunkCells;
+    private String failWorker;
+    private String logFile;
+    private long logSyncMillis = ResultLog.DEFAULT_SYNC_MILLIS;
+
+    // Runs the batch described by the arguments and returns the process exit code
+    public static int run(String[] args) {
+        HeadlessBatchRunner runner = new HeadlessBatchRunner();
+        try {
+            runner.parseArguments(args);
+            if (runner.importCsv != null) {
+                runner.importCsv();
+            } else if (runner.scenarios != null) {
+                runner.evaluateScenarios();
+            } else if (runner.distributed) {
+                runner.distributedSweep();
+            } else {
+                runner.sweep();
+            }
+            if (runner.auditMismatches > 0) {
+                System.err.println("Audit failed: " + runner.auditMismatches + " cells differ from BigDecimal");
+                return 3;
+            }
+            return 0;
+        } catch (IllegalArgumentException ex) {
+            System.err.println("Error: " + ex.getMessage());
+            System.err.println(USAGE);
+            return 2;
+        } catch (IOException ex) {
+            System.err.println("I/O error: " + ex.getMessage());
+            return 1;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return 1;
+        }
+    }
+
+    private void parseArguments(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--headless":
+                    break;
+                case "--model":
+                    model = GridModel.fromName(value(args, ++i, "--model"));
+                    break;
+                case "--grid":
+                    gridSpec = value(args, ++i, "--grid");
+                    break;
+                case "--out":
+                    output = value(args, ++i, "--out");
+                    break;
+                case "--format":
+                    format = value(args, ++i, "--format");
+                    break;
+                case "--scenarios":
+                    scenarios = value(args, ++i, "--scenarios");
+                    break;
+                case "--import-csv":
+                    importCsv = value(args, ++i, "--import-csv");
+                    break;
+                case "--exact":
+                    exact = true;
+                    break;
+                case "--audit":
+                    exact = true;
+                    audit = true;
+                    break;
+                case "--distributed":
+                    distributed = true;
+                    break;
+                case "--workers":
+                    workers = parseInt(value(args, ++i, "--workers"), "--workers");
+                    break;
+                case "--chunk-cells":
+                    chunkCells = parseInt(value(args, ++i, "--chunk-cells"), "--chunk-cells");
+                    break;
+                case "--fail-worker":
+                    failWorker = value(args, ++i, "--fail-worker");
+                    break;
+                case "--log":
+                    logFile = value(args, ++i, "--log");
+                    break;
+                case "--log-sync-ms":
+                    logSyncMillis = parseInt(value(args, ++i, "--log-sync-ms"), "--log-sync-ms");
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        if (importCsv != null) {
+            if ("-".equals(output)) {
+                throw new IllegalArgumentException("--import-csv needs an --out file");
+            }
+            return;
+        }
+        if (model == null) {
+            throw new IllegalArgumentException("--model is required");
+        }
+        if (distributed && (scenarios != null || audit || !"-".equals(output))) {
+            throw new IllegalArgumentException("--distributed only summarizes a grid; it takes no --scenarios, --audit or --out");
+        }
+        if (workers < 0) {
+            throw new IllegalArgumentException("--workers must not be negative");
+        }
+        if (logFile != null && !distributed) {
+            throw new IllegalArgumentException("--log needs --distributed");
+        }
+        if (logSyncMillis < 0) {
+            throw new IllegalArgumentException("--log-sync-ms must not be negative");
+        }
+        if (format == null) {
+            String lower = output.toLowerCase(Locale.ROOT);
+            format = lower.endsWith(".bin") ? "bin" : lower.endsWith(ScenarioFile.EXTENSION) ? "a6s" : "csv";
+        }
+        if ("a6s".equalsIgnoreCase(format) && (scenarios == null || "-".equals(output))) {
+            throw new IllegalArgumentException("a6s output needs --scenarios and an --out file");
+        }
+    }
+
+    private static String value(String[] args, int index, String option) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException(option + " needs a value");
+        }
+        return args[index];
+    }
+
+    private static int parseInt(String text, String option) {
+        try {
+            return Integer.parseInt(text);
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException(option + " needs a whole number, got " + text);
+        }
+    }
+
+    private void sweep() throws IOException {
+        GridAxis[] axes = model.parseGrid(gridSpec);
+        GridAxis xAxis = axes[0];
+        GridAxis yAxis = axes[1];
+        long totalCells = Math.multiplyExact(xAxis.getCount(), yAxis.getCount());
+
+        double[] xs = new double[ROW_GROUP];
+        double[] ys = new double[ROW_GROUP];
+        double[] profits = new double[ROW_GROUP];
+        double[][] columns = {xs, ys, profits};
+
+        long start = System.nanoTime();
+        long lastReport = start;
+        try (GridResultWriter writer = GridResultWriter.open(output, format,
+                new String[]{xAxis.getName(), yAxis.getName(), "profit"})) {
+            int n = 0;
+            long written = 0;
+            for (long i = 0; i < xAxis.getCount(); i++) {
+                double x = xAxis.valueAt(i);
+                for (long j = 0; j < yAxis.getCount(); j++) {
+                    double y = yAxis.valueAt(j);
+                    xs[n] = x;
+                    ys[n] = y;
+                    profits[n] = profit(x, y);
+                    if (++n == ROW_GROUP) {
+                        writer.writeRows(columns, n);
+                        written += n;
+                        n = 0;
+                        long now = System.nanoTime();
+                        if (now - lastReport > 5_000_000_000L) {
+                            System.err.printf("%d / %d cells (%.1f%%)%n", written, totalCells, 100.0 * written / totalCells);
+                            lastReport = now;
+                        }
+                    }
+                }
+            }
+            writer.writeRows(columns, n);
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.err.printf("Wrote %d cells in %.2f s (%.1f M cells/min)%n",
+                totalCells, seconds, totalCells / seconds * 60 / 1e6);
+    }
+
+    // Summary of the whole grid computed by worker processes; only the aggregate comes back
+    private void distributedSweep() throws IOException, InterruptedException {
+        GridAxis[] axes = model.parseGrid(gridSpec);
+        SweepCoordinator coordinator = new SweepCoordinator(model, axes[0], axes[1], exact, workers, chunkCells);
+        if (failWorker != null) {
+            String[] parts = failWorker.split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("--fail-worker must be <id>:<chunks>, got " + failWorker);
+            }
+            coordinator.setFailure(parseInt(parts[0], "--fail-worker"), parseInt(parts[1], "--fail-worker"));
+        }
+        long totalCells = coordinator.getTotalCells();
+        long start = System.nanoTime();
+        long[] lastReport = {start};
+        ComputeExecutor.Progress progress = new ComputeExecutor.Progress() {
+            @Override
+            public void update(double fraction) {
+                long now = System.nanoTime();
+                if (now - lastReport[0] > 5_000_000_000L) {
+                    System.err.printf("%d / %d cells (%.1f%%)%n", (long) (fraction * totalCells), totalCells, 100 * fraction);
+                    lastReport[0] = now;
+                }
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return false;
+            }
+        };
+        ResultLog log = null;
+        if (logFile != null) {
+            log = ResultLog.open(Path.of(logFile), coordinator.getRunKey(), logSyncMillis,
+                    ResultLog.DEFAULT_CHECKPOINT_MILLIS);
+            if (log.getTruncatedBytes() > 0) {
+                System.err.println("Dropped " + log.getTruncatedBytes() + " unreadable bytes at the end of " + logFile);
+            }
+            coordinator.setLog(log);
+        }
+        SweepSummary summary;
+        try {
+            summary = coordinator.run(progress);
+        } finally {
+            if (log != null) {
+                log.close();
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        GridAxis yAxis = axes[1];
+        if (coordinator.getResumedChunks() > 0) {
+            System.err.printf("Resumed from %s: %d of %d chunks were already done%n", logFile,
+                    coordinator.getResumedChunks(), coordinator.getChunkCount());
+        }
+        System.err.printf("Summarized %d cells in %d chunks of %d on %d workers in %.2f s (%.1f M cells/min), "
+                        + "%d steals, %d retries%n", totalCells, coordinator.getChunkCount(), coordinator.getChunkCells(),
+                workers, seconds, totalCells / seconds * 60 / 1e6, coordinator.getSteals(), coordinator.getRetries());
+        for (String line : coordinator.getWorkerReports()) {
+            System.err.println("  " + line);
+        }
+        System.out.printf("cells %d, mean profit %.2f, std dev %.2f, profitable %.2f%%%n", summary.getCount(),
+                summary.getMean(), summary.getStandardDeviation(), 100 * summary.getProfitableFraction());
+        System.out.printf("min %.2f at %s=%s, %s=%s%n", summary.getMin(),
+                model.getXName(), axes[0].valueAt(summary.getArgMin() / yAxis.getCount()),
+                model.getYName(), yAxis.valueAt(summary.getArgMin() % yAxis.getCount()));
+        System.out.printf("max %.2f at %s=%s, %s=%s%n", summary.getMax(),
+                model.getXName(), axes[0].valueAt(summary.getArgMax() / yAxis.getCount()),
+                model.getYName(), yAxis.valueAt(summary.getArgMax() % yAxis.getCount()));
+    }
+
+    // Profit of one cell in the selected money mode. Exact profits are whole cents, so their
+    // conversion to dollars prints exactly at two decimals.
+    private double profit(double x, double y) {
+        if (!exact) {
+            return model.evaluate(x, y);
+        }
+        long cents = model.evaluateCents(x, y);
+        if (audit && Money.toCents(model.evaluateAudit(x, y)) != cents) {
+            if (auditMismatches++ < 10) {
+                System.err.printf("Audit mismatch at %s=%s, %s=%s: %s vs %s%n", model.getXName(), x, model.getYName(), y,
+                        Money.format(cents), model.evaluateAudit(x, y).toPlainString());
+            }
+        }
+        return Money.toDollars(cents);
+    }
+
+    private void importCsv() throws IOException {
+        long start = System.nanoTime();
+        long rows = ScenarioFile.importCsv(Path.of(importCsv), Path.of(output));
+        System.err.printf("Imported %d rows in %.2f s%n", rows, (System.nanoTime() - start) / 1e9);
+    }
+
+    // Evaluates every row of the scenario file. Scenario output is written through a mapped file
+    // holding the input columns plus profit; csv and bin output are streamed in row groups.
+    private void evaluateScenarios() throws IOException {
+        long start = System.nanoTime();
+        SweepSummary summary;
+        try (ScenarioFile input = ScenarioFile.open(Path.of(scenarios))) {
+            if (input.findColumn(model.getXName()) == null || input.findColumn(model.getYName()) == null) {
+                throw new IllegalArgumentException("Scenario file needs " + model.getXName() + " and "
+                        + model.getYName() + " columns, found " + String.join(", ", input.getColumnNames()));
+            }
+            if ("a6s".equalsIgnoreCase(format)) {
+                String[] inputNames = input.getColumnNames();
+                String[] names = Arrays.copyOf(inputNames, inputNames.length + 1);
+                names[inputNames.length] = "profit";
+                try (ScenarioFile out = ScenarioFile.create(Path.of(output), names, input.getRowCount())) {
+                    for (int c = 0; c < inputNames.length; c++) {
+                        ScenarioFile.Column from = input.getColumn(c);
+                        ScenarioFile.Column to = out.getColumn(c);
+                        for (long row = 0; row < input.getRowCount(); row++) {
+                            to.set(row, from.get(row));
+                        }
+                    }
+                    summary = ScenarioEvaluator.evaluate(model, input, out.getColumn(inputNames.length),
+                            ComputeExecutor.Progress.NONE);
+                    out.force();
+                }
+            } else {
+                summary = streamScenarios(input);
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.err.printf("Evaluated %d scenarios in %.2f s: mean profit %.2f, min %.2f (row %d), max %.2f (row %d)%n",
+                summary.getCount(), seconds, summary.getMean(), summary.getMin(), summary.getArgMin(),
+                summary.getMax(), summary.getArgMax());
+    }
+
+    private SweepSummary streamScenarios(ScenarioFile input) throws IOException {
+        ScenarioFile.Column xColumn = input.findColumn(model.getXName());
+        ScenarioFile.Column yColumn = input.findColumn(model.getYName());
+        double[] xs = new double[ROW_GROUP];
+        double[] ys = new double[ROW_GROUP];
+        double[] profits = new double[ROW_GROUP];
+        double[][] columns = {xs, ys, profits};
+        SweepSummary summary = new SweepSummary();
+        try (GridResultWriter writer = GridResultWriter.open(output, format,
+                new String[]{model.getXName(), model.getYName(), "profit"})) {
+            for (long row = 0; row < input.getRowCount(); row += ROW_GROUP) {
+                int n = (int) Math.min(ROW_GROUP, input.getRowCount() - row);
+                xColumn.read(row, xs, n);
+                yColumn.read(row, ys, n);
+                for (int i = 0; i < n; i++) {
+                    profits[i] = profit(xs[i], ys[i]);
+                    summary.add(profits[i], row + i);
+                }
+                writer.writeRows(columns, n);
+            }
+        }
+        return summary;
+    }
+}
@@ -0,0 +1,133 @@
+import javax.swing.event.TableModelEvent;
+import javax.swing.table.AbstractTableModel;
+import java.util.function.DoubleBinaryOperator;
+
+// Profit matrix over a row input (first column) and a column input that keeps every profit in a
+// primitive row-major buffer. Changing one row value or one column value recomputes only that row
+// or column and fires an event for just those cells, so editing large matrices never rebuilds the
+// whole table. The row values in the first column can be edited in place. With a row kernel, rows
+// are filled straight into the buffer (vectorized where available) instead of cell by cell.
+// Used on the EDT only.
+public class IncrementalProfitMatrixModel extends AbstractTableModel {
+
+    private final String rowHeader;
+    private final String columnFormat;
+    private final double[] rowValues;
+    private final double[] columnValues;
+    private final double[] profits;
+    private final DoubleBinaryOperator cell;
+    private final GridKernels.RowKernel rowKernel;
+
+    private static final Metrics.Counter CELLS_COMPUTED = Metrics.counter("matrix.cellsComputed");
+
+    public IncrementalProfitMatrixModel(String rowHeader, double[] rowValues, String columnFormat,
+                                        double[] columnValues, DoubleBinaryOperator cell) {
+        this(rowHeader, rowValues, columnFormat, columnValues, cell, null);
+    }
+
+    // The row kernel must agree with the cell function, which is still used for single columns
+    public IncrementalProfitMatrixModel(String rowHeader, double[] rowValues, String columnFormat,
+                                        double[] columnValues, DoubleBinaryOperator cell,
+                                        GridKernels.RowKernel rowKernel) {
+        this.rowHeader = rowHeader;
+        this.columnFormat = columnFormat;
+        this.rowValues = rowValues.clone();
+        this.columnValues = columnValues.clone();
+        this.profits = new double[rowValues.length * columnValues.length];
+        this.cell = cell;
+        this.rowKernel = rowKernel;
+        for (int row = 0; row < rowValues.length; row++) {
+            computeRow(row);
+        }
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowValues.length;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columnValues.length + 1;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return column == 0 ? rowHeader : String.format(columnFormat, columnValues[column - 1]);
+    }
+
+    @Override
+    public Class<?> getColumnClass(int columnIndex) {
+        return columnIndex == 0 ? Integer.class : String.class;
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        if (columnIndex == 0) {
+            return (int) rowValues[rowIndex];
+        }
+        return String.format("%.2f", getProfit(rowIndex, columnIndex - 1));
+    }
+
+    @Override
+    public boolean isCellEditable(int rowIndex, int columnIndex) {
+        return columnIndex == 0;
+    }
+
+    @Override
+    public void setValueAt(Object value, int rowIndex, int columnIndex) {
+        if (columnIndex == 0 && value instanceof Number) {
+            setRowValue(rowIndex, ((Number) value).doubleValue());
+        }
+    }
+
+    public double getProfit(int row, int column) {
+        return profits[row * columnValues.length + column];
+    }
+
+    public double getColumnValue(int column) {
+        return columnValues[column];
+    }
+
+    public int getMatrixColumnCount() {
+        return columnValues.length;
+    }
+
+    // Changes one row input; only that row is recomputed and repainted
+    public void setRowValue(int row, double value) {
+        if (rowValues[row] == value) {
+            return;
+        }
+        rowValues[row] = value;
+        computeRow(row);
+        fireTableRowsUpdated(row, row);
+    }
+
+    // Changes one column input; only that column is recomputed and repainted.
+    // The caller refreshes the column header, since the header text comes from getColumnName.
+    public void setColumnValue(int column, double value) {
+        if (columnValues[column] == value) {
+            return;
+        }
+        columnValues[column] = value;
+        int stride = columnValues.length;
+        for (int row = 0; row < rowValues.length; row++) {
+            profits[row * stride + column] = cell.applyAsDouble(rowValues[row], value);
+        }
+        CELLS_COMPUTED.add(rowValues.length);
+        fireTableChanged(new TableModelEvent(this, 0, rowValues.length - 1, column + 1));
+    }
+
+    private void computeRow(int row) {
+        int offset = row * columnValues.length;
+        double rowValue = rowValues[row];
+        if (rowKernel != null) {
+            rowKernel.fillRow(rowValue, columnValues, profits, offset);
+        } else {
+            for (int column = 0; column < columnValues.length; column++) {
+                profits[offset + column] = cell.applyAsDouble(rowValue, columnValues[column]);
+            }
+        }
+        CELLS_COMPUTED.add(columnValues.length);
+    }
+}
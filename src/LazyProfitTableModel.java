@@ -0,0 +1,141 @@
+import javax.swing.table.AbstractTableModel;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.DoubleBinaryOperator;
+
+// Table model for a profit matrix over two evenly spaced axes that computes cells on demand.
+// Nothing is stored per cell: JTable only asks for the visible rows, and the formatted strings of
+// recently painted cells are kept in a small LRU so scrolling back and forth doesn't reformat them.
+// With a row kernel, asking for one cell computes its whole row into a primitive buffer, and the
+// most recent rows are kept, so a screenful of cells costs a few row fills instead of a call per
+// cell. The kept rows are bounded by cells, not just by count, so wide grids keep fewer of them.
+// The first column holds the row axis values. Used on the EDT only.
+public class LazyProfitTableModel extends AbstractTableModel {
+
+    // Formatted cells kept per model
+    public static final int CACHE_SIZE = 4096;
+
+    // Computed rows kept per model (at most ROW_CACHE_CELLS cells, 8 MB, in all), and the widest
+    // grid that is computed by rows
+    private static final int ROW_CACHE_SIZE = 128;
+    private static final int ROW_CACHE_CELLS = 1 << 20;
+    private static final int MAX_ROW_COLUMNS = 1 << 16;
+
+    private final String rowHeader;
+    private final GridAxis rowAxis;
+    private final String rowFormat;
+    private final GridAxis columnAxis;
+    private final String columnFormat;
+    private final String cellFormat;
+    private final DoubleBinaryOperator cell;
+    private final GridKernels.RowKernel rowKernel;
+    private final double[] columnValues;
+    private final int rowCacheSize;
+
+    private static final Metrics.Counter CELLS_FORMATTED = Metrics.counter("lazyTable.cellsFormatted");
+    private static final Metrics.Counter ROWS_COMPUTED = Metrics.counter("lazyTable.rowsComputed");
+
+    private final Map<Integer, double[]> computedRows = new LinkedHashMap<Integer, double[]>(ROW_CACHE_SIZE * 4 / 3, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, double[]> eldest) {
+            return size() > rowCacheSize;
+        }
+    };
+
+    private final Map<Long, String> formattedCells = new LinkedHashMap<Long, String>(CACHE_SIZE * 4 / 3, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, String> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    public LazyProfitTableModel(String rowHeader, GridAxis rowAxis, String rowFormat,
+                                GridAxis columnAxis, String columnFormat,
+                                String cellFormat, DoubleBinaryOperator cell) {
+        this(rowHeader, rowAxis, rowFormat, columnAxis, columnFormat, cellFormat, cell, null);
+    }
+
+    // The row kernel must agree with the cell function, which is still used for very wide grids
+    public LazyProfitTableModel(String rowHeader, GridAxis rowAxis, String rowFormat,
+                                GridAxis columnAxis, String columnFormat,
+                                String cellFormat, DoubleBinaryOperator cell, GridKernels.RowKernel rowKernel) {
+        if (rowAxis.getCount() > Integer.MAX_VALUE || columnAxis.getCount() >= Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Grid is too large for a table");
+        }
+        this.rowHeader = rowHeader;
+        this.rowAxis = rowAxis;
+        this.rowFormat = rowFormat;
+        this.columnAxis = columnAxis;
+        this.columnFormat = columnFormat;
+        this.cellFormat = cellFormat;
+        this.cell = cell;
+        if (rowKernel != null && columnAxis.getCount() <= MAX_ROW_COLUMNS) {
+            this.rowKernel = rowKernel;
+            this.columnValues = new double[(int) columnAxis.getCount()];
+            for (int j = 0; j < columnValues.length; j++) {
+                columnValues[j] = columnAxis.valueAt(j);
+            }
+        } else {
+            this.rowKernel = null;
+            this.columnValues = null;
+        }
+        this.rowCacheSize = rowsKept(columnAxis);
+    }
+
+    // Upper bound on what a model over these columns holds, in cells, for weighting it in ScenarioCache
+    public static long cacheWeight(GridAxis columnAxis) {
+        return CACHE_SIZE + (long) rowsKept(columnAxis) * columnAxis.getCount();
+    }
+
+    private static int rowsKept(GridAxis columnAxis) {
+        if (columnAxis.getCount() > MAX_ROW_COLUMNS) {
+            return 0;
+        }
+        return (int) Math.max(2, Math.min(ROW_CACHE_SIZE, ROW_CACHE_CELLS / columnAxis.getCount()));
+    }
+
+    @Override
+    public int getRowCount() {
+        return (int) rowAxis.getCount();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return (int) columnAxis.getCount() + 1;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return column == 0 ? rowHeader : String.format(columnFormat, columnAxis.valueAt(column - 1));
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        if (columnIndex == 0) {
+            return String.format(rowFormat, rowAxis.valueAt(rowIndex));
+        }
+        long key = (long) rowIndex * getColumnCount() + columnIndex;
+        String text = formattedCells.get(key);
+        if (text == null) {
+            text = String.format(cellFormat, getProfitAt(rowIndex, columnIndex - 1));
+            formattedCells.put(key, text);
+            CELLS_FORMATTED.increment();
+        }
+        return text;
+    }
+
+    // Raw profit of a grid cell (column index without the header column)
+    public double getProfitAt(int rowIndex, int gridColumn) {
+        if (rowKernel == null) {
+            return cell.applyAsDouble(rowAxis.valueAt(rowIndex), columnAxis.valueAt(gridColumn));
+        }
+        double[] row = computedRows.get(rowIndex);
+        if (row == null) {
+            row = new double[columnValues.length];
+            rowKernel.fillRow(rowAxis.valueAt(rowIndex), columnValues, row, 0);
+            computedRows.put(rowIndex, row);
+            ROWS_COMPUTED.increment();
+        }
+        return row[gridColumn];
+    }
+}
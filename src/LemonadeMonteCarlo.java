@@ -0,0 +1,513 @@
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+public class LemonadeMonteCarlo {
+
+    // Distribution families available for the stochastic inputs.
+    // Every family is described by a center and a spread so the UI can stay uniform:
+    // NORMAL = mean / standard deviation, UNIFORM = midpoint / half-width,
+    // TRIANGULAR = mode / half-width (symmetric).
+    public enum Distribution {
+        NORMAL, UNIFORM, TRIANGULAR;
+
+        double sample(SplittableRandom random, double center, double spread) {
+            switch (this) {
+                case NORMAL:
+                    return center + spread * random.nextGaussian();
+                case UNIFORM:
+                    return center + spread * (2.0 * random.nextDouble() - 1.0);
+                default:
+                    // Sum of two uniforms gives a symmetric triangular distribution
+                    return center + spread * (random.nextDouble() + random.nextDouble() - 1.0);
+            }
+        }
+
+        // Inverse CDF: the value that a fraction u (0 < u < 1) of the samples falls below. Drives the
+        // variance-reduced estimators, which place u themselves instead of drawing it.
+        double quantile(double u, double center, double spread) {
+            switch (this) {
+                case NORMAL:
+                    return center + spread * inverseNormalCdf(u);
+                case UNIFORM:
+                    return center + spread * (2.0 * u - 1.0);
+                default:
+                    return center + spread * (u < 0.5 ? Math.sqrt(2.0 * u) - 1.0 : 1.0 - Math.sqrt(2.0 * (1.0 - u)));
+            }
+        }
+
+        // Standard normal quantile by Acklam's rational approximation (relative error below 1.2e-9):
+        // a central rational function and a tail one in sqrt(-2 log p)
+        public static double inverseNormalCdf(double p) {
+            if (p <= 0 || p >= 1) {
+                return p == 0 ? Double.NEGATIVE_INFINITY : p == 1 ? Double.POSITIVE_INFINITY : Double.NaN;
+            }
+            if (p < NORMAL_TAIL) {
+                double q = Math.sqrt(-2 * Math.log(p));
+                return (((((C[0] * q + C[1]) * q + C[2]) * q + C[3]) * q + C[4]) * q + C[5])
+                        / ((((D[0] * q + D[1]) * q + D[2]) * q + D[3]) * q + 1);
+            }
+            if (p > 1 - NORMAL_TAIL) {
+                return -inverseNormalCdf(1 - p);
+            }
+            double q = p - 0.5;
+            double r = q * q;
+            return (((((A[0] * r + A[1]) * r + A[2]) * r + A[3]) * r + A[4]) * r + A[5]) * q
+                    / (((((B[0] * r + B[1]) * r + B[2]) * r + B[3]) * r + B[4]) * r + 1);
+        }
+
+        // Lower and upper bounds that hold (practically) all samples, used to size the histogram
+        double lowerBound(double center, double spread) {
+            return this == NORMAL ? center - 6 * spread : center - spread;
+        }
+
+        double upperBound(double center, double spread) {
+            return this == NORMAL ? center + 6 * spread : center + spread;
+        }
+    }
+
+    // Coefficients of the inverse normal CDF approximation
+    private static final double NORMAL_TAIL = 0.02425;
+    private static final double[] A = {-3.969683028665376e+01, 2.209460984245205e+02, -2.759285104469687e+02,
+            1.383577518672690e+02, -3.066479806614716e+01, 2.506628277459239e+00};
+    private static final double[] B = {-5.447609879822406e+01, 1.615858368580409e+02, -1.556989798598866e+02,
+            6.680131188771972e+01, -1.328068155288572e+01};
+    private static final double[] C = {-7.784894002430293e-03, -3.223964580411365e-01, -2.400758277161838e+00,
+            -2.549732539343734e+00, 4.374664141464968e+00, 2.938163982698783e+00};
+    private static final double[] D = {7.784695709041462e-03, 3.224671290700398e-01, 2.445134137142996e+00,
+            3.754408661907416e+00};
+
+    // Trials per chunk (a fork/join task and a log record) and per cancellation check
+    private static final long CHUNK_MIN_TRIALS = 1 << 18;
+    private static final long CHUNK_MAX_TRIALS = 1 << 22;
+    private static final int TARGET_CHUNKS = 64;
+    private static final int BLOCK_TRIALS = 1 << 14;
+    private static final int HISTOGRAM_BINS = 8192;
+
+    private final double pricePerCup;
+    private final double fixedCost;
+    private final Distribution volumeDistribution;
+    private final double volumeCenter, volumeSpread;
+    private final Distribution costDistribution;
+    private final double costCenter, costSpread;
+
+    // Histogram range for the profit, derived from the input bounds
+    private final double histogramMin, histogramMax, binWidth;
+
+    // State of the current run
+    private final AtomicLong completedTrials = new AtomicLong();
+    private long totalTrials;
+    private ComputeExecutor.Progress progress = ComputeExecutor.Progress.NONE;
+    private volatile boolean cancelled;
+
+    public LemonadeMonteCarlo(double pricePerCup, double fixedCost,
+                              Distribution volumeDistribution, double volumeCenter, double volumeSpread,
+                              Distribution costDistribution, double costCenter, double costSpread) {
+        this.pricePerCup = pricePerCup;
+        this.fixedCost = fixedCost;
+        this.volumeDistribution = volumeDistribution;
+        this.volumeCenter = volumeCenter;
+        this.volumeSpread = volumeSpread;
+        this.costDistribution = costDistribution;
+        this.costCenter = costCenter;
+        this.costSpread = costSpread;
+
+        // Profit is bilinear in (volume, cost), so its extremes sit on the corners of the input box
+        double vLow = Math.max(0, volumeDistribution.lowerBound(volumeCenter, volumeSpread));
+        double vHigh = Math.max(0, volumeDistribution.upperBound(volumeCenter, volumeSpread));
+        double cLow = Math.max(0, costDistribution.lowerBound(costCenter, costSpread));
+        double cHigh = Math.max(0, costDistribution.upperBound(costCenter, costSpread));
+        double p1 = profit(vLow, cLow), p2 = profit(vLow, cHigh), p3 = profit(vHigh, cLow), p4 = profit(vHigh, cHigh);
+        double low = Math.min(Math.min(p1, p2), Math.min(p3, p4));
+        double high = Math.max(Math.max(p1, p2), Math.max(p3, p4));
+        if (high <= low) {
+            high = low + 1;
+        }
+        histogramMin = low;
+        histogramMax = high;
+        binWidth = (high - low) / HISTOGRAM_BINS;
+    }
+
+    // Runs the given number of trials on the common fork/join pool.
+    // Returns null if the run was cancelled before it finished.
+    public Result run(long trials, long seed, ComputeExecutor.Progress progress) {
+        try {
+            return run(trials, seed, progress, null);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    // Everything besides the seed that determines the result; a log only resumes a run with the same key
+    public String getRunKey(long trials) {
+        return String.format("lemonade-monte-carlo price=%s fixed=%s volume=%s:%s:%s cost=%s:%s:%s trials=%d chunk=%d",
+                pricePerCup, fixedCost, volumeDistribution, volumeCenter, volumeSpread,
+                costDistribution, costCenter, costSpread, trials, chunkTrials(trials));
+    }
+
+    // As run, recording every finished chunk in the log (opened with getRunKey) and resuming from
+    // what it already holds. A resumed run keeps the seed it was started with.
+    public Result run(long trials, long seed, ComputeExecutor.Progress progress, ResultLog log) throws IOException {
+        this.progress = progress;
+        this.totalTrials = trials;
+        cancelled = false;
+        long start = System.nanoTime();
+        ChunkedRun run = new ChunkedRun(trials, log);
+        if (run.restore(seed)) {
+            return new Result(run.merged, System.nanoTime() - start, trials);
+        }
+        completedTrials.set(run.resumedTrials);
+        int[] pending = run.pendingChunks();
+        IntStream.of(pending).parallel().forEach(run::runChunk);
+        if (run.logFailure != null) {
+            throw run.logFailure;
+        }
+        if (cancelled) {
+            return null;
+        }
+        if (log != null) {
+            log.append(ResultLog.COMPLETE, run.chunkCount, run.merged::writeTo);
+        }
+        return new Result(run.merged, System.nanoTime() - start, run.resumedTrials);
+    }
+
+    // Fixed for a given trial count, so the chunking and with it the result depend only on the seed
+    private static long chunkTrials(long trials) {
+        return Math.max(CHUNK_MIN_TRIALS, Math.min(CHUNK_MAX_TRIALS, trials / TARGET_CHUNKS));
+    }
+
+    // The same model for the variance-reduced estimators: u[0] drives the sales volume and u[1] the
+    // variable cost. The control is the profit before clipping the inputs at zero; since volume and
+    // cost are independent and centered, its mean is exactly the deterministic profit at the centers.
+    public VarianceReduction.Problem asProblem() {
+        return new VarianceReduction.Problem() {
+            @Override
+            public int getDimension() {
+                return 2;
+            }
+
+            @Override
+            public double profit(double[] u) {
+                return LemonadeMonteCarlo.this.profit(
+                        Math.max(0, volumeDistribution.quantile(u[0], volumeCenter, volumeSpread)),
+                        Math.max(0, costDistribution.quantile(u[1], costCenter, costSpread)));
+            }
+
+            @Override
+            public double control(double[] u) {
+                return LemonadeMonteCarlo.this.profit(volumeDistribution.quantile(u[0], volumeCenter, volumeSpread),
+                        costDistribution.quantile(u[1], costCenter, costSpread));
+            }
+
+            @Override
+            public double getControlMean() {
+                return LemonadeMonteCarlo.this.profit(volumeCenter, costCenter);
+            }
+        };
+    }
+
+    private double profit(double salesVolume, double variableCost) {
+        return LemonadeStandModel.profit(salesVolume, variableCost, pricePerCup, fixedCost);
+    }
+
+    // One run cut into chunks of chunkTrials(trials). Chunk c draws from the c-th split of the
+    // seed's generator, so its samples do not depend on which thread runs it or when; the seed
+    // plus the set of finished chunks is the whole random state a checkpoint needs. Finished
+    // chunks are merged in chunk order, which makes a resumed run identical to an uninterrupted one.
+    private class ChunkedRun {
+        final long trials;
+        final long chunkTrials;
+        final int chunkCount;
+        final ResultLog log;
+        final Accumulator merged = new Accumulator();
+        Accumulator[] partials;
+        SplittableRandom[] randoms;
+        int nextToMerge;
+        long resumedTrials;
+        IOException logFailure;
+
+        ChunkedRun(long trials, ResultLog log) {
+            this.trials = trials;
+            this.chunkTrials = chunkTrials(trials);
+            this.chunkCount = Math.toIntExact((trials + chunkTrials - 1) / chunkTrials);
+            this.log = log;
+            this.partials = new Accumulator[chunkCount];
+        }
+
+        // Loads the log's seed, checkpoint and chunks; true when the logged run had already finished
+        boolean restore(long seed) throws IOException {
+            if (log != null) {
+                ResultLog.Record done = log.findLast(ResultLog.COMPLETE);
+                if (done != null) {
+                    merged.readFrom(done.open());
+                    resumedTrials = trials;
+                    return true;
+                }
+                ResultLog.Record started = log.findLast(ResultLog.START);
+                if (started != null) {
+                    seed = started.open().readLong();
+                } else {
+                    long startSeed = seed;
+                    log.append(ResultLog.START, 0, out -> out.writeLong(startSeed));
+                }
+                for (ResultLog.Record record : log.getReplayedRecords()) {
+                    if (record.getType() == ResultLog.CHECKPOINT) {
+                        DataInputStream in = record.open();
+                        nextToMerge = in.readInt();
+                        merged.readFrom(in);
+                        int pending = in.readInt();
+                        for (int i = 0; i < pending; i++) {
+                            int chunk = in.readInt();
+                            partials[chunk] = new Accumulator();
+                            partials[chunk].readFrom(in);
+                        }
+                    } else if (record.getType() == ResultLog.CHUNK && record.getIndex() >= nextToMerge) {
+                        int chunk = (int) record.getIndex();
+                        partials[chunk] = new Accumulator();
+                        partials[chunk].readFrom(record.open());
+                    }
+                }
+                mergePrefix();
+                resumedTrials = merged.count;
+                for (Accumulator partial : partials) {
+                    resumedTrials += partial == null ? 0 : partial.count;
+                }
+            }
+            SplittableRandom root = new SplittableRandom(seed);
+            randoms = new SplittableRandom[chunkCount];
+            for (int c = 0; c < chunkCount; c++) {
+                randoms[c] = root.split();
+            }
+            return false;
+        }
+
+        int[] pendingChunks() {
+            return IntStream.range(nextToMerge, chunkCount).filter(c -> partials[c] == null).toArray();
+        }
+
+        void runChunk(int chunk) {
+            SplittableRandom random = randoms[chunk];
+            Accumulator acc = new Accumulator();
+            long remaining = Math.min(chunkTrials, trials - chunk * chunkTrials);
+            while (remaining > 0) {
+                if (checkCancelled()) {
+                    return;
+                }
+                int block = (int) Math.min(BLOCK_TRIALS, remaining);
+                for (int i = 0; i < block; i++) {
+                    double volume = Math.max(0, volumeDistribution.sample(random, volumeCenter, volumeSpread));
+                    double cost = Math.max(0, costDistribution.sample(random, costCenter, costSpread));
+                    acc.add(profit(volume, cost));
+                }
+                remaining -= block;
+                progress.update((double) completedTrials.addAndGet(block) / totalTrials);
+            }
+            complete(chunk, acc);
+        }
+
+        synchronized void complete(int chunk, Accumulator acc) {
+            partials[chunk] = acc;
+            mergePrefix();
+            if (log == null || logFailure != null) {
+                return;
+            }
+            try {
+                log.append(ResultLog.CHUNK, chunk, acc::writeTo);
+                if (log.isCheckpointDue()) {
+                    log.append(ResultLog.CHECKPOINT, nextToMerge, this::writeCheckpoint);
+                }
+            } catch (IOException ex) {
+                // Stop the run rather than compute chunks that could not be saved
+                logFailure = ex;
+                cancelled = true;
+            }
+        }
+
+        // The merged prefix plus the finished chunks beyond it, which the checkpoint replaces
+        private void writeCheckpoint(DataOutput out) throws IOException {
+            out.writeInt(nextToMerge);
+            merged.writeTo(out);
+            int pending = 0;
+            for (int c = nextToMerge; c < chunkCount; c++) {
+                pending += partials[c] != null ? 1 : 0;
+            }
+            out.writeInt(pending);
+            for (int c = nextToMerge; c < chunkCount; c++) {
+                if (partials[c] != null) {
+                    out.writeInt(c);
+                    partials[c].writeTo(out);
+                }
+            }
+        }
+
+        private void mergePrefix() {
+            while (nextToMerge < chunkCount && partials[nextToMerge] != null) {
+                merged.merge(partials[nextToMerge]);
+                partials[nextToMerge++] = null;
+            }
+        }
+
+        private boolean checkCancelled() {
+            if (!cancelled && progress.isCancelled()) {
+                cancelled = true;
+            }
+            return cancelled;
+        }
+    }
+
+    // Streaming statistics for one chunk: Welford mean/variance, loss count, extremes and a fixed histogram
+    private class Accumulator {
+        long count;
+        double mean;
+        double m2;
+        long losses;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        final long[] histogram = new long[HISTOGRAM_BINS];
+
+        void add(double profit) {
+            count++;
+            double delta = profit - mean;
+            mean += delta / count;
+            m2 += delta * (profit - mean);
+            if (profit < 0) {
+                losses++;
+            }
+            if (profit < min) {
+                min = profit;
+            }
+            if (profit > max) {
+                max = profit;
+            }
+            int bin = (int) ((profit - histogramMin) / binWidth);
+            histogram[Math.max(0, Math.min(HISTOGRAM_BINS - 1, bin))]++;
+        }
+
+        // Statistics as they are, then the histogram as (gap from the previous filled bin, count)
+        // pairs of variable-length numbers, since most of a chunk's bins are empty or small
+        void writeTo(DataOutput out) throws IOException {
+            out.writeLong(count);
+            out.writeDouble(mean);
+            out.writeDouble(m2);
+            out.writeLong(losses);
+            out.writeDouble(min);
+            out.writeDouble(max);
+            int filled = 0;
+            for (long bin : histogram) {
+                filled += bin != 0 ? 1 : 0;
+            }
+            ResultLog.writeVarLong(out, filled);
+            int previous = 0;
+            for (int i = 0; i < HISTOGRAM_BINS; i++) {
+                if (histogram[i] != 0) {
+                    ResultLog.writeVarLong(out, i - previous);
+                    ResultLog.writeVarLong(out, histogram[i]);
+                    previous = i;
+                }
+            }
+        }
+
+        void readFrom(DataInput in) throws IOException {
+            count = in.readLong();
+            mean = in.readDouble();
+            m2 = in.readDouble();
+            losses = in.readLong();
+            min = in.readDouble();
+            max = in.readDouble();
+            long filled = ResultLog.readVarLong(in);
+            int bin = 0;
+            for (long i = 0; i < filled; i++) {
+                bin += (int) ResultLog.readVarLong(in);
+                if (bin >= HISTOGRAM_BINS) {
+                    throw new IOException("Histogram bin out of range");
+                }
+                histogram[bin] = ResultLog.readVarLong(in);
+            }
+        }
+
+        // Chan et al. parallel combination of two partial results
+        void merge(Accumulator other) {
+            if (other.count == 0) {
+                return;
+            }
+            long n = count + other.count;
+            double delta = other.mean - mean;
+            mean += delta * other.count / n;
+            m2 += other.m2 + delta * delta * count * other.count / n;
+            count = n;
+            losses += other.losses;
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+            for (int i = 0; i < HISTOGRAM_BINS; i++) {
+                histogram[i] += other.histogram[i];
+            }
+        }
+    }
+
+    // Summary of a finished run
+    public class Result {
+        private final Accumulator acc;
+        private final long elapsedNanos;
+        private final long resumedTrials;
+
+        private Result(Accumulator acc, long elapsedNanos, long resumedTrials) {
+            this.acc = acc;
+            this.elapsedNanos = elapsedNanos;
+            this.resumedTrials = resumedTrials;
+        }
+
+        public long getTrials() {
+            return acc.count;
+        }
+
+        public double getMean() {
+            return acc.mean;
+        }
+
+        public double getStandardDeviation() {
+            return acc.count > 1 ? Math.sqrt(acc.m2 / (acc.count - 1)) : 0.0;
+        }
+
+        public double getMin() {
+            return acc.min;
+        }
+
+        public double getMax() {
+            return acc.max;
+        }
+
+        public double getLossProbability() {
+            return acc.count == 0 ? 0.0 : (double) acc.losses / acc.count;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        // Trials that came from a result log instead of being run in this call
+        public long getResumedTrials() {
+            return resumedTrials;
+        }
+
+        // Percentile (0..100) interpolated inside the histogram bin, clamped to the observed range
+        public double getPercentile(double percentile) {
+            double target = percentile / 100.0 * acc.count;
+            long seen = 0;
+            for (int i = 0; i < HISTOGRAM_BINS; i++) {
+                long inBin = acc.histogram[i];
+                if (inBin > 0 && seen + inBin >= target) {
+                    double fraction = (target - seen) / inBin;
+                    double value = histogramMin + (i + fraction) * binWidth;
+                    return Math.max(acc.min, Math.min(acc.max, value));
+                }
+                seen += inBin;
+            }
+            return acc.max;
+        }
+    }
+}
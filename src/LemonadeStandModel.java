@@ -0,0 +1,111 @@
+import java.math.BigDecimal;
+
+// Profit model of the lemonade stand, free of any UI code.
+// All functions are pure and work on primitives; the array overloads evaluate whole
+// batches in tight loops that the JIT can unroll and vectorize.
+public final class LemonadeStandModel {
+
+    public static final double FIXED_COST = 50.00;  // Fixed cost per week
+    public static final double PRICE_PER_CUP = 0.50;  // Price per cup
+    public static final double DEFAULT_VARIABLE_COST = 0.20;  // Default variable cost
+
+    // The same constants in whole cents, for the exact-money functions
+    public static final long FIXED_COST_CENTS = 5_000;
+    public static final long PRICE_PER_CUP_CENTS = 50;
+
+    private LemonadeStandModel() {
+    }
+
+    public static double revenue(double salesVolume) {
+        return salesVolume * PRICE_PER_CUP;
+    }
+
+    public static double totalVariableCost(double salesVolume, double variableCost) {
+        return salesVolume * variableCost;
+    }
+
+    public static double totalCost(double salesVolume, double variableCost) {
+        return FIXED_COST + totalVariableCost(salesVolume, variableCost);
+    }
+
+    // Profit for a specific sales volume and variable cost
+    public static double profit(double salesVolume, double variableCost) {
+        return profit(salesVolume, variableCost, PRICE_PER_CUP, FIXED_COST);
+    }
+
+    // Profit with every parameter explicit. Evaluated as (revenue - fixed cost) - variable cost, the
+    // same order as the row kernel (intercept + slope * cost), so the matrix rows, single cells and
+    // the array overloads give bit-identical results.
+    public static double profit(double salesVolume, double variableCost, double pricePerCup, double fixedCost) {
+        double revenueLessFixed = salesVolume * pricePerCup - fixedCost;
+        return revenueLessFixed - salesVolume * variableCost;
+    }
+
+    // Sales volume (in fractional cups) at which profit reaches the target, NaN if the margin is not positive
+    public static double volumeForProfit(double targetProfit, double variableCost) {
+        double margin = PRICE_PER_CUP - variableCost;
+        return margin > 0 ? BreakEvenSolver.linear(margin, -FIXED_COST, targetProfit) : Double.NaN;
+    }
+
+    // Variable cost per cup at which the given sales volume earns exactly the target profit
+    public static double variableCostForProfit(double targetProfit, double salesVolume) {
+        return BreakEvenSolver.linear(-salesVolume, salesVolume * PRICE_PER_CUP - FIXED_COST, targetProfit);
+    }
+
+    // Exact profit in cents for whole cups and a variable cost in whole cents per cup
+    public static long profitCents(long salesVolume, long variableCostCents) {
+        return Math.multiplyExact(salesVolume, PRICE_PER_CUP_CENTS - variableCostCents) - FIXED_COST_CENTS;
+    }
+
+    // BigDecimal reference for profitCents, used to audit the fixed-point path
+    public static BigDecimal profitAudit(long salesVolume, long variableCostCents) {
+        BigDecimal cups = BigDecimal.valueOf(salesVolume);
+        BigDecimal revenue = cups.multiply(Money.toBigDecimal(PRICE_PER_CUP_CENTS));
+        BigDecimal totalCost = Money.toBigDecimal(FIXED_COST_CENTS).add(cups.multiply(Money.toBigDecimal(variableCostCents)));
+        return revenue.subtract(totalCost);
+    }
+
+    // out[j] = profitCents(salesVolume, variableCostsCents[j]), one row of the volume x cost matrix
+    public static void profitCentsRow(long salesVolume, long[] variableCostsCents, long[] out) {
+        profitCentsRow(salesVolume, variableCostsCents, Money.maxAbs(variableCostsCents), out);
+    }
+
+    // Same row with the largest |cost| given, so a matrix finds it once. Overflow is then ruled out
+    // once for the row; only a row that may overflow is checked per cell.
+    public static void profitCentsRow(long salesVolume, long[] variableCostsCents, long maxAbsCostCents, long[] out) {
+        long revenueLessFixed = Math.subtractExact(Math.multiplyExact(salesVolume, PRICE_PER_CUP_CENTS), FIXED_COST_CENTS);
+        if (Money.fitsAffine(revenueLessFixed, salesVolume, maxAbsCostCents)) {
+            for (int j = 0; j < variableCostsCents.length; j++) {
+                out[j] = revenueLessFixed - salesVolume * variableCostsCents[j];
+            }
+            return;
+        }
+        for (int j = 0; j < variableCostsCents.length; j++) {
+            out[j] = Math.subtractExact(revenueLessFixed, Math.multiplyExact(salesVolume, variableCostsCents[j]));
+        }
+    }
+
+    // out[i] = profit(salesVolumes[i], variableCost)
+    public static void profit(double[] salesVolumes, double variableCost, double[] out) {
+        for (int i = 0; i < salesVolumes.length; i++) {
+            out[i] = (salesVolumes[i] * PRICE_PER_CUP - FIXED_COST) - salesVolumes[i] * variableCost;
+        }
+    }
+
+    // out[j] = profit(salesVolume, variableCosts[j]), one row of the volume x cost matrix
+    public static void profitRow(double salesVolume, double[] variableCosts, double[] out) {
+        profitRow(salesVolume, variableCosts, out, 0);
+    }
+
+    // Same row written to out[offset + j], e.g. straight into a row-major matrix buffer
+    public static void profitRow(double salesVolume, double[] variableCosts, double[] out, int offset) {
+        GridKernels.affineRow(salesVolume * PRICE_PER_CUP - FIXED_COST, -salesVolume, variableCosts, out, offset);
+    }
+
+    // out[i] = profit(salesVolumes[i], variableCosts[i]), element-wise over paired inputs
+    public static void profit(double[] salesVolumes, double[] variableCosts, double[] out) {
+        for (int i = 0; i < salesVolumes.length; i++) {
+            out[i] = (salesVolumes[i] * PRICE_PER_CUP - FIXED_COST) - salesVolumes[i] * variableCosts[i];
+        }
+    }
+}
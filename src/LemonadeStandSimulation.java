@@ -1,8 +1,11 @@
 import javax.swing.*;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.io.IOException;
+import java.nio.file.Path;
 
 public class LemonadeStandSimulation extends JPanel {
     // UI components for manual input and result display
@@ -13,14 +16,25 @@ public class LemonadeStandSimulation extends JPanel {
     // UI components for tables
     private JTable profitTable, profitMatrixTable;
     private JButton calculateProfitBtn, resetBtn;
+    private IncrementalProfitMatrixModel profitMatrixModel;
 
-    // Constants
-    private final double fixedCost = 50.00;  // Fixed cost per week
-    private final double pricePerCup = 0.50;  // Price per cup
-    private final double defaultVariableCost = 0.20;  // Default variable cost
+    // UI components for the Monte Carlo tab
+    private JTextField trialsField, volumeCenterField, volumeSpreadField, costCenterField, costSpreadField;
+    private JComboBox<LemonadeMonteCarlo.Distribution> volumeDistributionBox, costDistributionBox;
+    private JComboBox<VarianceReduction.Method> samplingMethodBox;
+    private JTextArea monteCarloResultArea;
+
+    // Inputs for the tables
     private final int[] salesVolumes = {100, 150, 200, 250, 300, 350, 400, 450, 500}; // Sales volumes array
     private final double[] variableCosts = {0.10, 0.15, 0.20, 0.25, 0.30, 0.35, 0.40, 0.45}; // Variable costs array
 
+    // Timings shown in the diagnostics tab
+    private static final Metrics.Timer CALCULATE_PROFIT_TIMER = Metrics.timer("lemonade.calculateProfit");
+    private static final Metrics.Timer PROFIT_TABLE_TIMER = Metrics.timer("lemonade.profitTable");
+    private static final Metrics.Timer PROFIT_TABLE_FILL_TIMER = Metrics.timer("lemonade.profitTable.fill");
+    private static final Metrics.Timer MATRIX_COLUMN_TIMER = Metrics.timer("lemonade.matrix.updateColumn");
+    private static final Metrics.Timer MONTE_CARLO_TIMER = Metrics.timer("lemonade.monteCarlo");
+
     public LemonadeStandSimulation() {
         setSize(900, 500);
         setLayout(new BorderLayout());
@@ -37,6 +51,9 @@ public class LemonadeStandSimulation extends JPanel {
         // Add the profit matrix table tab
         tabbedPane.addTab("Sales Volume and Var. Cost Matrix", createProfitMatrixPanel());
 
+        // Add the Monte Carlo tab
+        tabbedPane.addTab("Monte Carlo", createMonteCarloPanel());
+
         add(tabbedPane, BorderLayout.CENTER);
     }
 
@@ -50,7 +67,7 @@ public class LemonadeStandSimulation extends JPanel {
         formPanel.add(salesVolumeField);
 
         formPanel.add(new JLabel("Variable Cost per Cup (Bs):"));
-        variableCostField = new JTextField(String.valueOf(defaultVariableCost));
+        variableCostField = new JTextField(String.valueOf(LemonadeStandModel.DEFAULT_VARIABLE_COST));
         formPanel.add(variableCostField);
 
         JButton calculateButton = new JButton("Calculate Profit");
@@ -89,7 +106,7 @@ public class LemonadeStandSimulation extends JPanel {
         for (int salesVolume : salesVolumes) {
             Object[] row = new Object[2];
             row[0] = salesVolume;
-            row[1] = String.format("%.2f", calculateProfit(salesVolume, 0.20));  // Using default variable cost (0.20)
+            row[1] = String.format("%.2f", LemonadeStandModel.profit(salesVolume, LemonadeStandModel.DEFAULT_VARIABLE_COST));
             tableModel.addRow(row);
         }
 
@@ -104,11 +121,16 @@ public class LemonadeStandSimulation extends JPanel {
         buttonsPanel.add(calculateProfitBtn);
         buttonsPanel.add(resetBtn);
 
+        // Real sales history: evaluate every row of a scenario file (salesVolume, variableCost columns)
+        JButton loadScenariosBtn = new JButton("Evaluate Scenario File...");
+        loadScenariosBtn.addActionListener(e -> evaluateScenarioFile());
+        buttonsPanel.add(loadScenariosBtn);
+
         // Add action listener for recalculating profits
         calculateProfitBtn.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                recalculateProfits(0.20); // Recalculate with the default variable cost
+                recalculateProfits(LemonadeStandModel.DEFAULT_VARIABLE_COST);
             }
         });
 
@@ -131,51 +153,354 @@ public class LemonadeStandSimulation extends JPanel {
     private JPanel createProfitMatrixPanel() {
         JPanel panel = new JPanel(new BorderLayout());
 
-        // Matrix table
-        DefaultTableModel matrixTableModel = new DefaultTableModel();
-        matrixTableModel.addColumn("Sales Volume / Var Cost");
+        // Matrix table: sales volumes (editable first column) x variable costs
+        double[] volumes = new double[salesVolumes.length];
+        for (int i = 0; i < salesVolumes.length; i++) {
+            volumes[i] = salesVolumes[i];
+        }
+        profitMatrixModel = new IncrementalProfitMatrixModel("Sales Volume / Var Cost", volumes, "%.2f",
+                variableCosts, LemonadeStandModel::profit, LemonadeStandModel::profitRow);
+
+        // Create the JTable and add it to a JScrollPane
+        profitMatrixTable = new JTable(profitMatrixModel);
+        JScrollPane scrollPane = new JScrollPane(profitMatrixTable);
 
-        // Add column headers (Variable Costs)
-        for (double variableCost : variableCosts) {
-            matrixTableModel.addColumn(String.format("%.2f", variableCost));
+        // Controls to change one variable cost column; only that column is recomputed
+        JPanel editPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        editPanel.add(new JLabel("Edit a sales volume in the first column, or change cost column:"));
+        JComboBox<String> columnBox = new JComboBox<>();
+        for (int j = 0; j < variableCosts.length; j++) {
+            columnBox.addItem("Column " + (j + 1));
         }
+        editPanel.add(columnBox);
+        JTextField newCostField = new JTextField(5);
+        editPanel.add(newCostField);
+        JButton updateCostButton = new JButton("Update Cost");
+        editPanel.add(updateCostButton);
+
+        updateCostButton.addActionListener(e -> {
+            try {
+                updateVariableCostColumn(columnBox.getSelectedIndex(), Double.parseDouble(newCostField.getText()));
+            } catch (NumberFormatException ex) {
+                JOptionPane.showMessageDialog(panel, "Please enter a valid variable cost.",
+                        "Input Error", JOptionPane.ERROR_MESSAGE);
+            }
+        });
 
-        // Fill the table with rows (Sales Volumes and profits for different variable costs)
-        for (int salesVolume : salesVolumes) {
-            Object[] row = new Object[variableCosts.length + 1];
-            row[0] = salesVolume; // First column is Sales Volume
-            for (int j = 0; j < variableCosts.length; j++) {
-                row[j + 1] = String.format("%.2f", calculateProfit(salesVolume, variableCosts[j]));
+        JPanel tablePanel = new JPanel(new BorderLayout());
+        tablePanel.add(scrollPane, BorderLayout.CENTER);
+        tablePanel.add(editPanel, BorderLayout.SOUTH);
+
+        JTabbedPane views = new JTabbedPane();
+        views.addTab("Table", tablePanel);
+        views.addTab("Heatmap", createProfitHeatmapPanel());
+        panel.add(views, BorderLayout.CENTER);
+
+        return panel;
+    }
+
+    // The same profit over fine sales volume and variable cost ranges, e.g. a million cells
+    private JPanel createProfitHeatmapPanel() {
+        JPanel panel = new JPanel(new BorderLayout());
+
+        JPanel controlsPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        controlsPanel.add(new JLabel("Sales Volumes:"));
+        JTextField volumeRangeField = new JTextField("0:1000:1", 10);
+        controlsPanel.add(volumeRangeField);
+        controlsPanel.add(new JLabel("Variable Costs:"));
+        JTextField costRangeField = new JTextField("0:0.4995:0.0005", 10);
+        controlsPanel.add(costRangeField);
+        JButton calculateButton = new JButton("Calculate Heatmap");
+        controlsPanel.add(calculateButton);
+
+        ProfitHeatmapPanel heatmap = new ProfitHeatmapPanel("Sales volume", "%.0f", "Var. cost", "$%.4f", "$%.2f");
+        calculateButton.addActionListener(e -> {
+            GridAxis volumes;
+            GridAxis costs;
+            try {
+                volumes = GridAxis.parse("salesVolume", volumeRangeField.getText().trim());
+                costs = GridAxis.parse("variableCost", costRangeField.getText().trim());
+            } catch (IllegalArgumentException ex) {
+                JOptionPane.showMessageDialog(panel, ex.getMessage() + "\nUse start:end:step, e.g. 0:1000:1.",
+                        "Input Error", JOptionPane.ERROR_MESSAGE);
+                return;
             }
-            matrixTableModel.addRow(row);
-        }
+            ComputeExecutor.getShared().submit("lemonade.matrix.heatmap", "Lemonade profit heatmap",
+                    progress -> ProfitHeatmapPanel.Grid.compute(volumes, costs, LemonadeStandModel::profit,
+                            LemonadeStandModel::profitRow, progress),
+                    grid -> {
+                        if (grid != null) {
+                            heatmap.setGrid(grid);
+                        }
+                    });
+        });
 
-        // Create the JTable and add it to a JScrollPane
-        profitMatrixTable = new JTable(matrixTableModel);
-        JScrollPane scrollPane = new JScrollPane(profitMatrixTable);
+        panel.add(controlsPanel, BorderLayout.NORTH);
+        panel.add(heatmap, BorderLayout.CENTER);
+        return panel;
+    }
 
-        // Add the scroll pane to the panel
-        panel.add(scrollPane, BorderLayout.CENTER);
+    // Method to change one variable cost column of the matrix and refresh its header
+    private void updateVariableCostColumn(int column, double variableCost) {
+        long start = MATRIX_COLUMN_TIMER.start();
+        profitMatrixModel.setColumnValue(column, variableCost);
+        MATRIX_COLUMN_TIMER.stop(start, profitMatrixModel.getRowCount());
+        int viewColumn = profitMatrixTable.convertColumnIndexToView(column + 1);
+        profitMatrixTable.getColumnModel().getColumn(viewColumn)
+                .setHeaderValue(profitMatrixModel.getColumnName(column + 1));
+        profitMatrixTable.getTableHeader().repaint();
+    }
+
+    // Method to create the Monte Carlo panel (stochastic sales volume and variable cost)
+    private JPanel createMonteCarloPanel() {
+        JPanel panel = new JPanel(new BorderLayout());
+
+        JPanel formPanel = new JPanel(new GridLayout(9, 2));
+        formPanel.add(new JLabel("Trials:"));
+        trialsField = new JTextField("10000000");
+        formPanel.add(trialsField);
+
+        formPanel.add(new JLabel("Sales Volume Distribution:"));
+        volumeDistributionBox = new JComboBox<>(LemonadeMonteCarlo.Distribution.values());
+        formPanel.add(volumeDistributionBox);
+        formPanel.add(new JLabel("Sales Volume Center (cups):"));
+        volumeCenterField = new JTextField("300");
+        formPanel.add(volumeCenterField);
+        formPanel.add(new JLabel("Sales Volume Spread (sd / half-width):"));
+        volumeSpreadField = new JTextField("100");
+        formPanel.add(volumeSpreadField);
+
+        formPanel.add(new JLabel("Variable Cost Distribution:"));
+        costDistributionBox = new JComboBox<>(LemonadeMonteCarlo.Distribution.values());
+        costDistributionBox.setSelectedItem(LemonadeMonteCarlo.Distribution.UNIFORM);
+        formPanel.add(costDistributionBox);
+        formPanel.add(new JLabel("Variable Cost Center (Bs):"));
+        costCenterField = new JTextField(String.valueOf(LemonadeStandModel.DEFAULT_VARIABLE_COST));
+        formPanel.add(costCenterField);
+        formPanel.add(new JLabel("Variable Cost Spread (sd / half-width):"));
+        costSpreadField = new JTextField("0.10");
+        formPanel.add(costSpreadField);
+
+        formPanel.add(new JLabel("Variance Reduction:"));
+        samplingMethodBox = new JComboBox<>(VarianceReduction.Method.values());
+        formPanel.add(samplingMethodBox);
+
+        JButton runMonteCarloBtn = new JButton("Run Simulation");
+        formPanel.add(runMonteCarloBtn);
+        JButton convergenceBtn = new JButton("Convergence Report");
+        formPanel.add(convergenceBtn);
+
+        panel.add(formPanel, BorderLayout.NORTH);
+
+        monteCarloResultArea = new JTextArea();
+        monteCarloResultArea.setEditable(false);
+        monteCarloResultArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        panel.add(new JScrollPane(monteCarloResultArea), BorderLayout.CENTER);
+
+        runMonteCarloBtn.addActionListener(e -> runMonteCarlo());
+        convergenceBtn.addActionListener(e -> runConvergenceReport());
 
         return panel;
     }
 
-    // Method to calculate profit for a specific sales volume and variable cost
-    private double calculateProfit(int salesVolume, double variableCost) {
-        double revenue = salesVolume * pricePerCup;
-        double totalVariableCost = salesVolume * variableCost;
-        double totalCost = fixedCost + totalVariableCost;
-        return revenue - totalCost;  // Profit
+    // Method to start a Monte Carlo run on the shared compute executor
+    private void runMonteCarlo() {
+        LemonadeMonteCarlo monteCarlo = createMonteCarlo();
+        long trials = monteCarlo == null ? 0 : parseTrials();
+        if (trials <= 0) {
+            return;
+        }
+        VarianceReduction.Method method = (VarianceReduction.Method) samplingMethodBox.getSelectedItem();
+        monteCarloResultArea.setText("Running " + trials + " trials...");
+        if (method == VarianceReduction.Method.PLAIN) {
+            // Plain sampling keeps the full engine with its histogram and percentiles. Finished chunks
+            // go to a result log, so a run that is cancelled or cut short by closing the app picks up
+            // where it stopped the next time the same parameters are run; the log goes once it is done.
+            ComputeExecutor.getShared().submit("lemonade.monteCarlo", "Lemonade Monte Carlo",
+                    progress -> runLogged(monteCarlo, trials, progress),
+                    result -> {
+                        if (result == null) {
+                            monteCarloResultArea.setText("Simulation cancelled.");
+                        } else {
+                            showMonteCarloResult(result);
+                        }
+                    });
+            return;
+        }
+        VarianceReduction.Problem problem = monteCarlo.asProblem();
+        ComputeExecutor.getShared().submit("lemonade.monteCarlo", "Lemonade Monte Carlo (" + method + ")",
+                progress -> VarianceReduction.estimate(problem, method, trials, System.nanoTime(), progress),
+                estimate -> {
+                    if (estimate == null) {
+                        monteCarloResultArea.setText("Simulation cancelled.");
+                    } else {
+                        showVarianceReducedResult(estimate);
+                    }
+                });
+    }
+
+    private static LemonadeMonteCarlo.Result runLogged(LemonadeMonteCarlo monteCarlo, long trials,
+                                                       ComputeExecutor.Progress progress) throws IOException {
+        String runKey = monteCarlo.getRunKey(trials);
+        ResultLog log;
+        try {
+            log = ResultLog.open(ResultLog.panelLogFile("lemonade-monte-carlo", runKey), runKey);
+        } catch (IOException ex) {
+            // No writable home directory, or the log is still held by another run: run without resuming
+            return monteCarlo.run(trials, System.nanoTime(), progress);
+        }
+        try {
+            LemonadeMonteCarlo.Result result = monteCarlo.run(trials, System.nanoTime(), progress, log);
+            if (result != null) {
+                log.delete();
+            }
+            return result;
+        } finally {
+            log.close();
+        }
+    }
+
+    // Method to compare all variance reduction methods at growing trial counts
+    private void runConvergenceReport() {
+        LemonadeMonteCarlo monteCarlo = createMonteCarlo();
+        long trials = monteCarlo == null ? 0 : parseTrials();
+        if (trials <= 0) {
+            return;
+        }
+        // Every method runs at each decade up to the trial count, so cap the largest run
+        long maxTrials = Math.min(trials, 10_000_000);
+        VarianceReduction.Problem problem = monteCarlo.asProblem();
+        monteCarloResultArea.setText("Running convergence report up to " + maxTrials + " trials...");
+        ComputeExecutor.getShared().submit("lemonade.monteCarlo", "Lemonade convergence report",
+                progress -> VarianceReduction.convergenceReport("Lemonade stand profit", problem, maxTrials,
+                        System.nanoTime(), progress),
+                report -> monteCarloResultArea.setText(report == null ? "Convergence report cancelled." : report));
+    }
+
+    // Builds the Monte Carlo engine from the form, or reports invalid input and returns null
+    private LemonadeMonteCarlo createMonteCarlo() {
+        try {
+            return new LemonadeMonteCarlo(LemonadeStandModel.PRICE_PER_CUP, LemonadeStandModel.FIXED_COST,
+                    (LemonadeMonteCarlo.Distribution) volumeDistributionBox.getSelectedItem(),
+                    Double.parseDouble(volumeCenterField.getText()),
+                    Double.parseDouble(volumeSpreadField.getText()),
+                    (LemonadeMonteCarlo.Distribution) costDistributionBox.getSelectedItem(),
+                    Double.parseDouble(costCenterField.getText()),
+                    Double.parseDouble(costSpreadField.getText()));
+        } catch (NumberFormatException ex) {
+            monteCarloResultArea.setText("Error: Please enter valid numbers for the trials and distribution parameters.");
+            return null;
+        }
+    }
+
+    // Trial count from the form, or 0 after reporting invalid input
+    private long parseTrials() {
+        try {
+            long trials = Long.parseLong(trialsField.getText().trim());
+            if (trials < 2) {
+                monteCarloResultArea.setText("Error: The number of trials must be at least 2.");
+                return 0;
+            }
+            return trials;
+        } catch (NumberFormatException ex) {
+            monteCarloResultArea.setText("Error: Please enter valid numbers for the trials and distribution parameters.");
+            return 0;
+        }
+    }
+
+    // Method to display a variance-reduced estimate with its confidence intervals
+    private void showVarianceReducedResult(VarianceReduction.Estimate estimate) {
+        MONTE_CARLO_TIMER.record(estimate.getElapsedNanos(), estimate.getTrials());
+        double seconds = estimate.getElapsedNanos() / 1e9;
+        monteCarloResultArea.setText("Monte Carlo Results (" + estimate.getMethod() + "):\n");
+        monteCarloResultArea.append("Trials: " + estimate.getTrials() + "\n");
+        monteCarloResultArea.append(String.format("Mean Profit: Bs %.4f +/- %.4f (95%%)%n",
+                estimate.getMean(), estimate.getMeanHalfWidth()));
+        monteCarloResultArea.append(String.format("P(Profit < 0): %.6f +/- %.6f (95%%)%n",
+                estimate.getLossProbability(), estimate.getLossHalfWidth()));
+        monteCarloResultArea.append(String.format("Variance reduction vs plain sampling: mean x%.1f, P(loss) x%.1f%n",
+                estimate.getMeanVarianceReduction(), estimate.getLossVarianceReduction()));
+        monteCarloResultArea.append(String.format("%nElapsed: %.2f s (%.1f M trials/s)%n",
+                seconds, estimate.getTrials() / seconds / 1e6));
+    }
+
+    // Method to display the Monte Carlo summary
+    private void showMonteCarloResult(LemonadeMonteCarlo.Result result) {
+        long runTrials = result.getTrials() - result.getResumedTrials();
+        MONTE_CARLO_TIMER.record(result.getElapsedNanos(), runTrials);
+        double seconds = result.getElapsedNanos() / 1e9;
+        monteCarloResultArea.setText("Monte Carlo Results:\n");
+        monteCarloResultArea.append("Trials: " + result.getTrials() + "\n");
+        if (result.getResumedTrials() > 0) {
+            monteCarloResultArea.append("Resumed a saved run: " + result.getResumedTrials() + " trials were already done\n");
+        }
+        monteCarloResultArea.append("Mean Profit: Bs " + String.format("%.2f", result.getMean()) + "\n");
+        monteCarloResultArea.append("Std. Deviation: Bs " + String.format("%.2f", result.getStandardDeviation()) + "\n");
+        monteCarloResultArea.append(String.format("Mean 95%% CI: +/- %.4f%n",
+                1.959963984540054 * result.getStandardDeviation() / Math.sqrt(result.getTrials())));
+        monteCarloResultArea.append("Min / Max: Bs " + String.format("%.2f", result.getMin())
+                + " / Bs " + String.format("%.2f", result.getMax()) + "\n");
+        for (double p : new double[]{5, 25, 50, 75, 95}) {
+            monteCarloResultArea.append(String.format("P%.0f: Bs %.2f%n", p, result.getPercentile(p)));
+        }
+        monteCarloResultArea.append("P(Profit < 0): " + String.format("%.4f", result.getLossProbability()) + "\n");
+        monteCarloResultArea.append(String.format("%nElapsed: %.2f s (%.1f M trials/s)%n",
+                seconds, runTrials / seconds / 1e6));
     }
 
     // Method to recalculate profits in the profit table
     private void recalculateProfits(double variableCost) {
         DefaultTableModel tableModel = (DefaultTableModel) profitTable.getModel();
-        for (int i = 0; i < tableModel.getRowCount(); i++) {
-            int salesVolume = (int) tableModel.getValueAt(i, 0);
-            double profit = calculateProfit(salesVolume, variableCost);
-            tableModel.setValueAt(String.format("%.2f", profit), i, 1);
+        int[] volumes = new int[tableModel.getRowCount()];
+        for (int i = 0; i < volumes.length; i++) {
+            volumes[i] = (int) tableModel.getValueAt(i, 0);
+        }
+        ScenarioCache.Key key = ScenarioCache.keyBuilder("lemonade.profitTable")
+                .add(LemonadeStandModel.PRICE_PER_CUP, LemonadeStandModel.FIXED_COST, variableCost)
+                .add(volumes)
+                .build();
+        ComputeExecutor.getShared().submitCached("lemonade.profitTable", "Lemonade profit table", key, progress -> {
+            double[] volumeValues = new double[volumes.length];
+            for (int i = 0; i < volumes.length; i++) {
+                volumeValues[i] = volumes[i];
+            }
+            double[] profits = new double[volumes.length];
+            long start = PROFIT_TABLE_TIMER.start();
+            LemonadeStandModel.profit(volumeValues, variableCost, profits);
+            PROFIT_TABLE_TIMER.stop(start, profits.length);
+            return profits;
+        }, profits -> profits.length, profits -> {
+            long start = PROFIT_TABLE_FILL_TIMER.start();
+            for (int i = 0; i < profits.length; i++) {
+                tableModel.setValueAt(String.format("%.2f", profits[i]), i, 1);
+            }
+            PROFIT_TABLE_FILL_TIMER.stop(start, profits.length);
+        });
+    }
+
+    // Method to evaluate a memory-mapped scenario file and show the profit summary
+    private void evaluateScenarioFile() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setFileFilter(new FileNameExtensionFilter("Scenario files", "a6s"));
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
         }
+        Path file = chooser.getSelectedFile().toPath();
+        ComputeExecutor.getShared().submit("lemonade.scenarioFile", "Lemonade scenario file", progress -> {
+            try (ScenarioFile scenarios = ScenarioFile.open(file)) {
+                return ScenarioEvaluator.evaluate(GridModel.LEMONADE, scenarios, null, progress);
+            }
+        }, summary -> {
+            if (summary == null) {
+                return;
+            }
+            JOptionPane.showMessageDialog(this, String.format(
+                    "Scenarios: %d%nMean Profit: Bs %.2f%nStd. Deviation: Bs %.2f%nMin: Bs %.2f (row %d)%n"
+                            + "Max: Bs %.2f (row %d)%nProfitable: %.1f%%",
+                    summary.getCount(), summary.getMean(), summary.getStandardDeviation(),
+                    summary.getMin(), summary.getArgMin(), summary.getMax(), summary.getArgMax(),
+                    100 * summary.getProfitableFraction()), "Scenario File", JOptionPane.INFORMATION_MESSAGE);
+        });
     }
 
     // Method to reset the profit table
@@ -188,19 +513,20 @@ public class LemonadeStandSimulation extends JPanel {
 
     // Method to calculate profit and update the resultArea
     private void calculateProfit() {
+        long start = CALCULATE_PROFIT_TIMER.start();
         try {
             // Get user inputs
             int salesVolume = Integer.parseInt(salesVolumeField.getText());
             double variableCost = Double.parseDouble(variableCostField.getText());
 
             // Profit calculation
-            double revenue = salesVolume * pricePerCup;
-            double totalVariableCost = salesVolume * variableCost;
-            double totalCost = fixedCost + totalVariableCost;
-            double profit = revenue - totalCost;
+            double revenue = LemonadeStandModel.revenue(salesVolume);
+            double totalVariableCost = LemonadeStandModel.totalVariableCost(salesVolume, variableCost);
+            double totalCost = LemonadeStandModel.totalCost(salesVolume, variableCost);
+            double profit = LemonadeStandModel.profit(salesVolume, variableCost);
 
-            // Break-even volume calculation
-            int breakEvenVolume = (int) Math.ceil(fixedCost / (pricePerCup - variableCost));
+            // Break-even volume: NaN when the variable cost leaves no margin per cup
+            double breakEvenVolume = LemonadeStandModel.volumeForProfit(0, variableCost);
 
             // Display results
             resultArea.setText("Results:\n");
@@ -208,11 +534,17 @@ public class LemonadeStandSimulation extends JPanel {
             resultArea.append("Total Variable Cost: Bs " + String.format("%.2f", totalVariableCost) + "\n");
             resultArea.append("Total Cost (Fixed + Variable): Bs " + String.format("%.2f", totalCost) + "\n");
             resultArea.append("Profit: Bs " + String.format("%.2f", profit) + "\n");
-            resultArea.append("Break-even sales volume: " + breakEvenVolume + " cups\n");
+            if (Double.isNaN(breakEvenVolume)) {
+                resultArea.append("Break-even sales volume: none, the variable cost is not below the price per cup\n");
+            } else {
+                resultArea.append("Break-even sales volume: " + String.format("%.0f", Math.ceil(breakEvenVolume)) + " cups\n");
+            }
 
             // Discuss sales volume and profits
             resultArea.append("\nDiscussion:\n");
-            if (salesVolume >= breakEvenVolume) {
+            if (Double.isNaN(breakEvenVolume)) {
+                resultArea.append("Every cup sold adds to the loss at this variable cost.\n");
+            } else if (salesVolume >= breakEvenVolume) {
                 resultArea.append("Profit is positive above break-even volume.\n");
             } else {
                 resultArea.append("Sales volume below break-even results in a loss.\n");
@@ -222,5 +554,24 @@ public class LemonadeStandSimulation extends JPanel {
         } catch (NumberFormatException ex) {
             resultArea.setText("Error: Please enter valid numbers for sales volume and variable cost.");
         }
+        CALCULATE_PROFIT_TIMER.stop(start, 1);
+    }
+
+    // Registers this panel as a tab of Activity6App
+    public static class Module implements SimulationModule {
+        @Override
+        public String getTitle() {
+            return "Lemonade Stand Simulation";
+        }
+
+        @Override
+        public int getOrder() {
+            return 10;
+        }
+
+        @Override
+        public JComponent createPanel() {
+            return new LemonadeStandSimulation();
+        }
     }
 }
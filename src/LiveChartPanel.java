@@ -0,0 +1,209 @@
+import org.jfree.chart.ChartFactory;
+import org.jfree.chart.ChartPanel;
+import org.jfree.chart.JFreeChart;
+import org.jfree.chart.plot.PlotOrientation;
+import org.jfree.data.xy.XYSeries;
+import org.jfree.data.xy.XYSeriesCollection;
+
+import javax.swing.*;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Line chart that stays on screen and grows while a computation runs.
+// Background threads offer points at any rate; they are buffered and a Swing timer folds them into
+// the chart a few times per second with change notifications switched off, so the chart redraws
+// once per batch instead of once per point. Each series is decimated into min/max buckets: when
+// the buckets fill up, neighbours are merged and the bucket width doubles, so a series of millions
+// of points is drawn from at most maxPointsPerSeries points while its peaks stay visible.
+// Every clear starts a new generation; a run that offers points with the generation it started
+// under cannot leak them into the chart of a later run.
+public class LiveChartPanel extends ChartPanel {
+
+    private static final int REFRESH_MILLIS = 100;
+
+    private final JFreeChart chart;
+    private final XYSeriesCollection dataset = new XYSeriesCollection();
+    private final int maxBuckets;
+    private final Map<String, DecimatedSeries> series = new LinkedHashMap<>();  // EDT only
+    private final Map<String, PendingPoints> pending = new LinkedHashMap<>();  // Guarded by itself
+    private int generation;  // Guarded by pending
+    private final Timer refreshTimer;
+
+    public LiveChartPanel(String title, String xLabel, String yLabel, int maxPointsPerSeries) {
+        super(null);
+        // Every bucket draws its minimum and maximum, and merging needs an even bucket count
+        this.maxBuckets = Math.max(2, maxPointsPerSeries / 2) & ~1;
+        chart = ChartFactory.createXYLineChart(title, xLabel, yLabel, dataset,
+                PlotOrientation.VERTICAL, true, true, false);
+        setChart(chart);
+        refreshTimer = new Timer(REFRESH_MILLIS, e -> flush());
+    }
+
+    // Queues a point for the named series; safe to call from any thread
+    public void offer(String seriesName, double x, double y) {
+        synchronized (pending) {
+            pending.computeIfAbsent(seriesName, name -> new PendingPoints()).add(x, y);
+        }
+    }
+
+    // Queues a point unless the chart was cleared since the generation was read
+    public void offer(int generation, String seriesName, double x, double y) {
+        synchronized (pending) {
+            if (generation == this.generation) {
+                pending.computeIfAbsent(seriesName, name -> new PendingPoints()).add(x, y);
+            }
+        }
+    }
+
+    // Current generation, for offers from a run that starts now
+    public int getGeneration() {
+        synchronized (pending) {
+            return generation;
+        }
+    }
+
+    // Removes every series and any queued points and starts a new generation (EDT only)
+    public void clear() {
+        synchronized (pending) {
+            pending.clear();
+            generation++;
+        }
+        series.clear();
+        dataset.removeAllSeries();
+    }
+
+    // Folds all queued points into the chart with a single redraw (EDT only)
+    public void flush() {
+        Map<String, PendingPoints> batch;
+        synchronized (pending) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = new LinkedHashMap<>(pending);
+            pending.clear();
+        }
+        chart.setNotify(false);
+        try {
+            for (Map.Entry<String, PendingPoints> entry : batch.entrySet()) {
+                DecimatedSeries target = series.get(entry.getKey());
+                if (target == null) {
+                    target = new DecimatedSeries(entry.getKey());
+                    series.put(entry.getKey(), target);
+                    dataset.addSeries(target.xySeries);
+                }
+                PendingPoints points = entry.getValue();
+                for (int i = 0; i < points.size; i++) {
+                    target.add(points.xs[i], points.ys[i]);
+                }
+                target.publish();
+            }
+        } finally {
+            chart.setNotify(true);
+        }
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        refreshTimer.start();
+    }
+
+    @Override
+    public void removeNotify() {
+        refreshTimer.stop();
+        super.removeNotify();
+    }
+
+    private static final class PendingPoints {
+        double[] xs = new double[64];
+        double[] ys = new double[64];
+        int size;
+
+        void add(double x, double y) {
+            if (size == xs.length) {
+                xs = Arrays.copyOf(xs, size * 2);
+                ys = Arrays.copyOf(ys, size * 2);
+            }
+            xs[size] = x;
+            ys[size] = y;
+            size++;
+        }
+    }
+
+    // Min/max buckets of consecutive points; only the buckets are kept, not the raw points
+    private final class DecimatedSeries {
+        final XYSeries xySeries;
+        final double[] minX = new double[maxBuckets];
+        final double[] minY = new double[maxBuckets];
+        final double[] maxX = new double[maxBuckets];
+        final double[] maxY = new double[maxBuckets];
+        int buckets;
+        int bucketWidth = 1;
+        int pointsInLastBucket;
+
+        DecimatedSeries(String name) {
+            xySeries = new XYSeries(name, false, true);
+        }
+
+        void add(double x, double y) {
+            if (pointsInLastBucket == 0) {
+                if (buckets == maxBuckets) {
+                    mergePairs();
+                }
+                minX[buckets] = x;
+                minY[buckets] = y;
+                maxX[buckets] = x;
+                maxY[buckets] = y;
+                buckets++;
+            } else {
+                int b = buckets - 1;
+                if (y < minY[b]) {
+                    minX[b] = x;
+                    minY[b] = y;
+                }
+                if (y > maxY[b]) {
+                    maxX[b] = x;
+                    maxY[b] = y;
+                }
+            }
+            if (++pointsInLastBucket == bucketWidth) {
+                pointsInLastBucket = 0;
+            }
+        }
+
+        // Halves the bucket count; only called when every bucket is full
+        private void mergePairs() {
+            for (int b = 0; b < buckets / 2; b++) {
+                int left = 2 * b;
+                int right = left + 1;
+                boolean leftMin = minY[left] <= minY[right];
+                boolean leftMax = maxY[left] >= maxY[right];
+                minX[b] = leftMin ? minX[left] : minX[right];
+                minY[b] = leftMin ? minY[left] : minY[right];
+                maxX[b] = leftMax ? maxX[left] : maxX[right];
+                maxY[b] = leftMax ? maxY[left] : maxY[right];
+            }
+            buckets /= 2;
+            bucketWidth *= 2;
+        }
+
+        // Replaces the displayed points with the buckets, in x order within each bucket
+        void publish() {
+            xySeries.setNotify(false);
+            xySeries.clear();
+            for (int b = 0; b < buckets; b++) {
+                if (minX[b] == maxX[b]) {
+                    xySeries.add(minX[b], minY[b], false);
+                } else if (minX[b] < maxX[b]) {
+                    xySeries.add(minX[b], minY[b], false);
+                    xySeries.add(maxX[b], maxY[b], false);
+                } else {
+                    xySeries.add(maxX[b], maxY[b], false);
+                    xySeries.add(minX[b], minY[b], false);
+                }
+            }
+            xySeries.setNotify(true);
+        }
+    }
+}
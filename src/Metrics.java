@@ -0,0 +1,235 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Process-wide registry of counters and latency timers for the simulation code.
+// Instruments are created once per call site (usually in a static final field) and are cheap to
+// update from any thread: counters are LongAdders and timers record into log-linear histogram
+// buckets with relative precision of about 12%, in the spirit of HdrHistogram. When metrics are
+// disabled (-Dactivity6.metrics=false or from the diagnostics tab) every update is a single
+// volatile read, and timers don't even read the clock.
+public final class Metrics {
+
+    private static volatile boolean enabled = !"false".equalsIgnoreCase(System.getProperty("activity6.metrics"));
+
+    private static final Map<String, Timer> TIMERS = new ConcurrentHashMap<>();
+    private static final Map<String, Counter> COUNTERS = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean value) {
+        enabled = value;
+    }
+
+    public static Timer timer(String name) {
+        return TIMERS.computeIfAbsent(name, Timer::new);
+    }
+
+    public static Counter counter(String name) {
+        return COUNTERS.computeIfAbsent(name, Counter::new);
+    }
+
+    // Zeroes every instrument; instruments stay registered
+    public static void reset() {
+        TIMERS.values().forEach(Timer::reset);
+        COUNTERS.values().forEach(Counter::reset);
+    }
+
+    // Plain-text snapshot of all instruments, the shared scenario cache and the grid kernel in use
+    public static String report() {
+        StringBuilder out = new StringBuilder();
+        out.append("Metrics snapshot ").append(LocalDateTime.now())
+                .append(enabled ? "" : " (collection disabled)").append("\n\n");
+        out.append(String.format("%-34s %8s %10s %10s %10s %10s %14s%n",
+                "Timer", "Count", "Mean ms", "P50 ms", "P99 ms", "Max ms", "Evals/s"));
+        for (Timer timer : new TreeMap<>(TIMERS).values()) {
+            long count = timer.getCount();
+            if (count == 0) {
+                continue;
+            }
+            double evaluationsPerSecond = timer.getEvaluations() / (timer.getTotalNanos() / 1e9);
+            out.append(String.format("%-34s %8d %10.3f %10.3f %10.3f %10.3f %14s%n",
+                    timer.getName(), count, timer.getMeanNanos() / 1e6,
+                    timer.getPercentileNanos(50) / 1e6, timer.getPercentileNanos(99) / 1e6,
+                    timer.getMaxNanos() / 1e6,
+                    timer.getEvaluations() == 0 ? "-" : String.format("%,.0f", evaluationsPerSecond)));
+        }
+        out.append(String.format("%n%-34s %14s%n", "Counter", "Value"));
+        for (Counter counter : new TreeMap<>(COUNTERS).values()) {
+            out.append(String.format("%-34s %,14d%n", counter.getName(), counter.get()));
+        }
+        out.append("\n").append(ScenarioCache.getShared()).append("\n");
+        out.append("Grid kernels: ").append(GridKernels.describe()).append("\n");
+        return out.toString();
+    }
+
+    public static void dump(Path file) throws IOException {
+        Files.write(file, report().getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static final class Counter {
+        private final String name;
+        private final LongAdder value = new LongAdder();
+
+        private Counter(String name) {
+            this.name = name;
+        }
+
+        public void increment() {
+            if (enabled) {
+                value.increment();
+            }
+        }
+
+        public void add(long amount) {
+            if (enabled) {
+                value.add(amount);
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long get() {
+            return value.sum();
+        }
+
+        void reset() {
+            value.reset();
+        }
+    }
+
+    // Latency of a code path plus the number of model evaluations it performed.
+    // Usage: long start = TIMER.start(); ...; TIMER.stop(start, evaluations);
+    public static final class Timer {
+        // Returned by start() while disabled; stop() ignores it
+        private static final long NOT_STARTED = Long.MIN_VALUE;
+
+        // 8 linear sub-buckets per power of two
+        private static final int SUB_BITS = 3;
+        private static final int SUB_BUCKETS = 1 << SUB_BITS;
+        private static final int BUCKETS = (64 - SUB_BITS + 1) * SUB_BUCKETS;
+
+        private final String name;
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAdder evaluations = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        private Timer(String name) {
+            this.name = name;
+        }
+
+        public long start() {
+            return enabled ? System.nanoTime() : NOT_STARTED;
+        }
+
+        public void stop(long start) {
+            stop(start, 0);
+        }
+
+        public void stop(long start, long evaluationCount) {
+            if (start != NOT_STARTED) {
+                record(System.nanoTime() - start, evaluationCount);
+            }
+        }
+
+        // Records a duration measured elsewhere, e.g. by a simulation engine
+        public void record(long nanos, long evaluationCount) {
+            if (!enabled) {
+                return;
+            }
+            long value = Math.max(0, nanos);
+            buckets.incrementAndGet(bucketIndex(value));
+            count.increment();
+            totalNanos.add(value);
+            evaluations.add(evaluationCount);
+            maxNanos.accumulateAndGet(value, Math::max);
+        }
+
+        static int bucketIndex(long value) {
+            if (value < SUB_BUCKETS) {
+                return (int) value;
+            }
+            int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+            return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+        }
+
+        // Largest value that falls into the bucket
+        static long bucketUpperBound(int index) {
+            if (index < SUB_BUCKETS) {
+                return index;
+            }
+            int shift = index / SUB_BUCKETS - 1;
+            long lower = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+            return lower + (1L << shift) - 1;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getTotalNanos() {
+            return totalNanos.sum();
+        }
+
+        public long getEvaluations() {
+            return evaluations.sum();
+        }
+
+        public long getMaxNanos() {
+            return maxNanos.get();
+        }
+
+        public double getMeanNanos() {
+            long n = getCount();
+            return n == 0 ? 0.0 : (double) getTotalNanos() / n;
+        }
+
+        // Upper bound of the bucket holding the p-th percentile, capped at the observed maximum
+        public long getPercentileNanos(double p) {
+            long n = getCount();
+            if (n == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(p / 100.0 * n));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += buckets.get(i);
+                if (seen >= rank) {
+                    return Math.min(bucketUpperBound(i), getMaxNanos());
+                }
+            }
+            return getMaxNanos();
+        }
+
+        void reset() {
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets.set(i, 0);
+            }
+            count.reset();
+            totalNanos.reset();
+            evaluations.reset();
+            maxNanos.set(0);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+// Helpers for the exact-money mode, where amounts are whole cents in a long.
+// Fixed-point cents keep the hot loops as cheap as the double path (plain long multiplies and
+// adds, no allocation) while every result is exact; BigDecimal is only used to audit them.
+public final class Money {
+
+    public static final long CENTS_PER_DOLLAR = 100;
+    // Occupancy and other fractions are expressed in basis points (1/10000)
+    public static final long BASIS_POINTS = 10_000;
+
+    private Money() {
+    }
+
+    // Nearest whole cent of a dollar amount given as a double (e.g. an input field or axis value)
+    public static long toCents(double dollars) {
+        return Math.round(dollars * CENTS_PER_DOLLAR);
+    }
+
+    // Nearest basis point of a fraction (0.8 -> 8000)
+    public static long toBasisPoints(double fraction) {
+        return Math.round(fraction * BASIS_POINTS);
+    }
+
+    public static double toDollars(long cents) {
+        return cents / (double) CENTS_PER_DOLLAR;
+    }
+
+    public static BigDecimal toBigDecimal(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    // Exact conversion of an audited amount back to cents; fails if it has fractions of a cent
+    public static long toCents(BigDecimal dollars) {
+        return dollars.setScale(2, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+    }
+
+    // numerator / denominator rounded half-even (banker's rounding), for positive denominators up
+    // to 2^62. The round-up decision is computed from sign bits rather than branches, so row loops
+    // over unpredictable remainders don't mispredict.
+    public static long divideHalfEven(long numerator, long denominator) {
+        long quotient = Math.floorDiv(numerator, denominator);
+        long twice = (numerator - quotient * denominator) * 2;
+        // 1 when twice > denominator, and 1 when they are equal (their xor is 0)
+        long above = (denominator - twice) >>> 63;
+        long tie = ((twice ^ denominator) - 1) >>> 63;
+        return quotient + (above | (tie & quotient & 1));
+    }
+
+    // Largest |x| over xs (Long.MAX_VALUE stands in for |Long.MIN_VALUE|), computed once per matrix
+    // so each row can rule out overflow with fitsAffine instead of a checked multiply per cell
+    public static long maxAbs(long[] xs) {
+        long max = 0;
+        for (long x : xs) {
+            max = Math.max(max, x == Long.MIN_VALUE ? Long.MAX_VALUE : Math.abs(x));
+        }
+        return max;
+    }
+
+    // True when intercept + slope * x cannot overflow for any |x| <= maxAbsX
+    public static boolean fitsAffine(long intercept, long slope, long maxAbsX) {
+        try {
+            return Math.addExact(Math.absExact(intercept), Math.multiplyExact(Math.absExact(slope), maxAbsX)) < Long.MAX_VALUE;
+        } catch (ArithmeticException ex) {
+            return false;
+        }
+    }
+
+    // "-1234.50" style formatting without going through double. The magnitude is handled as an
+    // unsigned long, since Long.MIN_VALUE has no positive counterpart.
+    public static String format(long cents) {
+        String sign = cents < 0 ? "-" : "";
+        long abs = cents < 0 ? -cents : cents;
+        long fraction = Long.remainderUnsigned(abs, CENTS_PER_DOLLAR);
+        return sign + Long.toUnsignedString(Long.divideUnsigned(abs, CENTS_PER_DOLLAR))
+                + (fraction < 10 ? ".0" : ".") + fraction;
+    }
+}
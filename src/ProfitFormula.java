@@ -0,0 +1,580 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.DoubleBinaryOperator;
+
+// A user-defined profit formula, e.g.
+//   salesVolume * pricePerCup - (fixedCost + salesVolume * variableCost)
+// Formulas have numbers, variables, + - * / % and ^ (power), comparisons (< <= > >= == !=, giving
+// 1 or 0), parentheses and the functions abs, sqrt, exp, log, floor, ceil, pow, min, max and
+// if(condition, then, else). Every other name is a variable; variables get slots in order of first
+// appearance and are read from a double[] when the formula is evaluated.
+// The source is parsed once into a tree, with constant subexpressions folded. compile() turns the
+// tree into JVM bytecode (FormulaCompiler), which the JIT then treats like hand-written Java;
+// interpreter() walks the tree instead and is kept as the reference and for comparison.
+public final class ProfitFormula {
+
+    private static final int MAX_LENGTH = 10_000;
+    private static final int MAX_DEPTH = 200;
+
+    // A formula ready to run; variables are indexed by slot
+    public interface Evaluator {
+        double evaluate(double[] variables);
+    }
+
+    public enum Engine {
+        COMPILED("Compiled (bytecode)"),
+        INTERPRETED("Interpreted (tree walk)");
+
+        private final String label;
+
+        Engine(String label) {
+            this.label = label;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    private final String source;
+    private final List<String> variables;
+    private final Node root;
+    private Evaluator compiled;
+
+    private ProfitFormula(String source, List<String> variables, Node root) {
+        this.source = source;
+        this.variables = Collections.unmodifiableList(variables);
+        this.root = root;
+    }
+
+    // Parses the formula; IllegalArgumentException names the position of the first error
+    public static ProfitFormula parse(String source) {
+        if (source.length() > MAX_LENGTH) {
+            throw new IllegalArgumentException("Formula is longer than " + MAX_LENGTH + " characters");
+        }
+        Parser parser = new Parser(source);
+        Node root = parser.parseFormula();
+        return new ProfitFormula(source, parser.variables, root);
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    // Variable names by slot
+    public List<String> getVariables() {
+        return variables;
+    }
+
+    public int slotOf(String variable) {
+        int slot = variables.indexOf(variable);
+        if (slot < 0) {
+            throw new IllegalArgumentException("The formula has no variable " + variable);
+        }
+        return slot;
+    }
+
+    Node getRoot() {
+        return root;
+    }
+
+    // Bytecode version, generated on first use
+    public synchronized Evaluator compile() {
+        if (compiled == null) {
+            compiled = FormulaCompiler.compile(this);
+        }
+        return compiled;
+    }
+
+    public Evaluator interpreter() {
+        return root::evaluate;
+    }
+
+    public Evaluator evaluator(Engine engine) {
+        return engine == Engine.COMPILED ? compile() : interpreter();
+    }
+
+    // Slot values with every variable except the free ones taken from the parameters
+    public double[] bind(Map<String, Double> parameters, String... free) {
+        double[] slots = new double[variables.size()];
+        List<String> missing = new ArrayList<>();
+        for (int i = 0; i < slots.length; i++) {
+            String name = variables.get(i);
+            Double value = parameters.get(name);
+            if (value != null) {
+                slots[i] = value;
+            } else if (!List.of(free).contains(name)) {
+                missing.add(name);
+            }
+        }
+        if (!missing.isEmpty()) {
+            throw new IllegalArgumentException("No value for " + String.join(", ", missing));
+        }
+        return slots;
+    }
+
+    // Profit over two axes: the row and column variables vary, the other slots stay as bound
+    // Each thread gets its own copy of the slots, so the operator can be shared by sweep workers
+    public static DoubleBinaryOperator cell(Evaluator evaluator, double[] slots, int rowSlot, int columnSlot) {
+        ThreadLocal<double[]> scratch = ThreadLocal.withInitial(slots::clone);
+        return (rowValue, columnValue) -> {
+            double[] values = scratch.get();
+            values[rowSlot] = rowValue;
+            values[columnSlot] = columnValue;
+            return evaluator.evaluate(values);
+        };
+    }
+
+    public static GridKernels.RowKernel rowKernel(Evaluator evaluator, double[] slots, int rowSlot, int columnSlot) {
+        return (rowValue, columnValues, out, offset) -> {
+            double[] values = slots.clone();
+            values[rowSlot] = rowValue;
+            for (int j = 0; j < columnValues.length; j++) {
+                values[columnSlot] = columnValues[j];
+                out[offset + j] = evaluator.evaluate(values);
+            }
+        };
+    }
+
+    // Expression tree. evaluate is the interpreter; FormulaCompiler walks the same nodes.
+
+    abstract static class Node {
+        abstract double evaluate(double[] variables);
+    }
+
+    static final class Constant extends Node {
+        final double value;
+
+        Constant(double value) {
+            this.value = value;
+        }
+
+        @Override
+        double evaluate(double[] variables) {
+            return value;
+        }
+    }
+
+    static final class Variable extends Node {
+        final int slot;
+
+        Variable(int slot) {
+            this.slot = slot;
+        }
+
+        @Override
+        double evaluate(double[] variables) {
+            return variables[slot];
+        }
+    }
+
+    static final class Negate extends Node {
+        final Node operand;
+
+        Negate(Node operand) {
+            this.operand = operand;
+        }
+
+        @Override
+        double evaluate(double[] variables) {
+            return -operand.evaluate(variables);
+        }
+    }
+
+    enum Operator {
+        ADD, SUBTRACT, MULTIPLY, DIVIDE, REMAINDER, POWER, LESS, LESS_EQUAL, GREATER, GREATER_EQUAL, EQUAL, NOT_EQUAL;
+
+        double apply(double a, double b) {
+            switch (this) {
+                case ADD:
+                    return a + b;
+                case SUBTRACT:
+                    return a - b;
+                case MULTIPLY:
+                    return a * b;
+                case DIVIDE:
+                    return a / b;
+                case REMAINDER:
+                    return a % b;
+                case POWER:
+                    return Math.pow(a, b);
+                case LESS:
+                    return a < b ? 1 : 0;
+                case LESS_EQUAL:
+                    return a <= b ? 1 : 0;
+                case GREATER:
+                    return a > b ? 1 : 0;
+                case GREATER_EQUAL:
+                    return a >= b ? 1 : 0;
+                case EQUAL:
+                    return a == b ? 1 : 0;
+                default:
+                    return a != b ? 1 : 0;
+            }
+        }
+
+        boolean isComparison() {
+            return ordinal() >= LESS.ordinal();
+        }
+    }
+
+    static final class Binary extends Node {
+        final Operator operator;
+        final Node left;
+        final Node right;
+
+        Binary(Operator operator, Node left, Node right) {
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        double evaluate(double[] variables) {
+            return operator.apply(left.evaluate(variables), right.evaluate(variables));
+        }
+    }
+
+    // Functions backed by java.lang.Math; minArgs == maxArgs except for min and max
+    enum Function {
+        ABS(1, 1), SQRT(1, 1), EXP(1, 1), LOG(1, 1), FLOOR(1, 1), CEIL(1, 1), POW(2, 2),
+        MIN(2, Integer.MAX_VALUE), MAX(2, Integer.MAX_VALUE);
+
+        final int minArgs;
+        final int maxArgs;
+
+        Function(int minArgs, int maxArgs) {
+            this.minArgs = minArgs;
+            this.maxArgs = maxArgs;
+        }
+
+        // Name of the java.lang.Math method
+        String methodName() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+
+        double apply(double a) {
+            switch (this) {
+                case ABS:
+                    return Math.abs(a);
+                case SQRT:
+                    return Math.sqrt(a);
+                case EXP:
+                    return Math.exp(a);
+                case LOG:
+                    return Math.log(a);
+                case FLOOR:
+                    return Math.floor(a);
+                default:
+                    return Math.ceil(a);
+            }
+        }
+
+        double apply(double a, double b) {
+            switch (this) {
+                case POW:
+                    return Math.pow(a, b);
+                case MIN:
+                    return Math.min(a, b);
+                default:
+                    return Math.max(a, b);
+            }
+        }
+    }
+
+    static final class Call extends Node {
+        final Function function;
+        final Node[] arguments;
+
+        Call(Function function, Node[] arguments) {
+            this.function = function;
+            this.arguments = arguments;
+        }
+
+        @Override
+        double evaluate(double[] variables) {
+            double value = arguments[0].evaluate(variables);
+            if (function.maxArgs == 1) {
+                return function.apply(value);
+            }
+            for (int i = 1; i < arguments.length; i++) {
+                value = function.apply(value, arguments[i].evaluate(variables));
+            }
+            return value;
+        }
+    }
+
+    // if(condition, then, else): any condition other than 0 picks then, like C
+    static final class Conditional extends Node {
+        final Node condition;
+        final Node whenTrue;
+        final Node whenFalse;
+
+        Conditional(Node condition, Node whenTrue, Node whenFalse) {
+            this.condition = condition;
+            this.whenTrue = whenTrue;
+            this.whenFalse = whenFalse;
+        }
+
+        @Override
+        double evaluate(double[] variables) {
+            return condition.evaluate(variables) != 0 ? whenTrue.evaluate(variables) : whenFalse.evaluate(variables);
+        }
+    }
+
+    // Recursive descent, lowest precedence first: comparison, + -, * / %, unary -, ^, primary
+    private static final class Parser {
+        private final String text;
+        private final List<String> variables = new ArrayList<>();
+        private int pos;
+        private int depth;
+
+        Parser(String text) {
+            this.text = text;
+        }
+
+        Node parseFormula() {
+            Node node = parseComparison();
+            skipWhitespace();
+            if (pos < text.length()) {
+                throw error("Unexpected '" + text.charAt(pos) + "'");
+            }
+            return node;
+        }
+
+        private Node parseComparison() {
+            Node left = parseAdditive();
+            skipWhitespace();
+            Operator operator = null;
+            if (match("<=")) {
+                operator = Operator.LESS_EQUAL;
+            } else if (match(">=")) {
+                operator = Operator.GREATER_EQUAL;
+            } else if (match("==")) {
+                operator = Operator.EQUAL;
+            } else if (match("!=")) {
+                operator = Operator.NOT_EQUAL;
+            } else if (match("<")) {
+                operator = Operator.LESS;
+            } else if (match(">")) {
+                operator = Operator.GREATER;
+            }
+            return operator == null ? left : fold(new Binary(operator, left, parseAdditive()));
+        }
+
+        private Node parseAdditive() {
+            Node node = parseMultiplicative();
+            while (true) {
+                skipWhitespace();
+                if (match("+")) {
+                    node = fold(new Binary(Operator.ADD, node, parseMultiplicative()));
+                } else if (match("-")) {
+                    node = fold(new Binary(Operator.SUBTRACT, node, parseMultiplicative()));
+                } else {
+                    return node;
+                }
+            }
+        }
+
+        private Node parseMultiplicative() {
+            Node node = parseUnary();
+            while (true) {
+                skipWhitespace();
+                if (match("*")) {
+                    node = fold(new Binary(Operator.MULTIPLY, node, parseUnary()));
+                } else if (match("/")) {
+                    node = fold(new Binary(Operator.DIVIDE, node, parseUnary()));
+                } else if (match("%")) {
+                    node = fold(new Binary(Operator.REMAINDER, node, parseUnary()));
+                } else {
+                    return node;
+                }
+            }
+        }
+
+        // Unary minus binds looser than ^, so -x^2 is -(x^2)
+        private Node parseUnary() {
+            skipWhitespace();
+            if (match("-")) {
+                enter();
+                Node operand = parseUnary();
+                depth--;
+                return fold(new Negate(operand));
+            }
+            if (match("+")) {
+                return parseUnary();
+            }
+            return parsePower();
+        }
+
+        // Right associative: 2^3^2 is 2^(3^2)
+        private Node parsePower() {
+            Node base = parsePrimary();
+            skipWhitespace();
+            if (match("^")) {
+                enter();
+                Node exponent = parseUnary();
+                depth--;
+                return fold(new Binary(Operator.POWER, base, exponent));
+            }
+            return base;
+        }
+
+        private Node parsePrimary() {
+            skipWhitespace();
+            if (pos >= text.length()) {
+                throw error("Unexpected end of formula");
+            }
+            char c = text.charAt(pos);
+            if (c == '(') {
+                pos++;
+                enter();
+                Node node = parseComparison();
+                depth--;
+                expect(')');
+                return node;
+            }
+            if (Character.isDigit(c) || c == '.') {
+                return parseNumber();
+            }
+            if (Character.isJavaIdentifierStart(c)) {
+                int start = pos;
+                while (pos < text.length() && Character.isJavaIdentifierPart(text.charAt(pos))) {
+                    pos++;
+                }
+                String name = text.substring(start, pos);
+                skipWhitespace();
+                if (pos < text.length() && text.charAt(pos) == '(') {
+                    return parseCall(name, start);
+                }
+                int slot = variables.indexOf(name);
+                if (slot < 0) {
+                    slot = variables.size();
+                    variables.add(name);
+                }
+                return new Variable(slot);
+            }
+            throw error("Unexpected '" + c + "'");
+        }
+
+        private Node parseNumber() {
+            int start = pos;
+            while (pos < text.length() && (Character.isDigit(text.charAt(pos)) || text.charAt(pos) == '.')) {
+                pos++;
+            }
+            if (pos < text.length() && (text.charAt(pos) == 'e' || text.charAt(pos) == 'E')) {
+                pos++;
+                if (pos < text.length() && (text.charAt(pos) == '+' || text.charAt(pos) == '-')) {
+                    pos++;
+                }
+                while (pos < text.length() && Character.isDigit(text.charAt(pos))) {
+                    pos++;
+                }
+            }
+            try {
+                return new Constant(Double.parseDouble(text.substring(start, pos)));
+            } catch (NumberFormatException ex) {
+                pos = start;
+                throw error("Bad number");
+            }
+        }
+
+        private Node parseCall(String name, int start) {
+            pos++;
+            enter();
+            List<Node> arguments = new ArrayList<>();
+            skipWhitespace();
+            if (!match(")")) {
+                do {
+                    arguments.add(parseComparison());
+                    skipWhitespace();
+                } while (match(","));
+                expect(')');
+            }
+            depth--;
+            if (name.equals("if")) {
+                if (arguments.size() != 3) {
+                    throw errorAt(start, "if needs 3 arguments: if(condition, then, else)");
+                }
+                Node condition = arguments.get(0);
+                if (condition instanceof Constant) {
+                    return ((Constant) condition).value != 0 ? arguments.get(1) : arguments.get(2);
+                }
+                return new Conditional(condition, arguments.get(1), arguments.get(2));
+            }
+            Function function;
+            try {
+                function = Function.valueOf(name.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException ex) {
+                throw errorAt(start, "Unknown function " + name);
+            }
+            if (!name.equals(function.methodName())) {
+                throw errorAt(start, "Unknown function " + name + " (did you mean " + function.methodName() + "?)");
+            }
+            if (arguments.size() < function.minArgs || arguments.size() > function.maxArgs) {
+                throw errorAt(start, name + " needs " + (function.minArgs == function.maxArgs
+                        ? function.minArgs + "" : "at least " + function.minArgs) + " arguments");
+            }
+            return fold(new Call(function, arguments.toArray(new Node[0])));
+        }
+
+        // Replaces a node whose inputs are all constants by its value
+        private static Node fold(Node node) {
+            boolean constant;
+            if (node instanceof Negate) {
+                constant = ((Negate) node).operand instanceof Constant;
+            } else if (node instanceof Binary) {
+                constant = ((Binary) node).left instanceof Constant && ((Binary) node).right instanceof Constant;
+            } else if (node instanceof Call) {
+                constant = true;
+                for (Node argument : ((Call) node).arguments) {
+                    constant &= argument instanceof Constant;
+                }
+            } else {
+                constant = false;
+            }
+            return constant ? new Constant(node.evaluate(new double[0])) : node;
+        }
+
+        // Guards the recursion against formulas like ((((...)))) nested thousands deep
+        private void enter() {
+            if (++depth > MAX_DEPTH) {
+                throw error("Formula is nested too deeply");
+            }
+        }
+
+        private boolean match(String token) {
+            if (text.startsWith(token, pos)) {
+                pos += token.length();
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(char c) {
+            skipWhitespace();
+            if (pos >= text.length() || text.charAt(pos) != c) {
+                throw error("Expected '" + c + "'");
+            }
+            pos++;
+        }
+
+        private void skipWhitespace() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        private IllegalArgumentException error(String message) {
+            return errorAt(pos, message);
+        }
+
+        private static IllegalArgumentException errorAt(int position, String message) {
+            return new IllegalArgumentException(message + " at position " + (position + 1));
+        }
+    }
+}
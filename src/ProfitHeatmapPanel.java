@@ -0,0 +1,583 @@
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.DoubleBinaryOperator;
+
+// Heatmap of a profit grid for grids far too large for a JTable. The grid is computed once into a
+// primitive row-major buffer (Grid.compute, off the EDT) and drawn in 256x256 pixel tiles that
+// worker threads write straight into the int[] raster of a BufferedImage, so the cost of a tile
+// depends on its pixels, not on the number of cells behind them. Tiles are cached per zoom level
+// and a coarse overview of the whole grid fills in while missing tiles render, so panning and
+// zooming never wait for a full repaint.
+// Losses are red, profits green and break-even white, with the break-even contour drawn where the
+// sign of the profit changes between neighbouring pixels. The mouse wheel zooms around the cursor,
+// dragging pans, a double click fits the grid again, and the tooltip shows the exact profit of the
+// cell under the cursor, computed on demand. Rows run bottom to top, columns left to right.
+public class ProfitHeatmapPanel extends JComponent {
+
+    // Cells kept in a grid buffer (64 MB); larger grids are sampled with a stride
+    public static final int MAX_CELLS = 1 << 23;
+
+    static final int TILE = 256;
+    private static final int TILE_CACHE_SIZE = 160;
+    private static final int OVERVIEW_SIZE = 1024;
+    // Zoom levels per doubling, and the closest zoom in pixels per cell
+    private static final int LEVELS_PER_OCTAVE = 4;
+    private static final double MAX_PIXELS_PER_CELL = 128;
+    private static final int MIN_LEVEL = -2 * LEVELS_PER_OCTAVE;
+
+    private static final int BACKGROUND = 0xD8D8D8;
+    private static final int CONTOUR = 0x202020;
+    private static final int NAN_COLOR = 0x909090;
+    private static final int[] PALETTE = createPalette(512);
+
+    private static final Metrics.Timer TILE_TIMER = Metrics.timer("heatmap.tile");
+    private static final Metrics.Timer GRID_TIMER = Metrics.timer("heatmap.grid");
+
+    // Shared by every heatmap; tiles are small, so one thread per core keeps all of them busy
+    private static final ExecutorService TILE_EXECUTOR;
+
+    static {
+        AtomicInteger threadCount = new AtomicInteger();
+        TILE_EXECUTOR = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), r -> {
+            Thread thread = new Thread(r, "heatmap-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Profits of a grid in a row-major buffer, sampled every rowStride rows and columnStride
+    // columns when the full grid has more than MAX_CELLS cells. Immutable once computed.
+    public static final class Grid {
+        private final GridAxis rowAxis;
+        private final GridAxis columnAxis;
+        private final DoubleBinaryOperator cell;
+        private final int rows;
+        private final int columns;
+        private final long rowStride;
+        private final long columnStride;
+        private final double[] profits;
+        private double min = Double.POSITIVE_INFINITY;
+        private double max = Double.NEGATIVE_INFINITY;
+
+        private Grid(GridAxis rowAxis, GridAxis columnAxis, DoubleBinaryOperator cell, long rowStride, long columnStride) {
+            this.rowAxis = rowAxis;
+            this.columnAxis = columnAxis;
+            this.cell = cell;
+            this.rowStride = rowStride;
+            this.columnStride = columnStride;
+            this.rows = (int) ((rowAxis.getCount() + rowStride - 1) / rowStride);
+            this.columns = (int) ((columnAxis.getCount() + columnStride - 1) / columnStride);
+            this.profits = new double[rows * columns];
+        }
+
+        // Fills the buffer a row at a time, with the row kernel when there is one. The cell function
+        // must agree with the kernel; it is also used for the tooltips. Returns null when cancelled.
+        public static Grid compute(GridAxis rowAxis, GridAxis columnAxis, DoubleBinaryOperator cell,
+                                   GridKernels.RowKernel rowKernel, ComputeExecutor.Progress progress) {
+            long start = GRID_TIMER.start();
+            // Double the stride of the denser sampled axis until the buffer fits
+            long rowStride = 1;
+            long columnStride = 1;
+            while (sampled(rowAxis, rowStride) * sampled(columnAxis, columnStride) > MAX_CELLS) {
+                if (sampled(rowAxis, rowStride) >= sampled(columnAxis, columnStride)) {
+                    rowStride *= 2;
+                } else {
+                    columnStride *= 2;
+                }
+            }
+            Grid grid = new Grid(rowAxis, columnAxis, cell, rowStride, columnStride);
+            double[] columnValues = new double[grid.columns];
+            for (int j = 0; j < columnValues.length; j++) {
+                columnValues[j] = columnAxis.valueAt(j * columnStride);
+            }
+            for (int i = 0; i < grid.rows; i++) {
+                if (progress.isCancelled()) {
+                    return null;
+                }
+                double rowValue = rowAxis.valueAt(i * rowStride);
+                int offset = i * grid.columns;
+                if (rowKernel != null) {
+                    rowKernel.fillRow(rowValue, columnValues, grid.profits, offset);
+                } else {
+                    for (int j = 0; j < columnValues.length; j++) {
+                        grid.profits[offset + j] = cell.applyAsDouble(rowValue, columnValues[j]);
+                    }
+                }
+                for (int j = offset; j < offset + grid.columns; j++) {
+                    double profit = grid.profits[j];
+                    if (Double.isInfinite(profit)) {
+                        continue;
+                    }
+                    if (profit < grid.min) {
+                        grid.min = profit;
+                    }
+                    if (profit > grid.max) {
+                        grid.max = profit;
+                    }
+                }
+                progress.update((double) (i + 1) / grid.rows);
+            }
+            GRID_TIMER.stop(start, grid.profits.length);
+            return grid;
+        }
+
+        private static long sampled(GridAxis axis, long stride) {
+            return (axis.getCount() + stride - 1) / stride;
+        }
+
+        public GridAxis getRowAxis() {
+            return rowAxis;
+        }
+
+        public GridAxis getColumnAxis() {
+            return columnAxis;
+        }
+
+        // Smallest and largest finite profit in the buffer
+        public double getMin() {
+            return min;
+        }
+
+        public double getMax() {
+            return max;
+        }
+
+        public boolean isSampled() {
+            return rowStride > 1 || columnStride > 1;
+        }
+
+        // Exact profit of a cell of the full grid
+        public double profitAt(long row, long column) {
+            return cell.applyAsDouble(rowAxis.valueAt(row), columnAxis.valueAt(column));
+        }
+    }
+
+    private final String rowLabel;
+    private final String rowFormat;
+    private final String columnLabel;
+    private final String columnFormat;
+    private final String cellFormat;
+
+    // View state, EDT only. Level 0 fits the grid; pan is the world pixel at the top-left corner.
+    private Grid grid;
+    private int generation;
+    private boolean fitted;
+    private double fitScale;
+    private int level;
+    private long panX;
+    private long panY;
+    private BufferedImage overview;
+    private double overviewScale;
+    private final Map<Long, BufferedImage> tiles = new LinkedHashMap<Long, BufferedImage>(TILE_CACHE_SIZE * 4 / 3, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, BufferedImage> eldest) {
+            return size() > TILE_CACHE_SIZE;
+        }
+    };
+    private final Set<Long> pendingTiles = new HashSet<>();
+    // Read by the tile threads to skip tiles that are no longer wanted
+    private volatile long wantedView;
+
+    public ProfitHeatmapPanel(String rowLabel, String rowFormat, String columnLabel, String columnFormat,
+                              String cellFormat) {
+        this.rowLabel = rowLabel;
+        this.rowFormat = rowFormat;
+        this.columnLabel = columnLabel;
+        this.columnFormat = columnFormat;
+        this.cellFormat = cellFormat;
+        setOpaque(true);
+        setPreferredSize(new Dimension(600, 400));
+        // Registers the component; the text itself comes from getToolTipText(MouseEvent)
+        setToolTipText("");
+
+        MouseAdapter mouse = new MouseAdapter() {
+            private Point dragStart;
+
+            @Override
+            public void mousePressed(MouseEvent e) {
+                dragStart = e.getPoint();
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                if (dragStart != null && grid != null) {
+                    panTo(panX - (e.getX() - dragStart.x), panY - (e.getY() - dragStart.y));
+                    dragStart = e.getPoint();
+                }
+            }
+
+            @Override
+            public void mouseReleased(MouseEvent e) {
+                dragStart = null;
+            }
+
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (e.getClickCount() == 2) {
+                    resetView();
+                }
+            }
+
+            @Override
+            public void mouseWheelMoved(MouseWheelEvent e) {
+                zoom(level - e.getWheelRotation(), e.getX(), e.getY());
+            }
+        };
+        addMouseListener(mouse);
+        addMouseMotionListener(mouse);
+        addMouseWheelListener(mouse);
+    }
+
+    // Shows a new grid, fitted to the component (EDT only)
+    public void setGrid(Grid grid) {
+        this.grid = grid;
+        generation++;
+        tiles.clear();
+        pendingTiles.clear();
+        overview = null;
+        if (grid != null) {
+            renderOverview(grid, generation);
+        }
+        resetView();
+    }
+
+    public Grid getGrid() {
+        return grid;
+    }
+
+    // Zooms out to fit the whole grid (EDT only)
+    public void resetView() {
+        fitted = false;
+        repaint();
+    }
+
+    private void fit() {
+        int width = Math.max(1, getWidth());
+        int height = Math.max(1, getHeight());
+        fitScale = Math.max((double) grid.getColumnAxis().getCount() / width, (double) grid.getRowAxis().getCount() / height);
+        level = 0;
+        panX = Math.round(worldWidth() / 2 - width / 2.0);
+        panY = Math.round(worldHeight() / 2 - height / 2.0);
+        fitted = true;
+        viewChanged();
+    }
+
+    // Cells per pixel at the current level
+    private double scale() {
+        return fitScale * Math.pow(2, -(double) level / LEVELS_PER_OCTAVE);
+    }
+
+    private double worldWidth() {
+        return grid.getColumnAxis().getCount() / scale();
+    }
+
+    private double worldHeight() {
+        return grid.getRowAxis().getCount() / scale();
+    }
+
+    private void zoom(int newLevel, int anchorX, int anchorY) {
+        if (grid == null || !fitted) {
+            return;
+        }
+        // Closest zoom: MAX_PIXELS_PER_CELL, as long as the world stays within int pixel coordinates
+        long longest = Math.max(grid.getColumnAxis().getCount(), grid.getRowAxis().getCount());
+        double minScale = Math.max(1 / MAX_PIXELS_PER_CELL, longest / 1e9);
+        int maxLevel = (int) Math.floor(LEVELS_PER_OCTAVE * Math.log(fitScale / minScale) / Math.log(2));
+        newLevel = Math.max(MIN_LEVEL, Math.min(Math.max(0, maxLevel), newLevel));
+        if (newLevel == level) {
+            return;
+        }
+        // Keep the grid point under the cursor in place
+        double u = (panX + anchorX) * scale();
+        double w = (panY + anchorY) * scale();
+        level = newLevel;
+        panTo(Math.round(u / scale()) - anchorX, Math.round(w / scale()) - anchorY);
+    }
+
+    // Pans, keeping at least part of the grid on screen
+    private void panTo(long x, long y) {
+        int margin = 32;
+        panX = Math.max(margin - getWidth(), Math.min((long) worldWidth() - margin, x));
+        panY = Math.max(margin - getHeight(), Math.min((long) worldHeight() - margin, y));
+        viewChanged();
+        repaint();
+    }
+
+    private void viewChanged() {
+        wantedView = ((long) generation << 32) | (level & 0xFFFFFFFFL);
+    }
+
+    @Override
+    public String getToolTipText(MouseEvent e) {
+        if (grid == null || !fitted) {
+            return null;
+        }
+        double s = scale();
+        long column = (long) Math.floor((panX + e.getX() + 0.5) * s);
+        long rowFromTop = (long) Math.floor((panY + e.getY() + 0.5) * s);
+        long rowCount = grid.getRowAxis().getCount();
+        if (column < 0 || column >= grid.getColumnAxis().getCount() || rowFromTop < 0 || rowFromTop >= rowCount) {
+            return null;
+        }
+        long row = rowCount - 1 - rowFromTop;
+        return rowLabel + " " + String.format(rowFormat, grid.getRowAxis().valueAt(row)) + ", "
+                + columnLabel + " " + String.format(columnFormat, grid.getColumnAxis().valueAt(column))
+                + ": profit " + String.format(cellFormat, grid.profitAt(row, column));
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        Graphics2D g2 = (Graphics2D) g;
+        g2.setColor(new Color(BACKGROUND));
+        g2.fillRect(0, 0, getWidth(), getHeight());
+        if (grid == null) {
+            g2.setColor(Color.DARK_GRAY);
+            g2.drawString("Calculate to show the heatmap", 12, 20);
+            return;
+        }
+        if (!fitted) {
+            fit();
+        }
+        double s = scale();
+        long firstTileX = Math.floorDiv(Math.max(0, panX), TILE);
+        long lastTileX = Math.floorDiv(Math.min((long) Math.ceil(worldWidth()) - 1, panX + getWidth() - 1), TILE);
+        long firstTileY = Math.floorDiv(Math.max(0, panY), TILE);
+        long lastTileY = Math.floorDiv(Math.min((long) Math.ceil(worldHeight()) - 1, panY + getHeight() - 1), TILE);
+
+        boolean complete = true;
+        for (long ty = firstTileY; ty <= lastTileY && complete; ty++) {
+            for (long tx = firstTileX; tx <= lastTileX; tx++) {
+                if (!tiles.containsKey(tileKey(level, tx, ty))) {
+                    complete = false;
+                    break;
+                }
+            }
+        }
+        // Missing tiles show the overview, scaled to the current zoom, until they arrive
+        if (!complete && overview != null) {
+            double factor = overviewScale / s;
+            g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+            g2.drawImage(overview, (int) -panX, (int) -panY,
+                    (int) Math.round(overview.getWidth() * factor), (int) Math.round(overview.getHeight() * factor), null);
+        }
+        for (long ty = firstTileY; ty <= lastTileY; ty++) {
+            for (long tx = firstTileX; tx <= lastTileX; tx++) {
+                long key = tileKey(level, tx, ty);
+                BufferedImage tile = tiles.get(key);
+                if (tile != null) {
+                    g2.drawImage(tile, (int) (tx * TILE - panX), (int) (ty * TILE - panY), null);
+                } else if (pendingTiles.add(key)) {
+                    renderTile(grid, generation, level, s, tx, ty, key);
+                }
+            }
+        }
+        paintAxes(g2, s);
+        paintLegend(g2);
+    }
+
+    // Five values of each axis along the left and bottom edges
+    private void paintAxes(Graphics2D g2, double s) {
+        FontMetrics metrics = g2.getFontMetrics();
+        long rowCount = grid.getRowAxis().getCount();
+        long columnCount = grid.getColumnAxis().getCount();
+        for (int k = 0; k < 5; k++) {
+            int y = (int) ((getHeight() - 1) * (k + 0.5) / 5);
+            long rowFromTop = (long) Math.floor((panY + y + 0.5) * s);
+            if (rowFromTop >= 0 && rowFromTop < rowCount) {
+                label(g2, metrics, String.format(rowFormat, grid.getRowAxis().valueAt(rowCount - 1 - rowFromTop)), 2, y);
+            }
+            int x = (int) ((getWidth() - 1) * (k + 0.5) / 5);
+            long column = (long) Math.floor((panX + x + 0.5) * s);
+            if (column >= 0 && column < columnCount) {
+                String text = String.format(columnFormat, grid.getColumnAxis().valueAt(column));
+                label(g2, metrics, text, x - metrics.stringWidth(text) / 2, getHeight() - metrics.getHeight());
+            }
+        }
+    }
+
+    private void paintLegend(Graphics2D g2) {
+        FontMetrics metrics = g2.getFontMetrics();
+        int width = 160;
+        int x = getWidth() - width - 8;
+        int y = 8;
+        String title = rowLabel + " (rows) x " + columnLabel + (grid.isSampled() ? " (sampled)" : "");
+        label(g2, metrics, title, getWidth() - metrics.stringWidth(title) - 10, y);
+        y += metrics.getHeight() + 4;
+        for (int i = 0; i < width; i++) {
+            g2.setColor(new Color(PALETTE[i * (PALETTE.length - 1) / (width - 1)]));
+            g2.drawLine(x + i, y, x + i, y + 10);
+        }
+        g2.setColor(new Color(CONTOUR));
+        g2.drawLine(x + width / 2, y - 2, x + width / 2, y + 12);
+        String low = String.format(cellFormat, Math.min(0, grid.min));
+        String high = String.format(cellFormat, Math.max(0, grid.max));
+        label(g2, metrics, low, x, y + 14);
+        // Long amounts go on separate lines instead of overlapping
+        int highY = metrics.stringWidth(low) + metrics.stringWidth(high) + 8 > width ? y + 14 + metrics.getHeight() : y + 14;
+        label(g2, metrics, high, x + width - metrics.stringWidth(high), highY);
+    }
+
+    // Text on a translucent box, top-left at (x, y)
+    private static void label(Graphics2D g2, FontMetrics metrics, String text, int x, int y) {
+        g2.setColor(new Color(255, 255, 255, 190));
+        g2.fillRect(x - 2, y, metrics.stringWidth(text) + 4, metrics.getHeight());
+        g2.setColor(Color.BLACK);
+        g2.drawString(text, x, y + metrics.getAscent());
+    }
+
+    private static long tileKey(int level, long tx, long ty) {
+        return ((long) (level & 0xFF) << 56) | ((tx & 0xFFFFFFFL) << 28) | (ty & 0xFFFFFFFL);
+    }
+
+    private void renderTile(Grid grid, int tileGeneration, int tileLevel, double s, long tx, long ty, long key) {
+        long view = ((long) tileGeneration << 32) | (tileLevel & 0xFFFFFFFFL);
+        TILE_EXECUTOR.execute(() -> {
+            // Skip tiles of a level or grid the user has already left
+            BufferedImage image = null;
+            if (wantedView == view) {
+                long start = TILE_TIMER.start();
+                image = new BufferedImage(TILE, TILE, BufferedImage.TYPE_INT_RGB);
+                int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+                render(grid, tx * TILE * s, ty * TILE * s, s, pixels, TILE, TILE);
+                TILE_TIMER.stop(start, (long) TILE * TILE);
+            }
+            BufferedImage rendered = image;
+            SwingUtilities.invokeLater(() -> {
+                if (generation != tileGeneration) {
+                    return;
+                }
+                pendingTiles.remove(key);
+                if (rendered != null) {
+                    tiles.put(key, rendered);
+                }
+                // A tile skipped while the user was at another level is requested again by this
+                // repaint if they have come back to it
+                if (level == tileLevel) {
+                    repaint((int) (tx * TILE - panX), (int) (ty * TILE - panY), TILE, TILE);
+                }
+            });
+        });
+    }
+
+    private void renderOverview(Grid grid, int overviewGeneration) {
+        long columnCount = grid.getColumnAxis().getCount();
+        long rowCount = grid.getRowAxis().getCount();
+        double s = (double) Math.max(columnCount, rowCount) / OVERVIEW_SIZE;
+        int width = (int) Math.max(1, Math.ceil(columnCount / s));
+        int height = (int) Math.max(1, Math.ceil(rowCount / s));
+        TILE_EXECUTOR.execute(() -> {
+            BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            render(grid, 0, 0, s, ((DataBufferInt) image.getRaster().getDataBuffer()).getData(), width, height);
+            SwingUtilities.invokeLater(() -> {
+                if (generation == overviewGeneration) {
+                    overview = image;
+                    overviewScale = s;
+                    repaint();
+                }
+            });
+        });
+    }
+
+    // Writes width x height pixels, s cells per pixel, whose top-left corner is at column u0 and
+    // row w0 counted from the top. Each pixel takes the cell under its center; a pixel whose cell
+    // differs in sign from the one to its right or below is part of the break-even contour.
+    static void render(Grid grid, double u0, double w0, double s, int[] pixels, int width, int height) {
+        // Buffer offsets of the columns and rows under each pixel (one extra for the neighbours), -1 outside
+        int[] columnOffsets = new int[width + 1];
+        for (int x = 0; x <= width; x++) {
+            long column = (long) Math.floor(u0 + (x + 0.5) * s);
+            columnOffsets[x] = column >= 0 && column < grid.columnAxis.getCount() ? (int) (column / grid.columnStride) : -1;
+        }
+        long rowCount = grid.rowAxis.getCount();
+        int[] rowOffsets = new int[height + 1];
+        for (int y = 0; y <= height; y++) {
+            long rowFromTop = (long) Math.floor(w0 + (y + 0.5) * s);
+            rowOffsets[y] = rowFromTop >= 0 && rowFromTop < rowCount
+                    ? (int) ((rowCount - 1 - rowFromTop) / grid.rowStride) * grid.columns : -1;
+        }
+        double[] profits = grid.profits;
+        int paletteMid = (PALETTE.length - 1) / 2;
+        double lossToPalette = paletteMid / extent(grid.min);
+        double gainToPalette = paletteMid / extent(grid.max);
+        for (int y = 0; y < height; y++) {
+            int rowOffset = rowOffsets[y];
+            int nextRowOffset = rowOffsets[y + 1];
+            int out = y * width;
+            if (rowOffset < 0) {
+                Arrays.fill(pixels, out, out + width, BACKGROUND);
+                continue;
+            }
+            // Zoomed in, a pixel row inside a cell row is the same as the one above it
+            if (y > 0 && rowOffsets[y - 1] == rowOffset && nextRowOffset == rowOffset) {
+                System.arraycopy(pixels, out - width, pixels, out, width);
+                continue;
+            }
+            int x = 0;
+            while (x < width) {
+                int columnOffset = columnOffsets[x];
+                // The run of pixels over the same cell
+                int end = x + 1;
+                while (end < width && columnOffsets[end] == columnOffset) {
+                    end++;
+                }
+                if (columnOffset < 0) {
+                    Arrays.fill(pixels, out + x, out + end, BACKGROUND);
+                    x = end;
+                    continue;
+                }
+                double profit = profits[rowOffset + columnOffset];
+                boolean gain = profit >= 0;
+                int color;
+                if (nextRowOffset >= 0 && (profits[nextRowOffset + columnOffset] >= 0) != gain) {
+                    color = CONTOUR;
+                } else if (profit != profit) {
+                    color = NAN_COLOR;
+                } else {
+                    double index = paletteMid + profit * (gain ? gainToPalette : lossToPalette) + 0.5;
+                    color = PALETTE[index <= 0 ? 0 : index >= PALETTE.length - 1 ? PALETTE.length - 1 : (int) index];
+                }
+                Arrays.fill(pixels, out + x, out + end, color);
+                int right = columnOffsets[end];
+                if (right >= 0 && (profits[rowOffset + right] >= 0) != gain) {
+                    pixels[out + end - 1] = CONTOUR;
+                }
+                x = end;
+            }
+        }
+    }
+
+    // Losses and profits are scaled separately, so break-even is always white and a small loss
+    // region next to large profits still shows its full range of reds
+    private static double extent(double value) {
+        double extent = Math.abs(value);
+        return extent > 0 && extent < Double.POSITIVE_INFINITY ? extent : 1;
+    }
+
+    // Red (loss) through white (break-even) to green (profit)
+    private static int[] createPalette(int size) {
+        int[] palette = new int[size];
+        for (int i = 0; i < size; i++) {
+            double t = 2.0 * i / (size - 1) - 1;
+            int target = t < 0 ? 0xC0392B : 0x1E8449;
+            double weight = Math.abs(t);
+            int r = (int) Math.round(255 + (((target >> 16) & 0xFF) - 255) * weight);
+            int g = (int) Math.round(255 + (((target >> 8) & 0xFF) - 255) * weight);
+            int b = (int) Math.round(255 + ((target & 0xFF) - 255) * weight);
+            palette[i] = (r << 16) | (g << 8) | b;
+        }
+        return palette;
+    }
+}
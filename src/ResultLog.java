@@ -0,0 +1,417 @@
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+// Append-only result log that lets a long chunked run (Monte Carlo or sweep) resume after the
+// app or the process is stopped. Every record is
+//   int payloadLength, byte type, long index, payload, int CRC32(type, index, payload)
+// and the first one is a HEADER holding the run key, a description of everything that determines
+// the results. A run appends START (its seed and settings), one CHUNK per finished chunk, a
+// CHECKPOINT now and then with the merged aggregate so far, and COMPLETE at the end.
+// Opening an existing log with the same key replays it: a torn or corrupt tail (from a crash
+// mid-write) is truncated, and only START, the last CHECKPOINT and the records after it are kept,
+// since a checkpoint covers every chunk before it. A log for a different key is started over.
+// Appends are buffered and written with one fsync once syncIntervalMillis has passed (checked on
+// each append), so at most that much work is lost; checkpoints and COMPLETE are synced at once.
+// A log has one writer: a second open of the same file in this JVM waits until the first is
+// closed (e.g. a cancelled panel run still finishing its chunk), and a file locked by another
+// process is refused.
+public final class ResultLog implements Closeable {
+
+    public static final String EXTENSION = ".a6log";
+
+    public static final byte HEADER = 'H';
+    public static final byte START = 'S';
+    public static final byte CHUNK = 'C';
+    public static final byte CHECKPOINT = 'K';
+    public static final byte COMPLETE = 'D';
+
+    public static final long DEFAULT_SYNC_MILLIS = 1000;
+    public static final long DEFAULT_CHECKPOINT_MILLIS = 10_000;
+    public static final long DEFAULT_LOCK_WAIT_MILLIS = 30_000;
+
+    private static final int RECORD_OVERHEAD = 4 + 1 + 8 + 4;
+    private static final int MAX_PAYLOAD = 1 << 26;
+    private static final int FLUSH_BYTES = 1 << 20;
+
+    private static final Metrics.Timer SYNC_TIMER = Metrics.timer("resultLog.sync");
+    private static final Metrics.Counter RECORDS = Metrics.counter("resultLog.records");
+    private static final Metrics.Counter BYTES = Metrics.counter("resultLog.bytes");
+
+    // Logs open in this JVM, by absolute path. Guarded by itself. Tracked here rather than with
+    // file locks alone, since closing any channel on a file can drop the JVM's locks on it.
+    private static final Set<Path> OPEN_FILES = new HashSet<>();
+
+    // One replayed record
+    public static final class Record {
+        private final byte type;
+        private final long index;
+        private final byte[] payload;
+
+        Record(byte type, long index, byte[] payload) {
+            this.type = type;
+            this.index = index;
+            this.payload = payload;
+        }
+
+        public byte getType() {
+            return type;
+        }
+
+        public long getIndex() {
+            return index;
+        }
+
+        public DataInputStream open() {
+            return new DataInputStream(new ByteArrayInputStream(payload));
+        }
+    }
+
+    // Builds one record payload with DataOutput methods
+    public interface PayloadWriter {
+        void write(DataOutput out) throws IOException;
+    }
+
+    private final Path file;
+    private final Path openKey;
+    private final FileChannel channel;
+    private final long syncIntervalNanos;
+    private final long checkpointIntervalNanos;
+    private final List<Record> replayed;
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private final DataOutputStream pendingOut = new DataOutputStream(pending);
+    private final ByteArrayOutputStream scratch = new ByteArrayOutputStream();
+    private final DataOutputStream scratchOut = new DataOutputStream(scratch);
+    private final CRC32 crc = new CRC32();
+    private long lastSync = System.nanoTime();
+    private long lastCheckpoint = System.nanoTime();
+    private long truncatedBytes;
+
+    private ResultLog(Path file, String runKey, long syncIntervalMillis, long checkpointIntervalMillis,
+                      long lockWaitMillis) throws IOException {
+        this.file = file;
+        this.openKey = file.toAbsolutePath().normalize();
+        this.syncIntervalNanos = syncIntervalMillis * 1_000_000L;
+        this.checkpointIntervalNanos = checkpointIntervalMillis * 1_000_000L;
+        Path parent = openKey.getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        acquire(openKey, lockWaitMillis);
+        List<Record> records = null;
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } catch (IOException | RuntimeException ex) {
+            release(openKey);
+            throw ex;
+        }
+        try {
+            if (tryLock(channel) == null) {
+                throw new IOException(file + " is in use by another process");
+            }
+            records = replay(runKey);
+        } catch (IOException | RuntimeException ex) {
+            try {
+                channel.close();
+            } finally {
+                release(openKey);
+            }
+            throw ex;
+        }
+        if (records == null) {
+            channel.truncate(0);
+            replayed = Collections.emptyList();
+            append(HEADER, 0, out -> out.write(runKey.getBytes(StandardCharsets.UTF_8)));
+            sync();
+        } else {
+            replayed = records;
+        }
+        channel.position(channel.size());
+    }
+
+    // Opens the log for the run, replaying it when it belongs to the same run key
+    public static ResultLog open(Path file, String runKey) throws IOException {
+        return open(file, runKey, DEFAULT_SYNC_MILLIS, DEFAULT_CHECKPOINT_MILLIS);
+    }
+
+    public static ResultLog open(Path file, String runKey, long syncIntervalMillis, long checkpointIntervalMillis)
+            throws IOException {
+        if (syncIntervalMillis < 0 || checkpointIntervalMillis < 0) {
+            throw new IllegalArgumentException("Log intervals must not be negative");
+        }
+        return new ResultLog(file, runKey, syncIntervalMillis, checkpointIntervalMillis, DEFAULT_LOCK_WAIT_MILLIS);
+    }
+
+    // Waits up to waitMillis for another log on the same file in this JVM to be closed
+    private static void acquire(Path key, long waitMillis) throws IOException {
+        long deadline = System.nanoTime() + waitMillis * 1_000_000L;
+        synchronized (OPEN_FILES) {
+            while (OPEN_FILES.contains(key)) {
+                long remaining = (deadline - System.nanoTime()) / 1_000_000L;
+                if (remaining <= 0) {
+                    throw new IOException(key + " is in use by another run");
+                }
+                try {
+                    OPEN_FILES.wait(remaining);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted waiting for " + key);
+                }
+            }
+            OPEN_FILES.add(key);
+        }
+    }
+
+    private static void release(Path key) {
+        synchronized (OPEN_FILES) {
+            OPEN_FILES.remove(key);
+            OPEN_FILES.notifyAll();
+        }
+    }
+
+    // Null when another process holds the file
+    private static FileLock tryLock(FileChannel channel) throws IOException {
+        try {
+            return channel.tryLock();
+        } catch (OverlappingFileLockException ex) {
+            // Held in this JVM under another path to the same file
+            return null;
+        }
+    }
+
+    // Log of a run started from a panel, under ~/.activity6/runs and named after its run key
+    public static Path panelLogFile(String name, String runKey) {
+        return Path.of(System.getProperty("user.home"), ".activity6", "runs",
+                name + "-" + Integer.toHexString(runKey.hashCode()) + EXTENSION);
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    // True when earlier records of the same run were found
+    public boolean isResumed() {
+        return !replayed.isEmpty();
+    }
+
+    // START, the last CHECKPOINT and everything after it, in file order
+    public List<Record> getReplayedRecords() {
+        return replayed;
+    }
+
+    // The last replayed record of the type, or null
+    public Record findLast(byte type) {
+        for (int i = replayed.size() - 1; i >= 0; i--) {
+            if (replayed.get(i).getType() == type) {
+                return replayed.get(i);
+            }
+        }
+        return null;
+    }
+
+    // Bytes dropped from a torn or corrupt tail while replaying
+    public long getTruncatedBytes() {
+        return truncatedBytes;
+    }
+
+    public synchronized void append(byte type, long index, PayloadWriter writer) throws IOException {
+        scratch.reset();
+        writer.write(scratchOut);
+        scratchOut.flush();
+        int length = scratch.size();
+        if (length > MAX_PAYLOAD) {
+            throw new IOException("Log record of " + length + " bytes is too large");
+        }
+        crc.reset();
+        crc.update(type);
+        crc.update(ByteBuffer.allocate(8).putLong(0, index).array());
+        crc.update(scratch.toByteArray());
+        pendingOut.writeInt(length);
+        pendingOut.writeByte(type);
+        pendingOut.writeLong(index);
+        scratch.writeTo(pendingOut);
+        pendingOut.writeInt((int) crc.getValue());
+        RECORDS.increment();
+        BYTES.add(RECORD_OVERHEAD + length);
+        if (type == CHECKPOINT || type == COMPLETE) {
+            lastCheckpoint = System.nanoTime();
+            sync();
+        } else if (pending.size() >= FLUSH_BYTES) {
+            flush();
+        }
+        if (System.nanoTime() - lastSync >= syncIntervalNanos) {
+            sync();
+        }
+    }
+
+    // True once checkpointIntervalMillis has passed since the last checkpoint
+    public synchronized boolean isCheckpointDue() {
+        return System.nanoTime() - lastCheckpoint >= checkpointIntervalNanos;
+    }
+
+    // Writes the buffered records and forces them to disk
+    public synchronized void sync() throws IOException {
+        long start = SYNC_TIMER.start();
+        flush();
+        channel.force(false);
+        lastSync = System.nanoTime();
+        SYNC_TIMER.stop(start);
+    }
+
+    private void flush() throws IOException {
+        if (pending.size() == 0) {
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(pending.toByteArray());
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        pending.reset();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (!channel.isOpen()) {
+            return;
+        }
+        try {
+            sync();
+        } finally {
+            try {
+                channel.close();
+            } finally {
+                release(openKey);
+            }
+        }
+    }
+
+    // Closes and removes the log, e.g. once a panel's run has finished. The file is removed before
+    // the log is released, so a waiting open starts a new file instead of reusing the deleted one.
+    public synchronized void delete() throws IOException {
+        if (!channel.isOpen()) {
+            Files.deleteIfExists(file);
+            return;
+        }
+        try {
+            sync();
+        } finally {
+            try {
+                channel.close();
+                Files.deleteIfExists(file);
+            } finally {
+                release(openKey);
+            }
+        }
+    }
+
+    // Reads the existing records. Returns null when the file is empty or is the log of another run,
+    // otherwise the kept records after truncating anything unreadable at the end.
+    private List<Record> replay(String runKey) throws IOException {
+        if (channel.size() == 0) {
+            return null;
+        }
+        channel.position(0);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), 1 << 16));
+        long validEnd = 0;
+        List<Record> kept = new ArrayList<>();
+        boolean first = true;
+        while (true) {
+            Record record;
+            try {
+                record = readRecord(in);
+            } catch (EOFException ex) {
+                record = null;
+            }
+            if (record == null) {
+                break;
+            }
+            if (first) {
+                if (record.type != HEADER) {
+                    throw new IOException(file + " is not a result log");
+                }
+                if (!runKey.equals(new String(record.payload, StandardCharsets.UTF_8))) {
+                    return null;
+                }
+                first = false;
+            } else if (record.type == CHECKPOINT) {
+                kept.removeIf(r -> r.type != START);
+                kept.add(record);
+            } else {
+                kept.add(record);
+            }
+            validEnd += RECORD_OVERHEAD + record.payload.length;
+        }
+        if (first) {
+            // Refuse to overwrite a file that never was a log, e.g. a mistyped output path
+            throw new IOException(file + " is not a result log");
+        }
+        truncatedBytes = channel.size() - validEnd;
+        if (truncatedBytes > 0) {
+            channel.truncate(validEnd);
+            channel.force(false);
+        }
+        return kept;
+    }
+
+    // Null for a record that fails its length or CRC check
+    private Record readRecord(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_PAYLOAD) {
+            return null;
+        }
+        byte type = in.readByte();
+        long index = in.readLong();
+        byte[] payload = new byte[length];
+        in.readFully(payload);
+        int stored = in.readInt();
+        crc.reset();
+        crc.update(type);
+        crc.update(ByteBuffer.allocate(8).putLong(0, index).array());
+        crc.update(payload);
+        return stored == (int) crc.getValue() ? new Record(type, index, payload) : null;
+    }
+
+    // Compact encoding for counts: 7 bits per byte, small values take one byte
+    public static void writeVarLong(DataOutput out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    public static long readVarLong(DataInput in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable-length number");
+    }
+}
@@ -0,0 +1,193 @@
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// Bounded, thread-safe memo of evaluated scenarios shared by all panels.
+// Entries are keyed on the full parameter tuple (model constants and grid axes) and weighted by
+// their size in cells; the least recently used entries are evicted once the total weight exceeds
+// the limit. Cached values are shared, so callers must treat them as read-only.
+public class ScenarioCache {
+
+    // About 32 MB worth of double cells
+    private static final long DEFAULT_MAX_WEIGHT = 4_000_000;
+
+    private static final ScenarioCache SHARED = new ScenarioCache(DEFAULT_MAX_WEIGHT);
+
+    private final long maxWeight;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long totalWeight;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public ScenarioCache(long maxWeight) {
+        this.maxWeight = maxWeight;
+    }
+
+    public static ScenarioCache getShared() {
+        return SHARED;
+    }
+
+    public static KeyBuilder keyBuilder(String scenario) {
+        return new KeyBuilder(scenario);
+    }
+
+    // Cached value for the key, or null on a miss
+    @SuppressWarnings("unchecked")
+    public synchronized <T> T get(Key key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return (T) entry.value;
+    }
+
+    // Stores a value; entries heavier than the whole cache are not kept
+    public synchronized void put(Key key, Object value, long weight) {
+        if (weight > maxWeight) {
+            return;
+        }
+        Entry previous = entries.put(key, new Entry(value, weight));
+        if (previous != null) {
+            totalWeight -= previous.weight;
+        }
+        totalWeight += weight;
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (totalWeight > maxWeight && eldest.hasNext()) {
+            totalWeight -= eldest.next().weight;
+            eldest.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    // Returns the cached value or computes and stores it. The computation runs outside the lock,
+    // so two threads missing on the same key at once may both compute it.
+    public <T> T computeIfAbsent(Key key, long weight, Supplier<T> compute) {
+        T value = get(key);
+        if (value == null) {
+            value = compute.get();
+            put(key, value, weight);
+        }
+        return value;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        totalWeight = 0;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public synchronized int getSize() {
+        return entries.size();
+    }
+
+    public synchronized long getWeight() {
+        return totalWeight;
+    }
+
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    @Override
+    public String toString() {
+        return "ScenarioCache[entries=" + getSize() + ", weight=" + getWeight() + "/" + maxWeight
+                + ", hits=" + getHits() + ", misses=" + getMisses() + ", evictions=" + getEvictions() + "]";
+    }
+
+    private static class Entry {
+        final Object value;
+        final long weight;
+
+        Entry(Object value, long weight) {
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+
+    // Immutable cache key: scenario name plus every parameter that influences the result
+    public static final class Key {
+        private final String scenario;
+        private final double[] parameters;
+        private final int hash;
+
+        private Key(String scenario, double[] parameters) {
+            this.scenario = scenario;
+            this.parameters = parameters;
+            this.hash = 31 * scenario.hashCode() + Arrays.hashCode(parameters);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return hash == other.hash && scenario.equals(other.scenario) && Arrays.equals(parameters, other.parameters);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public String toString() {
+            return scenario + Arrays.toString(parameters);
+        }
+    }
+
+    public static final class KeyBuilder {
+        private final String scenario;
+        private double[] parameters = new double[16];
+        private int size;
+
+        private KeyBuilder(String scenario) {
+            this.scenario = scenario;
+        }
+
+        public KeyBuilder add(double... values) {
+            for (double value : values) {
+                if (size == parameters.length) {
+                    parameters = Arrays.copyOf(parameters, size * 2);
+                }
+                parameters[size++] = value;
+            }
+            return this;
+        }
+
+        public KeyBuilder add(int... values) {
+            for (int value : values) {
+                add((double) value);
+            }
+            return this;
+        }
+
+        public KeyBuilder add(GridAxis axis) {
+            return add(axis.getStart(), axis.getStep(), axis.getCount());
+        }
+
+        public Key build() {
+            return new Key(scenario, Arrays.copyOf(parameters, size));
+        }
+    }
+}
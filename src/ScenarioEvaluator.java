@@ -0,0 +1,55 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.LongStream;
+
+// Evaluates a profit model on every row of a scenario file, reading the model inputs straight from
+// the mapped columns named after the model's axes (e.g. salesVolume and variableCost). Rows are
+// processed in parallel chunks, and profits can be written into a column of another mapped file.
+public class ScenarioEvaluator {
+
+    private static final long CHUNK_ROWS = 1 << 16;
+
+    private ScenarioEvaluator() {
+    }
+
+    // Summary of the profits over all rows (argmin/argmax are row numbers). When output is not
+    // null, each profit is also stored in its row of the output column. Returns null if cancelled.
+    public static SweepSummary evaluate(GridModel model, ScenarioFile input, ScenarioFile.Column output,
+                                        ComputeExecutor.Progress progress) {
+        ScenarioFile.Column xs = requireColumn(input, model.getXName());
+        ScenarioFile.Column ys = requireColumn(input, model.getYName());
+        long rows = input.getRowCount();
+        long chunks = (rows + CHUNK_ROWS - 1) / CHUNK_ROWS;
+        AtomicLong completed = new AtomicLong();
+        SweepSummary summary = LongStream.range(0, chunks).parallel().mapToObj(chunk -> {
+            SweepSummary partial = new SweepSummary();
+            if (progress.isCancelled()) {
+                return partial;
+            }
+            long end = Math.min(rows, (chunk + 1) * CHUNK_ROWS);
+            for (long row = chunk * CHUNK_ROWS; row < end; row++) {
+                double profit = model.evaluate(xs.get(row), ys.get(row));
+                if (output != null) {
+                    output.set(row, profit);
+                }
+                partial.add(profit, row);
+            }
+            progress.update((double) completed.incrementAndGet() / chunks);
+            return partial;
+        }).reduce(new SweepSummary(), (a, b) -> {
+            SweepSummary merged = new SweepSummary();
+            merged.merge(a);
+            merged.merge(b);
+            return merged;
+        });
+        return progress.isCancelled() ? null : summary;
+    }
+
+    private static ScenarioFile.Column requireColumn(ScenarioFile file, String name) {
+        ScenarioFile.Column column = file.findColumn(name);
+        if (column == null) {
+            throw new IllegalArgumentException("Scenario file has no " + name + " column (columns: "
+                    + String.join(", ", file.getColumnNames()) + ")");
+        }
+        return column;
+    }
+}
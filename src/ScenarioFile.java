@@ -0,0 +1,270 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// Columnar scenario set (e.g. historical demand, prices and costs) accessed through memory-mapped I/O.
+// Layout, little-endian:
+//   magic "A6SCEN01", int columnCount, long rowCount, then per column: short nameLength + UTF-8 name,
+//   zero padding to a multiple of 8 bytes, then each column as rowCount contiguous doubles.
+// Columns are fixed-size and 8-byte aligned, so a column is a DoubleBuffer view straight onto the
+// mapped file: reading or writing a value touches the page cache only, with no parsing or copying.
+// Columns larger than one mapping are split into segments of SEGMENT_ROWS rows.
+public class ScenarioFile implements AutoCloseable {
+
+    public static final String EXTENSION = ".a6s";
+
+    private static final byte[] MAGIC = "A6SCEN01".getBytes(StandardCharsets.US_ASCII);
+    // 1 GiB of doubles per mapping, well below the 2 GiB MappedByteBuffer limit
+    private static final int SEGMENT_SHIFT = 27;
+    private static final long SEGMENT_ROWS = 1L << SEGMENT_SHIFT;
+
+    private final FileChannel channel;
+    private final String[] columnNames;
+    private final long rowCount;
+    private final Column[] columns;
+
+    private ScenarioFile(FileChannel channel, String[] columnNames, long rowCount, long dataStart,
+                         FileChannel.MapMode mode) throws IOException {
+        this.channel = channel;
+        this.columnNames = columnNames;
+        this.rowCount = rowCount;
+        this.columns = new Column[columnNames.length];
+        for (int c = 0; c < columnNames.length; c++) {
+            columns[c] = new Column(columnNames[c], dataStart + c * rowCount * Double.BYTES, mode);
+        }
+    }
+
+    // Maps an existing file read-only
+    public static ScenarioFile open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            ByteBuffer fixed = ByteBuffer.allocate(MAGIC.length + 12).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, fixed, 0);
+            byte[] magic = new byte[MAGIC.length];
+            fixed.get(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IOException(file + " is not a scenario file");
+            }
+            int columnCount = fixed.getInt();
+            long rowCount = fixed.getLong();
+            // Every column name takes at least its 2-byte length, which bounds the column count by
+            // the file size before anything is allocated for it
+            if (columnCount <= 0 || rowCount < 0 || columnCount > (channel.size() - fixed.capacity()) / 2) {
+                throw new IOException(file + " has a corrupt header");
+            }
+            String[] names = new String[columnCount];
+            long position = fixed.capacity();
+            ByteBuffer length = ByteBuffer.allocate(2).order(ByteOrder.LITTLE_ENDIAN);
+            for (int c = 0; c < columnCount; c++) {
+                length.clear();
+                readFully(channel, length, position);
+                ByteBuffer name = ByteBuffer.allocate(length.getShort() & 0xFFFF);
+                readFully(channel, name, position + 2);
+                names[c] = new String(name.array(), StandardCharsets.UTF_8);
+                position += 2 + name.capacity();
+            }
+            long dataStart = align(position);
+            long dataEnd;
+            try {
+                dataEnd = Math.addExact(dataStart, Math.multiplyExact(Math.multiplyExact((long) columnCount, rowCount), Double.BYTES));
+            } catch (ArithmeticException ex) {
+                throw new IOException(file + " has a corrupt header");
+            }
+            if (channel.size() < dataEnd) {
+                throw new IOException(file + " is truncated");
+            }
+            return new ScenarioFile(channel, names, rowCount, dataStart, FileChannel.MapMode.READ_ONLY);
+        } catch (IOException | RuntimeException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    // Creates (or replaces) a file of the given shape and maps it read-write; values start at zero
+    public static ScenarioFile create(Path file, String[] columnNames, long rowCount) throws IOException {
+        if (columnNames.length == 0 || rowCount < 0) {
+            throw new IllegalArgumentException("A scenario file needs at least one column");
+        }
+        ByteBuffer header = ByteBuffer.allocate(headerSize(columnNames)).order(ByteOrder.LITTLE_ENDIAN);
+        header.put(MAGIC).putInt(columnNames.length).putLong(rowCount);
+        for (String name : columnNames) {
+            byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+            header.putShort((short) bytes.length).put(bytes);
+        }
+        header.position(header.capacity()).flip();
+
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            long dataStart = header.capacity();
+            return new ScenarioFile(channel, columnNames.clone(), rowCount, dataStart, FileChannel.MapMode.READ_WRITE);
+        } catch (IOException | RuntimeException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    // Converts a CSV file with a header line of column names into a scenario file. Two passes: one
+    // to count the rows, one to fill the mapped columns, so memory use doesn't depend on file size.
+    public static long importCsv(Path csv, Path file) throws IOException {
+        String[] names;
+        long rows = 0;
+        try (BufferedReader reader = Files.newBufferedReader(csv, StandardCharsets.UTF_8)) {
+            String header = reader.readLine();
+            if (header == null) {
+                throw new IOException(csv + " is empty");
+            }
+            names = header.split(",");
+            for (int c = 0; c < names.length; c++) {
+                names[c] = names[c].trim();
+            }
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    rows++;
+                }
+            }
+        }
+        try (ScenarioFile out = create(file, names, rows);
+             BufferedReader reader = Files.newBufferedReader(csv, StandardCharsets.UTF_8)) {
+            reader.readLine();
+            long row = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                String[] fields = line.split(",", -1);
+                if (fields.length != names.length) {
+                    throw new IOException(csv + " line " + (row + 2) + " has " + fields.length
+                            + " fields, expected " + names.length);
+                }
+                for (int c = 0; c < fields.length; c++) {
+                    try {
+                        out.columns[c].set(row, Double.parseDouble(fields[c].trim()));
+                    } catch (NumberFormatException ex) {
+                        throw new IOException(csv + " line " + (row + 2) + " has an invalid number: " + fields[c]);
+                    }
+                }
+                row++;
+            }
+            out.force();
+        }
+        return rows;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public String[] getColumnNames() {
+        return columnNames.clone();
+    }
+
+    public Column getColumn(int index) {
+        return columns[index];
+    }
+
+    // Column by name (case-insensitive), or null if the file has no such column
+    public Column findColumn(String name) {
+        for (Column column : columns) {
+            if (column.name.equalsIgnoreCase(name)) {
+                return column;
+            }
+        }
+        return null;
+    }
+
+    // Flushes written values to the storage device
+    public void force() {
+        for (Column column : columns) {
+            for (MappedByteBuffer segment : column.mappings) {
+                if (!segment.isReadOnly()) {
+                    segment.force();
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static int headerSize(String[] columnNames) {
+        long size = MAGIC.length + 12;
+        for (String name : columnNames) {
+            int length = name.getBytes(StandardCharsets.UTF_8).length;
+            if (length > 0xFFFF) {
+                throw new IllegalArgumentException("Column name too long: " + name);
+            }
+            size += 2 + length;
+        }
+        return (int) align(size);
+    }
+
+    private static long align(long position) {
+        return (position + Double.BYTES - 1) & ~(long) (Double.BYTES - 1);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of scenario file");
+            }
+        }
+        buffer.flip();
+    }
+
+    // One column of doubles; absolute gets and sets are safe from many threads for distinct rows
+    public final class Column {
+        private final String name;
+        private final MappedByteBuffer[] mappings;
+        private final DoubleBuffer[] segments;
+
+        private Column(String name, long offset, FileChannel.MapMode mode) throws IOException {
+            this.name = name;
+            int segmentCount = (int) ((rowCount + SEGMENT_ROWS - 1) / SEGMENT_ROWS);
+            mappings = new MappedByteBuffer[segmentCount];
+            segments = new DoubleBuffer[segmentCount];
+            for (int s = 0; s < segmentCount; s++) {
+                long rows = Math.min(SEGMENT_ROWS, rowCount - s * SEGMENT_ROWS);
+                MappedByteBuffer mapping = channel.map(mode, offset + s * SEGMENT_ROWS * Double.BYTES, rows * Double.BYTES);
+                mapping.order(ByteOrder.LITTLE_ENDIAN);
+                mappings[s] = mapping;
+                segments[s] = mapping.asDoubleBuffer();
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public double get(long row) {
+            return segments[(int) (row >>> SEGMENT_SHIFT)].get((int) (row & (SEGMENT_ROWS - 1)));
+        }
+
+        public void set(long row, double value) {
+            segments[(int) (row >>> SEGMENT_SHIFT)].put((int) (row & (SEGMENT_ROWS - 1)), value);
+        }
+
+        // Copies rows [from, from + length) into the array, for callers that want to batch
+        public void read(long from, double[] into, int length) {
+            for (int i = 0; i < length; i++) {
+                into[i] = get(from + i);
+            }
+        }
+    }
+}
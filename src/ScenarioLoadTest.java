@@ -0,0 +1,226 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Closed-loop load generator for ScenarioServer, e.g.
+//   java Activity6App --load-test --concurrency 32 --duration 10 --batch 100
+// Each client thread sends POST /v1/profit requests back to back over a keep-alive connection
+// (HttpURLConnection, which costs far less CPU per request than java.net.http.HttpClient),
+// with random scenarios drawn from the model's default grid. Without --url an embedded server is
+// started on a free loopback port, so a single command measures the full HTTP round trip.
+// Requests sent during the warm-up are not counted.
+public class ScenarioLoadTest {
+
+    private static final String USAGE = String.join("\n",
+            "Usage: Activity6App --load-test [options]",
+            "  --url <base>         server to load, e.g. http://127.0.0.1:8086 (default: embedded server)",
+            "  --model <name>       lemonade, broadway or copyshop (default broadway)",
+            "  --concurrency <n>    client threads (default 16)",
+            "  --batch <n>          scenarios per request (default 1)",
+            "  --duration <s>       measured seconds (default 10)",
+            "  --warmup <s>         warm-up seconds (default 2)");
+
+    private String url;
+    private GridModel model = GridModel.BROADWAY;
+    private int concurrency = 16;
+    private int batch = 1;
+    private double durationSeconds = 10;
+    private double warmupSeconds = 2;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+
+    // Runs the load test described by the arguments and returns the process exit code
+    public static int run(String[] args) {
+        ScenarioLoadTest test = new ScenarioLoadTest();
+        try {
+            test.parseArguments(args);
+            return test.execute();
+        } catch (IllegalArgumentException ex) {
+            System.err.println("Error: " + ex.getMessage());
+            System.err.println(USAGE);
+            return 2;
+        } catch (IOException ex) {
+            System.err.println("I/O error: " + ex.getMessage());
+            return 1;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return 1;
+        }
+    }
+
+    private void parseArguments(String[] args) {
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--load-test":
+                        break;
+                    case "--url":
+                        url = value(args, ++i, "--url");
+                        break;
+                    case "--model":
+                        model = GridModel.fromName(value(args, ++i, "--model"));
+                        break;
+                    case "--concurrency":
+                        concurrency = Integer.parseInt(value(args, ++i, "--concurrency"));
+                        break;
+                    case "--batch":
+                        batch = Integer.parseInt(value(args, ++i, "--batch"));
+                        break;
+                    case "--duration":
+                        durationSeconds = Double.parseDouble(value(args, ++i, "--duration"));
+                        break;
+                    case "--warmup":
+                        warmupSeconds = Double.parseDouble(value(args, ++i, "--warmup"));
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option: " + args[i]);
+                }
+            }
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Invalid number: " + ex.getMessage());
+        }
+        if (concurrency <= 0 || batch <= 0 || durationSeconds <= 0 || warmupSeconds < 0) {
+            throw new IllegalArgumentException("Concurrency, batch and duration must be positive");
+        }
+    }
+
+    private static String value(String[] args, int index, String option) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException(option + " needs a value");
+        }
+        return args[index];
+    }
+
+    private int execute() throws IOException, InterruptedException {
+        ScenarioServer embedded = null;
+        if (url == null) {
+            embedded = new ScenarioServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+                    4 * Runtime.getRuntime().availableProcessors(), 1_000_000);
+            embedded.start();
+            url = "http://127.0.0.1:" + embedded.getPort();
+            System.err.println("Embedded server on " + url + " (" + embedded.getThreadingDescription() + ")");
+        }
+        try {
+            return load();
+        } finally {
+            if (embedded != null) {
+                embedded.stop(0);
+            }
+        }
+    }
+
+    private int load() throws IOException, InterruptedException {
+        // Keep-alive pool sized for every client thread
+        System.setProperty("http.maxConnections", String.valueOf(concurrency));
+        URL endpoint = new URL(url.replaceAll("/+$", "") + "/v1/profit");
+        Metrics.Timer latency = Metrics.timer("loadTest.request");
+        Metrics.Timer warmupLatency = Metrics.timer("loadTest.warmup");
+        GridAxis[] axes = model.parseGrid("");
+
+        long start = System.nanoTime();
+        long measureFrom = start + (long) (warmupSeconds * 1e9);
+        long end = measureFrom + (long) (durationSeconds * 1e9);
+        CountDownLatch done = new CountDownLatch(concurrency);
+        SplittableRandom root = new SplittableRandom(42);
+        for (int t = 0; t < concurrency; t++) {
+            SplittableRandom random = root.split();
+            Thread thread = new Thread(() -> {
+                try {
+                    clientLoop(endpoint, axes, random, measureFrom, end, latency, warmupLatency);
+                } finally {
+                    done.countDown();
+                }
+            }, "load-" + t);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        done.await();
+
+        long count = requests.get();
+        double rate = count / durationSeconds;
+        System.out.printf("%d requests in %.1f s with %d clients: %,.0f requests/s, %,.0f scenarios/s, %d errors%n",
+                count, durationSeconds, concurrency, rate, rate * batch, errors.get());
+        System.out.printf("Latency ms: mean %.3f, p50 %.3f, p99 %.3f, max %.3f%n",
+                latency.getMeanNanos() / 1e6, latency.getPercentileNanos(50) / 1e6,
+                latency.getPercentileNanos(99) / 1e6, latency.getMaxNanos() / 1e6);
+        return errors.get() == 0 ? 0 : 4;
+    }
+
+    private void clientLoop(URL endpoint, GridAxis[] axes, SplittableRandom random,
+                            long measureFrom, long end, Metrics.Timer latency, Metrics.Timer warmupLatency) {
+        StringBuilder body = new StringBuilder(32 + batch * 24);
+        byte[] buffer = new byte[8192];
+        while (true) {
+            long sent = System.nanoTime();
+            if (sent >= end) {
+                return;
+            }
+            body.setLength(0);
+            body.append("{\"model\":\"").append(model.name().toLowerCase(Locale.ROOT)).append("\",\"scenarios\":[");
+            for (int i = 0; i < batch; i++) {
+                if (i > 0) {
+                    body.append(',');
+                }
+                body.append('[');
+                Json.appendNumber(body, randomValue(axes[0], random)).append(',');
+                Json.appendNumber(body, randomValue(axes[1], random)).append(']');
+            }
+            body.append("]}");
+            boolean ok;
+            try {
+                ok = post(endpoint, body.toString().getBytes(StandardCharsets.UTF_8), buffer);
+            } catch (IOException ex) {
+                ok = false;
+            }
+            long received = System.nanoTime();
+            if (sent < measureFrom) {
+                warmupLatency.record(received - sent, batch);
+                continue;
+            }
+            if (received > end) {
+                return;
+            }
+            if (ok) {
+                requests.incrementAndGet();
+                latency.record(received - sent, batch);
+            } else {
+                errors.incrementAndGet();
+            }
+        }
+    }
+
+    // One POST; the response body is drained so the keep-alive connection goes back to the pool
+    private static boolean post(URL endpoint, byte[] body, byte[] buffer) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) endpoint.openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setFixedLengthStreamingMode(body.length);
+        connection.setRequestProperty("Content-Type", "application/json");
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body);
+        }
+        int status = connection.getResponseCode();
+        try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+            if (in != null) {
+                while (in.read(buffer) >= 0) {
+                    // Drain
+                }
+            }
+        }
+        return status == 200;
+    }
+
+    private static double randomValue(GridAxis axis, SplittableRandom random) {
+        return axis.valueAt(random.nextLong(axis.getCount()));
+    }
+}
@@ -0,0 +1,546 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.LongStream;
+
+// Embedded HTTP/JSON service over the three profit models, so other tools can call them without the GUI:
+//   java Activity6App --serve [--port 8086] [--bind 127.0.0.1] [--threads N] [--max-cells N]
+// Endpoints (GET with query parameters or POST with a JSON object body):
+//   /v1/profit      one scenario (model plus its two axes) or a batch: {"model":..., "scenarios":[...]}
+//                   where each scenario is [x, y] or {"<x axis>":..., "<y axis>":..., "model":...}
+//   /v1/sweep       grid sweep like --headless --grid, streamed as NDJSON rows [x, y, profit] ending
+//                   with a summary line; "summaryOnly":true returns just the summary
+//   /v1/break-even  solves one input for a target profit (default 0), e.g. model=broadway&solveFor=weeks
+//   /v1/models, /health, /metrics
+// "exact":true computes profits in fixed-point cents. Requests run on virtual threads when the JVM
+// has them (JDK 21+) and on a fixed pool otherwise.
+public class ScenarioServer {
+
+    public static final int DEFAULT_PORT = 8086;
+
+    private static final long DEFAULT_MAX_CELLS = 100_000_000L;
+    private static final int MAX_BODY_BYTES = 64 << 20;
+    private static final int SWEEP_BUFFER = 1 << 16;
+
+    private static final Metrics.Timer PROFIT = Metrics.timer("http.profit");
+    private static final Metrics.Timer SWEEP = Metrics.timer("http.sweep");
+    private static final Metrics.Timer BREAK_EVEN = Metrics.timer("http.breakEven");
+    private static final Metrics.Counter BAD_REQUESTS = Metrics.counter("http.badRequests");
+    private static final Metrics.Counter ERRORS = Metrics.counter("http.errors");
+
+    private static final String USAGE = String.join("\n",
+            "Usage: Activity6App --serve [options]",
+            "  --port <n>        port to listen on (default " + DEFAULT_PORT + ", 0 picks a free port)",
+            "  --bind <address>  address to bind (default 127.0.0.1)",
+            "  --threads <n>     request threads when virtual threads are unavailable (default 4 x cores)",
+            "  --max-cells <n>   largest sweep a request may ask for (default " + DEFAULT_MAX_CELLS + ")");
+
+    static {
+        // Responses are written as headers then body; without TCP_NODELAY every small response
+        // waits for the client's delayed ACK (about 40 ms on Linux)
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final long maxCells;
+
+    public ScenarioServer(InetSocketAddress address, int threads, long maxCells) throws IOException {
+        this.maxCells = maxCells;
+        this.executor = newRequestExecutor(threads);
+        this.server = HttpServer.create(address, 1024);
+        server.setExecutor(executor);
+        server.createContext("/v1/profit", exchange -> handle(exchange, PROFIT, this::profit));
+        server.createContext("/v1/sweep", exchange -> handle(exchange, SWEEP, this::sweep));
+        server.createContext("/v1/break-even", exchange -> handle(exchange, BREAK_EVEN, this::breakEven));
+        server.createContext("/v1/models", exchange -> handle(exchange, null, (e, params) -> {
+            sendJson(e, 200, models());
+            return 0;
+        }));
+        server.createContext("/health", exchange -> handle(exchange, null, (e, params) -> {
+            sendJson(e, 200, Map.of("status", "ok"));
+            return 0;
+        }));
+        server.createContext("/metrics", exchange -> handle(exchange, null, (e, params) -> {
+            send(e, 200, "text/plain; charset=utf-8", Metrics.report().getBytes(StandardCharsets.UTF_8));
+            return 0;
+        }));
+    }
+
+    // Runs the server until the process is stopped and returns the process exit code
+    public static int run(String[] args) {
+        int port = DEFAULT_PORT;
+        String bind = "127.0.0.1";
+        int threads = 4 * Runtime.getRuntime().availableProcessors();
+        long maxCells = DEFAULT_MAX_CELLS;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--serve":
+                        break;
+                    case "--port":
+                        port = Integer.parseInt(value(args, ++i, "--port"));
+                        break;
+                    case "--bind":
+                        bind = value(args, ++i, "--bind");
+                        break;
+                    case "--threads":
+                        threads = Integer.parseInt(value(args, ++i, "--threads"));
+                        break;
+                    case "--max-cells":
+                        maxCells = Long.parseLong(value(args, ++i, "--max-cells"));
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option: " + args[i]);
+                }
+            }
+            ScenarioServer server = new ScenarioServer(new InetSocketAddress(InetAddress.getByName(bind), port),
+                    threads, maxCells);
+            server.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> server.stop(1)));
+            System.err.println("Serving scenario API on http://" + bind + ":" + server.getPort()
+                    + "/ (" + server.getThreadingDescription() + ")");
+            Thread.currentThread().join();
+            return 0;
+        } catch (IllegalArgumentException ex) {
+            System.err.println("Error: " + ex.getMessage());
+            System.err.println(USAGE);
+            return 2;
+        } catch (IOException ex) {
+            System.err.println("Cannot start server: " + ex.getMessage());
+            return 1;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return 0;
+        }
+    }
+
+    private static String value(String[] args, int index, String option) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException(option + " needs a value");
+        }
+        return args[index];
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(delaySeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public String getThreadingDescription() {
+        return executor.getClass().getSimpleName().contains("ThreadPerTask") ? "virtual threads" : "thread pool";
+    }
+
+    // Virtual thread per request where available; looked up reflectively so the code still builds
+    // and runs on JDK 17
+    private static ExecutorService newRequestExecutor(int threads) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException ex) {
+            AtomicInteger threadCount = new AtomicInteger();
+            return Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+                Thread thread = new Thread(r, "http-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    // Endpoint body; returns the number of model evaluations for the timer
+    private interface Handler {
+        long handle(HttpExchange exchange, Map<String, Object> params) throws IOException;
+    }
+
+    private void handle(HttpExchange exchange, Metrics.Timer timer, Handler handler) throws IOException {
+        long start = timer == null ? 0 : timer.start();
+        try {
+            String method = exchange.getRequestMethod();
+            Map<String, Object> params;
+            if ("GET".equals(method)) {
+                params = parseQuery(exchange.getRequestURI().getRawQuery());
+            } else if ("POST".equals(method)) {
+                params = readBody(exchange);
+            } else {
+                sendError(exchange, 405, "Use GET or POST");
+                return;
+            }
+            long evaluations = handler.handle(exchange, params);
+            if (timer != null) {
+                timer.stop(start, evaluations);
+            }
+        } catch (IllegalArgumentException ex) {
+            BAD_REQUESTS.increment();
+            sendError(exchange, 400, ex.getMessage());
+        } catch (IOException ex) {
+            // Client went away, typically in the middle of a streamed sweep
+            ERRORS.increment();
+        } catch (RuntimeException ex) {
+            ERRORS.increment();
+            sendError(exchange, 500, ex.toString());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // /v1/profit: a single scenario or a batch under "scenarios"
+    private long profit(HttpExchange exchange, Map<String, Object> params) throws IOException {
+        GridModel defaultModel = params.containsKey("model") ? GridModel.fromName(string(params, "model")) : null;
+        boolean exact = bool(params, "exact");
+        Object scenarios = params.get("scenarios");
+        StringBuilder out = new StringBuilder(64);
+        if (scenarios == null) {
+            GridModel model = requireModel(defaultModel);
+            double x = number(params, model.getXName());
+            double y = number(params, model.getYName());
+            out.append("{\"model\":");
+            Json.appendString(out, modelName(model)).append(",\"profit\":");
+            Json.appendNumber(out, evaluate(model, x, y, exact)).append('}');
+            send(exchange, 200, "application/json", out.toString().getBytes(StandardCharsets.UTF_8));
+            return 1;
+        }
+        if (!(scenarios instanceof List)) {
+            throw new IllegalArgumentException("scenarios must be an array");
+        }
+        List<?> list = (List<?>) scenarios;
+        out.ensureCapacity(32 + list.size() * 16);
+        out.append("{\"count\":").append(list.size()).append(",\"profits\":[");
+        for (int i = 0; i < list.size(); i++) {
+            Object scenario = list.get(i);
+            GridModel model;
+            double x;
+            double y;
+            if (scenario instanceof List) {
+                List<?> pair = (List<?>) scenario;
+                if (pair.size() != 2) {
+                    throw new IllegalArgumentException("Scenario " + i + " must be [x, y]");
+                }
+                model = requireModel(defaultModel);
+                x = toNumber(pair.get(0), "scenario " + i);
+                y = toNumber(pair.get(1), "scenario " + i);
+            } else if (scenario instanceof Map) {
+                @SuppressWarnings("unchecked")
+                Map<String, Object> fields = (Map<String, Object>) scenario;
+                model = fields.containsKey("model") ? GridModel.fromName(string(fields, "model")) : requireModel(defaultModel);
+                x = number(fields, model.getXName());
+                y = number(fields, model.getYName());
+            } else {
+                throw new IllegalArgumentException("Scenario " + i + " must be an array or an object");
+            }
+            if (i > 0) {
+                out.append(',');
+            }
+            Json.appendNumber(out, evaluate(model, x, y, exact));
+        }
+        out.append("]}");
+        send(exchange, 200, "application/json", out.toString().getBytes(StandardCharsets.UTF_8));
+        return list.size();
+    }
+
+    // /v1/sweep: streams every cell as an NDJSON row, then a summary line. The response is chunked
+    // and written in 64 KB blocks, so memory use doesn't grow with the grid.
+    private long sweep(HttpExchange exchange, Map<String, Object> params) throws IOException {
+        GridModel model = GridModel.fromName(string(params, "model"));
+        GridAxis[] axes = model.parseGrid(params.containsKey("grid") ? string(params, "grid") : "");
+        GridAxis xAxis = axes[0];
+        GridAxis yAxis = axes[1];
+        long cells;
+        try {
+            cells = Math.multiplyExact(xAxis.getCount(), yAxis.getCount());
+        } catch (ArithmeticException ex) {
+            cells = Long.MAX_VALUE;
+        }
+        if (cells > maxCells) {
+            throw new IllegalArgumentException("Sweep of " + cells + " cells exceeds the limit of " + maxCells);
+        }
+        boolean exact = bool(params, "exact");
+
+        if (bool(params, "summaryOnly")) {
+            SweepSummary summary = LongStream.range(0, xAxis.getCount()).parallel().mapToObj(i -> {
+                SweepSummary row = new SweepSummary();
+                double x = xAxis.valueAt(i);
+                for (long j = 0; j < yAxis.getCount(); j++) {
+                    row.add(evaluate(model, x, yAxis.valueAt(j), exact), i * yAxis.getCount() + j);
+                }
+                return row;
+            }).reduce(new SweepSummary(), (a, b) -> {
+                SweepSummary merged = new SweepSummary();
+                merged.merge(a);
+                merged.merge(b);
+                return merged;
+            });
+            sendJson(exchange, 200, Map.of("summary", summaryJson(summary, xAxis, yAxis)));
+            return cells;
+        }
+
+        exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson");
+        exchange.sendResponseHeaders(200, 0);
+        SweepSummary summary = new SweepSummary();
+        try (OutputStream body = new BufferedOutputStream(exchange.getResponseBody(), SWEEP_BUFFER)) {
+            StringBuilder out = new StringBuilder(SWEEP_BUFFER + 256);
+            out.append("{\"model\":");
+            Json.appendString(out, modelName(model)).append(",\"columns\":[");
+            Json.appendString(out, xAxis.getName()).append(',');
+            Json.appendString(out, yAxis.getName()).append(",\"profit\"],\"cells\":").append(cells).append("}\n");
+            for (long i = 0; i < xAxis.getCount(); i++) {
+                double x = xAxis.valueAt(i);
+                for (long j = 0; j < yAxis.getCount(); j++) {
+                    double y = yAxis.valueAt(j);
+                    double profit = evaluate(model, x, y, exact);
+                    summary.add(profit, i * yAxis.getCount() + j);
+                    out.append('[');
+                    Json.appendNumber(out, x).append(',');
+                    Json.appendNumber(out, y).append(',');
+                    Json.appendNumber(out, profit).append("]\n");
+                    if (out.length() >= SWEEP_BUFFER) {
+                        body.write(out.toString().getBytes(StandardCharsets.UTF_8));
+                        out.setLength(0);
+                    }
+                }
+            }
+            Json.appendValue(out.append("{\"summary\":"), summaryJson(summary, xAxis, yAxis)).append("}\n");
+            body.write(out.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        return cells;
+    }
+
+    private static Map<String, Object> summaryJson(SweepSummary summary, GridAxis xAxis, GridAxis yAxis) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("count", summary.getCount());
+        json.put("mean", summary.getMean());
+        json.put("standardDeviation", summary.getStandardDeviation());
+        json.put("profitableFraction", summary.getProfitableFraction());
+        json.put("min", extreme(summary.getMin(), summary.getArgMin(), xAxis, yAxis));
+        json.put("max", extreme(summary.getMax(), summary.getArgMax(), xAxis, yAxis));
+        return json;
+    }
+
+    private static Map<String, Object> extreme(double profit, long index, GridAxis xAxis, GridAxis yAxis) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("profit", profit);
+        if (index >= 0) {
+            json.put(xAxis.getName(), xAxis.valueAt(index / yAxis.getCount()));
+            json.put(yAxis.getName(), yAxis.valueAt(index % yAxis.getCount()));
+        }
+        return json;
+    }
+
+    // /v1/break-even: value of one input at which profit reaches "target" (default 0), the other
+    // inputs fixed. Unreachable targets give null.
+    private long breakEven(HttpExchange exchange, Map<String, Object> params) throws IOException {
+        GridModel model = GridModel.fromName(string(params, "model"));
+        double target = params.containsKey("target") ? number(params, "target") : 0.0;
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("model", modelName(model));
+        result.put("target", target);
+        String solveFor;
+        double value;
+        switch (model) {
+            case LEMONADE: {
+                solveFor = params.containsKey("solveFor") ? string(params, "solveFor") : "salesVolume";
+                if ("salesVolume".equalsIgnoreCase(solveFor)) {
+                    double variableCost = number(params, "variableCost", LemonadeStandModel.DEFAULT_VARIABLE_COST);
+                    value = LemonadeStandModel.volumeForProfit(target, variableCost);
+                    result.put("wholeCups", Double.isNaN(value) ? null : Math.max(0, Math.ceil(value - 1e-9)));
+                } else if ("variableCost".equalsIgnoreCase(solveFor)) {
+                    value = LemonadeStandModel.variableCostForProfit(target, number(params, "salesVolume"));
+                } else {
+                    throw unknownSolveFor(model, solveFor, "salesVolume, variableCost");
+                }
+                break;
+            }
+            case BROADWAY: {
+                solveFor = params.containsKey("solveFor") ? string(params, "solveFor") : "weeks";
+                if ("weeks".equalsIgnoreCase(solveFor)) {
+                    value = BroadwayPlayModel.weeksForProfit(target,
+                            number(params, "price", BroadwayPlayModel.TICKET_PRICE),
+                            number(params, "occupancy", BroadwayPlayModel.EXPECTED_OCCUPANCY));
+                } else if ("occupancy".equalsIgnoreCase(solveFor)) {
+                    value = BroadwayPlayModel.occupancyForProfit(target, number(params, "weeks"),
+                            number(params, "price", BroadwayPlayModel.TICKET_PRICE));
+                } else if ("price".equalsIgnoreCase(solveFor)) {
+                    value = BroadwayPlayModel.priceForProfit(target, number(params, "weeks"),
+                            number(params, "occupancy", BroadwayPlayModel.EXPECTED_OCCUPANCY));
+                } else {
+                    throw unknownSolveFor(model, solveFor, "weeks, occupancy, price");
+                }
+                break;
+            }
+            default: {
+                solveFor = params.containsKey("solveFor") ? string(params, "solveFor") : "dailyDemand";
+                if (!"dailyDemand".equalsIgnoreCase(solveFor)) {
+                    throw unknownSolveFor(model, solveFor, "dailyDemand");
+                }
+                double copiers = number(params, "copiers");
+                if (copiers < 1 || copiers > Integer.MAX_VALUE || copiers != Math.floor(copiers)) {
+                    throw new IllegalArgumentException("copiers must be a whole number of at least 1");
+                }
+                value = CopyShopModel.dailyDemandForProfit(target, copiers);
+                long whole = CopyShopModel.minDailyDemandForCopiers((int) copiers, target);
+                result.put("wholeDailyDemand", whole < 0 ? null : whole);
+                break;
+            }
+        }
+        result.put("solveFor", solveFor);
+        result.put("value", value);
+        sendJson(exchange, 200, result);
+        return 1;
+    }
+
+    private static IllegalArgumentException unknownSolveFor(GridModel model, String solveFor, String expected) {
+        return new IllegalArgumentException("Cannot solve " + modelName(model) + " for " + solveFor
+                + " (expected " + expected + ")");
+    }
+
+    private static List<Object> models() {
+        List<Object> list = new ArrayList<>();
+        for (GridModel model : GridModel.values()) {
+            Map<String, Object> json = new LinkedHashMap<>();
+            json.put("model", modelName(model));
+            json.put("x", model.getXName());
+            json.put("y", model.getYName());
+            json.put("defaultGrid", model.getXName() + "=" + model.getDefaultXRange() + ","
+                    + model.getYName() + "=" + model.getDefaultYRange());
+            list.add(json);
+        }
+        return list;
+    }
+
+    // Exact mode overflows a long of cents for huge inputs; that is the client's input, not a fault
+    private static double evaluate(GridModel model, double x, double y, boolean exact) {
+        if (!exact) {
+            return model.evaluate(x, y);
+        }
+        try {
+            return Money.toDollars(model.evaluateCents(x, y));
+        } catch (ArithmeticException ex) {
+            throw new IllegalArgumentException(model.getXName() + "=" + x + ", " + model.getYName() + "=" + y
+                    + " is out of range for exact mode");
+        }
+    }
+
+    private static String modelName(GridModel model) {
+        return model.name().toLowerCase(Locale.ROOT);
+    }
+
+    private static GridModel requireModel(GridModel model) {
+        if (model == null) {
+            throw new IllegalArgumentException("model is required");
+        }
+        return model;
+    }
+
+    // Parameter access: POST bodies hold JSON values, GET queries hold strings
+
+    private static String string(Map<String, Object> params, String name) {
+        Object value = params.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException(name + " is required");
+        }
+        return value.toString();
+    }
+
+    private static double number(Map<String, Object> params, String name) {
+        Object value = params.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException(name + " is required");
+        }
+        return toNumber(value, name);
+    }
+
+    private static double number(Map<String, Object> params, String name, double defaultValue) {
+        return params.containsKey(name) ? number(params, name) : defaultValue;
+    }
+
+    private static double toNumber(Object value, String name) {
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        try {
+            return Double.parseDouble(String.valueOf(value));
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException(name + " must be a number, got " + value);
+        }
+    }
+
+    private static boolean bool(Map<String, Object> params, String name) {
+        Object value = params.get(name);
+        return value instanceof Boolean ? (Boolean) value : value != null && "true".equalsIgnoreCase(value.toString());
+    }
+
+    private static Map<String, Object> parseQuery(String rawQuery) {
+        Map<String, Object> params = new LinkedHashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return params;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            String name = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+            String value = eq < 0 ? "true" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            params.put(name, value);
+        }
+        return params;
+    }
+
+    private static Map<String, Object> readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] body = in.readNBytes(MAX_BODY_BYTES + 1);
+            if (body.length > MAX_BODY_BYTES) {
+                throw new IllegalArgumentException("Request body exceeds " + MAX_BODY_BYTES + " bytes");
+            }
+            String text = new String(body, StandardCharsets.UTF_8);
+            return text.isBlank() ? new LinkedHashMap<>() : Json.parseObject(text);
+        }
+    }
+
+    private static void sendJson(HttpExchange exchange, int status, Object value) throws IOException {
+        send(exchange, status, "application/json", Json.write(value).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) {
+        try {
+            sendJson(exchange, status, Map.of("error", message == null ? "" : message));
+        } catch (IOException ex) {
+            // Headers already sent or client gone; nothing more to report
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
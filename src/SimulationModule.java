@@ -0,0 +1,17 @@
+import javax.swing.*;
+
+// Service provider interface for the tabs of Activity6App.
+// Implementations are listed in META-INF/services/SimulationModule and discovered with
+// ServiceLoader, so adding a model doesn't touch Activity6App. Providers must be cheap to
+// construct: the panel itself is only built when its tab is first selected.
+public interface SimulationModule {
+
+    // Tab title
+    String getTitle();
+
+    // Tabs are shown in ascending order
+    int getOrder();
+
+    // Builds the panel (on the EDT, once, on first selection of the tab)
+    JComponent createPanel();
+}
@@ -0,0 +1,611 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Runs a grid sweep across child worker JVMs on this machine, e.g.
+//   java Activity6App --headless --model broadway --grid price=30:70:0.001,weeks=1:2000:1 --distributed --workers 4
+// The grid's linear cell range is cut into chunks and dealt out as contiguous blocks, one queue
+// per worker. A worker takes chunks from the head of its own queue and, once that is empty,
+// steals from the tail of the longest other queue. Each connection keeps two chunks in flight so
+// a worker never idles waiting for the next one. Partial SweepSummary results are merged as they
+// arrive, in chunk order, so for a given chunk size the summary does not depend on which worker
+// ran which chunk or when.
+// When a worker dies its in-flight chunks are queued for retry on the others; a chunk that fails
+// MAX_ATTEMPTS times aborts the sweep. With zero workers the chunks run in the calling thread,
+// which gives the single-process baseline.
+// With a ResultLog every finished chunk is logged, with a checkpoint of the merged prefix now and
+// then, and a rerun of the same sweep skips the chunks the log already holds.
+public class SweepCoordinator {
+
+    private static final Metrics.Timer CHUNK_TIMER = Metrics.timer("distributed.chunk");
+    private static final Metrics.Counter STEALS = Metrics.counter("distributed.steals");
+    private static final Metrics.Counter RETRIES = Metrics.counter("distributed.retries");
+
+    private static final int IN_FLIGHT = 2;
+    private static final int MAX_ATTEMPTS = 3;
+    private static final int TARGET_CHUNKS = 256;
+    private static final long MIN_CHUNK_CELLS = 1 << 16;
+    private static final long MAX_CHUNK_CELLS = 1 << 24;
+    private static final long CONNECT_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    private final GridModel model;
+    private final GridAxis xAxis;
+    private final GridAxis yAxis;
+    private final boolean exact;
+    private final int workerCount;
+    private final long totalCells;
+    private final long chunkCells;
+    private final int chunkCount;
+    private int failWorker = -1;
+    private long failAfter = -1;
+    private ResultLog log;
+    private int resumedChunks;
+
+    // Guarded by lock
+    private final Object lock = new Object();
+    private final List<ArrayDeque<Integer>> queues = new ArrayList<>();
+    private final ArrayDeque<Integer> retryQueue = new ArrayDeque<>();
+    private final int[] attempts;
+    private final SweepSummary[] partials;
+    private final SweepSummary merged = new SweepSummary();
+    private int nextToMerge;
+    private long mergedCells;
+    private int liveWorkers;
+    private String failure;
+    private long steals;
+    private long retries;
+    private long[] completedBy;
+    private long[] stolenBy;
+    private final List<String> workerReports = new ArrayList<>();
+
+    // chunkCells <= 0 picks a size giving about TARGET_CHUNKS chunks. It depends only on the grid,
+    // so a logged sweep can be resumed with a different number of workers.
+    public SweepCoordinator(GridModel model, GridAxis xAxis, GridAxis yAxis, boolean exact,
+                            int workerCount, long chunkCells) {
+        if (workerCount < 0) {
+            throw new IllegalArgumentException("Worker count must not be negative");
+        }
+        this.model = model;
+        this.xAxis = xAxis;
+        this.yAxis = yAxis;
+        this.exact = exact;
+        this.workerCount = workerCount;
+        this.totalCells = Math.multiplyExact(xAxis.getCount(), yAxis.getCount());
+        if (chunkCells <= 0) {
+            long target = totalCells / TARGET_CHUNKS;
+            chunkCells = Math.max(MIN_CHUNK_CELLS, Math.min(MAX_CHUNK_CELLS, target));
+        }
+        long chunks = (totalCells + chunkCells - 1) / chunkCells;
+        if (chunks > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Chunk size " + chunkCells + " gives too many chunks");
+        }
+        this.chunkCells = chunkCells;
+        this.chunkCount = (int) chunks;
+        this.attempts = new int[chunkCount];
+        this.partials = new SweepSummary[chunkCount];
+    }
+
+    // Fault injection for testing: the given worker halts after finishing that many chunks
+    public void setFailure(int worker, long afterChunks) {
+        failWorker = worker;
+        failAfter = afterChunks;
+    }
+
+    // Everything that determines the summary; a log only resumes a sweep with the same key
+    public String getRunKey() {
+        return String.format("sweep model=%s %s=%s:%s:%d %s=%s:%s:%d exact=%s chunkCells=%d", model.name(),
+                xAxis.getName(), xAxis.getStart(), xAxis.getStep(), xAxis.getCount(),
+                yAxis.getName(), yAxis.getStart(), yAxis.getStep(), yAxis.getCount(), exact, chunkCells);
+    }
+
+    // Logs chunk results to the given log (opened with getRunKey) and resumes from its records
+    public void setLog(ResultLog log) {
+        this.log = log;
+    }
+
+    // Chunks taken from the log instead of being evaluated
+    public int getResumedChunks() {
+        return resumedChunks;
+    }
+
+    public long getTotalCells() {
+        return totalCells;
+    }
+
+    public int getChunkCount() {
+        return chunkCount;
+    }
+
+    public long getChunkCells() {
+        return chunkCells;
+    }
+
+    public long getSteals() {
+        synchronized (lock) {
+            return steals;
+        }
+    }
+
+    public long getRetries() {
+        synchronized (lock) {
+            return retries;
+        }
+    }
+
+    // One line per worker: chunks completed, chunks stolen, and whether it was lost
+    public List<String> getWorkerReports() {
+        synchronized (lock) {
+            return new ArrayList<>(workerReports);
+        }
+    }
+
+    // Runs the whole sweep and returns the merged summary. Throws IOException when the workers
+    // cannot be started or all of them are lost, and when a chunk keeps failing.
+    public SweepSummary run(ComputeExecutor.Progress progress) throws IOException, InterruptedException {
+        if (log != null && restore()) {
+            return merged;
+        }
+        if (nextToMerge == chunkCount) {
+            logCompletion();
+            return merged;
+        }
+        if (workerCount == 0) {
+            return runInProcess(progress);
+        }
+        completedBy = new long[workerCount];
+        stolenBy = new long[workerCount];
+        for (int w = 0; w < workerCount; w++) {
+            queues.add(new ArrayDeque<>());
+        }
+        // Contiguous blocks keep each worker on its own stretch of the grid until it has to steal
+        for (int c = nextToMerge; c < chunkCount; c++) {
+            if (partials[c] == null) {
+                queues.get((int) ((long) c * workerCount / chunkCount)).addLast(c);
+            }
+        }
+
+        List<Process> processes = new ArrayList<>();
+        List<Socket> sockets = new ArrayList<>();
+        try (ServerSocket server = new ServerSocket(0, workerCount, InetAddress.getLoopbackAddress())) {
+            for (int w = 0; w < workerCount; w++) {
+                processes.add(startWorker(server.getLocalPort(), w));
+            }
+            Socket[] byWorker = acceptWorkers(server, processes);
+            List<Thread> threads = new ArrayList<>();
+            synchronized (lock) {
+                for (int w = 0; w < workerCount; w++) {
+                    workerReports.add("worker " + w + ": not connected");
+                    if (byWorker[w] != null) {
+                        liveWorkers++;
+                    }
+                }
+                if (liveWorkers == 0) {
+                    throw new IOException("No worker connected");
+                }
+            }
+            for (int w = 0; w < workerCount; w++) {
+                if (byWorker[w] == null) {
+                    continue;
+                }
+                sockets.add(byWorker[w]);
+                int worker = w;
+                Thread thread = new Thread(() -> drive(worker, byWorker[worker]), "sweep-coordinator-" + w);
+                thread.setDaemon(true);
+                thread.start();
+                threads.add(thread);
+            }
+            awaitCompletion(progress);
+            for (Thread thread : threads) {
+                thread.join(TimeUnit.SECONDS.toMillis(5));
+            }
+            logCompletion();
+        } finally {
+            for (Socket socket : sockets) {
+                closeQuietly(socket);
+            }
+            for (Process process : processes) {
+                process.destroy();
+            }
+            for (Process process : processes) {
+                if (!process.waitFor(2, TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+                }
+            }
+        }
+        return merged;
+    }
+
+    private SweepSummary runInProcess(ComputeExecutor.Progress progress) throws IOException {
+        int evaluated = 0;
+        for (int c = nextToMerge; c < chunkCount; c++) {
+            if (partials[c] != null) {
+                continue;
+            }
+            if (progress.isCancelled()) {
+                throw new IOException("Sweep cancelled");
+            }
+            long start = System.nanoTime();
+            SweepSummary partial = SweepWorker.evaluate(model, xAxis, yAxis, exact, firstCell(c), cellCount(c));
+            CHUNK_TIMER.record(System.nanoTime() - start, cellCount(c));
+            complete(-1, c, partial);
+            evaluated++;
+            synchronized (lock) {
+                if (failure != null) {
+                    throw new IOException(failure);
+                }
+            }
+            progress.update((double) mergedCells / totalCells);
+        }
+        logCompletion();
+        synchronized (lock) {
+            workerReports.add("in-process: " + evaluated + " chunks");
+        }
+        return merged;
+    }
+
+    // Loads the log's chunks and checkpoint into the merge state; true when the sweep had already
+    // finished and its summary is complete
+    private boolean restore() throws IOException {
+        ResultLog.Record done = log.findLast(ResultLog.COMPLETE);
+        if (done != null) {
+            merged.merge(SweepSummary.readFrom(done.open()));
+            nextToMerge = chunkCount;
+            mergedCells = totalCells;
+            resumedChunks = chunkCount;
+            return true;
+        }
+        if (log.findLast(ResultLog.START) == null) {
+            log.append(ResultLog.START, 0, out -> {
+                out.writeLong(totalCells);
+                out.writeLong(chunkCells);
+            });
+        }
+        for (ResultLog.Record record : log.getReplayedRecords()) {
+            if (record.getType() == ResultLog.CHECKPOINT) {
+                DataInputStream in = record.open();
+                nextToMerge = in.readInt();
+                mergedCells = in.readLong();
+                merged.merge(SweepSummary.readFrom(in));
+                readPending(in);
+            } else if (record.getType() == ResultLog.CHUNK) {
+                int chunk = (int) record.getIndex();
+                if (chunk >= nextToMerge && chunk < chunkCount) {
+                    partials[chunk] = SweepSummary.readFrom(record.open());
+                }
+            }
+        }
+        for (int c = nextToMerge; c < chunkCount; c++) {
+            if (partials[c] != null) {
+                resumedChunks++;
+            }
+        }
+        resumedChunks += nextToMerge;
+        mergePrefix();
+        return false;
+    }
+
+    // Finished chunks beyond the merged prefix, which a checkpoint has to carry along
+    private void writePending(DataOutput out) throws IOException {
+        int count = 0;
+        for (int c = nextToMerge; c < chunkCount; c++) {
+            count += partials[c] != null ? 1 : 0;
+        }
+        out.writeInt(count);
+        for (int c = nextToMerge; c < chunkCount; c++) {
+            if (partials[c] != null) {
+                out.writeInt(c);
+                partials[c].writeTo(out);
+            }
+        }
+    }
+
+    private void readPending(DataInput in) throws IOException {
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            int chunk = in.readInt();
+            partials[chunk] = SweepSummary.readFrom(in);
+        }
+    }
+
+    private void logCompletion() throws IOException {
+        if (log != null) {
+            log.append(ResultLog.COMPLETE, chunkCount, merged::writeTo);
+        }
+    }
+
+    private Process startWorker(int port, int worker) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        // Each worker evaluates on one thread; a serial collector keeps N JVMs from starting N sets
+        // of parallel GC threads on the same cores
+        command.add("-XX:+UseSerialGC");
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add("SweepWorker");
+        command.add("--connect");
+        command.add(String.valueOf(port));
+        command.add("--id");
+        command.add(String.valueOf(worker));
+        if (worker == failWorker) {
+            command.add("--fail-after");
+            command.add(String.valueOf(failAfter));
+        }
+        return new ProcessBuilder(command)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+    }
+
+    // Waits until every worker has said hello, or the rest have exited or timed out
+    private Socket[] acceptWorkers(ServerSocket server, List<Process> processes) throws IOException {
+        Socket[] byWorker = new Socket[workerCount];
+        int connected = 0;
+        long deadline = System.nanoTime() + CONNECT_TIMEOUT_NANOS;
+        server.setSoTimeout(250);
+        while (connected < workerCount && System.nanoTime() < deadline) {
+            Socket socket;
+            try {
+                socket = server.accept();
+            } catch (SocketTimeoutException ex) {
+                boolean waiting = false;
+                for (int w = 0; w < workerCount; w++) {
+                    waiting |= byWorker[w] == null && processes.get(w).isAlive();
+                }
+                if (!waiting) {
+                    break;
+                }
+                continue;
+            }
+            socket.setTcpNoDelay(true);
+            socket.setSoTimeout((int) TimeUnit.SECONDS.toMillis(10));
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            int id;
+            try {
+                id = in.readInt() == SweepWorker.MAGIC ? in.readInt() : -1;
+            } catch (IOException ex) {
+                id = -1;
+            }
+            if (id < 0 || id >= workerCount || byWorker[id] != null) {
+                closeQuietly(socket);
+                continue;
+            }
+            socket.setSoTimeout(0);
+            byWorker[id] = socket;
+            connected++;
+        }
+        return byWorker;
+    }
+
+    // Main thread: reports progress until every chunk is merged or the sweep fails
+    private void awaitCompletion(ComputeExecutor.Progress progress) throws IOException, InterruptedException {
+        synchronized (lock) {
+            while (nextToMerge < chunkCount && failure == null) {
+                if (progress.isCancelled()) {
+                    failure = "Sweep cancelled";
+                    lock.notifyAll();
+                    break;
+                }
+                lock.wait(200);
+                progress.update((double) mergedCells / totalCells);
+            }
+            if (failure != null) {
+                throw new IOException(failure);
+            }
+        }
+    }
+
+    // Connection thread for one worker: keeps IN_FLIGHT chunks outstanding and merges the answers
+    private void drive(int worker, Socket socket) {
+        ArrayDeque<Integer> inFlight = new ArrayDeque<>();
+        boolean lost = false;
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            out.writeByte(SweepWorker.JOB);
+            out.writeUTF(model.name());
+            SweepWorker.writeAxis(out, xAxis);
+            SweepWorker.writeAxis(out, yAxis);
+            out.writeBoolean(exact);
+            while (true) {
+                while (inFlight.size() < IN_FLIGHT) {
+                    int chunk = takeChunk(worker);
+                    if (chunk < 0) {
+                        break;
+                    }
+                    out.writeByte(SweepWorker.CHUNK);
+                    out.writeInt(chunk);
+                    out.writeLong(firstCell(chunk));
+                    out.writeLong(cellCount(chunk));
+                    inFlight.addLast(chunk);
+                }
+                out.flush();
+                if (inFlight.isEmpty()) {
+                    if (!awaitWork()) {
+                        break;
+                    }
+                    continue;
+                }
+                byte tag = in.readByte();
+                int chunk = in.readInt();
+                if (inFlight.isEmpty() || inFlight.peekFirst() != chunk) {
+                    throw new IOException("Unexpected answer for chunk " + chunk);
+                }
+                inFlight.removeFirst();
+                if (tag == SweepWorker.RESULT) {
+                    long nanos = in.readLong();
+                    SweepSummary partial = SweepSummary.readFrom(in);
+                    CHUNK_TIMER.record(nanos, cellCount(chunk));
+                    complete(worker, chunk, partial);
+                } else if (tag == SweepWorker.ERROR) {
+                    chunkFailed(chunk, "Chunk " + chunk + " failed on worker " + worker + ": " + in.readUTF());
+                } else {
+                    throw new IOException("Unexpected message " + tag);
+                }
+            }
+            out.writeByte(SweepWorker.STOP);
+            out.flush();
+        } catch (IOException ex) {
+            lost = true;
+            workerLost(worker, inFlight);
+        } finally {
+            closeQuietly(socket);
+            synchronized (lock) {
+                workerReports.set(worker, String.format("worker %d: %d chunks, %d stolen%s",
+                        worker, completedBy[worker], stolenBy[worker], lost ? ", lost" : ""));
+            }
+        }
+    }
+
+    // Next chunk for the worker: retries first, then its own queue, then the tail of the longest
+    // other queue; -1 when none is ready
+    private int takeChunk(int worker) {
+        synchronized (lock) {
+            if (failure != null) {
+                return -1;
+            }
+            Integer chunk = retryQueue.pollFirst();
+            if (chunk != null) {
+                return chunk;
+            }
+            chunk = queues.get(worker).pollFirst();
+            if (chunk != null) {
+                return chunk;
+            }
+            ArrayDeque<Integer> victim = null;
+            for (ArrayDeque<Integer> queue : queues) {
+                if (victim == null || queue.size() > victim.size()) {
+                    victim = queue;
+                }
+            }
+            if (victim == null || victim.isEmpty()) {
+                return -1;
+            }
+            steals++;
+            stolenBy[worker]++;
+            STEALS.increment();
+            return victim.pollLast();
+        }
+    }
+
+    // Blocks an idle connection until a chunk is requeued; false once the sweep is over
+    private boolean awaitWork() throws IOException {
+        synchronized (lock) {
+            while (failure == null && nextToMerge < chunkCount && retryQueue.isEmpty()) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted");
+                }
+            }
+            return failure == null && nextToMerge < chunkCount;
+        }
+    }
+
+    // Stores a finished chunk, merges the contiguous run starting at nextToMerge and logs the
+    // chunk; worker is -1 for chunks run in-process
+    private void complete(int worker, int chunk, SweepSummary partial) {
+        synchronized (lock) {
+            if (worker >= 0) {
+                completedBy[worker]++;
+            }
+            partials[chunk] = partial;
+            mergePrefix();
+            if (log != null) {
+                try {
+                    log.append(ResultLog.CHUNK, chunk, partial::writeTo);
+                    if (log.isCheckpointDue()) {
+                        log.append(ResultLog.CHECKPOINT, nextToMerge, out -> {
+                            out.writeInt(nextToMerge);
+                            out.writeLong(mergedCells);
+                            merged.writeTo(out);
+                            writePending(out);
+                        });
+                    }
+                } catch (IOException ex) {
+                    if (failure == null) {
+                        failure = "Result log: " + ex.getMessage();
+                    }
+                }
+            }
+            if (nextToMerge == chunkCount || failure != null) {
+                lock.notifyAll();
+            }
+        }
+    }
+
+    // Caller holds lock
+    private void mergePrefix() {
+        while (nextToMerge < chunkCount && partials[nextToMerge] != null) {
+            merged.merge(partials[nextToMerge]);
+            mergedCells += cellCount(nextToMerge);
+            partials[nextToMerge++] = null;
+        }
+    }
+
+    private void chunkFailed(int chunk, String message) {
+        synchronized (lock) {
+            requeue(chunk, message);
+            lock.notifyAll();
+        }
+    }
+
+    private void workerLost(int worker, ArrayDeque<Integer> inFlight) {
+        synchronized (lock) {
+            liveWorkers--;
+            for (int chunk : inFlight) {
+                requeue(chunk, "Chunk " + chunk + " was lost " + MAX_ATTEMPTS + " times");
+            }
+            // Connections closed after the sweep ended are not worth reporting
+            if (failure == null && nextToMerge < chunkCount) {
+                System.err.println("Worker " + worker + " lost, " + inFlight.size() + " chunks requeued");
+                if (liveWorkers == 0) {
+                    failure = "All workers were lost with " + (chunkCount - nextToMerge) + " chunks unmerged";
+                }
+            }
+            lock.notifyAll();
+        }
+    }
+
+    // Caller holds lock
+    private void requeue(int chunk, String message) {
+        if (++attempts[chunk] >= MAX_ATTEMPTS) {
+            if (failure == null) {
+                failure = message;
+            }
+            return;
+        }
+        retries++;
+        RETRIES.increment();
+        retryQueue.addLast(chunk);
+    }
+
+    private long firstCell(int chunk) {
+        return chunk * chunkCells;
+    }
+
+    private long cellCount(int chunk) {
+        return Math.min(chunkCells, totalCells - firstCell(chunk));
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException ex) {
+            // Already closed
+        }
+    }
+}
@@ -0,0 +1,133 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+// Streaming summary of a sweep: count, mean and variance (Welford), extremes with the linear
+// index of the cell where they occur, and how many cells were profitable. Partial summaries
+// from different chunks, threads or worker processes are combined with merge.
+public class SweepSummary {
+    private long count;
+    private double mean;
+    private double m2;
+    private double min = Double.POSITIVE_INFINITY;
+    private long argMin = -1;
+    private double max = Double.NEGATIVE_INFINITY;
+    private long argMax = -1;
+    private long profitable;
+
+    public void add(double profit, long index) {
+        count++;
+        double delta = profit - mean;
+        mean += delta / count;
+        m2 += delta * (profit - mean);
+        if (profit < min) {
+            min = profit;
+            argMin = index;
+        }
+        if (profit > max) {
+            max = profit;
+            argMax = index;
+        }
+        if (profit > 0) {
+            profitable++;
+        }
+    }
+
+    // Chan et al. parallel combination; ties on extremes keep the lower index so results don't
+    // depend on how the sweep was split
+    public void merge(SweepSummary other) {
+        if (other.count == 0) {
+            return;
+        }
+        if (count == 0) {
+            copyFrom(other);
+            return;
+        }
+        long n = count + other.count;
+        double delta = other.mean - mean;
+        mean += delta * other.count / n;
+        m2 += other.m2 + delta * delta * count * other.count / n;
+        count = n;
+        if (other.min < min || (other.min == min && other.argMin < argMin)) {
+            min = other.min;
+            argMin = other.argMin;
+        }
+        if (other.max > max || (other.max == max && other.argMax < argMax)) {
+            max = other.max;
+            argMax = other.argMax;
+        }
+        profitable += other.profitable;
+    }
+
+    private void copyFrom(SweepSummary other) {
+        count = other.count;
+        mean = other.mean;
+        m2 = other.m2;
+        min = other.min;
+        argMin = other.argMin;
+        max = other.max;
+        argMax = other.argMax;
+        profitable = other.profitable;
+    }
+
+    // Raw state, for sending a partial summary between processes
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeLong(count);
+        out.writeDouble(mean);
+        out.writeDouble(m2);
+        out.writeDouble(min);
+        out.writeLong(argMin);
+        out.writeDouble(max);
+        out.writeLong(argMax);
+        out.writeLong(profitable);
+    }
+
+    public static SweepSummary readFrom(DataInput in) throws IOException {
+        SweepSummary summary = new SweepSummary();
+        summary.count = in.readLong();
+        summary.mean = in.readDouble();
+        summary.m2 = in.readDouble();
+        summary.min = in.readDouble();
+        summary.argMin = in.readLong();
+        summary.max = in.readDouble();
+        summary.argMax = in.readLong();
+        summary.profitable = in.readLong();
+        return summary;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    public double getStandardDeviation() {
+        return count > 1 ? Math.sqrt(m2 / (count - 1)) : 0.0;
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public long getArgMin() {
+        return argMin;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    public long getArgMax() {
+        return argMax;
+    }
+
+    public long getProfitableCount() {
+        return profitable;
+    }
+
+    public double getProfitableFraction() {
+        return count == 0 ? 0.0 : (double) profitable / count;
+    }
+}
@@ -0,0 +1,144 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+
+// Worker process for distributed sweeps. SweepCoordinator starts it as a child JVM:
+//   java -cp <classpath> SweepWorker --connect <port> --id <n> [--fail-after <chunks>]
+// It connects back to the coordinator on the loopback interface, receives the job (model, axes
+// and money mode) once, then evaluates chunks of the grid's linear cell range until told to
+// stop, answering each one with its partial SweepSummary. --fail-after makes the process halt
+// without replying once it has finished that many chunks, to exercise the coordinator's retries.
+public class SweepWorker {
+
+    // Protocol shared with SweepCoordinator; every message starts with one of the tag bytes
+    static final int MAGIC = 0x41365357;
+    static final byte JOB = 'J';
+    static final byte CHUNK = 'C';
+    static final byte STOP = 'S';
+    static final byte RESULT = 'R';
+    static final byte ERROR = 'E';
+
+    public static void main(String[] args) {
+        int port = -1;
+        int id = 0;
+        long failAfter = -1;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--connect":
+                    port = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--id":
+                    id = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--fail-after":
+                    failAfter = Long.parseLong(args[i + 1]);
+                    break;
+                default:
+                    System.err.println("Unknown worker option: " + args[i]);
+                    System.exit(2);
+            }
+        }
+        if (port < 0) {
+            System.err.println("Usage: SweepWorker --connect <port> --id <n> [--fail-after <chunks>]");
+            System.exit(2);
+        }
+        try {
+            serve(port, id, failAfter);
+        } catch (EOFException ex) {
+            // Coordinator went away; nothing left to do
+        } catch (IOException ex) {
+            System.err.println("Worker " + id + ": " + ex.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private static void serve(int port, int id, long failAfter) throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            out.writeInt(MAGIC);
+            out.writeInt(id);
+            out.flush();
+
+            if (in.readByte() != JOB) {
+                throw new IOException("Expected a job description");
+            }
+            GridModel model = GridModel.valueOf(in.readUTF());
+            GridAxis xAxis = readAxis(in, model.getXName());
+            GridAxis yAxis = readAxis(in, model.getYName());
+            boolean exact = in.readBoolean();
+
+            long completed = 0;
+            while (true) {
+                byte tag = in.readByte();
+                if (tag == STOP) {
+                    return;
+                }
+                if (tag != CHUNK) {
+                    throw new IOException("Unexpected message " + tag);
+                }
+                int chunk = in.readInt();
+                long firstCell = in.readLong();
+                long cellCount = in.readLong();
+                if (completed == failAfter) {
+                    Runtime.getRuntime().halt(3);
+                }
+                long start = System.nanoTime();
+                try {
+                    SweepSummary summary = evaluate(model, xAxis, yAxis, exact, firstCell, cellCount);
+                    out.writeByte(RESULT);
+                    out.writeInt(chunk);
+                    out.writeLong(System.nanoTime() - start);
+                    summary.writeTo(out);
+                } catch (RuntimeException ex) {
+                    out.writeByte(ERROR);
+                    out.writeInt(chunk);
+                    out.writeUTF(String.valueOf(ex));
+                }
+                out.flush();
+                completed++;
+            }
+        }
+    }
+
+    private static GridAxis readAxis(DataInputStream in, String name) throws IOException {
+        double start = in.readDouble();
+        double step = in.readDouble();
+        long count = in.readLong();
+        return new GridAxis(name, start, step, count);
+    }
+
+    static void writeAxis(DataOutputStream out, GridAxis axis) throws IOException {
+        out.writeDouble(axis.getStart());
+        out.writeDouble(axis.getStep());
+        out.writeLong(axis.getCount());
+    }
+
+    // Summary of cells [firstCell, firstCell + cellCount) in row-major order, indexed like the
+    // headless sweep (x * yCount + y). Exact mode evaluates in cents, as HeadlessBatchRunner does.
+    static SweepSummary evaluate(GridModel model, GridAxis xAxis, GridAxis yAxis, boolean exact,
+                                 long firstCell, long cellCount) {
+        SweepSummary summary = new SweepSummary();
+        long yCount = yAxis.getCount();
+        long i = firstCell / yCount;
+        long j = firstCell % yCount;
+        double x = xAxis.valueAt(i);
+        long end = firstCell + cellCount;
+        for (long index = firstCell; index < end; index++) {
+            double y = yAxis.valueAt(j);
+            double profit = exact ? Money.toDollars(model.evaluateCents(x, y)) : model.evaluate(x, y);
+            summary.add(profit, index);
+            if (++j == yCount) {
+                j = 0;
+                x = xAxis.valueAt(++i);
+            }
+        }
+        return summary;
+    }
+}
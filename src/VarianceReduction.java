@@ -0,0 +1,546 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleSupplier;
+import java.util.stream.IntStream;
+
+// Variance-reduced Monte Carlo estimates of the mean profit and of the loss probability P(profit < 0)
+// for models whose random inputs are inverse-CDF transforms of a point in the unit cube.
+// Every method produces independent "units" whose average is an unbiased estimate, so the 95%
+// confidence interval always comes from the sample variance of the units:
+//   PLAIN            one trial per unit
+//   ANTITHETIC       the pair u, 1 - u per unit; profit is monotone in every input, so pairs cancel
+//   CONTROL_VARIATE  profit - beta * (control - known mean), beta from an independent pilot run
+//   LATIN_HYPERCUBE  one Latin hypercube design (every input stratified into m slices) per unit
+//   SOBOL            one randomly digit-shifted Sobol point set of 2^k points per unit
+// The per-trial variance of plain sampling is measured on the same trials (their marginal
+// distribution is the plain one), so each estimate also reports its variance reduction factor:
+// how many plain trials one trial of the method is worth at equal precision.
+public final class VarianceReduction {
+
+    public enum Method {
+        PLAIN("Plain Monte Carlo"),
+        ANTITHETIC("Antithetic Variates"),
+        CONTROL_VARIATE("Control Variate"),
+        LATIN_HYPERCUBE("Latin Hypercube"),
+        SOBOL("Randomized Sobol");
+
+        private final String label;
+
+        Method(String label) {
+            this.label = label;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    // A profit model driven by a point u in the unit cube (every coordinate strictly inside (0, 1))
+    public interface Problem {
+        int getDimension();
+
+        double profit(double[] u);
+
+        // Control variate on the same point: strongly correlated with the profit, with a known mean
+        double control(double[] u);
+
+        double getControlMean();
+    }
+
+    private static final int BLOCK_TRIALS = 1 << 14;
+    private static final int PILOT_TRIALS = 1 << 12;
+    private static final int MIN_REPLICATES = 16;
+    private static final int MAX_LHS_STRATA = 1 << 16;
+    private static final int MAX_SOBOL_POINTS = 1 << 24;
+    private static final double Z_95 = 1.959963984540054;
+    private static final double MIN_UNIFORM = 0x1.0p-53;
+    private static final double MAX_UNIFORM = 1.0 - 0x1.0p-53;
+
+    // Joe and Kuo (new-joe-kuo-6.21201) primitive polynomials for dimensions 2..8:
+    // degree s, coefficient a, then the s initial direction numbers m
+    private static final int[][] SOBOL_PARAMETERS = {
+            {1, 0, 1},
+            {2, 1, 1, 3},
+            {3, 1, 1, 3, 1},
+            {3, 2, 1, 1, 1},
+            {4, 1, 1, 1, 3, 3},
+            {4, 4, 1, 3, 5, 13},
+            {5, 2, 1, 1, 5, 5, 17}};
+
+    private static final Metrics.Timer TIMER = Metrics.timer("monteCarlo.varianceReduced");
+
+    private VarianceReduction() {
+    }
+
+    public static int getMaxSobolDimension() {
+        return SOBOL_PARAMETERS.length + 1;
+    }
+
+    // Runs about the given number of trials with the method; LHS and Sobol round the trial count
+    // down to whole designs. Returns null if cancelled.
+    public static Estimate estimate(Problem problem, Method method, long trials, long seed,
+                                    ComputeExecutor.Progress progress) {
+        return estimate(problem, method, trials, seed, progress, new AtomicLong(), trials);
+    }
+
+    private static Estimate estimate(Problem problem, Method method, long trials, long seed,
+                                     ComputeExecutor.Progress progress, AtomicLong completed, long totalWork) {
+        if (trials < 2) {
+            throw new IllegalArgumentException("At least 2 trials are needed for a confidence interval");
+        }
+        if (method == Method.SOBOL && problem.getDimension() > getMaxSobolDimension()) {
+            throw new IllegalArgumentException("Sobol points are available for up to " + getMaxSobolDimension() + " inputs");
+        }
+        long start = TIMER.start();
+        long begin = System.nanoTime();
+        SplittableRandom root = new SplittableRandom(seed);
+
+        double[] coefficients = method == Method.CONTROL_VARIATE ? pilot(problem, root.split()) : null;
+        long unitTrials;
+        long units;
+        switch (method) {
+            case ANTITHETIC:
+                unitTrials = 2;
+                units = trials / 2;
+                break;
+            case LATIN_HYPERCUBE:
+                unitTrials = Math.max(1, Math.min(MAX_LHS_STRATA, trials / MIN_REPLICATES));
+                units = trials / unitTrials;
+                break;
+            case SOBOL:
+                unitTrials = Math.min(MAX_SOBOL_POINTS, Long.highestOneBit(Math.max(1, trials / MIN_REPLICATES)));
+                units = trials / unitTrials;
+                break;
+            default:
+                unitTrials = 1;
+                units = trials;
+        }
+        // Jobs of whole units, each with its own random stream so the result depends only on the seed
+        long unitsPerJob = Math.max(1, BLOCK_TRIALS / unitTrials);
+        int jobs = (int) ((units + unitsPerJob - 1) / unitsPerJob);
+        SplittableRandom[] streams = new SplittableRandom[jobs];
+        for (int j = 0; j < jobs; j++) {
+            streams[j] = root.split();
+        }
+        int[][] directions = method == Method.SOBOL ? sobolDirections(problem.getDimension()) : null;
+        long finalUnitTrials = unitTrials;
+        Stats total = IntStream.range(0, jobs).parallel().mapToObj(j -> {
+            Stats stats = new Stats();
+            if (progress.isCancelled()) {
+                return stats;
+            }
+            long first = j * unitsPerJob;
+            long count = Math.min(units, first + unitsPerJob) - first;
+            SplittableRandom random = streams[j];
+            double[] u = new double[problem.getDimension()];
+            for (long k = 0; k < count && !progress.isCancelled(); k++) {
+                switch (method) {
+                    case ANTITHETIC:
+                        antitheticPair(problem, random, u, stats);
+                        break;
+                    case CONTROL_VARIATE:
+                        controlVariateTrial(problem, random, u, coefficients, stats);
+                        break;
+                    case LATIN_HYPERCUBE:
+                        latinHypercube(problem, random, (int) finalUnitTrials, u, stats, progress);
+                        break;
+                    case SOBOL:
+                        sobol(problem, directions, random, (int) finalUnitTrials, u, stats, progress);
+                        break;
+                    default:
+                        plainTrial(problem, random, u, stats);
+                }
+            }
+            progress.update((double) completed.addAndGet(count * finalUnitTrials) / totalWork);
+            return stats;
+        }).reduce(new Stats(), Stats::merged);
+        if (progress.isCancelled()) {
+            return null;
+        }
+        TIMER.stop(start, total.trials);
+        return new Estimate(method, total, System.nanoTime() - begin);
+    }
+
+    // Regression coefficients of profit and of the loss indicator on the control, from plain trials
+    // drawn on a separate stream so that beta is independent of the estimate
+    private static double[] pilot(Problem problem, SplittableRandom random) {
+        double[] u = new double[problem.getDimension()];
+        double mu = problem.getControlMean();
+        double sumX = 0;
+        double sumXX = 0;
+        double sumXY = 0;
+        double sumXL = 0;
+        double sumY = 0;
+        double sumL = 0;
+        for (int i = 0; i < PILOT_TRIALS; i++) {
+            fill(u, random);
+            double x = problem.control(u) - mu;
+            double y = problem.profit(u);
+            double loss = y < 0 ? 1 : 0;
+            sumX += x;
+            sumXX += x * x;
+            sumXY += x * y;
+            sumXL += x * loss;
+            sumY += y;
+            sumL += loss;
+        }
+        double n = PILOT_TRIALS;
+        double varianceX = sumXX - sumX * sumX / n;
+        if (varianceX <= 0) {
+            return new double[]{0, 0};
+        }
+        return new double[]{(sumXY - sumX * sumY / n) / varianceX, (sumXL - sumX * sumL / n) / varianceX};
+    }
+
+    private static void plainTrial(Problem problem, SplittableRandom random, double[] u, Stats stats) {
+        fill(u, random);
+        double profit = problem.profit(u);
+        stats.addRaw(profit);
+        stats.addUnit(profit, profit < 0 ? 1 : 0);
+    }
+
+    private static void antitheticPair(Problem problem, SplittableRandom random, double[] u, Stats stats) {
+        fill(u, random);
+        double first = problem.profit(u);
+        for (int d = 0; d < u.length; d++) {
+            u[d] = 1.0 - u[d];
+        }
+        double second = problem.profit(u);
+        stats.addRaw(first);
+        stats.addRaw(second);
+        stats.addUnit(0.5 * (first + second), 0.5 * ((first < 0 ? 1 : 0) + (second < 0 ? 1 : 0)));
+    }
+
+    private static void controlVariateTrial(Problem problem, SplittableRandom random, double[] u,
+                                            double[] coefficients, Stats stats) {
+        fill(u, random);
+        double profit = problem.profit(u);
+        double x = problem.control(u) - problem.getControlMean();
+        stats.addRaw(profit);
+        stats.addUnit(profit - coefficients[0] * x, (profit < 0 ? 1 : 0) - coefficients[1] * x);
+    }
+
+    // One Latin hypercube design of m points: coordinate d of point i lies in slice perm_d(i) of m
+    private static void latinHypercube(Problem problem, SplittableRandom random, int m, double[] u, Stats stats,
+                                       ComputeExecutor.Progress progress) {
+        int dimension = u.length;
+        int[][] permutations = new int[dimension][m];
+        for (int d = 0; d < dimension; d++) {
+            int[] permutation = permutations[d];
+            for (int i = 0; i < m; i++) {
+                permutation[i] = i;
+            }
+            for (int i = m - 1; i > 0; i--) {
+                int k = random.nextInt(i + 1);
+                int swap = permutation[i];
+                permutation[i] = permutation[k];
+                permutation[k] = swap;
+            }
+        }
+        double sum = 0;
+        long losses = 0;
+        for (int i = 0; i < m; i++) {
+            if ((i & (BLOCK_TRIALS - 1)) == 0 && i > 0 && progress.isCancelled()) {
+                return;
+            }
+            for (int d = 0; d < dimension; d++) {
+                u[d] = clamp((permutations[d][i] + random.nextDouble()) / m);
+            }
+            double profit = problem.profit(u);
+            stats.addRaw(profit);
+            sum += profit;
+            if (profit < 0) {
+                losses++;
+            }
+        }
+        stats.addUnit(sum / m, (double) losses / m);
+    }
+
+    // The first m points (a power of two) of the Sobol sequence in Gray code order, XOR-shifted by a
+    // random digit vector per dimension; the low-order bits below 2^-32 are filled uniformly
+    private static void sobol(Problem problem, int[][] directions, SplittableRandom random, int m, double[] u,
+                              Stats stats, ComputeExecutor.Progress progress) {
+        int dimension = u.length;
+        int[] shifts = new int[dimension];
+        int[] x = new int[dimension];
+        for (int d = 0; d < dimension; d++) {
+            shifts[d] = random.nextInt();
+        }
+        double sum = 0;
+        long losses = 0;
+        for (int i = 0; i < m; i++) {
+            if (i > 0) {
+                if ((i & (BLOCK_TRIALS - 1)) == 0 && progress.isCancelled()) {
+                    return;
+                }
+                int bit = Integer.numberOfTrailingZeros(i);
+                for (int d = 0; d < dimension; d++) {
+                    x[d] ^= directions[d][bit];
+                }
+            }
+            for (int d = 0; d < dimension; d++) {
+                u[d] = clamp(((x[d] ^ shifts[d]) & 0xFFFFFFFFL) * 0x1.0p-32 + random.nextDouble() * 0x1.0p-32);
+            }
+            double profit = problem.profit(u);
+            stats.addRaw(profit);
+            sum += profit;
+            if (profit < 0) {
+                losses++;
+            }
+        }
+        stats.addUnit(sum / m, (double) losses / m);
+    }
+
+    // 32-bit direction numbers per dimension; dimension 1 is the van der Corput sequence
+    static int[][] sobolDirections(int dimension) {
+        int[][] directions = new int[dimension][32];
+        for (int k = 0; k < 32; k++) {
+            directions[0][k] = 1 << (31 - k);
+        }
+        for (int d = 1; d < dimension; d++) {
+            int[] parameters = SOBOL_PARAMETERS[d - 1];
+            int s = parameters[0];
+            int a = parameters[1];
+            int[] v = directions[d];
+            for (int k = 0; k < 32; k++) {
+                if (k < s) {
+                    v[k] = parameters[2 + k] << (31 - k);
+                } else {
+                    v[k] = v[k - s] ^ (v[k - s] >>> s);
+                    for (int i = 1; i < s; i++) {
+                        if (((a >>> (s - 1 - i)) & 1) != 0) {
+                            v[k] ^= v[k - i];
+                        }
+                    }
+                }
+            }
+        }
+        return directions;
+    }
+
+    private static void fill(double[] u, SplittableRandom random) {
+        for (int d = 0; d < u.length; d++) {
+            u[d] = clamp(random.nextDouble());
+        }
+    }
+
+    private static double clamp(double u) {
+        return Math.max(MIN_UNIFORM, Math.min(MAX_UNIFORM, u));
+    }
+
+    // Runs every method at 1,000, 10,000, ... trials up to maxTrials and tabulates the confidence
+    // intervals and variance reduction factors. Returns null if cancelled.
+    public static String convergenceReport(String title, Problem problem, long maxTrials, long seed,
+                                           ComputeExecutor.Progress progress) {
+        List<Long> sizes = new ArrayList<>();
+        for (long n = 1000; n < maxTrials; n *= 10) {
+            sizes.add(n);
+        }
+        sizes.add(Math.max(2, maxTrials));
+        long totalWork = 0;
+        for (long n : sizes) {
+            totalWork += n * Method.values().length;
+        }
+
+        AtomicLong completed = new AtomicLong();
+        StringBuilder out = new StringBuilder();
+        out.append(title).append("\n");
+        out.append("95% confidence half-widths; VRF = plain variance / method variance at equal trials\n\n");
+        out.append(String.format("%12s  %-20s %28s %8s %26s %8s%n", "Trials", "Method", "Mean profit", "VRF",
+                "P(profit < 0)", "VRF"));
+        Estimate[] largest = new Estimate[Method.values().length];
+        for (long n : sizes) {
+            for (Method method : Method.values()) {
+                Estimate estimate = estimate(problem, method, n, seed + 31 * n + method.ordinal(),
+                        progress, completed, totalWork);
+                if (estimate == null) {
+                    return null;
+                }
+                largest[method.ordinal()] = estimate;
+                out.append(String.format("%,12d  %-20s %14.2f +/- %-9.3g %8s %12.5f +/- %-9.3g %8s%n",
+                        estimate.getTrials(), method, estimate.getMean(), estimate.getMeanHalfWidth(),
+                        factor(estimate::getMeanVarianceReduction), estimate.getLossProbability(),
+                        estimate.getLossHalfWidth(), factor(estimate::getLossVarianceReduction)));
+            }
+            out.append("\n");
+        }
+
+        Estimate plain = largest[Method.PLAIN.ordinal()];
+        out.append(String.format("Trials each method needs for the precision of %,d plain trials:%n", plain.getTrials()));
+        for (Estimate estimate : largest) {
+            out.append(String.format("  %-20s mean %14s   P(loss) %14s%n", estimate.getMethod(),
+                    equivalentTrials(plain.getTrials(), estimate.getMeanVarianceReduction()),
+                    equivalentTrials(plain.getTrials(), estimate.getLossVarianceReduction())));
+        }
+        return out.toString();
+    }
+
+    private static String factor(DoubleSupplier value) {
+        double v = value.getAsDouble();
+        if (Double.isNaN(v)) {
+            return "-";
+        }
+        return Double.isInfinite(v) ? "exact" : String.format(v < 10 ? "%.2f" : "%.0f", v);
+    }
+
+    private static String equivalentTrials(long plainTrials, double varianceReduction) {
+        if (Double.isNaN(varianceReduction)) {
+            return "-";
+        }
+        if (Double.isInfinite(varianceReduction)) {
+            return "exact";
+        }
+        return String.format("%,d", Math.max(1, Math.round(plainTrials / varianceReduction)));
+    }
+
+    // Welford mean and variance
+    private static final class Moments {
+        long count;
+        double mean;
+        double m2;
+
+        void add(double value) {
+            count++;
+            double delta = value - mean;
+            mean += delta / count;
+            m2 += delta * (value - mean);
+        }
+
+        void merge(Moments other) {
+            if (other.count == 0) {
+                return;
+            }
+            long n = count + other.count;
+            double delta = other.mean - mean;
+            mean += delta * other.count / n;
+            m2 += other.m2 + delta * delta * count * other.count / n;
+            count = n;
+        }
+
+        double variance() {
+            return count > 1 ? m2 / (count - 1) : Double.NaN;
+        }
+    }
+
+    // Unit estimates of the mean and the loss probability, plus the raw per-trial profits
+    private static final class Stats {
+        final Moments units = new Moments();
+        final Moments lossUnits = new Moments();
+        final Moments raw = new Moments();
+        long trials;
+        long rawLosses;
+
+        void addUnit(double profit, double loss) {
+            units.add(profit);
+            lossUnits.add(loss);
+        }
+
+        void addRaw(double profit) {
+            raw.add(profit);
+            trials++;
+            if (profit < 0) {
+                rawLosses++;
+            }
+        }
+
+        static Stats merged(Stats a, Stats b) {
+            Stats merged = new Stats();
+            for (Stats part : new Stats[]{a, b}) {
+                merged.units.merge(part.units);
+                merged.lossUnits.merge(part.lossUnits);
+                merged.raw.merge(part.raw);
+                merged.trials += part.trials;
+                merged.rawLosses += part.rawLosses;
+            }
+            return merged;
+        }
+    }
+
+    // Point estimates with standard errors from one run of one method
+    public static final class Estimate {
+        private final Method method;
+        private final long trials;
+        private final long units;
+        private final double mean;
+        private final double meanStdErr;
+        private final double lossProbability;
+        private final double lossStdErr;
+        private final double plainVariance;
+        private final double plainLossProbability;
+        private final long elapsedNanos;
+
+        private Estimate(Method method, Stats stats, long elapsedNanos) {
+            this.method = method;
+            this.trials = stats.trials;
+            this.units = stats.units.count;
+            this.mean = stats.units.mean;
+            this.meanStdErr = Math.sqrt(stats.units.variance() / units);
+            this.lossProbability = stats.lossUnits.mean;
+            this.lossStdErr = Math.sqrt(stats.lossUnits.variance() / units);
+            this.plainVariance = stats.raw.variance();
+            this.plainLossProbability = trials == 0 ? 0.0 : (double) stats.rawLosses / trials;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public Method getMethod() {
+            return method;
+        }
+
+        public long getTrials() {
+            return trials;
+        }
+
+        public long getUnits() {
+            return units;
+        }
+
+        public double getMean() {
+            return mean;
+        }
+
+        public double getMeanStdErr() {
+            return meanStdErr;
+        }
+
+        public double getMeanHalfWidth() {
+            return Z_95 * meanStdErr;
+        }
+
+        // Loss probability estimate; control variate estimates may fall slightly outside [0, 1]
+        public double getLossProbability() {
+            return lossProbability;
+        }
+
+        public double getLossStdErr() {
+            return lossStdErr;
+        }
+
+        public double getLossHalfWidth() {
+            return Z_95 * lossStdErr;
+        }
+
+        // Plain per-trial variance / trials over this method's variance of the mean; infinite when
+        // the method has no sampling error left, NaN when there is nothing to compare
+        public double getMeanVarianceReduction() {
+            return ratio(plainVariance / trials, meanStdErr * meanStdErr);
+        }
+
+        public double getLossVarianceReduction() {
+            return ratio(plainLossProbability * (1 - plainLossProbability) / trials, lossStdErr * lossStdErr);
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        private static double ratio(double plain, double method) {
+            if (Double.isNaN(plain) || Double.isNaN(method) || plain == 0) {
+                return Double.NaN;
+            }
+            return method == 0 ? Double.POSITIVE_INFINITY : plain / method;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorSpecies;
+
+// Vector API implementation of the affine row kernel. Kept out of src so the main build needs no
+// incubator flag; it is compiled on its own with --add-modules jdk.incubator.vector (see README)
+// and needs the same flag at run time. GridKernels only loads it when the module is present.
+class VectorGridKernels implements GridKernels.AffineKernel {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    @Override
+    public void apply(double intercept, double slope, double[] x, double[] out, int offset) {
+        int n = x.length;
+        int bound = SPECIES.loopBound(n);
+        int j = 0;
+        for (; j < bound; j += SPECIES.length()) {
+            DoubleVector.fromArray(SPECIES, x, j).mul(slope).add(intercept).intoArray(out, offset + j);
+        }
+        for (; j < n; j++) {
+            out[offset + j] = intercept + slope * x[j];
+        }
+    }
+
+    // Empty when the preferred species has a single lane, which would only add overhead
+    @Override
+    public String describe() {
+        return SPECIES.length() < 2 ? "" : "Vector API, " + SPECIES.vectorBitSize() + "-bit, " + SPECIES.length() + " lanes";
+    }
+}